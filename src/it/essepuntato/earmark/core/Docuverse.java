@@ -31,12 +31,23 @@ public abstract class Docuverse implements EARMARKItem {
 		/**
 		 * This variable is used to refer to an URI docuverse.
 		 */
-		URIDocuverse
+		URIDocuverse ,
+		
+		/**
+		 * This variable is used to refer to a docuverse whose content is a memory-mapped file.
+		 */
+		MappedFileDocuverse ,
+		
+		/**
+		 * This variable is used to refer to a docuverse whose content can be modified.
+		 */
+		EditableDocuverse
 	}
 	
 	private EARMARKDocument document;
 	private Object content;
 	private URI id;
+	private long version = 0;
 	
 	/**
 	 * Create a docuverse.
@@ -76,6 +87,44 @@ public abstract class Docuverse implements EARMARKItem {
 	 */
 	public abstract Docuverse.Type getType();
 	
+	/**
+	 * <p>This method returns the textual content of the docuverse, i.e., the text the ranges 
+	 * referring to the docuverse are defined on.</p>
+	 * <p>By default, it is the content of the docuverse itself, or its string representation if it is not
+	 * a character sequence. The docuverses whose content is not their text override it.</p>
+	 * 
+	 * @return the textual content of the docuverse, or an empty string if it is not available.
+	 */
+	public CharSequence getText() {
+		Object c = hasContent();
+		if (c == null) {
+			return "";
+		} else if (c instanceof CharSequence) {
+			return (CharSequence) c;
+		} else {
+			return c.toString();
+		}
+	}
+	
+	/**
+	 * <p>This method returns the version of the textual content of the docuverse, i.e., the number of
+	 * modifications it has undergone.</p>
+	 * <p>Two equal versions of the same docuverse always have the same textual content.</p>
+	 * 
+	 * @return the version of the textual content of the docuverse.
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * This method increases the version of the textual content of the docuverse, and it must be called
+	 * every time such content is modified.
+	 */
+	protected void increaseVersion() {
+		version++;
+	}
+	
 	@Override
 	public URI hasId() {
 		return id;
@@ -0,0 +1,150 @@
+package it.essepuntato.earmark.core;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>This class defines a content-addressed pool of the contents of string docuverses, shared by all the
+ * EARMARK documents of the JVM. The contents are identified by their SHA-256 digest, so that identical
+ * contents of different docuverses (e.g., the ones created when cloning ranges, nodes and documents) are
+ * stored once.</p>
+ * <p>The pool keeps the contents through weak references, and a content is discarded as soon as no docuverse
+ * refers to it.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class DocuverseContentPool {
+	private static final String ALGORITHM = "SHA-256";
+
+	private static DocuverseContentPool defaultPool = new DocuverseContentPool();
+
+	private Map<Digest,Entry> contents = new HashMap<Digest,Entry>();
+	private ReferenceQueue<String> queue = new ReferenceQueue<String>();
+
+	/* The SHA-256 digest of a content */
+	private static class Digest {
+		private byte[] bytes;
+		private int hash;
+
+		private Digest(byte[] bytes) {
+			this.bytes = bytes;
+			this.hash = Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Digest && Arrays.equals(bytes, ((Digest) obj).bytes);
+		}
+	}
+
+	/* A weak reference to a content, which remembers its digest in order to remove it from the pool */
+	private static class Entry extends WeakReference<String> {
+		private Digest digest;
+
+		private Entry(String content, Digest digest, ReferenceQueue<String> queue) {
+			super(content, queue);
+			this.digest = digest;
+		}
+	}
+
+	/**
+	 * This method returns the pool shared by all the EARMARK documents of the JVM.
+	 *
+	 * @return the default pool.
+	 */
+	public static DocuverseContentPool getDefault() {
+		return defaultPool;
+	}
+
+	/**
+	 * <p>This method returns the canonical copy of a content, i.e., the one stored in the pool with the same
+	 * digest, adding the content specified to the pool if it does not contain it yet.</p>
+	 *
+	 * @param content the content to share.
+	 * @return the canonical copy of the content, or null if the content is null.
+	 */
+	public String share(String content) {
+		if (content == null) {
+			return null;
+		}
+
+		Digest digest = digest(content);
+
+		synchronized (this) {
+			purge();
+
+			Entry entry = contents.get(digest);
+			String result = (entry == null ? null : entry.get());
+			if (result == null) {
+				result = content;
+				contents.put(digest, new Entry(result, digest, queue));
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * This method returns the number of contents in the pool, including the ones not referred anymore
+	 * that have not been discarded yet.
+	 *
+	 * @return the number of contents in the pool.
+	 */
+	public synchronized int size() {
+		purge();
+		return contents.size();
+	}
+
+	/**
+	 * This method removes all the contents from the pool. The docuverses already created keep their
+	 * contents.
+	 */
+	public synchronized void clear() {
+		purge();
+		contents.clear();
+	}
+
+	/* Remove the entries whose content has been reclaimed by the garbage collector */
+	private void purge() {
+		Entry entry = (Entry) queue.poll();
+		while (entry != null) {
+			if (contents.get(entry.digest) == entry) {
+				contents.remove(entry.digest);
+			}
+			entry = (Entry) queue.poll();
+		}
+	}
+
+	/* Compute the digest of the UTF-16 code units of a content, without encoding it as a whole */
+	private Digest digest(String content) {
+		try {
+			MessageDigest md = MessageDigest.getInstance(ALGORITHM);
+			int length = content.length();
+			byte[] buffer = new byte[Math.min(length, 4096) * 2];
+			for (int i = 0; i < length; i += buffer.length / 2) {
+				int end = Math.min(length, i + buffer.length / 2);
+				int b = 0;
+				for (int j = i; j < end; j++) {
+					char c = content.charAt(j);
+					buffer[b++] = (byte) (c >> 8);
+					buffer[b++] = (byte) c;
+				}
+				md.update(buffer, 0, b);
+			}
+			return new Digest(md.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -2,27 +2,43 @@ package it.essepuntato.earmark.core;
 
 import it.essepuntato.earmark.core.exception.EARMARKGraphException;
 import it.essepuntato.earmark.core.exception.ExistingIdException;
+import it.essepuntato.earmark.core.id.CounterIdGenerator;
+import it.essepuntato.earmark.core.id.IdGenerator;
 import it.essepuntato.earmark.core.io.EARMARKReader;
 import it.essepuntato.earmark.core.io.EARMARKWriter;
 import it.essepuntato.earmark.core.io.JenaReader;
 import it.essepuntato.earmark.core.io.JenaWriter;
+import it.essepuntato.earmark.core.xml.XMLContentCache;
 import it.essepuntato.facility.collection.CollectionFacility;
+import it.essepuntato.facility.interval.IntervalTree;
 import it.essepuntato.facility.list.ListFacility;
-import it.essepuntato.facility.set.SetFacility;
+import it.essepuntato.facility.map.PersistentMap;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.sql.rowset.Predicate;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactoryConfigurationException;
+
+import org.xml.sax.SAXException;
 
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
@@ -53,9 +69,9 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public final static String SEPARATOR = "/";
 	
-	private static EARMARKReader reader = new JenaReader();
+	private static volatile EARMARKReader reader = new JenaReader();
 
-	private static EARMARKWriter writer = new JenaWriter();
+	private static volatile EARMARKWriter writer = new JenaWriter();
 	
 	private Map<URI, EARMARKItem> idSet = new HashMap<URI, EARMARKItem>();
 	
@@ -78,24 +94,69 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	private Map<Docuverse,Set<Range>> docuverseMap = 
 		new HashMap<Docuverse,Set<Range>>();
 	
-	private Map<Integer,Set<Range>> rangeBeginLocationMap = 
-		new HashMap<Integer,Set<Range>>();
+	/* It is used to associate a docuverse to the xpath ranges referring to it */
+	private Map<Docuverse,Set<Range>> docuverseXPathMap = 
+		new HashMap<Docuverse,Set<Range>>();
 	
-	private Map<Integer,Set<Range>> rangeEndLocationMap = 
-		new HashMap<Integer,Set<Range>>();
+	/* It is used to associate a docuverse to an interval tree of the pointer ranges referring to it. The
+	 * trees of editable docuverses also keep the locations of their ranges. */
+	private Map<Docuverse,IntervalTree<Range>> docuverseIntervalMap = 
+		new HashMap<Docuverse,IntervalTree<Range>>();
 	
-	private Map<String,Set<Range>> rangeXPathPointerMap = 
-		new HashMap<String,Set<Range>>();
+	/* It is used to associate a docuverse, a begin location, an end location and an xpath context to
+	 * the range defined by them, except for the pointer ranges of editable docuverses, which are found 
+	 * through their interval trees since their locations change */
+	private Map<RangeKey,Range> rangeKeyMap = new HashMap<RangeKey,Range>();
 	
 	private Map<EARMARKNode,Map<String,Object>> userData = 
 		new HashMap<EARMARKNode,Map<String,Object>>();
 	
 	private Model rdf = ModelFactory.createDefaultModel();
 	
+	private IdGenerator idGenerator = new CounterIdGenerator();
+	
+	/* The listeners notified of the modifications of the document */
+	private java.util.List<EARMARKListener> listeners = new CopyOnWriteArrayList<EARMARKListener>();
+	
+	private XMLContentCache xmlContentCache = new XMLContentCache();
+	
+	private ArrayList<RangeTable> rangeTables = new ArrayList<RangeTable>();
+	
+	/* The range tables indexed by their ids, used for finding the rows from their ids */
+	private Map<String, RangeTable> rangeTableMap = new HashMap<String, RangeTable>();
+	
+	/* It is used to associate a hierarchical node to its text content, computed on demand and invalidated
+	 * (together with the one of all its ancestors) when its children change */
+	private Map<EARMARKHierarchicalNode,String> textCache = 
+		new HashMap<EARMARKHierarchicalNode,String>();
+	
+	/* The value cached for the nodes without any text content */
+	private static final String NO_TEXT = new String();
+	
+	/* The lock shared by the readers and the writers of the document in concurrent mode, null otherwise */
+	private volatile ReentrantReadWriteLock concurrencyLock = null;
+	
+	/* The persistent maps shared with the snapshots of the document, the last snapshot taken and the keys
+	 * changed since then (null until the first snapshot is taken) */
+	private PersistentMap<EARMARKHierarchicalNode,java.util.List<EARMARKChildNode>> snapshotChildren = 
+		PersistentMap.empty();
+	private PersistentMap<EARMARKChildNode,Set<EARMARKHierarchicalNode>> snapshotParents = 
+		PersistentMap.empty();
+	private PersistentMap<URI,EARMARKItem> snapshotIds = PersistentMap.empty();
+	private PersistentMap<String,Set<MarkupItem>> snapshotGeneralIdentifiers = PersistentMap.empty();
+	private EARMARKSnapshot lastSnapshot = null;
+	private Set<EARMARKHierarchicalNode> changedChildren = null;
+	private Set<EARMARKChildNode> changedParents = null;
+	private Set<URI> changedIds = null;
+	private Set<String> changedGeneralIdentifiers = null;
+	
 	/* Remove all the information concerning ids and data of a node */
 	private void removeIdAndData(EARMARKNode node) {
 		userData.remove(node);
+		textCache.remove(node);
 		getIdMap().remove(node.hasId());
+		changedId(node.hasId());
+		fireRemoved(node);
 	}
 	
 	/* Remove all the hierarchical information of a node from its parent nodes */
@@ -107,6 +168,7 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 			}
 		}
 		parentMap.remove(node);
+		changedParents(node);
 	}
 	
 	/* Remove all the information of a node concerning its children and apply a
@@ -116,9 +178,12 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		Collection children = node.getChildNodes();
 		if (children != null) {
 			childMap.remove(node);
+			changedChildren(node);
+			invalidateTextContent(node);
 			for (EARMARKChildNode child : children) {
 				Set<EARMARKHierarchicalNode> childParents = parentMap.get(child);
 				childParents.remove(node);
+				changedParents(child);
 				if (strong || childParents.isEmpty()) {
 					if (child instanceof Range) {
 						removeRange((Range) child);
@@ -139,60 +204,40 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * the document).
 	 */
 	public boolean removeRange(Range range) {
-		boolean result = true;
-		
-		if (equals(range.getOwnerDocument())) {
-			removeFromParents(range);
-			Set<Range> docuverseSet = docuverseMap.get(range.refersTo());
-			if (docuverseSet != null) {
-				docuverseSet.remove(range);
-				removeDocuverse(range.refersTo());
-			}
-			
-			Integer begin = (Integer) range.begins();
-			if (begin == null) {
-				begin = -1;
-			}
-			Set<Range> beginSet = rangeBeginLocationMap.get(begin);
-			if (beginSet != null) {
-				beginSet.remove(range);
-				if (beginSet.isEmpty()) {
-					rangeBeginLocationMap.remove(begin);
-				}
-			}
-			
-			Integer end = (Integer) range.ends();
-			if (end == null) {
-				end = -1;
-			}
-			Set<Range> endSet = rangeEndLocationMap.get(end);
-			if (endSet != null) {
-				endSet.remove(range);
-				if (endSet.isEmpty()) {
-					rangeEndLocationMap.remove(end);
-				}
-			}
+		Lock lock = lockForWriting();
+		try {
+			boolean result = true;
 			
-			if (range.getNodeType() == EARMARKNode.Type.XPathPointerRange) {
-				String xpath = ((XPathPointerRange) range).hasXPathContext();
-				if (xpath == null) {
-					xpath = "";
+			if (equals(range.getOwnerDocument()) && range instanceof RangeTable.Row && !parentMap.containsKey(range)) {
+				/* A row of a range table that is not a node of the document */
+				RangeTable.Row row = (RangeTable.Row) range;
+				row.getTable().markAsRemoved(row.getRow());
+				removeDocuverse(range.refersTo());
+			} else if (equals(range.getOwnerDocument())) {
+				if (range instanceof RangeTable.Row) {
+					RangeTable.Row row = (RangeTable.Row) range;
+					row.getTable().markAsRemoved(row.getRow());
 				}
-				Set<Range> xpathSet = rangeXPathPointerMap.get(xpath);
-				if (xpathSet != null) {
-					xpathSet.remove(range);
-					if (xpathSet.isEmpty()) {
-						rangeXPathPointerMap.remove(xpath);
-					}
+				removeFromParents(range);
+				removeRangeInterval(range);
+				removeRangeXPath(range);
+				Set<Range> docuverseSet = docuverseMap.get(range.refersTo());
+				if (docuverseSet != null) {
+					docuverseSet.remove(range);
+					removeDocuverse(range.refersTo());
 				}
+				
+				removeRangeKey(range);
+				
+				removeIdAndData(range);
+			} else {
+				result = false;
 			}
 			
-			removeIdAndData(range);
-		} else {
-			result = false;
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -218,42 +263,48 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * the document).
 	 */
 	protected boolean removeMarkupItem(MarkupItem markupitem, boolean strong) {
-		boolean result = true;
-		
-		if (equals(markupitem.getOwnerDocument())) {
-			removeFromParents(markupitem);
-			removeFromChildren(markupitem, strong);
+		Lock lock = lockForWriting();
+		try {
+			boolean result = true;
 			
-			String gi = markupitem.hasGeneralIdentifier();
-			if (gi == null) {
-				gi = "";
-			}
-			Set<MarkupItem> giSet = giMap.get(gi);
-			if (giSet != null) {
-				giSet.remove(markupitem);
-				if (giSet.isEmpty()) {
-					giMap.remove(gi);
+			if (equals(markupitem.getOwnerDocument())) {
+				removeFromParents(markupitem);
+				removeFromChildren(markupitem, strong);
+				
+				String gi = markupitem.hasGeneralIdentifier();
+				if (gi == null) {
+					gi = "";
 				}
-			}
-			URI namespace = markupitem.hasNamespace();
-			if (namespace == null) {
-				namespace = URI.create("");
-			}
-			
-			if (getMarkupItemByGeneralIdentifierAndNamespace(gi, namespace).isEmpty()) {
-				Set<String> namespaceSet = namespaces.get(namespace);
-				namespaceSet.remove(gi);
-				if (namespaceSet.isEmpty()) {
-					namespaces.remove(namespace);
+				Set<MarkupItem> giSet = giMap.get(gi);
+				if (giSet != null) {
+					giSet.remove(markupitem);
+					changedGeneralIdentifier(gi);
+					if (giSet.isEmpty()) {
+						giMap.remove(gi);
+					}
+				}
+				URI namespace = markupitem.hasNamespace();
+				if (namespace == null) {
+					namespace = URI.create("");
+				}
+				
+				if (getMarkupItemByGeneralIdentifierAndNamespace(gi, namespace).isEmpty()) {
+					Set<String> namespaceSet = namespaces.get(namespace);
+					namespaceSet.remove(gi);
+					if (namespaceSet.isEmpty()) {
+						namespaces.remove(namespace);
+					}
 				}
+				
+				removeIdAndData(markupitem);
+			} else {
+				result = false;
 			}
 			
-			removeIdAndData(markupitem);
-		} else {
-			result = false;
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -263,10 +314,19 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the item related to the input id.
 	 */
 	public EARMARKItem getEntityById(URI id) {
+		Lock lock = lockForReading();
 		try {
-			return idSet.get(id);
-		} catch (NullPointerException e) {
-			return null;
+			try {
+				EARMARKItem result = idSet.get(id);
+				if (result == null) {
+					result = getRangeTableRow(id);
+				}
+				return result;
+			} catch (NullPointerException e) {
+				return null;
+			}
+		} finally {
+			unlock(lock);
 		}
 	}
 	
@@ -294,18 +354,23 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a set of markup items having the input general identifier specified.
 	 */
 	public Set<MarkupItem> getMarkupItemByGeneralIdentifier(String gi) {
-		Set<MarkupItem> result = new HashSet<MarkupItem>();
-		String currentGi = (gi == null ? "" : gi);
-		
-		Set<MarkupItem> tmp = giMap.get(currentGi);
-		
+		Lock lock = lockForReading();
 		try {
-			result.addAll(tmp);
-		} catch (NullPointerException e) {
-			// Do nothing
+			Set<MarkupItem> result = new HashSet<MarkupItem>();
+			String currentGi = (gi == null ? "" : gi);
+			
+			Set<MarkupItem> tmp = giMap.get(currentGi);
+			
+			try {
+				result.addAll(tmp);
+			} catch (NullPointerException e) {
+				// Do nothing
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -320,28 +385,33 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return  a set of markup items having the input general identifier and the namespace specified.
 	 */
 	public Set<MarkupItem> getMarkupItemByGeneralIdentifierAndNamespace(String gi, URI ns) {
-		Set<MarkupItem> result = new HashSet<MarkupItem>();
-		
-		String currentGi = (gi == null ? "" : gi);
-		URI currentNs = (ns == null ? URI.create("") : ns);
-		
-		Set<String> gisWithNamespace = namespaces.get(currentNs);
+		Lock lock = lockForReading();
 		try {
-			if (gisWithNamespace.contains(currentGi)) {
-				Set<MarkupItem> tmp = getMarkupItemByGeneralIdentifier(currentGi);
-				for (MarkupItem mi : tmp) {
-					URI miNs = mi.hasNamespace();
-					URI currentMiNs = (miNs == null ? URI.create("") : miNs);
-					if (currentMiNs.equals(currentNs)) {
-						result.add(mi);
+			Set<MarkupItem> result = new HashSet<MarkupItem>();
+			
+			String currentGi = (gi == null ? "" : gi);
+			URI currentNs = (ns == null ? URI.create("") : ns);
+			
+			Set<String> gisWithNamespace = namespaces.get(currentNs);
+			try {
+				if (gisWithNamespace.contains(currentGi)) {
+					Set<MarkupItem> tmp = getMarkupItemByGeneralIdentifier(currentGi);
+					for (MarkupItem mi : tmp) {
+						URI miNs = mi.hasNamespace();
+						URI currentMiNs = (miNs == null ? URI.create("") : miNs);
+						if (currentMiNs.equals(currentNs)) {
+							result.add(mi);
+						}
 					}
 				}
+			} catch (NullPointerException e) {
+				// Do nothing
 			}
-		} catch (NullPointerException e) {
-			// Do nothing
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -356,6 +426,18 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		userData.put(this, new HashMap<String,Object>());
 	}
 	
+	/**
+	 * Create an empty EARMARKDocument whose additional RDF assertions are the ones of the model specified.
+	 * The model is used as it is, without copying it.
+	 * 
+	 * @param uri The URI to associate to the document.
+	 * @param model The RDF model of the non-EARMARK assertions of the document.
+	 */
+	public EARMARKDocument(URI uri, Model model) {
+		this(uri);
+		rdf = model;
+	}
+	
 	/**
 	 * <p>This method returns the I/O reader processor currently set for this class. The processor
 	 * will be used for converting a source EARMARK document into its Java representation.</p>
@@ -401,6 +483,209 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		EARMARKDocument.writer = writer;
 	}
 	
+	/**
+	 * <p>This method returns the generator used for the identifiers of the items created without
+	 * an explicit id.</p>
+	 * <p>By default, the generator is a CounterIdGenerator.</p>
+	 * 
+	 * @return the id generator of the document.
+	 */
+	public IdGenerator getIdGenerator() {
+		return idGenerator;
+	}
+	
+	/**
+	 * This method allows to set the generator used for the identifiers of the items created without
+	 * an explicit id. All the ids already used in the document are registered to the new generator.
+	 * 
+	 * @param idGenerator the id generator to be considered.
+	 */
+	public void setIdGenerator(IdGenerator idGenerator) {
+		Lock lock = lockForWriting();
+		try {
+			this.idGenerator = idGenerator;
+			
+			for (URI id : idSet.keySet()) {
+				registerId(id);
+			}
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * <p>This method adds a listener notified of all the following modifications of the document, i.e., the
+	 * creation and the removal of its items, the modifications of the children of its hierarchical nodes
+	 * and the replacements of the content of its editable docuverses.</p>
+	 * 
+	 * @param listener the listener to be added.
+	 * @see EARMARKListener
+	 */
+	public void addListener(EARMARKListener listener) {
+		listeners.add(listener);
+	}
+	
+	/**
+	 * This method removes a listener previously added to the document.
+	 * 
+	 * @param listener the listener to be removed.
+	 * @return true if the listener has been removed, false if it had not been added to the document.
+	 */
+	public boolean removeListener(EARMARKListener listener) {
+		return listeners.remove(listener);
+	}
+	
+	/**
+	 * <p>This method says whether the document is in concurrent mode.</p>
+	 * 
+	 * @return true if the document is in concurrent mode, false otherwise.
+	 * @see #setConcurrent(boolean)
+	 */
+	public boolean isConcurrent() {
+		return concurrencyLock != null;
+	}
+	
+	/**
+	 * <p>This method enables or disables the concurrent mode of the document. By default, a document is
+	 * not in concurrent mode.</p>
+	 * <p>In concurrent mode, many threads can navigate and query the document at the same time (e.g., 
+	 * getting the children, the parents and the text content of its nodes, or the items having a certain
+	 * id or general identifier), while the methods modifying the hierarchy, the ids or the user data of the
+	 * document (e.g., creating, appending, inserting, removing and replacing nodes) are executed by one thread
+	 * at a time, without any other thread reading the document meanwhile. The RDF assertions of the items
+	 * are not involved.</p>
+	 * 
+	 * @param concurrent true for enabling the concurrent mode, false for disabling it.
+	 */
+	public void setConcurrent(boolean concurrent) {
+		Lock lock = lockForWriting();
+		try {
+			if (concurrent && concurrencyLock == null) {
+				textCache = new ConcurrentHashMap<EARMARKHierarchicalNode,String>(textCache);
+				concurrencyLock = new ReentrantReadWriteLock();
+			} else if (!concurrent) {
+				textCache = new HashMap<EARMARKHierarchicalNode,String>(textCache);
+				concurrencyLock = null;
+			}
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * <p>This method returns an immutable snapshot of the structure of the document, i.e., the hierarchy of
+	 * its nodes and the indexes of their ids and general identifiers, that is not affected by any later
+	 * modification of the document and can be read by many threads without any lock.</p>
+	 * <p>The snapshot shares all the unchanged entries with the previous one, thus taking a snapshot costs
+	 * time proportional to the number of nodes, ids and general identifiers changed since the previous
+	 * snapshot (the whole document for the first one only). If nothing changed, the previous snapshot is
+	 * returned.</p>
+	 * 
+	 * @return a snapshot of the current state of the document.
+	 * @see EARMARKSnapshot
+	 */
+	public EARMARKSnapshot snapshot() {
+		Lock lock = lockForWriting();
+		try {
+			if (lastSnapshot == null) { /* All the entries have to be added to the persistent maps */
+				changedChildren = new HashSet<EARMARKHierarchicalNode>(childMap.keySet());
+				changedParents = new HashSet<EARMARKChildNode>(parentMap.keySet());
+				changedIds = new HashSet<URI>(idSet.keySet());
+				changedGeneralIdentifiers = new HashSet<String>(giMap.keySet());
+			}
+			
+			if (
+					lastSnapshot == null || !changedChildren.isEmpty() || !changedParents.isEmpty() || 
+					!changedIds.isEmpty() || !changedGeneralIdentifiers.isEmpty()) {
+				for (EARMARKHierarchicalNode node : changedChildren) {
+					Collection children = childMap.get(node);
+					snapshotChildren = (children == null ? snapshotChildren.without(node) : snapshotChildren.with(
+							node, Collections.unmodifiableList(new ArrayList<EARMARKChildNode>(children))));
+				}
+				for (EARMARKChildNode node : changedParents) {
+					Set<EARMARKHierarchicalNode> parents = parentMap.get(node);
+					snapshotParents = (parents == null ? snapshotParents.without(node) : snapshotParents.with(
+							node, Collections.unmodifiableSet(new HashSet<EARMARKHierarchicalNode>(parents))));
+				}
+				for (URI id : changedIds) {
+					EARMARKItem item = idSet.get(id);
+					snapshotIds = (item == null ? snapshotIds.without(id) : snapshotIds.with(id, item));
+				}
+				for (String gi : changedGeneralIdentifiers) {
+					Set<MarkupItem> items = giMap.get(gi);
+					snapshotGeneralIdentifiers = (items == null || items.isEmpty() ? 
+							snapshotGeneralIdentifiers.without(gi) : snapshotGeneralIdentifiers.with(
+									gi, Collections.unmodifiableSet(new HashSet<MarkupItem>(items))));
+				}
+				
+				changedChildren.clear();
+				changedParents.clear();
+				changedIds.clear();
+				changedGeneralIdentifiers.clear();
+				
+				lastSnapshot = new EARMARKSnapshot(
+						this, snapshotChildren, snapshotParents, snapshotIds, snapshotGeneralIdentifiers);
+			}
+			
+			return lastSnapshot;
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * <p>This method returns the cache of the parsed XML contents of the docuverses, used for retrieving
+	 * the text content of the xpath ranges.</p>
+	 * <p>Its maximum numbers of docuverses and compiled XPath expressions can be changed through
+	 * the cache itself.</p>
+	 * 
+	 * @return the XML content cache of the document.
+	 */
+	public XMLContentCache getXMLContentCache() {
+		return xmlContentCache;
+	}
+	
+	/**
+	 * <p>This method returns the text content of an xpath range through the XML content cache.</p>
+	 * <p>In the streaming mode of the cache, the XPath contexts of all the xpath ranges referring to the same
+	 * docuverse are evaluated in a single pass over its content, the first time one of them is needed.</p>
+	 * 
+	 * @param range the xpath range we are asking for the text content.
+	 * @return the text content of the range.
+	 * @throws ParserConfigurationException if the XML parser cannot be created.
+	 * @throws SAXException if the content of the docuverse is not well-formed XML.
+	 * @throws IOException if the content of the docuverse cannot be read.
+	 * @throws XPathFactoryConfigurationException if the XPath factory cannot be created.
+	 * @throws XPathExpressionException if the XPath context is not a valid XPath expression.
+	 */
+	protected String getXPathTextContent(XPathRange range) 
+	throws ParserConfigurationException, SAXException, IOException, 
+	XPathFactoryConfigurationException, XPathExpressionException {
+		Docuverse docuverse = range.refersTo();
+		long version = docuverse.getVersion();
+		String context = range.hasXPathContext();
+		
+		if (
+				xmlContentCache.getMode() == XMLContentCache.Mode.STREAMING &&
+				!xmlContentCache.isResolved(docuverse, version, context)) {
+			Set<String> contexts = new HashSet<String>();
+			contexts.add(context);
+			
+			Set<Range> ranges = docuverseMap.get(docuverse);
+			if (ranges != null) {
+				for (Range current : ranges) {
+					if (current instanceof XPathRange) {
+						contexts.add(((XPathRange) current).hasXPathContext());
+					}
+				}
+			}
+			
+			xmlContentCache.resolve(docuverse, version, docuverse.getText(), contexts);
+		}
+		
+		return xmlContentCache.getTextContent(docuverse, version, docuverse.getText(), context);
+	}
+	
 	@Override
 	public boolean isList() {
 		return false;
@@ -423,7 +708,12 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a set of all the EARMARK nodes of the document.
 	 */
 	public Set<EARMARKChildNode> getAllEARMARKNode() {
-		return new HashSet<EARMARKChildNode>(parentMap.keySet());
+		Lock lock = lockForReading();
+		try {
+			return new HashSet<EARMARKChildNode>(parentMap.keySet());
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -432,7 +722,12 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a set containing all the ids of all the items of the EARMARK document.
 	 */
 	public Set<URI> getIdPool() {
-		return new HashSet<URI>(idSet.keySet());
+		Lock lock = lockForReading();
+		try {
+			return new HashSet<URI>(idSet.keySet());
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -447,6 +742,18 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		return idSet;
 	}
 	
+	/**
+	 * <p>This method says whether an id is already used by an item of the EARMARK document, including the
+	 * rows of its range tables.</p>
+	 * <p>It is usually reserved for internal use only.</p>
+	 * 
+	 * @param id the id to check.
+	 * @return true if the id is used, false otherwise.
+	 */
+	protected boolean isIdUsed(URI id) {
+		return idSet.containsKey(id) || getRangeTableRow(id) != null;
+	}
+	
 	/**
 	 * <p>This method changes the local id of an item with a new one. 
 	 * Each modification to the id is not propagated
@@ -459,12 +766,18 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return true if the id is changed, false otherwise (i.e., the new id is the same of the old one).
 	 */
 	protected boolean setId(EARMARKItem item, URI newId) {
-		if (!newId.equals(hasId())) {
-			idSet.remove(item.hasId()); //Remove the old id and...
-			idSet.put(newId, item); //... add the new one
-			return true;
-		} else {
-			return false;
+		Lock lock = lockForWriting();
+		try {
+			if (!newId.equals(hasId())) {
+				idSet.remove(item.hasId()); //Remove the old id and...
+				changedId(item.hasId());
+				putId(newId, item); //... add the new one
+				return true;
+			} else {
+				return false;
+			}
+		} finally {
+			unlock(lock);
 		}
 	}
 	
@@ -474,7 +787,31 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return all the docuverses of the document.
 	 */
 	public Set<Docuverse> getAllDocuverses() {
-		return new HashSet<Docuverse>(docuverseMap.keySet());
+		Lock lock = lockForReading();
+		try {
+			return new HashSet<Docuverse>(docuverseMap.keySet());
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * This method compresses the content of all the string docuverses of the document, e.g., before
+	 * keeping the document in memory without accessing it for a while.
+	 * 
+	 * @see StringDocuverse#compress()
+	 */
+	public void compressStringDocuverses() {
+		Lock lock = lockForWriting();
+		try {
+			for (Docuverse docuverse : docuverseMap.keySet()) {
+				if (docuverse instanceof StringDocuverse) {
+					((StringDocuverse) docuverse).compress();
+				}
+			}
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -484,16 +821,21 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new string docuverse.
 	 */
 	public StringDocuverse createStringDocuverse(String content) {
-		StringDocuverse result = null;
-		
-		URI id = makeId("docuverse");
+		Lock lock = lockForWriting();
 		try {
-			result = createStringDocuverse(id, content);
-		} catch (ExistingIdException e) {
-			// It shouldn't be possible to come here...
+			StringDocuverse result = null;
+			
+			URI id = makeId("docuverse", content);
+			try {
+				result = createStringDocuverse(id, content);
+			} catch (ExistingIdException e) {
+				// It shouldn't be possible to come here...
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -506,11 +848,31 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public StringDocuverse createStringDocuverse(URI id, String content) 
 	throws ExistingIdException{
-		checkIdentity(id);
-		StringDocuverse docuverse = new StringDocuverse(this, content, id);
-		idSet.put(id, docuverse);
-		docuverseMap.put(docuverse, new HashSet<Range>());
-		return docuverse;
+		return createStringDocuverse(id, (CharSequence) content);
+	}
+	
+	/**
+	 * This method creates a new string docuverse having a textual content. A compressed text or the text
+	 * of a mapped file is kept as it is, without decoding it.
+	 * 
+	 * @param id the identifier for the new docuverse.
+	 * @param content the textual content of the new docuverse.
+	 * @return a new string docuverse.
+	 * @throws ExistingIdException if the identifier specified is already used in the document.
+	 */
+	protected StringDocuverse createStringDocuverse(URI id, CharSequence content) 
+	throws ExistingIdException{
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
+			StringDocuverse docuverse = new StringDocuverse(this, content, id);
+			putId(id, docuverse);
+			docuverseMap.put(docuverse, new HashSet<Range>());
+			fireCreated(docuverse);
+			return docuverse;
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -538,16 +900,21 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new URI docuverse.
 	 */
 	public URIDocuverse createURIDocuverse(URI uri) {
-		URIDocuverse result = null;
-		
-		URI id = makeId("docuverse");
+		Lock lock = lockForWriting();
 		try {
-			result = createURIDocuverse(id, uri);
-		} catch (ExistingIdException e) {
-			// It shouldn't be possible to come here...
+			URIDocuverse result = null;
+			
+			URI id = makeDescribedId("docuverse", uri);
+			try {
+				result = createURIDocuverse(id, uri);
+			} catch (ExistingIdException e) {
+				// It shouldn't be possible to come here...
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -559,11 +926,17 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @throws ExistingIdException if the identifier specified is already used in the document.
 	 */
 	public URIDocuverse createURIDocuverse(URI id, URI uri) throws ExistingIdException {
-		checkIdentity(id);
-		URIDocuverse docuverse = new URIDocuverse(this, uri, id);
-		idSet.put(id, docuverse);
-		docuverseMap.put(docuverse, new HashSet<Range>());
-		return docuverse;
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
+			URIDocuverse docuverse = new URIDocuverse(this, uri, id);
+			putId(id, docuverse);
+			docuverseMap.put(docuverse, new HashSet<Range>());
+			fireCreated(docuverse);
+			return docuverse;
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -583,48 +956,441 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		return createURIDocuverse(getURI(id), uri);
 	}
 	
+	/**
+	 * This method creates a new mapped file docuverse.
+	 * 
+	 * @param uri the "file" URI of the UTF-8 file containing the content of the new docuverse.
+	 * @return a new mapped file docuverse.
+	 */
+	public MappedFileDocuverse createMappedFileDocuverse(URI uri) {
+		Lock lock = lockForWriting();
+		try {
+			MappedFileDocuverse result = null;
+			
+			URI id = makeDescribedId("docuverse", uri);
+			try {
+				result = createMappedFileDocuverse(id, uri);
+			} catch (ExistingIdException e) {
+				// It shouldn't be possible to come here...
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * <p>This method creates a new mapped file docuverse.</p>
+	 * <p>The file is mapped in memory the first time the content of the docuverse is needed, and
+	 * the ranges referring to it decode only the portion of the file they select.</p>
+	 * 
+	 * @param id the identifier of the new docuverse.
+	 * @param uri the "file" URI of the UTF-8 file containing the content of the new docuverse.
+	 * @return a new mapped file docuverse.
+	 * @throws ExistingIdException if the identifier specified is already used in the document.
+	 */
+	public MappedFileDocuverse createMappedFileDocuverse(URI id, URI uri) throws ExistingIdException {
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
+			MappedFileDocuverse docuverse = new MappedFileDocuverse(this, uri, id);
+			putId(id, docuverse);
+			docuverseMap.put(docuverse, new HashSet<Range>());
+			fireCreated(docuverse);
+			return docuverse;
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * <p>This method creates a new mapped file docuverse.</p>
+	 * <p>When the id do not comply with the
+	 * complete URL syntax (i.e., [protocol] + :// + domain + resource path), the id will be completed
+	 * automatically with the path of the current document id. For instance, if the input id string is "p14" and
+	 * the document id is the URI "http://www.example.com/mydocument", then the resulting id string considered by
+	 * this method will be "http://www.example.com/mydocument" + SEPARATOR + "p14".</p>
+	 * 
+	 * @param id the identifier of the new docuverse.
+	 * @param uri the "file" URI of the UTF-8 file containing the content of the new docuverse.
+	 * @return a new mapped file docuverse.
+	 * @throws ExistingIdException if the identifier specified is already used in the document.
+	 */
+	public MappedFileDocuverse createMappedFileDocuverse(String id, URI uri) throws ExistingIdException {
+		return createMappedFileDocuverse(getURI(id), uri);
+	}
+	
+	/**
+	 * This method creates a new editable docuverse.
+	 * 
+	 * @param content the initial string content of the new docuverse.
+	 * @return a new editable docuverse.
+	 */
+	public EditableDocuverse createEditableDocuverse(String content) {
+		Lock lock = lockForWriting();
+		try {
+			EditableDocuverse result = null;
+			
+			URI id = makeId("docuverse", content);
+			try {
+				result = createEditableDocuverse(id, content);
+			} catch (ExistingIdException e) {
+				// It shouldn't be possible to come here...
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * This method creates a new editable docuverse.
+	 * 
+	 * @param id the identifier of the new docuverse.
+	 * @param content the initial string content of the new docuverse.
+	 * @return a new editable docuverse.
+	 * @throws ExistingIdException if the identifier specified is already used in the document.
+	 */
+	public EditableDocuverse createEditableDocuverse(URI id, String content) throws ExistingIdException {
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
+			EditableDocuverse docuverse = new EditableDocuverse(this, content, id);
+			putId(id, docuverse);
+			docuverseMap.put(docuverse, new HashSet<Range>());
+			fireCreated(docuverse);
+			return docuverse;
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * <p>This method creates a new editable docuverse.</p>
+	 * <p>When the id do not comply with the
+	 * complete URL syntax (i.e., [protocol] + :// + domain + resource path), the id will be completed
+	 * automatically with the path of the current document id. For instance, if the input id string is "p14" and
+	 * the document id is the URI "http://www.example.com/mydocument", then the resulting id string considered by
+	 * this method will be "http://www.example.com/mydocument" + SEPARATOR + "p14".</p>
+	 * 
+	 * @param id the identifier of the new docuverse.
+	 * @param content the initial string content of the new docuverse.
+	 * @return a new editable docuverse.
+	 * @throws ExistingIdException if the identifier specified is already used in the document.
+	 */
+	public EditableDocuverse createEditableDocuverse(String id, String content) throws ExistingIdException {
+		return createEditableDocuverse(getURI(id), content);
+	}
+	
 	/* It add all the information about ranges into the internal structures of the document */
 	private void addRangeData(Range r) {
 		Docuverse docuverse = r.refersTo();
-		Integer begin = (Integer) r.begins();
-		Integer end = (Integer) r.ends();
-		String xpath = null;
 		
 		if (docuverse != null) {
 			docuverseMap.get(docuverse).add(r);
+			addRangeInterval(r);
+			
+			if (r instanceof XPathRange) {
+				Set<Range> xpathSet = docuverseXPathMap.get(docuverse);
+				if (xpathSet == null) {
+					xpathSet = new HashSet<Range>();
+					docuverseXPathMap.put(docuverse, xpathSet);
+				}
+				xpathSet.add(r);
+			}
 		}
 		
-		if (begin == null) {
-			begin = -1; /* To be indexed */
+		if (!hasShiftingLocations(r)) {
+			rangeKeyMap.put(new RangeKey(r), r);
 		}
-		Set<Range> beginSet = rangeBeginLocationMap.get(begin);
-		if (beginSet == null) {
-			beginSet = new HashSet<Range>();
-			rangeBeginLocationMap.put(begin, beginSet);
+	}
+	
+	/* It removes an xpath range from the ones of its docuverse */
+	private void removeRangeXPath(Range r) {
+		Set<Range> xpathSet = docuverseXPathMap.get(r.refersTo());
+		if (xpathSet != null && xpathSet.remove(r) && xpathSet.isEmpty()) {
+			docuverseXPathMap.remove(r.refersTo());
+		}
+	}
+	
+	/* It removes the key of a range, unless the key identifies another range with the same locations. */
+	private void removeRangeKey(Range r) {
+		if (!hasShiftingLocations(r)) {
+			RangeKey key = new RangeKey(r);
+			if (rangeKeyMap.get(key) == r) {
+				rangeKeyMap.remove(key);
+			}
+		}
+	}
+	
+	/* It says whether a range is a pointer range of an editable docuverse, whose locations are kept by the
+	 * interval tree of the docuverse. */
+	private boolean hasShiftingLocations(Range r) {
+		return r.getNodeType() == EARMARKNode.Type.PointerRange && r.refersTo() instanceof EditableDocuverse;
+	}
+	
+	/* It returns the range identified by a key, if any. */
+	private Range getRangeByKey(RangeKey key) {
+		Range result = null;
+		
+		if (key.xpath == null && key.docuverse instanceof EditableDocuverse) {
+			IntervalTree<Range> tree = docuverseIntervalMap.get(key.docuverse);
+			if (tree != null) {
+				int begin = (key.begin == Range.UNSPECIFIED ? Integer.MIN_VALUE : key.begin);
+				int end = (key.end == Range.UNSPECIFIED ? Integer.MAX_VALUE : key.end);
+				Iterator<Range> candidates = tree.findEqual(begin, end, new ArrayList<Range>()).iterator();
+				while (result == null && candidates.hasNext()) {
+					Range candidate = candidates.next();
+					if (candidate.beginOffset() == key.begin && candidate.endOffset() == key.end) {
+						result = candidate;
+					}
+				}
+			}
+		} else {
+			result = rangeKeyMap.get(key);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * <p>This method updates the locations of all the pointer ranges referring to an editable docuverse 
+	 * after the replacement of the portion [from, to) of its content with a text of the length specified.</p>
+	 * <p>The locations of such ranges are kept by the interval tree of the docuverse. Only the ranges 
+	 * overlapping the portion are clipped or extended one by one, while all the ones beginning after it are 
+	 * shifted at once through the tree, whose text content does not change. Thus, an edit costs 
+	 * O(log n + k), where k is the number of ranges overlapping the portion. The edit is only recorded by 
+	 * the range tables referring to the docuverse, which shift their rows when they are read. The text 
+	 * content of the nodes containing the ranges overlapping the portion or the xpath ranges referring to 
+	 * the docuverse is invalidated.</p>
+	 * 
+	 * @param docuverse the docuverse modified.
+	 * @param from the offset of the first character replaced.
+	 * @param to the offset following the last character replaced.
+	 * @param inserted the length of the new text.
+	 */
+	protected void shiftRanges(EditableDocuverse docuverse, int from, int to, int inserted) {
+		Lock lock = lockForWriting();
+		try {
+			IntervalTree<Range> tree = docuverseIntervalMap.get(docuverse);
+			if (tree != null) {
+				/* The ranges overlapping the portion are taken out of the tree, so that the ones following 
+				 * the portion can be shifted without breaking its order */
+				java.util.List<Range> overlapping = new ArrayList<Range>();
+				tree.findOverlapping(from, to, overlapping);
+				for (Range range : overlapping) {
+					PointerRange pointerRange = (PointerRange) range;
+					int[] locations = EditableDocuverse.getShiftedLocations(
+							pointerRange.beginOffset(), pointerRange.endOffset(), from, to, inserted);
+					removeRangeInterval(pointerRange);
+					pointerRange.setLocations(locations[0], locations[1]);
+				}
+				
+				tree.shift(to, inserted - (to - from));
+				
+				for (Range range : overlapping) {
+					addRangeInterval(range);
+					invalidateParentsTextContent(range);
+				}
+			}
+			
+			xmlContentCache.remove(docuverse);
+			Set<Range> xpathSet = docuverseXPathMap.get(docuverse);
+			if (xpathSet != null) {
+				for (Range range : xpathSet) {
+					invalidateParentsTextContent(range);
+				}
+			}
+			
+			for (RangeTable table : rangeTables) {
+				if (table.refersTo(docuverse)) {
+					table.shiftRows(docuverse, from, to, inserted);
+				}
+			}
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/* It adds a pointer range to the interval tree of its docuverse */
+	private void addRangeInterval(Range r) {
+		if (r.getNodeType() == EARMARKNode.Type.PointerRange) {
+			Docuverse docuverse = r.refersTo();
+			IntervalTree<Range> tree = docuverseIntervalMap.get(docuverse);
+			if (tree == null) {
+				tree = new IntervalTree<Range>();
+				docuverseIntervalMap.put(docuverse, tree);
+			}
+			IntervalTree.Entry<Range> entry = tree.add(getIntervalBegin(r), getIntervalEnd(r), r);
+			if (hasShiftingLocations(r)) {
+				((PointerRange) r).setInterval(entry);
+			}
+		}
+	}
+	
+	/* It removes a pointer range from the interval tree of its docuverse */
+	private void removeRangeInterval(Range r) {
+		IntervalTree<Range> tree = docuverseIntervalMap.get(r.refersTo());
+		if (tree != null && r.getNodeType() == EARMARKNode.Type.PointerRange) {
+			PointerRange pointerRange = (PointerRange) r;
+			if (pointerRange.getInterval() != null) {
+				tree.remove(pointerRange.getInterval());
+				pointerRange.setInterval(null);
+			} else {
+				tree.remove(getIntervalBegin(r), getIntervalEnd(r), r);
+			}
+		}
+	}
+	
+	/* An unspecified begin location means the beginning of the docuverse content. It is placed before 
+	 * any location, so that it is never shifted together with the ranges following an edit. */
+	private int getIntervalBegin(Range r) {
+		int begin = r.beginOffset();
+		return (begin == Range.UNSPECIFIED ? Integer.MIN_VALUE : begin);
+	}
+	
+	/* An unspecified end location means the end of the docuverse content, whatever its length is. */
+	private int getIntervalEnd(Range r) {
+		int end = r.endOffset();
+		return (end == Range.UNSPECIFIED ? Integer.MAX_VALUE : end);
+	}
+	
+	/**
+	 * <p>This method returns all the pointer ranges referring to a docuverse that overlap the window
+	 * [begin, end) of its content, ordered by their begin location.</p>
+	 * <p>A range overlaps the window if it begins before the end of the window and ends after the begin of the 
+	 * window. A range without begin location begins at 0, while a range without end location ends with the 
+	 * content of the docuverse. A range whose end location is lower than its begin location is considered as
+	 * the range [end, begin). An empty range overlaps the window if its location is in [begin, end).</p>
+	 * 
+	 * @param docuverse the docuverse the ranges refer to.
+	 * @param begin the begin location of the window.
+	 * @param end the end location of the window.
+	 * @return a set of pointer ranges overlapping the window specified.
+	 */
+	public Set<Range> findRangesOverlapping(Docuverse docuverse, int begin, int end) {
+		Lock lock = lockForReading();
+		try {
+			Set<Range> result = new LinkedHashSet<Range>();
+			
+			IntervalTree<Range> tree = docuverseIntervalMap.get(docuverse);
+			if (tree != null) {
+				tree.findOverlapping(begin, end, result);
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * <p>This method returns all the pointer ranges referring to a docuverse that contain a particular
+	 * location of its content, ordered by their begin location.</p>
+	 * <p>A range [b, e) contains the location if b &lt;= location &lt; e, considering the same
+	 * conventions for unspecified and inverted locations of the method findRangesOverlapping.</p>
+	 * 
+	 * @param docuverse the docuverse the ranges refer to.
+	 * @param location the location to be contained.
+	 * @return a set of pointer ranges containing the location specified.
+	 */
+	public Set<Range> findRangesContaining(Docuverse docuverse, int location) {
+		Lock lock = lockForReading();
+		try {
+			Set<Range> result = new LinkedHashSet<Range>();
+			
+			IntervalTree<Range> tree = docuverseIntervalMap.get(docuverse);
+			if (tree != null) {
+				tree.findContaining(location, result);
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * <p>This method creates a new range table, i.e., a columnar store of pointer ranges that avoids 
+	 * to create an object for each range.</p>
+	 * 
+	 * @return a new range table.
+	 * @see RangeTable
+	 */
+	public RangeTable createRangeTable() {
+		Lock lock = lockForWriting();
+		try {
+			URI tableId = null;
+			while (tableId == null || getRangeTableById(tableId) != null) {
+				tableId = makeId("table", null);
+			}
+			
+			RangeTable table = new RangeTable(this, tableId);
+			rangeTables.add(table);
+			rangeTableMap.put(tableId.toString(), table);
+			return table;
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/**
+	 * This method returns all the range tables of the document.
+	 * 
+	 * @return a list of all the range tables of the document, in order of creation.
+	 */
+	public java.util.List<RangeTable> getRangeTables() {
+		Lock lock = lockForReading();
+		try {
+			return new ArrayList<RangeTable>(rangeTables);
+		} finally {
+			unlock(lock);
 		}
-		beginSet.add(r);
+	}
+	
+	/* Return the range table having the id specified, if any. */
+	private RangeTable getRangeTableById(URI id) {
+		return rangeTableMap.get(id.toString());
+	}
+	
+	/* Return the view of the row of a range table having the id specified, if any. */
+	private PointerRange getRangeTableRow(URI id) {
+		PointerRange result = null;
 		
-		if (end == null) { 
-			end = -1; /* To be indexed */
+		if (!rangeTableMap.isEmpty()) {
+			String tableId = RangeTable.getTableId(id);
+			RangeTable table = (tableId == null ? null : rangeTableMap.get(tableId));
+			if (table != null) {
+				result = table.getById(id);
+			}
 		}
-		Set<Range> endSet = rangeEndLocationMap.get(end);
-		if (endSet == null) {
-			endSet = new HashSet<Range>();
-			rangeEndLocationMap.put(end, endSet);
+		
+		return result;
+	}
+	
+	/* Say whether a docuverse is referred by any row of the range tables. */
+	private boolean isReferredByRangeTables(Docuverse d) {
+		boolean result = false;
+		
+		for (int i = 0; !result && i < rangeTables.size(); i++) {
+			result = rangeTables.get(i).refersTo(d);
 		}
-		endSet.add(r);
 		
-		if (r instanceof XPathRange) {
-			xpath = ((XPathRange)r).hasXPathContext();
-			if (xpath == null) {
-				xpath = "";
-			}
-			Set<Range> xpathSet = rangeXPathPointerMap.get(xpath);
-			if (xpathSet == null) {
-				xpathSet = new HashSet<Range>();
-				rangeXPathPointerMap.put(xpath, xpathSet);
-			}
-			xpathSet.add(r);
+		return result;
+	}
+	
+	/* Make a row of a range table become a node of the document, if it is not yet. */
+	private void attachRangeTableRow(EARMARKNode node) {
+		if (node instanceof RangeTable.Row && !parentMap.containsKey(node)) {
+			Range range = (Range) node;
+			putId(range.hasId(), range);
+			addRangeData(range);
+			userData.put(range, new HashMap<String,Object>());
+			parentMap.put(range, new HashSet<EARMARKHierarchicalNode>());
+			changedParents(range);
+			fireCreated(range);
 		}
 	}
 	
@@ -639,16 +1405,21 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new pointer range.
 	 */
 	public PointerRange createPointerRange(Docuverse docuverse, Integer begin, Integer end) {
-		PointerRange result = null;
-		
-		URI id = makeId("r");
+		Lock lock = lockForWriting();
 		try {
-			result = createPointerRange(id, docuverse, begin, end);
-		} catch (ExistingIdException e) {
-			// It shouldn't be possible to come here...
+			PointerRange result = null;
+			
+			URI id = makeDescribedId("r", docuverse.hasId(), begin, end);
+			try {
+				result = createPointerRange(id, docuverse, begin, end);
+			} catch (ExistingIdException e) {
+				// It shouldn't be possible to come here...
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -691,25 +1462,32 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public PointerRange createPointerRange(URI id, Docuverse docuverse, Integer begin, Integer end) 
 	throws ExistingIdException, EARMARKGraphException {
-		checkIdentity(id);
-		
-		if (equals(docuverse.getEARMARKDocument())) {
-			Range range = getWhetherItExists(docuverse, begin, end, null);
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
 			
-			if (range == null) {
-				range = new PointerRange(this, docuverse, begin, end, id);
-				idSet.put(id, range);
-				addRangeData(range);
-				userData.put(range, new HashMap<String,Object>());
-				parentMap.put(range, new HashSet<EARMARKHierarchicalNode>());
+			if (equals(docuverse.getEARMARKDocument())) {
+				Range range = getRangeByKey(new RangeKey(docuverse, begin, end, null));
+				
+				if (range == null) {
+					range = new PointerRange(this, docuverse, begin, end, id);
+					putId(id, range);
+					addRangeData(range);
+					userData.put(range, new HashMap<String,Object>());
+					parentMap.put(range, new HashSet<EARMARKHierarchicalNode>());
+					changedParents(range);
+					fireCreated(range);
+				}
+				
+				return (PointerRange) range;
+				
+			} else {
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, anotherDocumentError);
 			}
 			
-			return (PointerRange) range;
-			
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, anotherDocumentError);
+		} finally {
+			unlock(lock);
 		}
-		
 	}
 	
 	/**
@@ -756,23 +1534,30 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	public XPathPointerRange createXPathPointerRange(
 			URI id, Docuverse docuverse, Integer begin, Integer end, String xpath) 
 	throws ExistingIdException, EARMARKGraphException {
-		checkIdentity(id);
-		
-		if (equals(docuverse.getEARMARKDocument())) {
-			Range range = getWhetherItExists(docuverse, begin, end, (xpath == null ? "" : xpath));
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
 			
-			if (range == null) {
-				range = new XPathPointerRange(this, docuverse, begin, end, xpath, id);
-				idSet.put(id, range);
-				addRangeData(range);
-				userData.put(range, new HashMap<String,Object>());
-				parentMap.put(range, new HashSet<EARMARKHierarchicalNode>());
+			if (equals(docuverse.getEARMARKDocument())) {
+				Range range = getRangeByKey(new RangeKey(docuverse, begin, end, (xpath == null ? "" : xpath)));
+				
+				if (range == null) {
+					range = new XPathPointerRange(this, docuverse, begin, end, xpath, id);
+					putId(id, range);
+					addRangeData(range);
+					userData.put(range, new HashMap<String,Object>());
+					parentMap.put(range, new HashSet<EARMARKHierarchicalNode>());
+					changedParents(range);
+					fireCreated(range);
+				}
+				
+				return (XPathPointerRange) range;
+				
+			} else {
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, anotherDocumentError);
 			}
-			
-			return (XPathPointerRange) range;
-			
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, anotherDocumentError);
+		} finally {
+			unlock(lock);
 		}
 	}
 	
@@ -789,16 +1574,21 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public XPathPointerRange createXPathPointerRange(
 			Docuverse docuverse, Integer begin, Integer end, String xpath) {
-		XPathPointerRange result = null;
-		
-		URI id = makeId("r");
+		Lock lock = lockForWriting();
 		try {
-			result = createXPathPointerRange(id, docuverse, begin, end, xpath);
-		} catch (ExistingIdException e) {
-			// It shouldn't be possible to come here...
+			XPathPointerRange result = null;
+			
+			URI id = makeDescribedId("r", docuverse.hasId(), begin, end, xpath);
+			try {
+				result = createXPathPointerRange(id, docuverse, begin, end, xpath);
+			} catch (ExistingIdException e) {
+				// It shouldn't be possible to come here...
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -811,10 +1601,15 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new element.
 	 */
 	public Element createElement(Collection.Type type) {
-		URI id = makeId(null);
-		
-		// Sostituire tutte queste definizioni ad interi con i tipi enumerativi!
-		return (Element) createMarkupItem(id, null, null, type, EARMARKNode.Type.Element);
+		Lock lock = lockForWriting();
+		try {
+			URI id = makeDescribedId(null, EARMARKNode.Type.Element, null, null);
+			
+			// Sostituire tutte queste definizioni ad interi con i tipi enumerativi!
+			return (Element) createMarkupItem(id, null, null, type, EARMARKNode.Type.Element);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -826,9 +1621,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new element.
 	 */
 	public Element createElement(String gi, Collection.Type type) {
-		URI id = makeId(gi);
-		
-		return (Element) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Element);
+		Lock lock = lockForWriting();
+		try {
+			URI id = makeDescribedId(gi, EARMARKNode.Type.Element, gi, null);
+			
+			return (Element) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Element);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -841,9 +1641,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new element.
 	 */
 	public Element createElement(String gi, URI ns, Collection.Type type) {
-		URI id = makeId(gi);
-		
-		return (Element) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Element);
+		Lock lock = lockForWriting();
+		try {
+			URI id = makeDescribedId(gi, EARMARKNode.Type.Element, gi, ns);
+			
+			return (Element) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Element);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -858,9 +1663,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public Element createElement(URI id, String gi, Collection.Type type) 
 	throws ExistingIdException {
-		checkIdentity(id);
-		
-		return (Element) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Element);
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
+			
+			return (Element) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Element);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -896,9 +1706,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public Element createElement(URI id, String gi, URI ns, Collection.Type type) 
 	throws ExistingIdException {
-		checkIdentity(id);
-		
-		return (Element) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Element);
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
+			
+			return (Element) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Element);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -931,9 +1746,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new attribute.
 	 */
 	public Attribute createAttribute(Collection.Type type) {
-		URI id = makeId(null);
-		
-		return (Attribute) createMarkupItem(id, null, null, type, EARMARKNode.Type.Attribute);
+		Lock lock = lockForWriting();
+		try {
+			URI id = makeDescribedId(null, EARMARKNode.Type.Attribute, null, null);
+			
+			return (Attribute) createMarkupItem(id, null, null, type, EARMARKNode.Type.Attribute);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -945,9 +1765,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new attribute.
 	 */
 	public Attribute createAttribute(String gi, Collection.Type type) {
-		URI id = makeId(gi);
-		
-		return (Attribute) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Attribute);
+		Lock lock = lockForWriting();
+		try {
+			URI id = makeDescribedId(gi, EARMARKNode.Type.Attribute, gi, null);
+			
+			return (Attribute) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Attribute);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -960,9 +1785,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new attribute.
 	 */
 	public Attribute createAttribute(String gi, URI ns, Collection.Type type) {
-		URI id = makeId(gi);
-		
-		return (Attribute) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Attribute);
+		Lock lock = lockForWriting();
+		try {
+			URI id = makeDescribedId(gi, EARMARKNode.Type.Attribute, gi, ns);
+			
+			return (Attribute) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Attribute);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -977,9 +1807,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public Attribute createAttribute(URI id, String gi, Collection.Type type) 
 	throws ExistingIdException {
-			checkIdentity(id);
-			
-			return (Attribute) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Attribute);
+		Lock lock = lockForWriting();
+		try {
+				checkIdentity(id);
+				
+				return (Attribute) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Attribute);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1015,9 +1850,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public Attribute createAttribute(URI id, String gi, URI ns, Collection.Type type) 
 	throws ExistingIdException {
-			checkIdentity(id);
-			
-			return (Attribute) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Attribute);
+		Lock lock = lockForWriting();
+		try {
+				checkIdentity(id);
+				
+				return (Attribute) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Attribute);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1049,9 +1889,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new comment.
 	 */
 	public Comment createComment(Collection.Type type) {
-			URI id = makeId(null);
-			
-			return (Comment) createMarkupItem(id, null, null, type, EARMARKNode.Type.Comment);
+		Lock lock = lockForWriting();
+		try {
+				URI id = makeDescribedId(null, EARMARKNode.Type.Comment, null, null);
+				
+				return (Comment) createMarkupItem(id, null, null, type, EARMARKNode.Type.Comment);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1063,9 +1908,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new comment.
 	 */
 	public Comment createComment(String gi, Collection.Type type) {
-			URI id = makeId(gi);
-			
-			return (Comment) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Comment);
+		Lock lock = lockForWriting();
+		try {
+				URI id = makeDescribedId(gi, EARMARKNode.Type.Comment, gi, null);
+				
+				return (Comment) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Comment);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1078,9 +1928,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a new comment.
 	 */
 	public Comment createComment(String gi, URI ns, Collection.Type type) {
-			URI id = makeId(gi);
-			
-			return (Comment) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Comment);
+		Lock lock = lockForWriting();
+		try {
+				URI id = makeDescribedId(gi, EARMARKNode.Type.Comment, gi, ns);
+				
+				return (Comment) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Comment);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1095,9 +1950,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public Comment createComment(URI id, String gi, Collection.Type type) 
 	throws ExistingIdException {
-		checkIdentity(id);
-		
-		return (Comment) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Comment);
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
+			
+			return (Comment) createMarkupItem(id, gi, null, type, EARMARKNode.Type.Comment);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1133,9 +1993,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	public Comment createComment(URI id, String gi, URI ns, Collection.Type type) 
 	throws ExistingIdException {
-		checkIdentity(id);
-		
-		return (Comment) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Comment);
+		Lock lock = lockForWriting();
+		try {
+			checkIdentity(id);
+			
+			return (Comment) createMarkupItem(id, gi, ns, type, EARMARKNode.Type.Comment);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1166,7 +2031,12 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the set containing all the namespaces.
 	 */
 	public Set<URI> getNamespaces() {
-		return new HashSet<URI>(namespaces.keySet());
+		Lock lock = lockForReading();
+		try {
+			return new HashSet<URI>(namespaces.keySet());
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1179,7 +2049,12 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * does not exist.
 	 */
 	public Set<String> getGeneralIdentifiersFromNamespace(URI ns) {
-		return new HashSet<String>(namespaces.get((ns == null ? "" : ns)));
+		Lock lock = lockForReading();
+		try {
+			return new HashSet<String>(namespaces.get((ns == null ? "" : ns)));
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	@Override
@@ -1210,11 +2085,16 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	protected EARMARKChildNode appendChild(
 			EARMARKChildNode newChild, EARMARKHierarchicalNode node)
 	throws EARMARKGraphException {
-		if (equals(newChild.getOwnerDocument()) && equals(node.getOwnerDocument())) {
-			return add(newChild,node);
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
-					"[appendChild] " + anotherDocumentError);
+		Lock lock = lockForWriting();
+		try {
+			if (equals(newChild.getOwnerDocument()) && equals(node.getOwnerDocument())) {
+				return add(newChild,node);
+			} else {
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
+						"[appendChild] " + anotherDocumentError);
+			}
+		} finally {
+			unlock(lock);
 		}
 	}
 
@@ -1232,77 +2112,87 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the copied node as part of the copying document or null if the copy of the node fails.
 	 */
 	public EARMARKChildNode copyNode(EARMARKChildNode node, boolean deep) {
-		EARMARKChildNode result = null;
-		
-		Type type = node.getNodeType();
-		
-		if (node instanceof Range) {
-			Range range = (Range) node;
+		Lock lock = lockForWriting();
+		try {
+			EARMARKChildNode result = null;
 			
-			try {
-				result = (Range) getEntityById(range.hasId());
+			Type type = node.getNodeType();
+			
+			if (node instanceof Range) {
+				Range range = (Range) node;
 				
-				if (result == null) {
-					Docuverse rangeDocuverse = range.refersTo();
-					URI docuverseId = rangeDocuverse.hasId();
-					Docuverse copiedDocuverse = (Docuverse) getEntityById(docuverseId);
+				try {
+					result = (Range) getEntityById(range.hasId());
 					
-					if (copiedDocuverse == null) {
-						if (rangeDocuverse.getType() == Docuverse.Type.StringDocuverse) {
-							copiedDocuverse = createStringDocuverse(docuverseId, (String) rangeDocuverse.hasContent());
+					if (result == null) {
+						Docuverse rangeDocuverse = range.refersTo();
+						URI docuverseId = rangeDocuverse.hasId();
+						Docuverse copiedDocuverse = (Docuverse) getEntityById(docuverseId);
+						
+						if (copiedDocuverse == null) {
+							if (rangeDocuverse.getType() == Docuverse.Type.StringDocuverse) {
+								copiedDocuverse = createStringDocuverse(docuverseId, rangeDocuverse.getText());
+							} else if (rangeDocuverse.getType() == Docuverse.Type.EditableDocuverse) {
+								copiedDocuverse = createEditableDocuverse(docuverseId, (String) rangeDocuverse.hasContent());
+							} else if (rangeDocuverse.getType() == Docuverse.Type.MappedFileDocuverse) {
+								copiedDocuverse = createMappedFileDocuverse(docuverseId, (URI) rangeDocuverse.hasContent());
+							} else {
+								copiedDocuverse = createURIDocuverse(docuverseId, (URI) rangeDocuverse.hasContent());
+							}
+						}
+						
+						if (type == Type.PointerRange) {
+							result = createPointerRange(range.hasId(), copiedDocuverse, 
+									((PointerRange) range).begins(), ((PointerRange) range).ends());
 						} else {
-							copiedDocuverse = createURIDocuverse(docuverseId, (URI) rangeDocuverse.hasContent());
+							XPathPointerRange xpathRange = (XPathPointerRange) range;
+							result = createXPathPointerRange(
+									range.hasId(), copiedDocuverse, xpathRange.begins(), xpathRange.ends(), 
+									xpathRange.hasXPathContext());
 						}
 					}
-					
-					if (type == Type.PointerRange) {
-						result = createPointerRange(range.hasId(), copiedDocuverse, 
-								(Integer) range.begins(), (Integer) range.ends());
-					} else {
-						result = createXPathPointerRange(
-								range.hasId(), copiedDocuverse, (Integer) range.begins(), (Integer) range.ends(), 
-								((XPathPointerRange)range).hasXPathContext());
-					}
+				} catch (Exception e) {
+					e.printStackTrace();
+					// Do nothing, the copy fails.
 				}
-			} catch (Exception e) {
-				e.printStackTrace();
-				// Do nothing, the copy fails.
-			}
-			
-		} else { /* Markup item */
-			MarkupItem markupitem = (MarkupItem) node;
-			
-			try {
-				result = (MarkupItem) getEntityById(markupitem.hasId());
 				
-				if (result == null) {
-					if (type == Type.Element) {
-						result = createElement(markupitem.hasId(), markupitem.hasGeneralIdentifier(), 
-								markupitem.hasNamespace(), markupitem.getContainerType());
-					} else if (type == Type.Attribute) {
-						result = createAttribute(markupitem.hasId(), markupitem.hasGeneralIdentifier(), 
-								markupitem.hasNamespace(), markupitem.getContainerType());
-					} else { /* Type.Comment */
-						result = createComment(markupitem.hasId(), markupitem.hasGeneralIdentifier(), 
-								markupitem.hasNamespace(), markupitem.getContainerType());
-					}
+			} else { /* Markup item */
+				MarkupItem markupitem = (MarkupItem) node;
+				
+				try {
+					result = (MarkupItem) getEntityById(markupitem.hasId());
 					
-					if (deep) {
-						MarkupItem resultMarkupItem = (MarkupItem) result;
-						for (EARMARKChildNode child : markupitem.getChildNodes()) {
-							EARMARKChildNode copiedChild = copyNode(child, true);
-							if (copiedChild != null) {
-								resultMarkupItem.appendChild(copiedChild);
+					if (result == null) {
+						if (type == Type.Element) {
+							result = createElement(markupitem.hasId(), markupitem.hasGeneralIdentifier(), 
+									markupitem.hasNamespace(), markupitem.getContainerType());
+						} else if (type == Type.Attribute) {
+							result = createAttribute(markupitem.hasId(), markupitem.hasGeneralIdentifier(), 
+									markupitem.hasNamespace(), markupitem.getContainerType());
+						} else { /* Type.Comment */
+							result = createComment(markupitem.hasId(), markupitem.hasGeneralIdentifier(), 
+									markupitem.hasNamespace(), markupitem.getContainerType());
+						}
+						
+						if (deep) {
+							MarkupItem resultMarkupItem = (MarkupItem) result;
+							for (EARMARKChildNode child : markupitem.getChildNodes()) {
+								EARMARKChildNode copiedChild = copyNode(child, true);
+								if (copiedChild != null) {
+									resultMarkupItem.appendChild(copiedChild);
+								}
 							}
 						}
 					}
+				} catch (Exception e) {
+					// Do nothing, the copy fails.
 				}
-			} catch (Exception e) {
-				// Do nothing, the copy fails.
 			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -1314,27 +2204,36 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the cloned document.
 	 */
 	public EARMARKNode cloneNode(boolean deep) {
-		EARMARKDocument result = clone();
-		
-		if (deep) {
-			for (Docuverse docuverse : getAllDocuverses()) {
-				try {
-					if (docuverse.getType() == Docuverse.Type.StringDocuverse) {
-						result.createStringDocuverse(docuverse.hasId(), (String) docuverse.hasContent());
-					} else {
-						result.createURIDocuverse(docuverse.hasId(), (URI) docuverse.hasContent());
+		Lock lock = lockForReading();
+		try {
+			EARMARKDocument result = clone();
+			
+			if (deep) {
+				for (Docuverse docuverse : getAllDocuverses()) {
+					try {
+						if (docuverse.getType() == Docuverse.Type.StringDocuverse) {
+							result.createStringDocuverse(docuverse.hasId(), docuverse.getText());
+						} else if (docuverse.getType() == Docuverse.Type.EditableDocuverse) {
+							result.createEditableDocuverse(docuverse.hasId(), (String) docuverse.hasContent());
+						} else if (docuverse.getType() == Docuverse.Type.MappedFileDocuverse) {
+							result.createMappedFileDocuverse(docuverse.hasId(), (URI) docuverse.hasContent());
+						} else {
+							result.createURIDocuverse(docuverse.hasId(), (URI) docuverse.hasContent());
+						}
+					} catch (ExistingIdException e) {
+						// It shouldn't be possible...
 					}
-				} catch (ExistingIdException e) {
-					// It shouldn't be possible...
+				}
+				
+				for (EARMARKChildNode node : getChildNodes()) {
+					result.appendChild(result.copyNode(node, deep));
 				}
 			}
 			
-			for (EARMARKChildNode node : getChildNodes()) {
-				result.appendChild(result.copyNode(node, deep));
-			}
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 
 	@Override
@@ -1351,27 +2250,32 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the attribute children of the node.
 	 */
 	protected Collection getAttributes(EARMARKNode node) {
-		Collection result = null;
-		
-		Collection tmp = childMap.get(node);
-		Collection.Type type = tmp.getCollectionType();
-		if (type == Collection.Type.List) {
-			result = new it.essepuntato.earmark.core.List();
-		} else if (type == Collection.Type.Bag) {
-			result = new it.essepuntato.earmark.core.Bag();
-		} else {
-			result = new it.essepuntato.earmark.core.Set();
-		}
-		
-		Iterator<EARMARKChildNode> ite = tmp.iterator();
-		while (ite.hasNext()) {
-			EARMARKNode mi = ite.next();
-			if (mi.getNodeType() == EARMARKNode.Type.Attribute) {
-				result.add((Attribute) mi);
+		Lock lock = lockForReading();
+		try {
+			Collection result = null;
+			
+			Collection tmp = childMap.get(node);
+			Collection.Type type = tmp.getCollectionType();
+			if (type == Collection.Type.List) {
+				result = new it.essepuntato.earmark.core.List();
+			} else if (type == Collection.Type.Bag) {
+				result = new it.essepuntato.earmark.core.Bag();
+			} else {
+				result = new it.essepuntato.earmark.core.Set();
+			}
+			
+			Iterator<EARMARKChildNode> ite = tmp.iterator();
+			while (ite.hasNext()) {
+				EARMARKNode mi = ite.next();
+				if (mi.getNodeType() == EARMARKNode.Type.Attribute) {
+					result.add((Attribute) mi);
+				}
 			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	@Override
@@ -1388,27 +2292,32 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the comment children of the node.
 	 */
 	protected Collection getComments(EARMARKNode node) {
-		Collection result = null;
-		
-		Collection tmp = childMap.get(node);
-		Collection.Type type = tmp.getCollectionType();
-		if (type == Collection.Type.List) {
-			result = new it.essepuntato.earmark.core.List();
-		} else if (type == Collection.Type.Bag) {
-			result = new it.essepuntato.earmark.core.Bag();
-		} else {
-			result = new it.essepuntato.earmark.core.Set();
-		}
-		
-		Iterator<EARMARKChildNode> ite = tmp.iterator();
-		while (ite.hasNext()) {
-			EARMARKNode mi = ite.next();
-			if (mi.getNodeType() == EARMARKNode.Type.Comment) {
-				result.add((Comment) mi);
+		Lock lock = lockForReading();
+		try {
+			Collection result = null;
+			
+			Collection tmp = childMap.get(node);
+			Collection.Type type = tmp.getCollectionType();
+			if (type == Collection.Type.List) {
+				result = new it.essepuntato.earmark.core.List();
+			} else if (type == Collection.Type.Bag) {
+				result = new it.essepuntato.earmark.core.Bag();
+			} else {
+				result = new it.essepuntato.earmark.core.Set();
+			}
+			
+			Iterator<EARMARKChildNode> ite = tmp.iterator();
+			while (ite.hasNext()) {
+				EARMARKNode mi = ite.next();
+				if (mi.getNodeType() == EARMARKNode.Type.Comment) {
+					result.add((Comment) mi);
+				}
 			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 
 	@Override
@@ -1423,27 +2332,32 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a collection containing all the child elements of the node.
 	 */
 	protected Collection getChildElements(EARMARKNode node) {
-		Collection result = null;
-		
-		Collection tmp = childMap.get(node);
-		Collection.Type type = tmp.getCollectionType();
-		if (type == Collection.Type.List) {
-			result = new it.essepuntato.earmark.core.List();
-		} else if (type == Collection.Type.Bag) {
-			result = new it.essepuntato.earmark.core.Bag();
-		} else {
-			result = new it.essepuntato.earmark.core.Set();
-		}
-		
-		Iterator<EARMARKChildNode> ite = tmp.iterator();
-		while(ite.hasNext()) {
-			EARMARKNode mi = ite.next();
-			if (mi.getNodeType() == EARMARKNode.Type.Element) {
-				result.add((Element) mi);
+		Lock lock = lockForReading();
+		try {
+			Collection result = null;
+			
+			Collection tmp = childMap.get(node);
+			Collection.Type type = tmp.getCollectionType();
+			if (type == Collection.Type.List) {
+				result = new it.essepuntato.earmark.core.List();
+			} else if (type == Collection.Type.Bag) {
+				result = new it.essepuntato.earmark.core.Bag();
+			} else {
+				result = new it.essepuntato.earmark.core.Set();
+			}
+			
+			Iterator<EARMARKChildNode> ite = tmp.iterator();
+			while(ite.hasNext()) {
+				EARMARKNode mi = ite.next();
+				if (mi.getNodeType() == EARMARKNode.Type.Element) {
+					result.add((Element) mi);
+				}
 			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	@Override
@@ -1459,7 +2373,12 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the node children.
 	 */
 	protected Collection getChildNodes(EARMARKNode node) {
-		return childMap.get(node).clone();
+		Lock lock = lockForReading();
+		try {
+			return childMap.get(node).clone();
+		} finally {
+			unlock(lock);
+		}
 	}
 
 	@Override
@@ -1475,8 +2394,13 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the first node child.
 	 */
 	protected EARMARKChildNode getFirstChild(EARMARKHierarchicalNode node) {
-		Collection collection = childMap.get(node); 
-		return (collection.isEmpty() ? null : collection.iterator().next());
+		Lock lock = lockForReading();
+		try {
+			Collection collection = childMap.get(node); 
+			return (collection.isEmpty() ? null : collection.iterator().next());
+		} finally {
+			unlock(lock);
+		}
 	}
 
 	@Override
@@ -1492,12 +2416,17 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the last node child.
 	 */
 	protected EARMARKChildNode getLastChild(EARMARKHierarchicalNode node) {
-		Collection collection = childMap.get(node);
-		return 
-		(collection.isEmpty() ? null : 
-			(collection.getCollectionType() == 
-				Collection.Type.Set ? collection.iterator().next() : 
-				((Bag)collection).get(collection.size()-1)));
+		Lock lock = lockForReading();
+		try {
+			Collection collection = childMap.get(node);
+			return 
+			(collection.isEmpty() ? null : 
+				(collection.getCollectionType() == 
+					Collection.Type.Set ? collection.iterator().next() : 
+					((Bag)collection).get(collection.size()-1)));
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1511,31 +2440,36 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a next siblings of the node or null if it does not exist.
 	 */
 	protected EARMARKChildNode getNextSibling(EARMARKChildNode node) {
-		EARMARKChildNode result = null;
-		
-		Iterator<EARMARKHierarchicalNode> ite = parentMap.get(node).iterator();
-		while (result == null && ite.hasNext()) {
-			Collection collection = childMap.get(ite.next());
-			if (
-					collection.getCollectionType() == Collection.Type.Set && 
-					collection.size() > 1) {
-				Iterator<EARMARKChildNode> iteList = collection.iterator();
-				while (result == null || iteList.hasNext()) {
-					EARMARKChildNode curNode = iteList.next();
-					if (!curNode.equals(node)) {
-						result = curNode;
+		Lock lock = lockForReading();
+		try {
+			EARMARKChildNode result = null;
+			
+			Iterator<EARMARKHierarchicalNode> ite = parentMap.get(node).iterator();
+			while (result == null && ite.hasNext()) {
+				Collection collection = childMap.get(ite.next());
+				if (
+						collection.getCollectionType() == Collection.Type.Set && 
+						collection.size() > 1) {
+					Iterator<EARMARKChildNode> iteList = collection.iterator();
+					while (result == null || iteList.hasNext()) {
+						EARMARKChildNode curNode = iteList.next();
+						if (!curNode.equals(node)) {
+							result = curNode;
+						}
+					}
+				} else {
+					Bag bag = (Bag) collection;
+					int index = bag.indexOf(node);
+					if (index < bag.size() - 1) {
+						result = bag.get(index + 1);
 					}
-				}
-			} else {
-				Bag bag = (Bag) collection;
-				int index = bag.indexOf(node);
-				if (index < bag.size() - 1) {
-					result = bag.get(index + 1);
 				}
 			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -1548,31 +2482,36 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a set containing all the next siblings of the node.
 	 */
 	protected Set<EARMARKChildNode> getNextSiblings(EARMARKChildNode node) {
-		Set<EARMARKChildNode> result = new HashSet<EARMARKChildNode>();
-		
-		Iterator<EARMARKHierarchicalNode> ite = parentMap.get(node).iterator();
-		while (ite.hasNext()) {
-			Collection collection = childMap.get(ite.next());
-			if (
-					collection.getCollectionType() == Collection.Type.Set && 
-					collection.size() > 1) {
-				Iterator<EARMARKChildNode> nodes = collection.iterator();
-				while (nodes.hasNext()) {
-					EARMARKChildNode curNode = nodes.next();
-					if (!curNode.equals(node)) {
-						result.add(curNode);
+		Lock lock = lockForReading();
+		try {
+			Set<EARMARKChildNode> result = new HashSet<EARMARKChildNode>();
+			
+			Iterator<EARMARKHierarchicalNode> ite = parentMap.get(node).iterator();
+			while (ite.hasNext()) {
+				Collection collection = childMap.get(ite.next());
+				if (
+						collection.getCollectionType() == Collection.Type.Set && 
+						collection.size() > 1) {
+					Iterator<EARMARKChildNode> nodes = collection.iterator();
+					while (nodes.hasNext()) {
+						EARMARKChildNode curNode = nodes.next();
+						if (!curNode.equals(node)) {
+							result.add(curNode);
+						}
+					}
+				} else {
+					Bag bag = (Bag) collection;
+					int index = bag.indexOf(node);
+					if (index < bag.size() - 1) {
+						result.add(bag.get(index + 1));
 					}
-				}
-			} else {
-				Bag bag = (Bag) collection;
-				int index = bag.indexOf(node);
-				if (index < bag.size() - 1) {
-					result.add(bag.get(index + 1));
 				}
 			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 
 	@Override
@@ -1595,8 +2534,13 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a parent of this node.
 	 */
 	protected EARMARKHierarchicalNode getParentNode(EARMARKChildNode node) {
-		Set<EARMARKHierarchicalNode> set = parentMap.get(node);
-		return (set.isEmpty() ? null : set.iterator().next());
+		Lock lock = lockForReading();
+		try {
+			Set<EARMARKHierarchicalNode> set = parentMap.get(node);
+			return (set.isEmpty() ? null : set.iterator().next());
+		} finally {
+			unlock(lock);
+		}
 	}
 
 	/**
@@ -1609,7 +2553,16 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return all the parents of this node.
 	 */
 	protected Set<EARMARKHierarchicalNode> getParentNodes(EARMARKChildNode node) {
-		return new HashSet<EARMARKHierarchicalNode>(parentMap.get(node));
+		Lock lock = lockForReading();
+		try {
+			Set<EARMARKHierarchicalNode> parents = parentMap.get(node);
+			if (parents == null && node instanceof RangeTable.Row) { /* A row that is not a node yet */
+				return new HashSet<EARMARKHierarchicalNode>();
+			}
+			return new HashSet<EARMARKHierarchicalNode>(parents);
+		} finally {
+			unlock(lock);
+		}
 	}
 
 	/**
@@ -1623,31 +2576,36 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a previous siblings of the node.
 	 */
 	protected EARMARKChildNode getPreviousSibling(EARMARKChildNode node) {
-		EARMARKChildNode result = null;
-		
-		Iterator<EARMARKHierarchicalNode> ite = parentMap.get(node).iterator();
-		while (result == null && ite.hasNext()) {
-			Collection collection = childMap.get(ite.next());
-			if (
-					collection.getCollectionType() == Collection.Type.Set &&
-					collection.size() > 1) {
-				Iterator<EARMARKChildNode> iteList = collection.iterator();
-				while (result == null || iteList.hasNext()) {
-					EARMARKChildNode curNode = iteList.next();
-					if (!curNode.equals(node)) {
-						result = curNode;
+		Lock lock = lockForReading();
+		try {
+			EARMARKChildNode result = null;
+			
+			Iterator<EARMARKHierarchicalNode> ite = parentMap.get(node).iterator();
+			while (result == null && ite.hasNext()) {
+				Collection collection = childMap.get(ite.next());
+				if (
+						collection.getCollectionType() == Collection.Type.Set &&
+						collection.size() > 1) {
+					Iterator<EARMARKChildNode> iteList = collection.iterator();
+					while (result == null || iteList.hasNext()) {
+						EARMARKChildNode curNode = iteList.next();
+						if (!curNode.equals(node)) {
+							result = curNode;
+						}
+					}
+				} else {
+					Bag bag = (Bag) collection;
+					int index = bag.indexOf(node);
+					if (index > 0) {
+						result = bag.get(index - 1);
 					}
-				}
-			} else {
-				Bag bag = (Bag) collection;
-				int index = bag.indexOf(node);
-				if (index > 0) {
-					result = bag.get(index - 1);
 				}
 			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -1660,31 +2618,36 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return a set containing all the previous siblings of the node.
 	 */
 	protected Set<EARMARKChildNode> getPreviousSiblings(EARMARKChildNode node) {
-		Set<EARMARKChildNode> result = new HashSet<EARMARKChildNode>();
-		
-		Iterator<EARMARKHierarchicalNode> ite = parentMap.get(node).iterator();
-		while (ite.hasNext()) {
-			Collection collection = childMap.get(ite.next());
-			if (
-					collection.getCollectionType() == Collection.Type.Set &&
-					collection.size() > 1) {
-				Iterator<EARMARKChildNode> nodes = collection.iterator();
-				while (nodes.hasNext()) {
-					EARMARKChildNode curNode = nodes.next();
-					if (!curNode.equals(node)) {
-						result.add(curNode);
+		Lock lock = lockForReading();
+		try {
+			Set<EARMARKChildNode> result = new HashSet<EARMARKChildNode>();
+			
+			Iterator<EARMARKHierarchicalNode> ite = parentMap.get(node).iterator();
+			while (ite.hasNext()) {
+				Collection collection = childMap.get(ite.next());
+				if (
+						collection.getCollectionType() == Collection.Type.Set &&
+						collection.size() > 1) {
+					Iterator<EARMARKChildNode> nodes = collection.iterator();
+					while (nodes.hasNext()) {
+						EARMARKChildNode curNode = nodes.next();
+						if (!curNode.equals(node)) {
+							result.add(curNode);
+						}
+					}
+				} else {
+					Bag bag = (Bag) collection;
+					int index = bag.indexOf(node);
+					if (index > 0) {
+						result.add(bag.get(index - 1));
 					}
-				}
-			} else {
-				Bag bag = (Bag) collection;
-				int index = bag.indexOf(node);
-				if (index > 0) {
-					result.add(bag.get(index - 1));
 				}
 			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 
 	@Override
@@ -1699,23 +2662,90 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the text content of this node, or null if it does not exist.
 	 */
 	protected String getTextContent(EARMARKHierarchicalNode node) {
-		String result = "";
-		boolean existAny = false;
-		
-		Iterator<EARMARKChildNode> ite = childMap.get(node).iterator();
-		while (ite.hasNext()) {
-			EARMARKNode mi = ite.next();
-			String tmpResult = mi.getTextContent();
+		Lock lock = lockForReading();
+		try {
+			String result = textCache.get(node);
+			
+			if (result == null) {
+				StringBuilder builder = new StringBuilder();
+				boolean existAny = false;
+				
+				Iterator<EARMARKChildNode> ite = childMap.get(node).iterator();
+				while (ite.hasNext()) {
+					EARMARKNode mi = ite.next();
+					String tmpResult = mi.getTextContent();
+					
+					if (tmpResult != null) {
+						if (!existAny) {
+							existAny = true;
+						}
+						builder.append(tmpResult);
+					}
+				}
+				
+				result = (existAny ? builder.toString() : NO_TEXT);
+				textCache.put(node, result);
+			}
+			
+			return (result == NO_TEXT ? null : result);
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	@Override
+	public void writeTextContent(Appendable out) throws IOException {
+		writeTextContent(this, out);
+	}
+	
+	/**
+	 * This method writes the text content of the node specified and its descendants, in document order,
+	 * without building it as a whole.
+	 * 
+	 * @param node the node we are asking for the text content.
+	 * @param out the appendable object the text content is written to.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected void writeTextContent(EARMARKHierarchicalNode node, Appendable out) throws IOException {
+		Lock lock = lockForReading();
+		try {
+			String cached = textCache.get(node);
 			
-			if (tmpResult != null) {
-				if (!existAny) {
-					existAny = true;
+			if (cached == null) {
+				Iterator<EARMARKChildNode> ite = childMap.get(node).iterator();
+				while (ite.hasNext()) {
+					ite.next().writeTextContent(out);
+				}
+			} else if (cached != NO_TEXT) {
+				out.append(cached);
+			}
+		} finally {
+			unlock(lock);
+		}
+	}
+	
+	/* Remove the cached text content of all the ancestors of a node. */
+	private void invalidateParentsTextContent(EARMARKChildNode node) {
+		Set<EARMARKHierarchicalNode> parents = parentMap.get(node);
+		if (parents != null) {
+			for (EARMARKHierarchicalNode parent : parents) {
+				invalidateTextContent(parent);
+			}
+		}
+	}
+	
+	/* Remove the cached text content of a node and of all its ancestors. Since the text content of a node
+	 * is computed through the one of its children, an ancestor can be cached only if its descendants are,
+	 * and the visit stops at the nodes not cached. */
+	private void invalidateTextContent(EARMARKHierarchicalNode node) {
+		if (textCache.remove(node) != null && node instanceof EARMARKChildNode) {
+			Set<EARMARKHierarchicalNode> parents = parentMap.get(node);
+			if (parents != null) {
+				for (EARMARKHierarchicalNode parent : parents) {
+					invalidateTextContent(parent);
 				}
-				result += tmpResult;
 			}
 		}
-		
-		return (existAny ? result : null);
 	}
 
 	@Override
@@ -1733,7 +2763,13 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * or null if there was none.
 	 */
 	protected Object getUserData(EARMARKNode node, String key) {
-		return userData.get(node).get(key);
+		Lock lock = lockForReading();
+		try {
+			Map<String,Object> data = userData.get(node);
+			return (data == null && node instanceof RangeTable.Row ? null : data.get(key));
+		} finally {
+			unlock(lock);
+		}
 	}
 
 	@Override
@@ -1748,15 +2784,20 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return true if the node has any attributes, false otherwise.
 	 */
 	protected boolean hasAttribute(EARMARKNode node) {
-		boolean result = false;
-		
-		Iterator<EARMARKChildNode> ite = childMap.get(node).iterator();
-		while (!result && ite.hasNext()) {
-			EARMARKNode mi = ite.next();
-			result = mi.getNodeType() == EARMARKNode.Type.Attribute;
+		Lock lock = lockForReading();
+		try {
+			boolean result = false;
+			
+			Iterator<EARMARKChildNode> ite = childMap.get(node).iterator();
+			while (!result && ite.hasNext()) {
+				EARMARKNode mi = ite.next();
+				result = mi.getNodeType() == EARMARKNode.Type.Attribute;
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 
 	@Override
@@ -1771,7 +2812,12 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return true if the node has any children, false otherwise.
 	 */
 	protected boolean hasChildNodes(EARMARKNode node) {
-		return !childMap.get(node).isEmpty();
+		Lock lock = lockForReading();
+		try {
+			return !childMap.get(node).isEmpty();
+		} finally {
+			unlock(lock);
+		}
 	}
 
 	@Override
@@ -1786,15 +2832,20 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return true if the node sequence contain at least an element, false otherwise.
 	 */
 	protected boolean hasElementNodes(EARMARKNode node) {
-		boolean result = false;
-		
-		Iterator<EARMARKChildNode> ite = childMap.get(node).iterator();
-		while (!result && ite.hasNext()) {
-			EARMARKNode mi = ite.next();
-			result = mi.getNodeType() == EARMARKNode.Type.Element;
+		Lock lock = lockForReading();
+		try {
+			boolean result = false;
+			
+			Iterator<EARMARKChildNode> ite = childMap.get(node).iterator();
+			while (!result && ite.hasNext()) {
+				EARMARKNode mi = ite.next();
+				result = mi.getNodeType() == EARMARKNode.Type.Element;
+			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 
 	@Override
@@ -1827,7 +2878,12 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	protected EARMARKChildNode insertBefore(
 			EARMARKChildNode newChild, EARMARKChildNode refChild, EARMARKHierarchicalNode node)
 	throws EARMARKGraphException {
-		return insertBefore(newChild, refChild, 0, node);
+		Lock lock = lockForWriting();
+		try {
+			return insertBefore(newChild, refChild, 0, node);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -1850,37 +2906,46 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 			EARMARKChildNode newChild, EARMARKChildNode refChild, 
 			int occurrence, EARMARKHierarchicalNode node)
 	throws EARMARKGraphException {
-		if (
-				equals(node.getOwnerDocument()) && 
-				equals(newChild.getOwnerDocument()) && 
-				equals(node.getOwnerDocument())) {
+		Lock lock = lockForWriting();
+		try {
 			if (
-					refChild == null || 
-					(
-							equals(refChild.getOwnerDocument()) && 
-							(
-									node.getNodeType() == EARMARKNode.Type.Document || 
-									((node instanceof MarkupItem) && !((MarkupItem)node).isList()))))
-			{
-				add(newChild,node);
-				return newChild; 
-			} else {
-				it.essepuntato.earmark.core.List childs = 
-					(it.essepuntato.earmark.core.List) childMap.get(node);
-				Set<EARMARKHierarchicalNode> parents = parentMap.get(newChild);
-				int index = ListFacility.indexOfByOccurrence(childs, refChild, occurrence);
-				if (index > -1) {
-					childs.add(index, newChild);
-					parents.add(node);
-					return newChild;
+					equals(node.getOwnerDocument()) && 
+					equals(newChild.getOwnerDocument()) && 
+					equals(node.getOwnerDocument())) {
+				if (
+						refChild == null || 
+						(
+								equals(refChild.getOwnerDocument()) && 
+								(
+										node.getNodeType() == EARMARKNode.Type.Document || 
+										((node instanceof MarkupItem) && !((MarkupItem)node).isList()))))
+				{
+					add(newChild,node);
+					return newChild; 
 				} else {
-					throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR,
-							"[insertBefore]" + nochildError);
+					it.essepuntato.earmark.core.List childs = 
+						(it.essepuntato.earmark.core.List) childMap.get(node);
+					attachRangeTableRow(newChild);
+					Set<EARMARKHierarchicalNode> parents = parentMap.get(newChild);
+					int index = ListFacility.indexOfByOccurrence(childs, refChild, occurrence);
+					if (index > -1) {
+						childs.add(index, newChild);
+						parents.add(node);
+						changedHierarchy(node, newChild);
+						invalidateTextContent(node);
+						fireChildrenChanged(node);
+						return newChild;
+					} else {
+						throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR,
+								"[insertBefore]" + nochildError);
+					}
 				}
+			} else {
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
+						"[insertBefore] " + anotherDocumentError);
 			}
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
-					"[insertBefore] " + anotherDocumentError);
+		} finally {
+			unlock(lock);
 		}
 	}
 
@@ -1912,9 +2977,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	
 	/* Check if the document is equal to a paricular node */
 	private boolean isEqualNode(EARMARKNode node, boolean lookForSameness) {
-		return (lookForSameness && isSameNode(node)) || 
-			(hasBasicEquality(node, this) & hasHierarchicalEquality((EARMARKHierarchicalNode) node, 
-					this, lookForSameness));
+		Lock lock = lockForReading();
+		try {
+			return (lookForSameness && isSameNode(node)) || 
+				(hasBasicEquality(node, this) & hasHierarchicalEquality((EARMARKHierarchicalNode) node, 
+						this, lookForSameness));
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -2042,22 +3112,32 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * different document than the one that created this node.
 	 */
 	public boolean removeDocuverse(Docuverse d) throws EARMARKGraphException {
-		boolean result = true;
-		
-		if (d.getEARMARKDocument().equals(this)) {
-			Set<Range> rangeSet = docuverseMap.get(d);
-			if (rangeSet != null && rangeSet.isEmpty()) { /* Remove the docuverse */
-				getIdMap().remove(d.hasId());
-				docuverseMap.remove(d);
-			} else { /* The docuverse has been already removed or it still referred to some range */
-				result = false;
+		Lock lock = lockForWriting();
+		try {
+			boolean result = true;
+			
+			if (d.getEARMARKDocument().equals(this)) {
+				Set<Range> rangeSet = docuverseMap.get(d);
+				if (rangeSet != null && rangeSet.isEmpty() && !isReferredByRangeTables(d)) { /* Remove the docuverse */
+					getIdMap().remove(d.hasId());
+					changedId(d.hasId());
+					docuverseMap.remove(d);
+					docuverseIntervalMap.remove(d);
+					docuverseXPathMap.remove(d);
+					xmlContentCache.remove(d);
+					fireRemoved(d);
+				} else { /* The docuverse has been already removed or it still referred to some range */
+					result = false;
+				}
+			} else {
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
+						"[removeDocuverse] " + anotherDocumentError);
 			}
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
-					"[removeDocuverse] " + anotherDocumentError);
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -2073,17 +3153,22 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	protected EARMARKChildNode removeChild(
 			EARMARKChildNode oldChild, EARMARKHierarchicalNode node)
 	throws EARMARKGraphException {
-		if (equals(oldChild.getOwnerDocument()) && equals(node.getOwnerDocument())) {
-			EARMARKChildNode result = remove(oldChild, node);
-			if (result != null) {
-				return result;
+		Lock lock = lockForWriting();
+		try {
+			if (equals(oldChild.getOwnerDocument()) && equals(node.getOwnerDocument())) {
+				EARMARKChildNode result = remove(oldChild, node);
+				if (result != null) {
+					return result;
+				} else {
+					throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
+							"[removeChild] " + nochildError);
+				}
 			} else {
-				throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
-						"[removeChild] " + nochildError);
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
+						"[removeChild] " + anotherDocumentError);
 			}
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
-					"[removeChild] " + anotherDocumentError);
+		} finally {
+			unlock(lock);
 		}
 	}
 	
@@ -2104,12 +3189,17 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	protected EARMARKChildNode removeAllChild(
 			EARMARKChildNode oldChild, EARMARKHierarchicalNode node) {
-		if (equals(oldChild.getOwnerDocument()) && equals(node.getOwnerDocument())) {
-			EARMARKChildNode result = removeAll(oldChild, node);
-			return result;
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
-					"[removeAllChild] " + anotherDocumentError);
+		Lock lock = lockForWriting();
+		try {
+			if (equals(oldChild.getOwnerDocument()) && equals(node.getOwnerDocument())) {
+				EARMARKChildNode result = removeAll(oldChild, node);
+				return result;
+			} else {
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
+						"[removeAllChild] " + anotherDocumentError);
+			}
+		} finally {
+			unlock(lock);
 		}
 	}
 
@@ -2133,17 +3223,22 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 */
 	protected EARMARKChildNode removeChildByOccurrence(
 			EARMARKChildNode oldChild, int occurrence, EARMARKHierarchicalNode node) {
-		if (equals(oldChild.getOwnerDocument()) && equals(node.getOwnerDocument())) {
-			EARMARKChildNode result = remove(oldChild, node, occurrence);
-			if (result != null) {
-				return result;
+		Lock lock = lockForWriting();
+		try {
+			if (equals(oldChild.getOwnerDocument()) && equals(node.getOwnerDocument())) {
+				EARMARKChildNode result = remove(oldChild, node, occurrence);
+				if (result != null) {
+					return result;
+				} else {
+					throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
+							"[removeChildByOccurrence] " + nochildError);
+				}
 			} else {
-				throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
-						"[removeChildByOccurrence] " + nochildError);
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
+						"[remoceChildByOccurrence] " + anotherDocumentError);
 			}
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
-					"[remoceChildByOccurrence] " + anotherDocumentError);
+		} finally {
+			unlock(lock);
 		}
 	}
 
@@ -2168,20 +3263,25 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	protected EARMARKChildNode replaceChild(
 			EARMARKChildNode newChild, EARMARKChildNode oldChild, EARMARKHierarchicalNode node)
 	throws EARMARKGraphException {
-		if (
-				equals(newChild.getOwnerDocument()) && 
-				equals(oldChild.getOwnerDocument()) && 
-				equals(node.getOwnerDocument())) {
-			EARMARKChildNode result = replace(newChild, oldChild, node);
-			if (result != null) {
-				return result;
+		Lock lock = lockForWriting();
+		try {
+			if (
+					equals(newChild.getOwnerDocument()) && 
+					equals(oldChild.getOwnerDocument()) && 
+					equals(node.getOwnerDocument())) {
+				EARMARKChildNode result = replace(newChild, oldChild, node);
+				if (result != null) {
+					return result;
+				} else {
+					throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
+							"[replaceChild] " + nochildError);
+				}
 			} else {
-				throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
-						"[replaceChild] " + nochildError);
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
+						"[replaceChild] " + anotherDocumentError);
 			}
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
-					"[replaceChild] " + anotherDocumentError);
+		} finally {
+			unlock(lock);
 		}
 	}
 	
@@ -2206,20 +3306,25 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	protected EARMARKChildNode replaceAllChild(
 			EARMARKChildNode newChild, EARMARKChildNode oldChild, EARMARKHierarchicalNode node)
 	throws EARMARKGraphException {
-		if (
-				equals(newChild.getOwnerDocument()) && 
-				equals(oldChild.getOwnerDocument()) &&
-				equals(node.getOwnerDocument())) {
-			EARMARKChildNode result = replaceAll(newChild, oldChild, node);
-			if (result != null) {
-				return result;
+		Lock lock = lockForWriting();
+		try {
+			if (
+					equals(newChild.getOwnerDocument()) && 
+					equals(oldChild.getOwnerDocument()) &&
+					equals(node.getOwnerDocument())) {
+				EARMARKChildNode result = replaceAll(newChild, oldChild, node);
+				if (result != null) {
+					return result;
+				} else {
+					throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
+							"[replaceAllChild] " + nochildError);
+				}
 			} else {
-				throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
-						"[replaceAllChild] " + nochildError);
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
+						"[replaceAllChild] " + anotherDocumentError);
 			}
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
-					"[replaceAllChild] " + anotherDocumentError);
+		} finally {
+			unlock(lock);
 		}
 	}
 
@@ -2258,20 +3363,25 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 			int occurrence, 
 			EARMARKHierarchicalNode node) 
 	throws EARMARKGraphException {
-		if (
-				equals(newChild.getOwnerDocument()) && 
-				equals(oldChild.getOwnerDocument()) &&
-				equals(node.getOwnerDocument())) {
-			EARMARKChildNode result = replace(newChild, oldChild, node, occurrence);
-			if (result != null) {
-				return result;
+		Lock lock = lockForWriting();
+		try {
+			if (
+					equals(newChild.getOwnerDocument()) && 
+					equals(oldChild.getOwnerDocument()) &&
+					equals(node.getOwnerDocument())) {
+				EARMARKChildNode result = replace(newChild, oldChild, node, occurrence);
+				if (result != null) {
+					return result;
+				} else {
+					throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
+							"[replaceChildByOccurrence] " + nochildError);
+				}
 			} else {
-				throw new EARMARKGraphException(EARMARKGraphException.Type.NOCHILD_ERR, 
-						"[replaceChildByOccurrence] " + nochildError);
+				throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
+						"[replaceChildByOccurrence] " + anotherDocumentError);
 			}
-		} else {
-			throw new EARMARKGraphException(EARMARKGraphException.Type.WRONG_DOCUMENT_ERR, 
-					"[replaceChildByOccurrence] " + anotherDocumentError);
+		} finally {
+			unlock(lock);
 		}
 	}
 
@@ -2291,7 +3401,13 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @param node the node we are setting the data.
 	 */
 	protected void setUserData(String key, Object data, EARMARKNode node) {
-		userData.get(node).put(key, data);
+		Lock lock = lockForWriting();
+		try {
+			attachRangeTableRow(node);
+			userData.get(node).put(key, data);
+		} finally {
+			unlock(lock);
+		}
 	}
 	
 	/**
@@ -2309,25 +3425,30 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	 * @return the node adopted.
 	 */
 	public EARMARKChildNode adoptNode(EARMARKChildNode n) {
-		EARMARKChildNode result = null;
-		
-		if (n.getOwnerDocument().equals(this)) { /* If the EARMARK document of the node specified
-		is this document, returns the node itself. */
-			result = n;
-		} else { /* Otherwise adopt it */
-			result = copyNode(n, true);
+		Lock lock = lockForWriting();
+		try {
+			EARMARKChildNode result = null;
 			
-			if (result != null) {
-				EARMARKDocument original = n.getOwnerDocument();
-				if (n instanceof Range) {
-					original.removeRange((Range) n);
-				} else {
-					original.removeMarkupItem((MarkupItem) n, true);
+			if (n.getOwnerDocument().equals(this)) { /* If the EARMARK document of the node specified
+			is this document, returns the node itself. */
+				result = n;
+			} else { /* Otherwise adopt it */
+				result = copyNode(n, true);
+				
+				if (result != null) {
+					EARMARKDocument original = n.getOwnerDocument();
+					if (n instanceof Range) {
+						original.removeRange((Range) n);
+					} else {
+						original.removeMarkupItem((MarkupItem) n, true);
+					}
 				}
 			}
+			
+			return result;
+		} finally {
+			unlock(lock);
 		}
-		
-		return result;
 	}
 	
 
@@ -2846,24 +3967,166 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		return new EARMARKDocument(id);
 	}
 	
-	/* Return an document-unique URI representing an identifier from a string. */
-	private URI makeId(String name) {
+	/**
+	 * This method acquires the lock for reading the document, if it is in concurrent mode.
+	 * 
+	 * @return the lock acquired, to be released through the method unlock, or null if the document
+	 * is not in concurrent mode.
+	 */
+	protected Lock lockForReading() {
+		ReentrantReadWriteLock current = concurrencyLock;
+		Lock result = null;
+		
+		if (current != null) {
+			result = current.readLock();
+			result.lock();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * This method acquires the lock for modifying the document, if it is in concurrent mode.
+	 * 
+	 * @return the lock acquired, to be released through the method unlock, or null if the document
+	 * is not in concurrent mode.
+	 */
+	protected Lock lockForWriting() {
+		ReentrantReadWriteLock current = concurrencyLock;
+		Lock result = null;
+		
+		if (current != null) {
+			result = current.writeLock();
+			result.lock();
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * This method releases a lock returned by the methods lockForReading and lockForWriting.
+	 * 
+	 * @param lock the lock to be released, or null.
+	 */
+	protected void unlock(Lock lock) {
+		if (lock != null) {
+			lock.unlock();
+		}
+	}
+	
+	/* Record that the children of a node and the parents of a node have changed since the last snapshot */
+	private void changedHierarchy(EARMARKHierarchicalNode parent, EARMARKChildNode child) {
+		changedChildren(parent);
+		changedParents(child);
+	}
+	
+	private void changedChildren(EARMARKHierarchicalNode node) {
+		if (changedChildren != null) {
+			changedChildren.add(node);
+		}
+	}
+	
+	private void changedParents(EARMARKChildNode node) {
+		if (changedParents != null) {
+			changedParents.add(node);
+		}
+	}
+	
+	private void changedId(URI id) {
+		if (changedIds != null) {
+			changedIds.add(id);
+		}
+	}
+	
+	private void changedGeneralIdentifier(String gi) {
+		if (changedGeneralIdentifiers != null) {
+			changedGeneralIdentifiers.add(gi);
+		}
+	}
+	
+	/* Notify the listeners of the document of a modification */
+	private void fireCreated(EARMARKItem item) {
+		for (EARMARKListener listener : listeners) {
+			listener.itemCreated(item);
+		}
+	}
+	
+	private void fireRemoved(EARMARKItem item) {
+		for (EARMARKListener listener : listeners) {
+			listener.itemRemoved(item);
+		}
+	}
+	
+	private void fireAppended(EARMARKHierarchicalNode parent, EARMARKChildNode child) {
+		for (EARMARKListener listener : listeners) {
+			listener.childAppended(parent, child);
+		}
+	}
+	
+	private void fireChildrenChanged(EARMARKHierarchicalNode parent) {
+		for (EARMARKListener listener : listeners) {
+			listener.childrenChanged(parent, childMap.get(parent));
+		}
+	}
+	
+	/* Notify the listeners of the replacement of a portion of an editable docuverse, called by the docuverse */
+	void fireTextReplaced(EditableDocuverse docuverse, int begin, int end, String replacement) {
+		for (EARMARKListener listener : listeners) {
+			listener.textReplaced(docuverse, begin, end, replacement);
+		}
+	}
+	
+	/* Return an document-unique URI representing an identifier from a string, using the id generator
+	 * of the document. */
+	private URI makeId(String name, String content) {
 		String idName = (name == null ? "EARMARKitem" : name);
+		String base = (hasId() == null ? "" : hasId().toString() + SEPARATOR);
 		
 		URI id = null;
-		for(int i = 1; id == null; i++) {
-			URI tmpId = URI.create((hasId() == null ? "" : hasId().toString() + SEPARATOR) + idName + i);
-			if (!idSet.keySet().contains(tmpId)) {
+		while (id == null) {
+			URI tmpId = URI.create(base + idGenerator.generate(idName, content));
+			if (!isIdUsed(tmpId)) {
 				id = tmpId;
 			}
 		}
 		return id;
 	}
 	
+	/* Return a document-unique URI for an item having the features specified, which are described only
+	 * if the id generator uses the descriptions of the items. */
+	private URI makeDescribedId(String name, Object... features) {
+		return makeId(name, (idGenerator.usesContent() ? describe(features) : null));
+	}
+	
+	/* Return a string describing an item through its features, used by the id generator. */
+	private String describe(Object... features) {
+		StringBuilder result = new StringBuilder();
+		for (Object feature : features) {
+			result.append(feature).append(' ');
+		}
+		return result.toString();
+	}
+	
+	/* Associate an identifier to an item and notify the id generator of its use. */
+	private void putId(URI id, EARMARKItem item) {
+		idSet.put(id, item);
+		changedId(id);
+		registerId(id);
+	}
+	
+	/* Notify the id generator that an identifier is used in the document. */
+	private void registerId(URI id) {
+		String base = (hasId() == null ? "" : hasId().toString() + SEPARATOR);
+		String idString = id.toString();
+		if (idString.startsWith(base)) {
+			idGenerator.register(idString.substring(base.length()));
+		}
+	}
+	
 	/* Check if the identifier is already used in the document. */
 	private void checkIdentity(URI id) throws ExistingIdException {
 		/* The empty string is reserved */
-		if (!id.toString().equals("") && idSet.keySet().contains(id)) {
+		if (!id.toString().equals("") && isIdUsed(id)) {
 			throw new ExistingIdException("The id '" + id + "' is already used in this" +
 					" EARMARK document.");
 		}
@@ -2871,10 +4134,14 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 	
 	/* Add a child node to its parent. */
 	private EARMARKChildNode add(EARMARKChildNode child, EARMARKHierarchicalNode parent) {
+		attachRangeTableRow(child);
 		Collection childList = childMap.get(parent);
 		Set<EARMARKHierarchicalNode> parentList = parentMap.get(child);
 		childList.add(child);
 		parentList.add(parent);
+		changedHierarchy(parent, child);
+		invalidateTextContent(parent);
+		fireAppended(parent, child);
 		return child;
 	}
 	
@@ -2910,6 +4177,9 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 			
 			if (result != null) {
 				parentMap.get(child).remove(parent);
+				changedHierarchy(parent, child);
+				invalidateTextContent(parent);
+				fireChildrenChanged(parent);
 			}
 		} catch (NullPointerException e) {
 			// Do nothing
@@ -2934,6 +4204,12 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 				parentMap.get(child).remove(parent);
 			}
 			
+			if (contain) {
+				changedHierarchy(parent, child);
+				invalidateTextContent(parent);
+				fireChildrenChanged(parent);
+			}
+			
 			return (contain ? child : null);
 		} catch (NullPointerException e) {
 			return null;
@@ -2947,6 +4223,7 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		EARMARKChildNode result = null;
 		
 		if (!newChild.equals(oldChild)) {
+			attachRangeTableRow(newChild);
 			if (occurrence <= 1 || !parent.isList()) {
 				Collection children = childMap.get(parent);
 				boolean replaced = children.replace(newChild, oldChild);
@@ -2973,6 +4250,10 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		if (result != null) {
 			parentMap.get(oldChild).remove(parent);
 			parentMap.get(newChild).add(parent);
+			changedHierarchy(parent, oldChild);
+			changedHierarchy(parent, newChild);
+			invalidateTextContent(parent);
+			fireChildrenChanged(parent);
 		}
 		
 		return result;
@@ -2994,6 +4275,7 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		boolean contain = false;
 		
 		if (!newChild.equals(oldChild)) {
+			attachRangeTableRow(newChild);
 			Collection listChild = childMap.get(parent);
 			contain = listChild.contains(oldChild);
 		
@@ -3001,6 +4283,13 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 				parentMap.get(oldChild).remove(parent);
 				parentMap.get(newChild).add(parent);
 			}
+			
+			if (contain) {
+				changedHierarchy(parent, oldChild);
+				changedHierarchy(parent, newChild);
+				invalidateTextContent(parent);
+				fireChildrenChanged(parent);
+			}
 		}
 		
 		return (contain ? oldChild : null);
@@ -3019,7 +4308,7 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 			markup = new Element(this, gi, ns, type, id);
 		}
 		
-		idSet.put(id, markup);
+		putId(id, markup);
 		
 		String currentGi = (gi == null ? "" : gi);
 		
@@ -3029,6 +4318,7 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 			giMap.put(currentGi, associated);
 		}
 		associated.add(markup);
+		changedGeneralIdentifier(currentGi);
 		
 		URI currentNs = (ns == null ? URI.create("") : ns);
 		
@@ -3051,61 +4341,68 @@ public class EARMARKDocument implements EARMARKItem, EARMARKHierarchicalNode {
 		userData.put(markup, new HashMap<String,Object>());
 		childMap.put(markup, children);
 		parentMap.put(markup, new HashSet<EARMARKHierarchicalNode>());
+		changedHierarchy(markup, markup);
+		fireCreated(markup);
 		
 		return markup;
 	}
 	
-	/* Return a range if it was previously defined in the document. */
-	@SuppressWarnings("unchecked")
-	private Range getWhetherItExists(Docuverse d, Integer realB, Integer realE, String xpath) {
-		Range result = null;
-
-		Integer b = (realB == null ? -1 : realB);
-		Integer e = (realE == null ? -1 : realE);
-		
-		Set<Range> dSet = docuverseMap.get(d);
+	/* The key identifying a range through its docuverse, its locations and its xpath context, which is
+	 * null for pointer ranges and "" for xpath pointer ranges without context. */
+	private static class RangeKey {
+		private Docuverse docuverse;
+		private int begin;
+		private int end;
+		private String xpath;
 		
-		Set<Range> bSet = null;
-		if (b != null) {
-			bSet = rangeBeginLocationMap.get(b);
+		private RangeKey(Docuverse docuverse, Integer begin, Integer end, String xpath) {
+			this(
+					docuverse, 
+					(begin == null ? Range.UNSPECIFIED : Math.abs(begin)), 
+					(end == null ? Range.UNSPECIFIED : Math.abs(end)), 
+					xpath);
 		}
 		
-		Set<Range> eSet = null;
-		if (e != null) {
-			eSet = rangeEndLocationMap.get(e);
+		private RangeKey(Docuverse docuverse, int begin, int end, String xpath) {
+			this.docuverse = docuverse;
+			this.begin = begin;
+			this.end = end;
+			this.xpath = xpath;
 		}
 		
-		Set<Range> xSet = null;
-		if (xpath != null) {
-			xSet = rangeXPathPointerMap.get(xpath);
+		private RangeKey(Range r) {
+			this(r.refersTo(), r.beginOffset(), r.endOffset(), null);
+			if (r instanceof XPathRange) {
+				xpath = ((XPathRange) r).hasXPathContext();
+				if (xpath == null) {
+					xpath = "";
+				}
+			}
 		}
 		
-		boolean bApply = false;
-		boolean eApply = false;
-		boolean xApply = false;
-		
-		Set<Range> set = new HashSet<Range>(dSet);
-		
-		if (!set.isEmpty() && bSet != null) {
-			set = SetFacility.intersect(set, bSet);
-			bApply = true;
-		} 
-		if (!set.isEmpty() && eSet != null) {
-			set = SetFacility.intersect(set, eSet);
-			eApply = true;
-		}
-		if (!set.isEmpty() && xSet != null) {
-			set = SetFacility.intersect(set, xSet);
-			xApply = true;
+		@Override
+		public int hashCode() {
+			int result = (docuverse == null ? 0 : docuverse.hashCode());
+			result = 31 * result + begin;
+			result = 31 * result + end;
+			result = 31 * result + (xpath == null ? 0 : xpath.hashCode());
+			return result;
 		}
 		
-		boolean setChangedCoherently = bApply && eApply && (xApply || xpath == null);
-		
-		if (!set.isEmpty() && setChangedCoherently) {
-			result = set.iterator().next();
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (obj instanceof RangeKey) {
+				RangeKey other = (RangeKey) obj;
+				return 
+					begin == other.begin && end == other.end &&
+					(docuverse == null ? other.docuverse == null : docuverse.equals(other.docuverse)) &&
+					(xpath == null ? other.xpath == null : xpath.equals(other.xpath));
+			} else {
+				return false;
+			}
 		}
-		
-		return result;
 	}
 	
 	/* Get a full URI from a string. */
@@ -0,0 +1,58 @@
+package it.essepuntato.earmark.core;
+
+/**
+ * <p>This interface defines an object notified of the modifications of an EARMARK document, once it has been
+ * added to the document through the method addListener.</p>
+ * <p>The methods are called by the thread modifying the document, after each modification and while the
+ * document is still locked for writing in concurrent mode. Thus, they should return quickly and they must
+ * not modify the document. The modifications of the RDF assertions of the document are not notified, since
+ * they can be observed through the listeners of its Jena model.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public interface EARMARKListener {
+	/**
+	 * This method is called after the creation of a docuverse, of a range or of a markup item, including
+	 * the rows of the range tables that become nodes of the document.
+	 *
+	 * @param item the item created.
+	 */
+	public void itemCreated(EARMARKItem item);
+
+	/**
+	 * This method is called after the removal of a docuverse, of a range or of a markup item from the
+	 * document. The removal of an item from the children of its parents is notified before.
+	 *
+	 * @param item the item removed.
+	 */
+	public void itemRemoved(EARMARKItem item);
+
+	/**
+	 * This method is called after a node has been appended to the children of a hierarchical node.
+	 *
+	 * @param parent the hierarchical node, i.e., a markup item or the document.
+	 * @param child the node appended.
+	 */
+	public void childAppended(EARMARKHierarchicalNode parent, EARMARKChildNode child);
+
+	/**
+	 * This method is called after any other modification of the children of a hierarchical node (i.e.,
+	 * insertions, removals and replacements).
+	 *
+	 * @param parent the hierarchical node, i.e., a markup item or the document.
+	 * @param children the children of the node after the modification, which must not be stored since they
+	 * are not copied.
+	 */
+	public void childrenChanged(EARMARKHierarchicalNode parent, Collection children);
+
+	/**
+	 * This method is called after the replacement of a portion of the content of an editable docuverse.
+	 *
+	 * @param docuverse the docuverse modified.
+	 * @param begin the offset of the first character replaced.
+	 * @param end the offset following the last character replaced.
+	 * @param replacement the new text.
+	 */
+	public void textReplaced(EditableDocuverse docuverse, int begin, int end, String replacement);
+}
@@ -1,5 +1,6 @@
 package it.essepuntato.earmark.core;
 
+import java.io.IOException;
 
 /**
  * This interface defines all the methods that an EARMARK node have to implement.
@@ -79,6 +80,15 @@ public interface EARMARKNode extends EARMARKItem {
 	 */
 	public String getTextContent();
 	
+	/**
+	 * This method writes the text content of this node and its descendants, in document order, without
+	 * building it as a whole.
+	 * 
+	 * @param out the appendable object the text content is written to.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void writeTextContent(Appendable out) throws IOException;
+	
 	/**
 	 * Retrieves the object associated to a key on a this node. The object must 
 	 * first have been set to this node by calling setUserData with the same key.
@@ -0,0 +1,150 @@
+package it.essepuntato.earmark.core;
+
+import it.essepuntato.facility.map.PersistentMap;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>An immutable view of the structure of an EARMARK document, i.e., the hierarchy of its nodes, their
+ * identifiers and their general identifiers, as it was when the snapshot was taken through the method
+ * snapshot of the document.</p>
+ * <p>The snapshot is built on persistent maps that share with the document and with the other snapshots
+ * all the entries not changed in the meantime, so that taking a snapshot does not copy the whole document.
+ * Any modification of the hierarchy of the document made after the snapshot is not visible through it, and
+ * a snapshot can be read by many threads at the same time without any lock.</p>
+ * <p>The nodes returned are the ones of the document: their own methods, differently from the ones of the
+ * snapshot, return the current state of the document. Ranges and docuverses are not copied, thus the text
+ * content of a range is the current one of its docuverse.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public final class EARMARKSnapshot {
+	private final EARMARKDocument document;
+	private final PersistentMap<EARMARKHierarchicalNode,java.util.List<EARMARKChildNode>> children;
+	private final PersistentMap<EARMARKChildNode,Set<EARMARKHierarchicalNode>> parents;
+	private final PersistentMap<URI,EARMARKItem> ids;
+	private final PersistentMap<String,Set<MarkupItem>> generalIdentifiers;
+
+	/* The value cached for the nodes without any text content */
+	private static final String NO_TEXT = new String();
+
+	/* The text content of the hierarchical nodes, computed on demand */
+	private final ConcurrentMap<EARMARKHierarchicalNode,String> textCache =
+		new ConcurrentHashMap<EARMARKHierarchicalNode,String>();
+
+	protected EARMARKSnapshot(
+			EARMARKDocument document,
+			PersistentMap<EARMARKHierarchicalNode,java.util.List<EARMARKChildNode>> children,
+			PersistentMap<EARMARKChildNode,Set<EARMARKHierarchicalNode>> parents,
+			PersistentMap<URI,EARMARKItem> ids,
+			PersistentMap<String,Set<MarkupItem>> generalIdentifiers) {
+		this.document = document;
+		this.children = children;
+		this.parents = parents;
+		this.ids = ids;
+		this.generalIdentifiers = generalIdentifiers;
+	}
+
+	/**
+	 * This method returns the document this snapshot has been taken from.
+	 *
+	 * @return the document of the snapshot.
+	 */
+	public EARMARKDocument getDocument() {
+		return document;
+	}
+
+	/**
+	 * This method returns the children of a node, in their order, when the snapshot was taken.
+	 *
+	 * @param node the node we are asking for its child nodes (e.g., the document for its roots).
+	 * @return an unmodifiable list of the children of the node, empty if the node was not in the document.
+	 */
+	public java.util.List<EARMARKChildNode> getChildNodes(EARMARKHierarchicalNode node) {
+		java.util.List<EARMARKChildNode> result = children.get(node);
+		return (result == null ? Collections.<EARMARKChildNode>emptyList() : result);
+	}
+
+	/**
+	 * This method returns the parents of a node when the snapshot was taken.
+	 *
+	 * @param node the node we are asking for the parent nodes.
+	 * @return an unmodifiable set of the parents of the node, empty if the node was not in the document.
+	 */
+	public Set<EARMARKHierarchicalNode> getParentNodes(EARMARKChildNode node) {
+		Set<EARMARKHierarchicalNode> result = parents.get(node);
+		return (result == null ? Collections.<EARMARKHierarchicalNode>emptySet() : result);
+	}
+
+	/**
+	 * This method returns the item having the id specified when the snapshot was taken.
+	 *
+	 * @param id the identifier of the item to be returned.
+	 * @return the item related to the input id, or null if there was not such an item.
+	 */
+	public EARMARKItem getEntityById(URI id) {
+		return ids.get(id);
+	}
+
+	/**
+	 * <p>This method returns the markup items having a particular general identifier when the snapshot
+	 * was taken.</p>
+	 * <p>If the general identifier specified is null or "", the method looks for all the entities that do not
+	 * have any general identifier specified.</p>
+	 *
+	 * @param gi the general identifier for the entities to be retrieved.
+	 * @return an unmodifiable set of markup items having the input general identifier specified.
+	 */
+	public Set<MarkupItem> getMarkupItemByGeneralIdentifier(String gi) {
+		Set<MarkupItem> result = generalIdentifiers.get(gi == null ? "" : gi);
+		return (result == null ? Collections.<MarkupItem>emptySet() : result);
+	}
+
+	/**
+	 * This method returns all the nodes of the document when the snapshot was taken.
+	 *
+	 * @return a new list of all the nodes of the snapshot.
+	 */
+	public java.util.List<EARMARKChildNode> getAllEARMARKNode() {
+		return parents.keys();
+	}
+
+	/**
+	 * <p>This method returns the text content of a node and its descendants, following the hierarchy of the
+	 * document when the snapshot was taken.</p>
+	 *
+	 * @param node the node we are asking for the text content.
+	 * @return the text content of this node, or null if it does not exist.
+	 */
+	public String getTextContent(EARMARKNode node) {
+		if (!(node instanceof EARMARKHierarchicalNode)) {
+			return node.getTextContent();
+		}
+
+		EARMARKHierarchicalNode hierarchical = (EARMARKHierarchicalNode) node;
+		String result = textCache.get(hierarchical);
+
+		if (result == null) {
+			StringBuilder builder = new StringBuilder();
+			boolean existAny = false;
+
+			for (EARMARKChildNode child : getChildNodes(hierarchical)) {
+				String tmpResult = getTextContent(child);
+				if (tmpResult != null) {
+					existAny = true;
+					builder.append(tmpResult);
+				}
+			}
+
+			result = (existAny ? builder.toString() : NO_TEXT);
+			textCache.put(hierarchical, result);
+		}
+
+		return (result == NO_TEXT ? null : result);
+	}
+}
@@ -0,0 +1,160 @@
+package it.essepuntato.earmark.core;
+
+import it.essepuntato.facility.text.PieceTable;
+
+import java.net.URI;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * <p>This class represents a concrete docuverse whose textual content can be modified, storing it as a
+ * piece table.</p>
+ * <p>Any modification of the content shifts the locations of the pointer ranges referring to the docuverse
+ * that follow the modified portion, and clips the locations that fall within a deleted portion, so that the
+ * ranges keep referring to the same text. The locations of xpath ranges, which are relative to the
+ * result of their xpath context, are not changed.</p>
+ * <p>Since the EARMARK ontology does not define a specific class for it, an editable docuverse is stored
+ * as a string docuverse with its current content.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class EditableDocuverse extends Docuverse {
+	private PieceTable text;
+
+	/**
+	 * Create an editable docuverse. The initial content, which is never modified by the piece table, is
+	 * shared with any other docuverse having the same content through the default content pool.
+	 *
+	 * @param d the document to which this item is associated.
+	 * @param t the initial string content of the new docuverse.
+	 * @param id the identifier for the new docuverse.
+	 */
+	protected EditableDocuverse(EARMARKDocument d, String t, URI id) {
+		super(d, null, id);
+		text = new PieceTable(DocuverseContentPool.getDefault().share(t));
+	}
+
+	/**
+	 * This method returns the current content as a string.
+	 *
+	 * @return the string representing the current content of the docuverse.
+	 */
+	@Override
+	public String hasContent() {
+		return text.toString();
+	}
+
+	/**
+	 * This method returns the textual content of the docuverse, i.e., its piece table. The characters
+	 * are accessed without building the whole content.
+	 *
+	 * @return the textual content of the docuverse.
+	 */
+	@Override
+	public CharSequence getText() {
+		return text;
+	}
+
+	/**
+	 * This method inserts a text in the content of the docuverse. The locations of the pointer ranges
+	 * from the offset specified on are shifted by the length of the text, while the ranges ending at
+	 * that offset do not include the new text. Empty ranges at that offset are shifted as well.
+	 *
+	 * @param offset the offset in which the text will be inserted.
+	 * @param insertion the text to insert.
+	 * @throws IndexOutOfBoundsException if the offset is out of the content.
+	 */
+	public void insert(int offset, String insertion) {
+		replace(offset, offset, insertion);
+	}
+
+	/**
+	 * This method deletes a portion of the content of the docuverse. The locations of the pointer
+	 * ranges following the portion are shifted back by its length, while the ones within the portion
+	 * are clipped to its begin.
+	 *
+	 * @param begin the offset of the first character to delete.
+	 * @param end the offset following the last character to delete.
+	 * @throws IndexOutOfBoundsException if the offsets are out of the content or begin is greater than end.
+	 */
+	public void delete(int begin, int end) {
+		replace(begin, end, "");
+	}
+
+	/**
+	 * <p>This method replaces a portion of the content of the docuverse with a new text.</p>
+	 * <p>The locations of the pointer ranges following the portion are shifted by the difference between
+	 * the length of the new text and the one of the portion. A range beginning within the portion begins
+	 * with the new text, while a range ending within the portion ends with the new text.</p>
+	 *
+	 * @param begin the offset of the first character to replace.
+	 * @param end the offset following the last character to replace.
+	 * @param replacement the new text.
+	 * @throws IndexOutOfBoundsException if the offsets are out of the content or begin is greater than end.
+	 */
+	public void replace(int begin, int end, String replacement) {
+		EARMARKDocument document = getEARMARKDocument();
+		Lock lock = document.lockForWriting();
+		try {
+			text.replace(begin, end, replacement);
+			increaseVersion();
+			document.shiftRanges(this, begin, end, replacement.length());
+			document.fireTextReplaced(this, begin, end, replacement);
+		} finally {
+			document.unlock(lock);
+		}
+	}
+
+	/**
+	 * <p>This method returns the locations of a range after the replacement of the portion [from, to) of
+	 * the content of its docuverse with a text of the length specified, as described in the method replace.</p>
+	 * <p>Unspecified locations are not changed, and a range whose end location is lower than its begin
+	 * location keeps such orientation.</p>
+	 *
+	 * @param begin the begin location of the range, or Range.UNSPECIFIED.
+	 * @param end the end location of the range, or Range.UNSPECIFIED.
+	 * @param from the offset of the first character replaced.
+	 * @param to the offset following the last character replaced.
+	 * @param inserted the length of the new text.
+	 * @return an array containing the new begin and end locations.
+	 */
+	protected static int[] getShiftedLocations(int begin, int end, int from, int to, int inserted) {
+		boolean isReverse = (begin != Range.UNSPECIFIED && end != Range.UNSPECIFIED && end < begin);
+		int low = (isReverse ? end : begin);
+		int high = (isReverse ? begin : end);
+		boolean isEmptyInsertion = (from == to && low == from && high == from);
+
+		if (low != Range.UNSPECIFIED) {
+			if (low > from || (low == from && from == to)) {
+				low = (low < to ? from : low - (to - from) + inserted);
+			}
+		}
+
+		if (high != Range.UNSPECIFIED) {
+			if (high > from || isEmptyInsertion) {
+				high = (high < to ? from + inserted : high - (to - from) + inserted);
+			}
+		}
+
+		return (isReverse ? new int[] { high, low } : new int[] { low, high });
+	}
+
+	/**
+	 * This method says the type of this docuverse.
+	 *
+	 * @return the item Docuverse.Type.EditableDocuverse;
+	 */
+	public Docuverse.Type getType() {
+		return Docuverse.Type.EditableDocuverse;
+	}
+
+	@Override
+	public EditableDocuverse clone() {
+		return getEARMARKDocument().createEditableDocuverse(hasContent());
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + " = '" + hasContent() + "'";
+	}
+}
@@ -0,0 +1,93 @@
+package it.essepuntato.earmark.core;
+
+import it.essepuntato.facility.text.MappedFileText;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * <p>This class represents a concrete docuverse whose content is a UTF-8 file that is memory-mapped
+ * rather than loaded in memory, so that the ranges referring to it decode only the portions of the file
+ * they select.</p>
+ * <p>Since the EARMARK ontology does not define a specific class for it, a mapped file docuverse is stored
+ * as a URI docuverse referring to the URI of the file.</p>
+ * 
+ * @author Silvio Peroni
+ *
+ */
+public class MappedFileDocuverse extends Docuverse {
+	private MappedFileText text = null;
+	
+	/**
+	 * Create a mapped file docuverse.
+	 * 
+	 * @param d the document to which this item is associated.
+	 * @param u the "file" URI of the content of the new docuverse.
+	 * @param id the identifier for the new docuverse.
+	 */
+	protected MappedFileDocuverse(EARMARKDocument d, URI u, URI id) {
+		super(d, u, id);
+	}
+	
+	/**
+	 * This method returns the URI of the file containing the content.
+	 * 
+	 * @return the URI of the file containing the content of the docuverse.
+	 */
+	public URI hasContent() {
+		return (URI) super.hasContent();
+	}
+	
+	/**
+	 * This method returns the content of the file of the docuverse, mapping it the first time it is needed.
+	 * 
+	 * @return the content of the file of the docuverse.
+	 * @throws IOException if the file cannot be mapped.
+	 */
+	protected synchronized MappedFileText getMappedText() throws IOException {
+		if (text == null) {
+			try {
+				text = new MappedFileText(new File(hasContent()));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("The URI " + hasContent() + " does not refer to a file.");
+			}
+		}
+		
+		return text;
+	}
+	
+	/**
+	 * This method returns the textual content of the docuverse, i.e., the content of its file, 
+	 * which is decoded only when the characters are requested.
+	 * 
+	 * @return the content of the file of the docuverse, or an empty string if it cannot be mapped.
+	 */
+	@Override
+	public CharSequence getText() {
+		try {
+			return getMappedText();
+		} catch (IOException e) {
+			/* Do nothing: problem in mapping the file */
+			return "";
+		}
+	}
+	
+	/**
+	 * This method says the type of this docuverse.
+	 * 
+	 * @return the item Docuverse.Type.MappedFileDocuverse;
+	 */
+	public Docuverse.Type getType() {
+		return Docuverse.Type.MappedFileDocuverse;
+	}
+	
+	@Override
+	public MappedFileDocuverse clone() {
+		return getEARMARKDocument().createMappedFileDocuverse(hasContent());
+	}
+	
+	public String toString() {
+		return super.toString() + " => " + hasContent();
+	}
+}
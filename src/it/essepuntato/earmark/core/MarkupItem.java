@@ -2,6 +2,7 @@ package it.essepuntato.earmark.core;
 
 import it.essepuntato.earmark.core.exception.EARMARKGraphException;
 
+import java.io.IOException;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.Set;
@@ -274,6 +275,11 @@ implements EARMARKItem, EARMARKHierarchicalNode, EARMARKChildNode {
 	public String getTextContent() {
 		return document.getTextContent(this);
 	}
+	
+	@Override
+	public void writeTextContent(Appendable out) throws IOException {
+		document.writeTextContent(this, out);
+	}
 
 	@Override
 	public Object getUserData(String key) {
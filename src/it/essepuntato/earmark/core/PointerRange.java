@@ -1,5 +1,7 @@
 package it.essepuntato.earmark.core;
 
+import it.essepuntato.facility.interval.IntervalTree;
+
 import java.net.URI;
 
 /**
@@ -9,6 +11,12 @@ import java.net.URI;
  *
  */
 public class PointerRange extends Range {
+	private int begin;
+	private int end;
+	/* The entry of the range in the interval tree of an editable docuverse, which keeps its current 
+	 * locations while the content of the docuverse is modified */
+	private IntervalTree.Entry<Range> interval = null;
+	private boolean isReverse = false;
 
 	/**
 	 * Create a pointer range.
@@ -23,9 +31,9 @@ public class PointerRange extends Range {
 	 */
 	protected PointerRange(EARMARKDocument d, Docuverse docuverse,
 			Integer begin, Integer end, URI id) {
-		super(d, docuverse, 
-				(begin == null ? begin : new Integer(Math.abs(begin))), 
-				(end == null ? end : new Integer(Math.abs(end))), id);
+		super(d, docuverse, id);
+		this.begin = (begin == null ? UNSPECIFIED : Math.abs(begin));
+		this.end = (end == null ? UNSPECIFIED : Math.abs(end));
 	}
 	
 	/**
@@ -34,7 +42,8 @@ public class PointerRange extends Range {
 	 * @return the begin integer point.
 	 */
 	public Integer begins() {
-		return (Integer) super.begins();
+		int result = beginOffset();
+		return (result == UNSPECIFIED ? null : Integer.valueOf(result));
 	}
 	
 	/**
@@ -43,53 +52,107 @@ public class PointerRange extends Range {
 	 * @return the end integer point.
 	 */
 	public Integer ends() {
-		return (Integer) super.ends();
+		int result = endOffset();
+		return (result == UNSPECIFIED ? null : Integer.valueOf(result));
 	}
-
+	
 	/**
-	 * <p>This method retrieves the textual content of the range, considering the document content as a string
-	 * and then restricting it according to the begin and end locations.</p>
-	 * <p>If the begin and/or end locations are not specified (i.e., = null), then this method considers
-	 * location "0" as begin and location "size(docuverse_content)" as end.</p>
+	 * This method changes the locations of the range, e.g., after a modification of the content of its
+	 * docuverse. It does not update the structures of the document referring to the range.
 	 * 
-	 * @return the textual content of the range.
+	 * @param begin the new begin location, or Range.UNSPECIFIED.
+	 * @param end the new end location, or Range.UNSPECIFIED.
 	 */
-	public String getTextContent() {
-		String result = null;
-		
-		String portion = getDocuverseContent();
-		int size = portion.length();
+	protected void setLocations(int begin, int end) {
+		setInterval(null);
+		this.begin = begin;
+		this.end = end;
+	}
+	
+	/**
+	 * This method returns the entry of the range in the interval tree of its docuverse, if the locations
+	 * of the range are kept by such entry.
+	 * 
+	 * @return the entry of the range, or null if the locations are kept by the range itself.
+	 */
+	protected IntervalTree.Entry<Range> getInterval() {
+		return interval;
+	}
+	
+	/**
+	 * <p>This method sets the entry of the range in the interval tree of its docuverse, which keeps the 
+	 * locations of the range from now on, so that they are shifted together with the ones of the tree. 
+	 * The entry must have been added with the current locations of the range, where Integer.MIN_VALUE 
+	 * and Integer.MAX_VALUE stand for unspecified begin and end locations respectively.</p>
+	 * <p>If the entry is null, the range keeps its current locations by itself.</p>
+	 * 
+	 * @param interval the entry of the range, or null.
+	 */
+	protected void setInterval(IntervalTree.Entry<Range> interval) {
+		int currentBegin = beginOffset();
+		int currentEnd = endOffset();
 		
-		/* Handling cases in which neither the begin nor the end locations are not specified */
-		Integer b = begins();
-		if (b == null) {
-			b = 0;
-		}
+		this.begin = currentBegin;
+		this.end = currentEnd;
+		this.isReverse = (currentBegin != UNSPECIFIED && currentEnd != UNSPECIFIED && currentEnd < currentBegin);
+		this.interval = interval;
+	}
+	
+	@Override
+	public int beginOffset() {
+		int result = begin;
 		
-		Integer e = ends();
-		if (e == null) {
-			e = size;
+		if (interval != null) {
+			result = (isReverse ? interval.getEnd() : interval.getBegin());
+			if (result == Integer.MIN_VALUE) {
+				result = UNSPECIFIED;
+			}
 		}
-		boolean isReverse = e < b;
 		
-		if (isReverse) {
-			int tmp = b;
-			b = e;
-			e = tmp;
-		}
+		return result;
+	}
+	
+	@Override
+	public int endOffset() {
+		int result = end;
 		
-		if (b <= size && e <= size) {
-			result = portion.substring(b, e);
-			if (isReverse) {
-				StringBuffer buffer = new StringBuffer(result);
-				buffer.reverse();
-				result = buffer.toString();
+		if (interval != null) {
+			result = (isReverse ? interval.getBegin() : interval.getEnd());
+			if (result == Integer.MAX_VALUE) {
+				result = UNSPECIFIED;
 			}
 		}
 		
 		return result;
 	}
 
+	/**
+	 * <p>This method retrieves the textual content of the range, considering the document content as a string
+	 * and then restricting it according to the begin and end locations.</p>
+	 * <p>If the begin and/or end locations are not specified (i.e., = null), then this method considers
+	 * location "0" as begin and location "size(docuverse_content)" as end.</p>
+	 * <p>Only the portion of the content of the docuverse selected by the range is copied, so that
+	 * docuverses whose content is not kept in memory (e.g., mapped files) decode just that portion.</p>
+	 * 
+	 * @return the textual content of the range.
+	 */
+	public String getTextContent() {
+		CharSequence result = getTextView();
+		return (result == null ? null : result.toString());
+	}
+	
+	/**
+	 * This method returns a view on the textual content of the range, as retrieved by getTextContent, that
+	 * does not copy the content of the docuverse.
+	 * 
+	 * @return a view on the textual content of the range, or null if the locations are out of the content
+	 * of the docuverse.
+	 */
+	@Override
+	public CharSequence getTextView() {
+		return getContentView(refersTo().getText());
+	}
+
 	@Override
 	public Type getNodeType() {
 		return EARMARKNode.Type.PointerRange;
@@ -99,8 +162,8 @@ public class PointerRange extends Range {
 	public Range clone() {
 		String newContent = getTextContent();
 		Docuverse newDocuverse = getOwnerDocument().createStringDocuverse(newContent);
-		Integer newBegin = (begins() == null ? null : 0);
-		Integer newEnd = (ends() == null ? null : newContent.length());
+		Integer newBegin = (beginOffset() == UNSPECIFIED ? null : 0);
+		Integer newEnd = (endOffset() == UNSPECIFIED ? null : newContent.length());
 		
 		return getOwnerDocument().createPointerRange(newDocuverse, newBegin, newEnd);
 	}
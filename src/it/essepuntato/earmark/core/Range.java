@@ -16,6 +16,11 @@ import com.hp.hpl.jena.rdf.model.Statement;
  *
  */
 public abstract class Range implements EARMARKItem, EARMARKChildNode {
+	/**
+	 * The value of an offset location that is not specified.
+	 */
+	public static final int UNSPECIFIED = -1;
+	
 	private Docuverse docuverse;
 	private Object beginLocation;
 	private Object endLocation;
@@ -39,6 +44,17 @@ public abstract class Range implements EARMARKItem, EARMARKChildNode {
 		this.docuverse = docuverse;
 	}
 	
+	/**
+	 * Create a range whose locations are handled by the concrete class (e.g., as primitive offsets).
+	 * 
+	 * @param d the document to which this item is associated.
+	 * @param docuverse the docuverse the range refers to.
+	 * @param id the identifier for the new range.
+	 */
+	protected Range(EARMARKDocument d, Docuverse docuverse, URI id) {
+		this(d, docuverse, null, null, id);
+	}
+	
 	/**
 	 * The location in which the range begins.
 	 * 
@@ -57,6 +73,28 @@ public abstract class Range implements EARMARKItem, EARMARKChildNode {
 		return endLocation;
 	}
 	
+	/**
+	 * The offset in which the range begins.
+	 * 
+	 * @return the begin offset, or UNSPECIFIED if the begin location is not specified or it is not an
+	 * offset.
+	 */
+	public int beginOffset() {
+		Object begin = begins();
+		return (begin instanceof Integer ? (Integer) begin : UNSPECIFIED);
+	}
+	
+	/**
+	 * The offset in which the range ends.
+	 * 
+	 * @return the end offset, or UNSPECIFIED if the end location is not specified or it is not an
+	 * offset.
+	 */
+	public int endOffset() {
+		Object end = ends();
+		return (end instanceof Integer ? (Integer) end : UNSPECIFIED);
+	}
+	
 	/**
 	 * The docuverse the range refers to.
 	 * 
@@ -277,18 +315,77 @@ public abstract class Range implements EARMARKItem, EARMARKChildNode {
 	}
 	
 	protected String getDocuverseContent() {
-		String result = "";
+		return refersTo().getText().toString();
+	}
+	
+	/**
+	 * <p>This method returns the textual content of the range as a character sequence. Differently from
+	 * getTextContent, the concrete ranges may return a view on the content of the docuverse that does not copy
+	 * it.</p>
+	 * 
+	 * @return the textual content of the range, or null if it does not exist.
+	 */
+	public CharSequence getTextView() {
+		return getTextContent();
+	}
+	
+	@Override
+	public void writeTextContent(Appendable out) throws IOException {
+		CharSequence text = getTextView();
+		
+		if (text instanceof TextView) {
+			((TextView) text).appendTo(out);
+		} else if (text != null) {
+			out.append(text);
+		}
+	}
+	
+	/**
+	 * <p>This method restricts a content according to the begin and end offsets of the range.</p>
+	 * <p>If the begin and/or end offsets are not specified, then this method considers
+	 * location "0" as begin and location "size(content)" as end. If the end offset is lower than the begin
+	 * one, the portion of the content is returned reversed.</p>
+	 * 
+	 * @param content the content to be restricted.
+	 * @return the portion of the content between the offsets, or null if they are out of the content.
+	 */
+	protected String getContentPortion(String content) {
+		CharSequence result = getContentView(content);
+		return (result == null ? null : result.toString());
+	}
+	
+	/**
+	 * This method returns a view on the portion of a content between the begin and end offsets of the range,
+	 * as the method getContentPortion does, without copying it.
+	 * 
+	 * @param content the content to be restricted.
+	 * @return a view on the portion of the content between the offsets, or null if they are out of the content.
+	 */
+	protected CharSequence getContentView(CharSequence content) {
+		TextView result = null;
 		
-		Docuverse doc = refersTo();
+		int size = content.length();
 		
-		if (doc.getType() == Docuverse.Type.StringDocuverse) { /* It refers to a string docuverse */
-			result = (String) doc.hasContent();
-		} else { /* It refers to a URI docuverse */
-			try {
-				result = ((URIDocuverse) doc).getCache();
-			} catch (IOException e1) {
-				/* Do nothing: problem in loading the file from URL */
-			}
+		/* Handling cases in which neither the begin nor the end locations are not specified */
+		int b = beginOffset();
+		if (b == UNSPECIFIED) {
+			b = 0;
+		}
+		
+		int e = endOffset();
+		if (e == UNSPECIFIED) {
+			e = size;
+		}
+		boolean isReverse = e < b;
+		
+		if (isReverse) {
+			int tmp = b;
+			b = e;
+			e = tmp;
+		}
+		
+		if (b <= size && e <= size) {
+			result = new TextView(content, b, e, isReverse);
 		}
 		
 		return result;
@@ -0,0 +1,461 @@
+package it.essepuntato.earmark.core;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * <p>This class represents a columnar store of pointer ranges of an EARMARK document, conceived for
+ * documents containing a huge number of ranges (e.g., token-level ranges over whole books).</p>
+ * <p>Each row of the table keeps the docuverse, the begin and the end locations of a range in
+ * parallel arrays of integers, and no object is created for it. The method get returns a
+ * lightweight pointer range, created on demand, that is a view of a row and whose id is composed by
+ * the id of the table and by the row number (e.g., "http://www.example.com/mydocument/table1-42").</p>
+ * <p>A view becomes a node of the document, with the same features of the ranges created through
+ * createPointerRange, when it is involved in a hierarchy (e.g., appended to a markup item) or when
+ * some user data is set on it. Rows are stored when the document is stored, and they are read back as
+ * usual pointer ranges.</p>
+ * <p>The modifications of the content of an editable docuverse are recorded by the table and applied to
+ * a row only when the row is read, so that an edit does not cost a visit of all the rows. When the edits
+ * recorded are more than the rows, they are applied to all the rows and discarded.</p>
+ * <p>Differently from createPointerRange, the rows are not checked for duplicates. Until they become nodes
+ * of the document, they are not returned by the methods getAllEARMARKNode, findRangesOverlapping and
+ * findRangesContaining, and they are not copied by cloneNode.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class RangeTable implements Iterable<PointerRange> {
+	/* The separator between the id of the table and the row number */
+	private static final String ROW_SEPARATOR = "-";
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private EARMARKDocument document;
+	private URI id;
+	private String rowPrefix;
+
+	private List<Docuverse> docuverses = new ArrayList<Docuverse>();
+	private Map<Docuverse,Integer> docuverseIndexes = new HashMap<Docuverse,Integer>();
+	/* The number of rows not removed referring to each docuverse */
+	private int[] docuverseCounts = new int[8];
+
+	private int[] docuverseColumn = new int[INITIAL_CAPACITY];
+	private int[] beginColumn = new int[INITIAL_CAPACITY];
+	private int[] endColumn = new int[INITIAL_CAPACITY];
+	/* The number of edits of its docuverse applied to each row */
+	private int[] editColumn = new int[INITIAL_CAPACITY];
+	private int size = 0;
+
+	/* The edits of each docuverse not applied to all the rows yet, as triples (from, to, inserted), and 
+	 * the number of edits of each docuverse discarded */
+	private int[][] edits = new int[8][];
+	private int[] editCounts = new int[8];
+	private int[] editBases = new int[8];
+
+	private BitSet removed = new BitSet();
+
+	/**
+	 * A pointer range that is a view of a row of a range table.
+	 */
+	static class Row extends PointerRange {
+		private RangeTable table;
+		private int row;
+
+		private Row(RangeTable table, int row) {
+			super(
+					table.document,
+					table.getDocuverse(row),
+					(table.getBegin(row) == UNSPECIFIED ? null : table.getBegin(row)),
+					(table.getEnd(row) == UNSPECIFIED ? null : table.getEnd(row)),
+					URI.create(table.rowPrefix + row));
+			this.table = table;
+			this.row = row;
+		}
+
+		/**
+		 * This method returns the table containing the row.
+		 *
+		 * @return the table containing the row.
+		 */
+		RangeTable getTable() {
+			return table;
+		}
+
+		/**
+		 * This method returns the number of the row.
+		 *
+		 * @return the number of the row.
+		 */
+		int getRow() {
+			return row;
+		}
+	}
+
+	/**
+	 * Create a new range table.
+	 *
+	 * @param d the document to which this table is associated.
+	 * @param id the identifier of the table, used as prefix of the ids of its rows.
+	 */
+	protected RangeTable(EARMARKDocument d, URI id) {
+		this.document = d;
+		this.id = id;
+		this.rowPrefix = id.toString() + ROW_SEPARATOR;
+	}
+
+	/**
+	 * This method returns the identifier of the table a row could belong to, i.e., the prefix of the id of
+	 * the row specified before the number of the row.
+	 *
+	 * @param rowId the id of the row.
+	 * @return the identifier of the table, or null if the id specified cannot identify a row.
+	 */
+	protected static String getTableId(URI rowId) {
+		String idString = rowId.toString();
+		int separator = idString.lastIndexOf(ROW_SEPARATOR);
+		return (separator < 0 ? null : idString.substring(0, separator));
+	}
+
+	/**
+	 * This method returns the identifier of the table.
+	 *
+	 * @return the identifier of the table.
+	 */
+	public URI hasId() {
+		return id;
+	}
+
+	/**
+	 * This method returns the document containing the table.
+	 *
+	 * @return the document containing the table.
+	 */
+	public EARMARKDocument getOwnerDocument() {
+		return document;
+	}
+
+	/**
+	 * This method adds a new row to the table. In the concurrent mode of the document, the row is added under
+	 * its write lock.
+	 *
+	 * @param docuverse the docuverse the range refers to.
+	 * @param begin the begin location of the range, or Range.UNSPECIFIED (if negative, it considers its absolute
+	 * value).
+	 * @param end the end location of the range, or Range.UNSPECIFIED (if negative, it considers its absolute
+	 * value).
+	 * @return the number of the new row.
+	 * @throws IllegalArgumentException if the docuverse was not created by the document of the table.
+	 */
+	public int add(Docuverse docuverse, int begin, int end) {
+		Lock lock = document.lockForWriting();
+		try {
+			if (!document.equals(docuverse.getEARMARKDocument()) ||
+					document.getEntityById(docuverse.hasId()) != docuverse) {
+				throw new IllegalArgumentException("The docuverse " + docuverse.hasId() +
+						" does not belong to the document of the table.");
+			}
+
+			Integer index = docuverseIndexes.get(docuverse);
+			if (index == null) {
+				index = docuverses.size();
+				docuverses.add(docuverse);
+				docuverseIndexes.put(docuverse, index);
+				if (index == docuverseCounts.length) {
+					docuverseCounts = Arrays.copyOf(docuverseCounts, index * 2);
+					edits = Arrays.copyOf(edits, index * 2);
+					editCounts = Arrays.copyOf(editCounts, index * 2);
+					editBases = Arrays.copyOf(editBases, index * 2);
+				}
+			}
+			docuverseCounts[index]++;
+
+			if (size == beginColumn.length) {
+				int capacity = size + (size >> 1);
+				docuverseColumn = Arrays.copyOf(docuverseColumn, capacity);
+				beginColumn = Arrays.copyOf(beginColumn, capacity);
+				endColumn = Arrays.copyOf(endColumn, capacity);
+				editColumn = Arrays.copyOf(editColumn, capacity);
+			}
+
+			docuverseColumn[size] = index;
+			beginColumn[size] = (begin == Range.UNSPECIFIED ? begin : Math.abs(begin));
+			endColumn[size] = (end == Range.UNSPECIFIED ? end : Math.abs(end));
+			editColumn[size] = editBases[index] + editCounts[index];
+
+			return size++;
+		} finally {
+			document.unlock(lock);
+		}
+	}
+
+	/**
+	 * This method returns a pointer range that is a view of a row of the table.
+	 *
+	 * @param row the number of the row.
+	 * @return a pointer range representing the row, or null if the row has been removed.
+	 * @throws IndexOutOfBoundsException if the row does not exist.
+	 */
+	public PointerRange get(int row) {
+		checkRow(row);
+
+		PointerRange result = null;
+		if (!removed.get(row)) {
+			result = new Row(this, row);
+		}
+
+		return result;
+	}
+
+	/**
+	 * This method returns the docuverse referred by a row.
+	 *
+	 * @param row the number of the row.
+	 * @return the docuverse referred by the row.
+	 * @throws IndexOutOfBoundsException if the row does not exist.
+	 */
+	public Docuverse getDocuverse(int row) {
+		checkRow(row);
+		return docuverses.get(docuverseColumn[row]);
+	}
+
+	/**
+	 * This method returns the begin location of a row.
+	 *
+	 * @param row the number of the row.
+	 * @return the begin location of the row, or Range.UNSPECIFIED.
+	 * @throws IndexOutOfBoundsException if the row does not exist.
+	 */
+	public int getBegin(int row) {
+		checkRow(row);
+		applyEdits(row);
+		return beginColumn[row];
+	}
+
+	/**
+	 * This method returns the end location of a row.
+	 *
+	 * @param row the number of the row.
+	 * @return the end location of the row, or Range.UNSPECIFIED.
+	 * @throws IndexOutOfBoundsException if the row does not exist.
+	 */
+	public int getEnd(int row) {
+		checkRow(row);
+		applyEdits(row);
+		return endColumn[row];
+	}
+
+	/**
+	 * This method returns the textual content of a row, as the method getTextContent of PointerRange does.
+	 *
+	 * @param row the number of the row.
+	 * @return the textual content of the row.
+	 * @throws IndexOutOfBoundsException if the row does not exist.
+	 */
+	public String getTextContent(int row) {
+		return new Row(this, row).getTextContent();
+	}
+
+	/**
+	 * This method returns a view on the textual content of a row, as the method getTextView of 
+	 * PointerRange does.
+	 *
+	 * @param row the number of the row.
+	 * @return a view on the textual content of the row.
+	 * @throws IndexOutOfBoundsException if the row does not exist.
+	 */
+	public CharSequence getTextView(int row) {
+		return new Row(this, row).getTextView();
+	}
+
+	/**
+	 * This method says whether a row has been removed.
+	 *
+	 * @param row the number of the row.
+	 * @return true if the row has been removed, false otherwise.
+	 * @throws IndexOutOfBoundsException if the row does not exist.
+	 */
+	public boolean isRemoved(int row) {
+		checkRow(row);
+		return removed.get(row);
+	}
+
+	/**
+	 * This method removes a row from the table. If the view of the row is a node of the document, it
+	 * is removed from the document as well. The numbers of the other rows do not change.
+	 *
+	 * @param row the number of the row.
+	 * @return true if the row has been removed, false if it was already removed.
+	 * @throws IndexOutOfBoundsException if the row does not exist.
+	 */
+	public boolean remove(int row) {
+		PointerRange range = get(row);
+
+		if (range != null) {
+			document.removeRange(range);
+		}
+
+		return range != null;
+	}
+
+	/**
+	 * This method returns the number of rows of the table, including the removed ones.
+	 *
+	 * @return the number of rows of the table.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method says whether the table refers to a docuverse by any row not removed.
+	 *
+	 * @param docuverse the docuverse to look for.
+	 * @return true if the docuverse is referred by a row, false otherwise.
+	 */
+	public boolean refersTo(Docuverse docuverse) {
+		Integer index = docuverseIndexes.get(docuverse);
+		return index != null && docuverseCounts[index] > 0;
+	}
+
+	/**
+	 * This method returns an iterator over the views of the rows not removed, in row order.
+	 *
+	 * @return an iterator over the rows of the table.
+	 */
+	@Override
+	public Iterator<PointerRange> iterator() {
+		return new Iterator<PointerRange>() {
+			private int next = removed.nextClearBit(0);
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public PointerRange next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				PointerRange result = new Row(RangeTable.this, next);
+				next = removed.nextClearBit(next + 1);
+				return result;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * This method records the replacement of the portion [from, to) of the content of an editable docuverse
+	 * with a text of the length specified, which will update the locations of the rows referring to the
+	 * docuverse when they are read. When the edits recorded are more than the rows of the table, they are
+	 * applied to all the rows and discarded.
+	 *
+	 * @param docuverse the docuverse modified.
+	 * @param from the offset of the first character replaced.
+	 * @param to the offset following the last character replaced.
+	 * @param inserted the length of the new text.
+	 */
+	protected void shiftRows(EditableDocuverse docuverse, int from, int to, int inserted) {
+		Integer index = docuverseIndexes.get(docuverse);
+		if (index != null) {
+			int count = editCounts[index];
+			if (edits[index] == null) {
+				edits[index] = new int[3 * 16];
+			} else if (3 * count == edits[index].length) {
+				edits[index] = Arrays.copyOf(edits[index], 3 * (count + (count >> 1)));
+			}
+
+			edits[index][3 * count] = from;
+			edits[index][3 * count + 1] = to;
+			edits[index][3 * count + 2] = inserted;
+			editCounts[index] = count + 1;
+
+			if (editCounts[index] > size) {
+				for (int row = 0; row < size; row++) {
+					if (docuverseColumn[row] == index) {
+						applyEdits(row);
+					}
+				}
+				editBases[index] += editCounts[index];
+				editCounts[index] = 0;
+				edits[index] = null;
+			}
+		}
+	}
+
+	/**
+	 * This method returns the view of the row having the id specified.
+	 *
+	 * @param rowId the id of the row.
+	 * @return the view of the row, or null if the id does not identify a row of the table not removed.
+	 */
+	protected PointerRange getById(URI rowId) {
+		PointerRange result = null;
+
+		String idString = rowId.toString();
+		if (idString.startsWith(rowPrefix)) {
+			String number = idString.substring(rowPrefix.length());
+			if (number.matches("(0|[1-9][0-9]{0,8})")) {
+				int row = Integer.parseInt(number);
+				if (row < size) {
+					result = get(row);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * This method marks a row as removed, without involving the document.
+	 *
+	 * @param row the number of the row.
+	 */
+	protected void markAsRemoved(int row) {
+		if (!removed.get(row)) {
+			removed.set(row);
+			docuverseCounts[docuverseColumn[row]]--;
+		}
+	}
+
+	/* Apply to a row the edits of its docuverse recorded after the last time it was read. Since rows are 
+	 * read under the read lock of the document in the concurrent mode, the table is locked while the row 
+	 * is updated. */
+	private synchronized void applyEdits(int row) {
+		int index = docuverseColumn[row];
+		int last = editBases[index] + editCounts[index];
+		if (editColumn[row] < last) {
+			int begin = beginColumn[row];
+			int end = endColumn[row];
+			for (int edit = editColumn[row] - editBases[index]; edit < editCounts[index]; edit++) {
+				int[] locations = EditableDocuverse.getShiftedLocations(
+						begin, end, edits[index][3 * edit], edits[index][3 * edit + 1], edits[index][3 * edit + 2]);
+				begin = locations[0];
+				end = locations[1];
+			}
+			beginColumn[row] = begin;
+			endColumn[row] = end;
+			editColumn[row] = last;
+		}
+	}
+
+	private void checkRow(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row: " + row + ", size: " + size);
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package it.essepuntato.earmark.core;
 
+import it.essepuntato.facility.text.CompressedText;
+import it.essepuntato.facility.text.MappedFileText;
+
 import java.net.URI;
 
 /**
@@ -10,24 +13,75 @@ import java.net.URI;
  */
 public class StringDocuverse extends Docuverse {
 	/**
-	 * Create a string docuverse.
+	 * Create a string docuverse. The content is shared with any other docuverse having the same content, 
+	 * through the default content pool.
 	 * 
 	 * @param d the document to which this item is associated.
 	 * @param t the string content of the new docuverse.
 	 * @param id the identifier for the new docuverse.
+	 * @see DocuverseContentPool
 	 */
 	protected StringDocuverse(EARMARKDocument d, String t, URI id) {
-		super(d,t,id);
+		super(d, DocuverseContentPool.getDefault().share(t), id);
+	}
+	
+	/**
+	 * Create a string docuverse having a textual content. A compressed text or the text of a mapped file is
+	 * kept as it is, without decoding it, while any other content is shared through the default content pool.
+	 * 
+	 * @param d the document to which this item is associated.
+	 * @param t the textual content of the new docuverse.
+	 * @param id the identifier for the new docuverse.
+	 */
+	protected StringDocuverse(EARMARKDocument d, CharSequence t, URI id) {
+		super(d, (t instanceof CompressedText || t instanceof MappedFileText ? t : 
+			DocuverseContentPool.getDefault().share(t == null ? null : t.toString())), id);
 	}
 	
 	/**
-	 * This method returns the content as a string.
+	 * This method returns the content as a string. If the docuverse is compressed, the whole content is
+	 * decompressed.
 	 * 
 	 * @return the string representing the content of the docuverse.
 	 */
 	@Override
 	public String hasContent() {
-		return (String) super.hasContent();
+		Object content = super.hasContent();
+		return (content == null ? null : content.toString());
+	}
+	
+	/**
+	 * This method returns the textual content of the docuverse, i.e., its string content or, if the
+	 * docuverse is compressed, a compressed text whose characters are decompressed on demand.
+	 * 
+	 * @return the string content of the docuverse.
+	 */
+	@Override
+	public CharSequence getText() {
+		return (CharSequence) super.hasContent();
+	}
+	
+	/**
+	 * <p>This method compresses the content of the docuverse in blocks that are decompressed only
+	 * when the ranges referring to the docuverse access them.</p>
+	 * <p>It is worth compressing docuverses that are rarely accessed, since any access to the whole 
+	 * content (e.g., through the method hasContent or by xpath ranges) decompresses it entirely.</p>
+	 * 
+	 * @see CompressedText
+	 */
+	public void compress() {
+		if (!isCompressed() && super.hasContent() != null) {
+			setContent(new CompressedText(hasContent()));
+		}
+	}
+	
+	/**
+	 * This method says whether the content of the docuverse is compressed.
+	 * 
+	 * @return true if the content of the docuverse is compressed, false otherwise.
+	 */
+	public boolean isCompressed() {
+		return super.hasContent() instanceof CompressedText;
 	}
 	
 	/**
@@ -46,6 +100,10 @@ public class StringDocuverse extends Docuverse {
 	
 	@Override
 	public String toString() {
-		return super.toString() + " = '" + hasContent() + "'";
+		if (isCompressed()) {
+			return super.toString() + " = compressed text of " + getText().length() + " characters";
+		} else {
+			return super.toString() + " = '" + hasContent() + "'";
+		}
 	}
 }
@@ -0,0 +1,105 @@
+package it.essepuntato.earmark.core;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * <p>This class represents a portion of a textual content (e.g., the content of a docuverse) that
+ * does not copy the characters it refers to.</p>
+ * <p>A view can be reversed, i.e., it can return the characters of the portion from the last to the first
+ * one, as it happens for the ranges whose end location is lower than the begin location.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class TextView implements CharSequence {
+	private CharSequence content;
+	private int begin;
+	private int end;
+	private boolean reverse;
+
+	/**
+	 * Create a view on a portion of a textual content.
+	 *
+	 * @param content the textual content.
+	 * @param begin the begin location (included) of the portion.
+	 * @param end the end location (excluded) of the portion.
+	 * @param reverse if true, the view returns the characters of the portion in reverse order.
+	 * @throws IndexOutOfBoundsException if the locations are not valid for the content specified.
+	 */
+	public TextView(CharSequence content, int begin, int end, boolean reverse) {
+		if (begin < 0 || end > content.length() || begin > end) {
+			throw new IndexOutOfBoundsException(
+					"Begin: " + begin + ", end: " + end + ", length: " + content.length());
+		}
+
+		this.content = content;
+		this.begin = begin;
+		this.end = end;
+		this.reverse = reverse;
+	}
+
+	@Override
+	public int length() {
+		return end - begin;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length());
+		}
+
+		return content.charAt(reverse ? end - 1 - index : begin + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int stop) {
+		if (start < 0 || stop > length() || start > stop) {
+			throw new IndexOutOfBoundsException(
+					"Start: " + start + ", stop: " + stop + ", length: " + length());
+		}
+
+		return (reverse ?
+				new TextView(content, end - stop, end - start, true) :
+				new TextView(content, begin + start, begin + stop, false));
+	}
+
+	/**
+	 * <p>This method appends the characters of the view to an appendable object.</p>
+	 * <p>Differently from appending the view through the method append(CharSequence), which may
+	 * ask for its string representation, this method never creates a copy of the whole portion of
+	 * the content.</p>
+	 *
+	 * @param out the appendable object.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void appendTo(Appendable out) throws IOException {
+		if (reverse) {
+			for (int i = end - 1; i >= begin; i--) {
+				out.append(content.charAt(i));
+			}
+		} else if (out instanceof Writer && content instanceof String) {
+			((Writer) out).write((String) content, begin, end - begin);
+		} else {
+			out.append(content, begin, end);
+		}
+	}
+
+	/**
+	 * This method returns the characters of the view as a string. A reversed view is built as
+	 * StringBuilder.reverse does, i.e., keeping the order of the surrogate pairs.
+	 *
+	 * @return the characters of the view.
+	 */
+	@Override
+	public String toString() {
+		String result = content.subSequence(begin, end).toString();
+
+		if (reverse) {
+			result = new StringBuilder(result).reverse().toString();
+		}
+
+		return result;
+	}
+}
@@ -1,10 +1,9 @@
 package it.essepuntato.earmark.core;
 
-import java.io.BufferedReader;
+import it.essepuntato.earmark.core.io.URIContentCache;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.URI;
-import java.net.URL;
 
 /**
  * This class represents a concrete URI docuverse in the EARMARK model.
@@ -13,7 +12,6 @@ import java.net.URL;
  *
  */
 public class URIDocuverse extends Docuverse {
-	private String cache = null;
 	
 	/**
 	 * Create a URI docuverse.
@@ -35,25 +33,41 @@ public class URIDocuverse extends Docuverse {
 		return (URI) super.hasContent();
 	}
 	
+	/**
+	 * This method returns the content available at the URI of the docuverse, through the
+	 * content cache shared by all the documents.
+	 * 
+	 * @return the content available at the URI of the docuverse.
+	 * @throws IOException if the content cannot be loaded.
+	 * @see URIContentCache
+	 */
 	protected String getCache() throws IOException {
-		if (cache == null) {
-			cache = "";
-			URL url = ((URI) hasContent()).toURL();
-			BufferedReader in = new BufferedReader(new InputStreamReader(url.openStream()));
-
-			String inputLine = "";
-			while ((inputLine = in.readLine()) != null)  {
-				cache += inputLine;
-			}
-			in.close();
-			
-		}
-		
-		return cache;
+		return URIContentCache.getDefault().getContent(hasContent());
 	}
 	
+	/**
+	 * This method removes the content of the docuverse from the shared content cache, so that
+	 * it will be loaded again the next time it is needed.
+	 */
 	protected void clearCache() {
-		cache = null;
+		URIContentCache.getDefault().remove(hasContent());
+	}
+	
+	/**
+	 * This method returns the textual content of the docuverse, i.e., the content 
+	 * available at its URI.
+	 * 
+	 * @return the content available at the URI of the docuverse, or an empty string if it 
+	 * cannot be loaded.
+	 */
+	@Override
+	public CharSequence getText() {
+		try {
+			return getCache();
+		} catch (IOException e) {
+			/* Do nothing: problem in loading the file from URL */
+			return "";
+		}
 	}
 	
 	/**
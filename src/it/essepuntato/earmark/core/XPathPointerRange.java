@@ -9,6 +9,8 @@ import java.net.URI;
  *
  */
 public class XPathPointerRange extends XPathRange {
+	private int begin;
+	private int end;
 
 	/**
 	 * Create an XPath pointer range.
@@ -25,11 +27,9 @@ public class XPathPointerRange extends XPathRange {
 	 */
 	protected XPathPointerRange(EARMARKDocument d, Docuverse docuverse,
 			Integer begin, Integer end, String context, URI id) {
-		super(d, docuverse, 
-				(begin == null ? begin : new Integer(Math.abs(begin))), 
-				(end == null ? end : new Integer(Math.abs(end))), 
-				context, id);
-		
+		super(d, docuverse, context, id);
+		this.begin = (begin == null ? UNSPECIFIED : Math.abs(begin));
+		this.end = (end == null ? UNSPECIFIED : Math.abs(end));
 	}
 	
 	/**
@@ -38,7 +38,7 @@ public class XPathPointerRange extends XPathRange {
 	 * @return the begin integer point.
 	 */
 	public Integer begins() {
-		return (Integer) super.begins();
+		return (begin == UNSPECIFIED ? null : Integer.valueOf(begin));
 	}
 	
 	/**
@@ -47,7 +47,17 @@ public class XPathPointerRange extends XPathRange {
 	 * @return the end integer point.
 	 */
 	public Integer ends() {
-		return (Integer) super.ends();
+		return (end == UNSPECIFIED ? null : Integer.valueOf(end));
+	}
+	
+	@Override
+	public int beginOffset() {
+		return begin;
+	}
+	
+	@Override
+	public int endOffset() {
+		return end;
 	}
 
 	@Override
@@ -60,8 +70,8 @@ public class XPathPointerRange extends XPathRange {
 		String newContent = getTextContent();
 		Docuverse newDocuverse = getOwnerDocument().createStringDocuverse(
 				"<?xml version=\"1.0\" encoding=\"UTF-8\" ?><element>" + newContent + "</element>");
-		Integer newBegin = (begins() == null ? null : 0);
-		Integer newEnd = (ends() == null ? null : newContent.length());
+		Integer newBegin = (begin == UNSPECIFIED ? null : 0);
+		Integer newEnd = (end == UNSPECIFIED ? null : newContent.length());
 		
 		return getOwnerDocument().createXPathPointerRange(newDocuverse, newBegin, newEnd, "//text()");
 	}
@@ -84,36 +94,25 @@ public class XPathPointerRange extends XPathRange {
 	public String getTextContent() {
 		String result = super.getTextContent();
 		
-		String portion = result;
-		int size = portion.length();
-		
-		/* Handling cases in which neither the begin nor the end locations are not specified */
-		Integer b = begins();
-		if (b == null) {
-			b = 0;
-		}
-		
-		Integer e = ends();
-		if (e == null) {
-			e = size;
-		}
-		boolean isReverse = e < b;
-		
-		if (isReverse) {
-			int tmp = b;
-			b = e;
-			e = tmp;
-		}
-		
-		if (b <= size && e <= size) {
-			result = portion.substring(b, e);
-			if (isReverse) {
-				StringBuffer buffer = new StringBuffer(result);
-				buffer.reverse();
-				result = buffer.toString();
-			}
+		String portion = getContentPortion(result);
+		if (portion != null) {
+			result = portion;
 		}
 		
 		return result;
 	}
+	
+	/**
+	 * This method returns a view on the textual content of the range, as retrieved by getTextContent, that
+	 * does not copy the content retrieved by applying the XPath context.
+	 * 
+	 * @return a view on the textual content of the range.
+	 */
+	@Override
+	public CharSequence getTextView() {
+		String content = super.getTextContent();
+		
+		CharSequence result = getContentView(content);
+		return (result == null ? content : result);
+	}
 }
@@ -1,25 +1,12 @@
 package it.essepuntato.earmark.core;
 
-import it.essepuntato.earmark.core.xml.EARMARKNamespaceContext;
-
 import java.io.IOException;
-import java.io.StringReader;
 import java.net.URI;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import javax.xml.xpath.XPathFactoryConfigurationException;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 /**
@@ -50,6 +37,20 @@ public abstract class XPathRange extends Range {
 		super(d, docuverse, begin, end, id);
 		this.context = context;
 	}
+	
+	/**
+	 * Create an XPath range whose locations are handled by the concrete class.
+	 * 
+	 * @param d the document to which this item is associated.
+	 * @param docuverse the docuverse the range refers to.
+	 * @param context the xpath expression used to extract the sequence of XML text nodes that will be
+	 * used as content for calculating the text content of the range.
+	 * @param id the identifier for the new range. 
+	 */
+	protected XPathRange(EARMARKDocument d, Docuverse docuverse, String context, URI id) {
+		super(d, docuverse, id);
+		this.context = context;
+	}
 
 	/**
 	 * This method returns the XPath context for the range.
@@ -77,26 +78,7 @@ public abstract class XPathRange extends Range {
 		String result = "";
 		
 		try {
-			String content = getDocuverseContent().replaceAll("xmlns=", "xlmns="); /* OMG... */
-			
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance(); 
-			factory.setNamespaceAware(true); 
-		
-			DocumentBuilder builder = factory.newDocumentBuilder();
-			Document newDocument = builder.parse(new InputSource(new StringReader(content)));
-			
-			XPathFactory xpathFactory = XPathFactory.newInstance(XPathConstants.DOM_OBJECT_MODEL);
-			XPath xpath = xpathFactory.newXPath();
-			xpath.setNamespaceContext(new EARMARKNamespaceContext(newDocument));
-			
-			XPathExpression query = xpath.compile((context == null ? "//text()" : context));
-			NodeList matched = (NodeList) query.evaluate(newDocument, XPathConstants.NODESET);
-			
-			int size = matched.getLength();
-			for (int i = 0; i < size; i++) {
-				result += getTextualContentFromNode(matched.item(i));
-			}
-			
+			result = getOwnerDocument().getXPathTextContent(this);
 		} catch (XPathFactoryConfigurationException e) {
 			result = "";
 		} catch (XPathExpressionException e) {
@@ -114,22 +96,6 @@ public abstract class XPathRange extends Range {
 		
 		return result;
 	}
-	
-	/* Get the textual content from a node if it is an attribute, an element or a text node. */
-	private String getTextualContentFromNode(Node n) {
-		String result = "";
-		
-		if (n.getNodeType() == Node.ATTRIBUTE_NODE || n.getNodeType() == Node.TEXT_NODE) {
-			result += n.getNodeValue();
-		} else if (n.getNodeType() == Node.ELEMENT_NODE) {
-			NodeList children = n.getChildNodes();
-			int size = children.getLength();
-			for (int i = 0; i < size; i++) {
-				result += getTextualContentFromNode(children.item(i));
-			}
-		}
-		return result;
-	}
 
 	@Override
 	public String toString() {
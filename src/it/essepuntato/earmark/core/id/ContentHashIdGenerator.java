@@ -0,0 +1,65 @@
+package it.essepuntato.earmark.core.id;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>An id generator that creates local names composed by the prefix and by an hash of the content
+ * describing the item (e.g., "docuverse-5d41402abc4b2a76"), so that the same items get the same names 
+ * in different documents.</p>
+ * <p>When more items share the same prefix and content, a counter is added to the local name
+ * (e.g., "p-0c2fd1b5a7d3e8f1-2").</p>
+ * 
+ * @author Silvio Peroni
+ *
+ */
+public class ContentHashIdGenerator implements IdGenerator {
+	private static final char[] hex = "0123456789abcdef".toCharArray();
+	
+	/* The number of bytes of the digest used in the local names */
+	private static final int length = 8;
+	
+	private Map<String, Integer> occurrences = new HashMap<String, Integer>();
+	
+	@Override
+	public String generate(String prefix, String content) {
+		String result = prefix + "-" + hash(content == null ? "" : content);
+		
+		Integer occurrence = occurrences.get(result);
+		int next = (occurrence == null ? 1 : occurrence + 1);
+		occurrences.put(result, next);
+		
+		return (next == 1 ? result : result + "-" + next);
+	}
+
+	@Override
+	public boolean usesContent() {
+		return true;
+	}
+
+	@Override
+	public void register(String localName) {
+		// Do nothing
+	}
+	
+	/* Return the first bytes of the SHA-1 digest of a string in hexadecimal notation */
+	private String hash(String content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(content.getBytes("UTF-8"));
+			
+			char[] result = new char[length * 2];
+			for (int i = 0; i < length; i++) {
+				result[2 * i] = hex[(digest[i] >> 4) & 0xf];
+				result[2 * i + 1] = hex[digest[i] & 0xf];
+			}
+			return new String(result);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
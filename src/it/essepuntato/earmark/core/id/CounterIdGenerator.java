@@ -0,0 +1,48 @@
+package it.essepuntato.earmark.core.id;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>The default id generator, that creates local names composed by the prefix and by the next value of a 
+ * counter kept for that prefix (e.g., "r1", "r2", "p1", "docuverse1").</p>
+ * <p>The local names registered that follow the same naming scheme (e.g., "r5" or "e12" when loading a 
+ * document) move the counter of their prefix forward, so that the generator never returns them.</p>
+ * 
+ * @author Silvio Peroni
+ *
+ */
+public class CounterIdGenerator implements IdGenerator {
+	private Map<String, Integer> counters = new HashMap<String, Integer>();
+	
+	@Override
+	public String generate(String prefix, String content) {
+		Integer counter = counters.get(prefix);
+		int next = (counter == null ? 1 : counter + 1);
+		counters.put(prefix, next);
+		return prefix + next;
+	}
+
+	@Override
+	public boolean usesContent() {
+		return false;
+	}
+
+	@Override
+	public void register(String localName) {
+		int index = localName.length();
+		while (index > 0 && Character.isDigit(localName.charAt(index - 1))) {
+			index--;
+		}
+		
+		/* Only the names ending with a number without leading zeros can be generated by this class */
+		if (index < localName.length() && localName.charAt(index) != '0' && localName.length() - index < 10) {
+			String prefix = localName.substring(0, index);
+			int value = Integer.parseInt(localName.substring(index));
+			Integer counter = counters.get(prefix);
+			if (counter == null || counter < value) {
+				counters.put(prefix, value);
+			}
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package it.essepuntato.earmark.core.id;
+
+/**
+ * <p>This interface defines the strategy used by an EARMARK document for generating the local names
+ * of the items created without an explicit identifier.</p>
+ * <p>The document asks the generator for a candidate and, if the candidate is already in use, it asks
+ * for another one. Thus each call to the method generate must return a name different from the ones
+ * previously returned for the same prefix.</p>
+ * 
+ * @author Silvio Peroni
+ *
+ */
+public interface IdGenerator {
+	/**
+	 * This method returns a candidate local name for a new item.
+	 * 
+	 * @param prefix the prefix of the local name (e.g., "r" for ranges, "docuverse" for docuverses, the
+	 * general identifier for markup items).
+	 * @param content a string describing the item to be created (e.g., the content of a docuverse), or null.
+	 * @return a candidate local name for the new item.
+	 */
+	public String generate(String prefix, String content);
+	
+	/**
+	 * This method says whether the generator uses the strings describing the items, so that the document
+	 * builds them only when they are needed.
+	 * 
+	 * @return true if the content specified to the method generate is used, false otherwise (in which case
+	 * it may be null).
+	 */
+	public boolean usesContent();
+	
+	/**
+	 * This method notifies the generator that a local name is used in the document, either because it 
+	 * was generated or because it was explicitly specified (e.g., when a document is loaded).
+	 * 
+	 * @param localName the local name used in the document.
+	 */
+	public void register(String localName);
+}
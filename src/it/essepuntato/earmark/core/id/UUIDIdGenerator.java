@@ -0,0 +1,29 @@
+package it.essepuntato.earmark.core.id;
+
+import java.util.UUID;
+
+/**
+ * An id generator that creates local names composed by the prefix and by a random UUID 
+ * (e.g., "r-3c1a82f0-5b0e-4f3a-9d43-2b1f6f0d9c57"). The local names created are unique 
+ * also across different documents.
+ * 
+ * @author Silvio Peroni
+ *
+ */
+public class UUIDIdGenerator implements IdGenerator {
+
+	@Override
+	public String generate(String prefix, String content) {
+		return prefix + "-" + UUID.randomUUID();
+	}
+
+	@Override
+	public boolean usesContent() {
+		return false;
+	}
+
+	@Override
+	public void register(String localName) {
+		// Do nothing
+	}
+}
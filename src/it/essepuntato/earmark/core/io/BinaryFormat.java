@@ -0,0 +1,192 @@
+package it.essepuntato.earmark.core.io;
+
+import it.essepuntato.facility.text.MappedFileText;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>The constants and the primitives of the binary format of EARMARK documents, shared by the BinaryReader
+ * and the BinaryWriter.</p>
+ * <p>A document is stored as follows, where all the numbers are unsigned variable-length integers (seven
+ * bits per byte, the highest bit set in all the bytes but the last) and the strings are stored as their
+ * length in bytes followed by their UTF-8 encoding:</p>
+ * <ol>
+ * <li>the magic bytes "EMKB" and the version of the format;</li>
+ * <li>the string table, i.e., the number of strings and the strings, containing the id of the document and
+ * the prefixes of the ids, the general identifiers, the namespaces and the XPath contexts of the items, which
+ * are then referred through their index in the table;</li>
+ * <li>the docuverses, i.e., their number and, for each of them, its kind, its id (the index of its prefix and
+ * the rest of the id) and its content;</li>
+ * <li>the nodes, i.e., their number and, for each of them, its kind, its id and, for the ranges, the index
+ * of their docuverse, their locations plus one (zero if they are not specified) and, for the XPath ones, the
+ * index of their context plus one, while, for the markup items, their collection type and the indexes of
+ * their general identifier and namespace plus one;</li>
+ * <li>the hierarchy, i.e., the number and the indexes of the roots of the document and of the children of
+ * each markup item, in the same order of the nodes;</li>
+ * <li>the additional assertions of the document, in N-Triples.</li>
+ * </ol>
+ * <p>An indexed document, used for opening it lazily as a LazyDocument, is followed by an index made by
+ * four-byte integers, where the positions are counted from the beginning of the document:</p>
+ * <ol>
+ * <li>for each node, the number and the codes of its parents, i.e., zero for the document and the index of
+ * the parent plus one for a markup item, stored as variable-length integers;</li>
+ * <li>the handle table, i.e., the position of each docuverse and, for each node, the positions of the node,
+ * of its children (zero for the ranges) and of its parents;</li>
+ * <li>the id table, i.e., the handles of all the docuverses and of all the nodes (whose handles follow the
+ * ones of the docuverses) sorted by id;</li>
+ * <li>the footer, i.e., the number of docuverses and of nodes, the positions of the roots of the document,
+ * of the additional assertions, of the handle table and of the id table, and the magic bytes "EMKI".</li>
+ * </ol>
+ *
+ * @author Silvio Peroni
+ *
+ */
+final class BinaryFormat {
+	static final byte[] MAGIC = { 'E', 'M', 'K', 'B' };
+	static final int VERSION = 1;
+	static final byte[] INDEX_MAGIC = { 'E', 'M', 'K', 'I' };
+	static final int FOOTER_LENGTH = 6 * 4 + INDEX_MAGIC.length;
+
+	/* The kinds of docuverses */
+	static final int STRING_DOCUVERSE = 0;
+	static final int URI_DOCUVERSE = 1;
+	static final int MAPPED_FILE_DOCUVERSE = 2;
+	static final int EDITABLE_DOCUVERSE = 3;
+
+	/* The kinds of nodes */
+	static final int POINTER_RANGE = 0;
+	static final int XPATH_POINTER_RANGE = 1;
+	static final int ELEMENT = 2;
+	static final int ATTRIBUTE = 3;
+	static final int COMMENT = 4;
+
+	/* The types of collections */
+	static final int SET = 0;
+	static final int BAG = 1;
+	static final int LIST = 2;
+
+	/* The encoding of the strings */
+	static final String ENCODING = "UTF-8";
+
+	/* The number of characters of a text encoded at once */
+	private static final int TEXT_CHUNK_SIZE = 16 * 1024;
+
+	/* The charset mapping each byte into a character, used for representing the format as a string */
+	static final String BYTES_AS_CHARACTERS = "ISO-8859-1";
+
+	private BinaryFormat() {
+	}
+
+	static void writeNumber(DataOutput output, int number) throws IOException {
+		while ((number & ~0x7F) != 0) {
+			output.writeByte((number & 0x7F) | 0x80);
+			number >>>= 7;
+		}
+		output.writeByte(number);
+	}
+
+	static int readNumber(DataInput input) throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = input.readUnsignedByte();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Malformed number in the binary EARMARK document");
+	}
+
+	/* Write a number plus one, or zero if it is not specified */
+	static void writeOptionalNumber(DataOutput output, Integer number) throws IOException {
+		writeNumber(output, (number == null ? 0 : number + 1));
+	}
+
+	static Integer readOptionalNumber(DataInput input) throws IOException {
+		int result = readNumber(input);
+		return (result == 0 ? null : result - 1);
+	}
+
+	static int readNumber(ByteBuffer input) throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = input.get() & 0xFF;
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return result;
+			}
+		}
+		throw new IOException("Malformed number in the binary EARMARK document");
+	}
+
+	static Integer readOptionalNumber(ByteBuffer input) throws IOException {
+		int result = readNumber(input);
+		return (result == 0 ? null : result - 1);
+	}
+
+	static void writeString(DataOutput output, String string) throws IOException {
+		byte[] bytes = string.getBytes(ENCODING);
+		writeNumber(output, bytes.length);
+		output.write(bytes);
+	}
+
+	/* Write a text as a string, encoding it in chunks so that a text that is not a string (e.g., a compressed
+	 * one) is never built as a whole */
+	static void writeText(DataOutput output, CharSequence text) throws IOException {
+		if (text instanceof String) {
+			writeString(output, (String) text);
+		} else {
+			int length = 0;
+			for (int begin = 0, end = 0; begin < text.length(); begin = end) {
+				end = chunkEnd(text, begin);
+				length += text.subSequence(begin, end).toString().getBytes(ENCODING).length;
+			}
+
+			writeNumber(output, length);
+			for (int begin = 0, end = 0; begin < text.length(); begin = end) {
+				end = chunkEnd(text, begin);
+				output.write(text.subSequence(begin, end).toString().getBytes(ENCODING));
+			}
+		}
+	}
+
+	/* Return the end of the chunk of a text beginning at the offset specified, without splitting surrogate
+	 * pairs */
+	private static int chunkEnd(CharSequence text, int begin) {
+		int result = Math.min(begin + TEXT_CHUNK_SIZE, text.length());
+		if (result < text.length() && Character.isHighSurrogate(text.charAt(result - 1))) {
+			result--;
+		}
+		return result;
+	}
+
+	static String readString(DataInput input) throws IOException, UnsupportedEncodingException {
+		byte[] bytes = new byte[readNumber(input)];
+		input.readFully(bytes);
+		return new String(bytes, ENCODING);
+	}
+
+	/* Read a string as a text decoded on demand from the buffer, without copying it in the heap */
+	static CharSequence readText(ByteBuffer input) throws IOException {
+		int length = readNumber(input);
+		ByteBuffer bytes = input.slice();
+		bytes.limit(length);
+		input.position(input.position() + length);
+		return new MappedFileText(bytes);
+	}
+
+	static String readString(ByteBuffer input) throws IOException {
+		byte[] bytes = new byte[readNumber(input)];
+		input.get(bytes);
+		return new String(bytes, ENCODING);
+	}
+
+	/* Return the length of the prefix of an id, i.e., the part up to its last '/' or '#' */
+	static int prefixLength(String id) {
+		return Math.max(id.lastIndexOf('/'), id.lastIndexOf('#')) + 1;
+	}
+}
@@ -0,0 +1,316 @@
+package it.essepuntato.earmark.core.io;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.MarkupItem;
+import it.essepuntato.earmark.core.exception.EARMARKGraphException;
+import it.essepuntato.earmark.core.exception.ExistingIdException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * <p>A reader loading EARMARK documents stored in the compact binary format described in BinaryFormat by
+ * the BinaryWriter.</p>
+ * <p>The sources that are not in the binary format, as well as the Jena models, are read through a
+ * JenaReader, so that this reader can also load the RDF representations of the documents.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class BinaryReader extends EARMARKBaseLogger implements EARMARKReader {
+
+	private JenaReader rdfReader = new JenaReader();
+
+	@Override
+	public EARMARKDocument read(URL url) {
+		EARMARKDocument result = null;
+
+		try {
+			InputStream input = new BufferedInputStream(url.openStream());
+			try {
+				if (isBinary(input)) {
+					result = read(input);
+				} else {
+					result = rdfReader.read(url);
+				}
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			getLogger().warning("The EARMARK document in '" + url + "' has not been loaded"
+					+ " [in 'read' method]\nException: " + e.getMessage());
+		}
+
+		return result;
+	}
+
+	@Override
+	public EARMARKDocument read(File file) throws FileNotFoundException {
+		EARMARKDocument result = null;
+
+		InputStream input = new BufferedInputStream(new FileInputStream(file));
+		try {
+			try {
+				if (isBinary(input)) {
+					result = read(input);
+				} else {
+					result = rdfReader.read(file);
+				}
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			getLogger().warning("The EARMARK document in '" + file + "' has not been loaded"
+					+ " [in 'read' method]\nException: " + e.getMessage());
+		}
+
+		return result;
+	}
+
+	/**
+	 * This method reads a document from a string, which is either the binary representation returned by the
+	 * BinaryWriter, where each character stands for the byte having the same code, or an RDF one.
+	 *
+	 * @param source the source string containing a representation of the EARMARK document to retrieve.
+	 * @return an EARMARK document.
+	 */
+	@Override
+	public EARMARKDocument read(String source) {
+		if (!source.startsWith(new String(BinaryFormat.MAGIC))) {
+			return rdfReader.read(source);
+		}
+
+		try {
+			return read(new ByteArrayInputStream(source.getBytes(BinaryFormat.BYTES_AS_CHARACTERS)));
+		} catch (UnsupportedEncodingException e) {
+			getLogger().warning("The EARMARK document has not been loaded"
+					+ " [in 'read' method]\nException: " + e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	public EARMARKDocument read(Model model) {
+		return rdfReader.read(model);
+	}
+
+	/**
+	 * This method reads a document in the binary format from an input stream, which is not closed.
+	 *
+	 * @param input the input stream.
+	 * @return an EARMARK document, or null if the input stream does not contain a document in the binary
+	 * format.
+	 */
+	public EARMARKDocument read(InputStream input) {
+		EARMARKDocument result = null;
+
+		try {
+			result = new Reading(new DataInputStream(input)).read();
+		} catch (IOException e) {
+			getLogger().warning("The EARMARK document has not been loaded"
+					+ " [in 'read' method]\nException: " + e.getMessage());
+		}
+
+		return result;
+	}
+
+	/**
+	 * <p>This method opens a document stored in a file by a BinaryWriter with the index enabled, without
+	 * reading it.</p>
+	 * <p>The file is memory-mapped and each item is read only when it is reached, as described in
+	 * LazyDocument.</p>
+	 *
+	 * @param file the file containing the document.
+	 * @return a document backed by the file.
+	 * @throws IOException if the file cannot be read or if it does not contain an indexed document in the
+	 * binary format.
+	 */
+	public LazyDocument open(File file) throws IOException {
+		return LazyDocument.open(file);
+	}
+
+	/* Check whether the stream starts with the magic bytes of the binary format, without consuming them */
+	private boolean isBinary(InputStream input) throws IOException {
+		byte[] magic = new byte[BinaryFormat.MAGIC.length];
+
+		input.mark(magic.length);
+		int read = 0;
+		while (read < magic.length) {
+			int count = input.read(magic, read, magic.length - read);
+			if (count < 0) {
+				break;
+			}
+			read += count;
+		}
+		input.reset();
+
+		return Arrays.equals(magic, BinaryFormat.MAGIC);
+	}
+
+	/* The state of a single reading of a document */
+	private class Reading {
+		private DataInputStream input;
+		private EARMARKDocument document;
+		private String[] strings;
+		private Docuverse[] docuverses;
+		private EARMARKChildNode[] nodes;
+
+		private Reading(DataInputStream input) {
+			this.input = input;
+		}
+
+		private EARMARKDocument read() throws IOException {
+			byte[] magic = new byte[BinaryFormat.MAGIC.length];
+			input.readFully(magic);
+			if (!Arrays.equals(magic, BinaryFormat.MAGIC)) {
+				throw new IOException("The input is not a binary EARMARK document");
+			}
+			int version = BinaryFormat.readNumber(input);
+			if (version != BinaryFormat.VERSION) {
+				throw new IOException("The version " + version + " of the binary format is not supported");
+			}
+
+			strings = new String[BinaryFormat.readNumber(input)];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = BinaryFormat.readString(input);
+			}
+			document = new EARMARKDocument(URI.create(strings[BinaryFormat.readNumber(input)]));
+
+			docuverses = new Docuverse[BinaryFormat.readNumber(input)];
+			for (int i = 0; i < docuverses.length; i++) {
+				docuverses[i] = readDocuverse();
+			}
+
+			nodes = new EARMARKChildNode[BinaryFormat.readNumber(input)];
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i] = readNode();
+			}
+
+			readChildren(null);
+			for (EARMARKChildNode node : nodes) {
+				if (node instanceof MarkupItem) {
+					readChildren((MarkupItem) node);
+				}
+			}
+
+			byte[] assertions = new byte[BinaryFormat.readNumber(input)];
+			input.readFully(assertions);
+			if (assertions.length > 0) {
+				document.getModel().read(new ByteArrayInputStream(assertions), null, EARMARKWriter.NTRIPLE);
+			}
+
+			return document;
+		}
+
+		private URI readId() throws IOException {
+			String prefix = strings[BinaryFormat.readNumber(input)];
+			return URI.create(prefix + BinaryFormat.readString(input));
+		}
+
+		private String readOptionalString() throws IOException {
+			int index = BinaryFormat.readNumber(input);
+			return (index == 0 ? null : strings[index - 1]);
+		}
+
+		private Docuverse readDocuverse() throws IOException {
+			Docuverse result = null;
+
+			int kind = BinaryFormat.readNumber(input);
+			URI id = readId();
+			String content = BinaryFormat.readString(input);
+			try {
+				if (kind == BinaryFormat.URI_DOCUVERSE) {
+					result = document.createURIDocuverse(id, URI.create(content));
+				} else if (kind == BinaryFormat.MAPPED_FILE_DOCUVERSE) {
+					result = document.createMappedFileDocuverse(id, URI.create(content));
+				} else if (kind == BinaryFormat.EDITABLE_DOCUVERSE) {
+					result = document.createEditableDocuverse(id, content);
+				} else {
+					result = document.createStringDocuverse(id, content);
+				}
+			} catch (ExistingIdException e) {
+				getLogger().warning("The docuverse " + id + " has not been added to the document"
+						+ " [in 'readDocuverse' method]\nException: " + e.getMessage());
+			}
+
+			return result;
+		}
+
+		private EARMARKChildNode readNode() throws IOException {
+			EARMARKChildNode result = null;
+
+			int kind = BinaryFormat.readNumber(input);
+			URI id = readId();
+			try {
+				if (kind == BinaryFormat.POINTER_RANGE || kind == BinaryFormat.XPATH_POINTER_RANGE) {
+					Docuverse docuverse = docuverses[BinaryFormat.readNumber(input)];
+					Integer begins = BinaryFormat.readOptionalNumber(input);
+					Integer ends = BinaryFormat.readOptionalNumber(input);
+					if (kind == BinaryFormat.XPATH_POINTER_RANGE) {
+						result = document.createXPathPointerRange(id, docuverse, begins, ends, readOptionalString());
+					} else {
+						result = document.createPointerRange(id, docuverse, begins, ends);
+					}
+				} else {
+					int type = BinaryFormat.readNumber(input);
+					Collection.Type collectionType =
+						(type == BinaryFormat.SET ? Collection.Type.Set :
+							(type == BinaryFormat.BAG ? Collection.Type.Bag : Collection.Type.List));
+					String gi = readOptionalString();
+					String namespace = readOptionalString();
+					URI ns = (namespace == null ? null : URI.create(namespace));
+					if (kind == BinaryFormat.ATTRIBUTE) {
+						result = document.createAttribute(id, gi, ns, collectionType);
+					} else if (kind == BinaryFormat.COMMENT) {
+						result = document.createComment(id, gi, ns, collectionType);
+					} else {
+						result = document.createElement(id, gi, ns, collectionType);
+					}
+				}
+			} catch (ExistingIdException e) {
+				getLogger().warning("The node " + id + " has not been added to the document"
+						+ " [in 'readNode' method]\nException: " + e.getMessage());
+			} catch (EARMARKGraphException e) {
+				getLogger().warning("The node " + id + " has not been added to the document"
+						+ " [in 'readNode' method]\nException: " + e.getMessage());
+			}
+
+			return result;
+		}
+
+		/* Append the children read to the markup item specified, or to the document if it is null */
+		private void readChildren(MarkupItem parent) throws IOException {
+			int size = BinaryFormat.readNumber(input);
+			for (int i = 0; i < size; i++) {
+				EARMARKChildNode child = nodes[BinaryFormat.readNumber(input)];
+				if (child != null) {
+					if (parent == null) {
+						document.appendChild(child);
+					} else {
+						parent.appendChild(child);
+					}
+				}
+			}
+		}
+	}
+
+	private Logger getLogger() {
+		return getLogger(BinaryReader.class);
+	}
+}
@@ -0,0 +1,442 @@
+package it.essepuntato.earmark.core.io;
+
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EARMARKItem;
+import it.essepuntato.earmark.core.EARMARKNode;
+import it.essepuntato.earmark.core.MarkupItem;
+import it.essepuntato.earmark.core.PointerRange;
+import it.essepuntato.earmark.core.Range;
+import it.essepuntato.earmark.core.RangeTable;
+import it.essepuntato.earmark.core.XPathPointerRange;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.hp.hpl.jena.rdf.model.Model;
+
+/**
+ * <p>A writer storing EARMARK documents in the compact binary format described in BinaryFormat, to be read
+ * by the BinaryReader. It is meant as a fast cache and interchange format, while RDF is still the canonical
+ * representation of the documents: the formats defined in EARMARKWriter, as well as the model of a document,
+ * are produced through a JenaWriter.</p>
+ * <p>String docuverses, URI docuverses, mapped file docuverses and editable docuverses keep their own type,
+ * while the rows of the range tables are stored as pointer ranges.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class BinaryWriter extends EARMARKBaseLogger implements EARMARKWriter {
+	/**
+	 * The name of the binary format, which is also the default one of this writer.
+	 */
+	public static final String BINARY = "EARMARK-BINARY";
+
+	private JenaWriter rdfWriter = new JenaWriter();
+	private volatile boolean indexed = false;
+
+	/**
+	 * This method sets whether the documents are stored together with the index needed for opening them
+	 * lazily through the method open of the BinaryReader. By default, the index is not stored.
+	 *
+	 * @param indexed true if the index has to be stored, false otherwise.
+	 */
+	public void setIndexed(boolean indexed) {
+		this.indexed = indexed;
+	}
+
+	/**
+	 * This method says whether the documents are stored together with their index.
+	 *
+	 * @return true if the index is stored, false otherwise.
+	 */
+	public boolean isIndexed() {
+		return indexed;
+	}
+
+	@Override
+	public String write(EARMARKDocument document) {
+		return write(document, BINARY);
+	}
+
+	@Override
+	public boolean write(EARMARKDocument document, File file) {
+		return write(document, file, BINARY);
+	}
+
+	/**
+	 * This method returns the binary representation of a document as a string, if the format specified is
+	 * the binary one, mapping each byte into the character having the same code. Otherwise, it returns
+	 * the document in the RDF format specified.
+	 *
+	 * @param document the document to be stored.
+	 * @param format the format in which the document will be stored.
+	 * @return the string representing the document.
+	 */
+	@Override
+	public String write(EARMARKDocument document, String format) {
+		if (!BINARY.equals(format)) {
+			return rdfWriter.write(document, format);
+		}
+
+		String result = null;
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		if (write(document, output)) {
+			try {
+				result = output.toString(BinaryFormat.BYTES_AS_CHARACTERS);
+			} catch (IOException e) {
+				getLogger().warning("The EARMARK document has not been stored"
+						+ " [in 'write' method]\nException: " + e.getMessage());
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean write(EARMARKDocument document, File file, String format) {
+		if (!BINARY.equals(format)) {
+			return rdfWriter.write(document, file, format);
+		}
+
+		boolean result = false;
+
+		try {
+			OutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+			try {
+				result = write(document, output);
+			} finally {
+				output.close();
+			}
+		} catch (IOException e) {
+			result = false;
+			getLogger().warning("The EARMARK document has not been stored in '" + file.toString() + "'"
+					+ " [in 'write' method]\nException: " + e.getMessage());
+		}
+
+		return result;
+	}
+
+	/**
+	 * This method stores a document in the binary format into an output stream, which is not closed.
+	 *
+	 * @param document the document to be stored.
+	 * @param output the output stream.
+	 * @return true if the document has been stored, false otherwise.
+	 */
+	public boolean write(EARMARKDocument document, OutputStream output) {
+		boolean result = true;
+
+		try {
+			new Writing(document, indexed).write(new DataOutputStream(output));
+		} catch (IOException e) {
+			result = false;
+			getLogger().warning("The EARMARK document has not been stored"
+					+ " [in 'write' method]\nException: " + e.getMessage());
+		} catch (NullPointerException e) {
+			result = false;
+			getLogger().warning("The EARMARK document passed as input is null"
+					+ " [in 'write' method]\nException: " + e.getMessage());
+		}
+
+		return result;
+	}
+
+	@Override
+	public void addPrefixes(Map<String, String> prefixNsPair) {
+		rdfWriter.addPrefixes(prefixNsPair);
+	}
+
+	@Override
+	public Model getModel(EARMARKDocument document) {
+		return rdfWriter.getModel(document);
+	}
+
+	/* The state of a single writing of a document */
+	private class Writing {
+		private EARMARKDocument document;
+		private Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+		private List<Docuverse> docuverses = new ArrayList<Docuverse>();
+		private Map<URI, Integer> docuverseHandles = new HashMap<URI, Integer>();
+		private List<EARMARKNode> nodes = new ArrayList<EARMARKNode>();
+		private Map<URI, Integer> nodeHandles = new HashMap<URI, Integer>();
+
+		/* The positions of the items and the parents of the nodes, used only for the index */
+		private boolean indexed;
+		private int[] docuverseOffsets;
+		private int[] nodeOffsets;
+		private int[] childrenOffsets;
+		private List<List<Integer>> parents;
+
+		private Writing(EARMARKDocument document, boolean indexed) {
+			this.document = document;
+			this.indexed = indexed;
+		}
+
+		private void write(DataOutputStream output) throws IOException {
+			collect();
+
+			output.write(BinaryFormat.MAGIC);
+			BinaryFormat.writeNumber(output, BinaryFormat.VERSION);
+
+			BinaryFormat.writeNumber(output, strings.size());
+			for (String string : strings.keySet()) {
+				BinaryFormat.writeString(output, string);
+			}
+			BinaryFormat.writeNumber(output, strings.get(document.hasId().toString()));
+
+			docuverseOffsets = new int[docuverses.size()];
+			BinaryFormat.writeNumber(output, docuverses.size());
+			for (int i = 0; i < docuverses.size(); i++) {
+				docuverseOffsets[i] = output.size();
+				writeDocuverse(output, docuverses.get(i));
+			}
+
+			nodeOffsets = new int[nodes.size()];
+			BinaryFormat.writeNumber(output, nodes.size());
+			for (int i = 0; i < nodes.size(); i++) {
+				nodeOffsets[i] = output.size();
+				writeNode(output, nodes.get(i));
+			}
+
+			childrenOffsets = new int[nodes.size()];
+			if (indexed) {
+				parents = new ArrayList<List<Integer>>(nodes.size());
+				for (int i = 0; i < nodes.size(); i++) {
+					parents.add(new ArrayList<Integer>(1));
+				}
+			}
+			int rootsOffset = output.size();
+			writeChildren(output, document.getChildNodes(), 0);
+			for (int i = 0; i < nodes.size(); i++) {
+				if (nodes.get(i) instanceof MarkupItem) {
+					childrenOffsets[i] = output.size();
+					writeChildren(output, ((MarkupItem) nodes.get(i)).getChildNodes(), i + 1);
+				}
+			}
+
+			int assertionsOffset = output.size();
+			ByteArrayOutputStream assertions = new ByteArrayOutputStream();
+			if (!document.getModel().isEmpty()) {
+				document.getModel().write(assertions, NTRIPLE);
+			}
+			BinaryFormat.writeNumber(output, assertions.size());
+			assertions.writeTo(output);
+
+			if (indexed) {
+				writeIndex(output, rootsOffset, assertionsOffset);
+			}
+
+			output.flush();
+		}
+
+		private void writeIndex(DataOutputStream output, int rootsOffset, int assertionsOffset) throws IOException {
+			int[] parentsOffsets = new int[nodes.size()];
+			for (int i = 0; i < nodes.size(); i++) {
+				parentsOffsets[i] = output.size();
+				BinaryFormat.writeNumber(output, parents.get(i).size());
+				for (Integer parent : parents.get(i)) {
+					BinaryFormat.writeNumber(output, parent);
+				}
+			}
+
+			int handleTableOffset = output.size();
+			for (int offset : docuverseOffsets) {
+				output.writeInt(offset);
+			}
+			for (int i = 0; i < nodes.size(); i++) {
+				output.writeInt(nodeOffsets[i]);
+				output.writeInt(childrenOffsets[i]);
+				output.writeInt(parentsOffsets[i]);
+			}
+
+			final String[] ids = new String[docuverses.size() + nodes.size()];
+			Integer[] handles = new Integer[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				EARMARKItem item = (i < docuverses.size() ? 
+						docuverses.get(i) : nodes.get(i - docuverses.size()));
+				ids[i] = item.hasId().toString();
+				handles[i] = i;
+			}
+			Arrays.sort(handles, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer one, Integer two) {
+					return ids[one].compareTo(ids[two]);
+				}
+			});
+			int idTableOffset = output.size();
+			for (Integer handle : handles) {
+				output.writeInt(handle);
+			}
+
+			output.writeInt(docuverses.size());
+			output.writeInt(nodes.size());
+			output.writeInt(rootsOffset);
+			output.writeInt(assertionsOffset);
+			output.writeInt(handleTableOffset);
+			output.writeInt(idTableOffset);
+			output.write(BinaryFormat.INDEX_MAGIC);
+		}
+
+		/* Collect the docuverses, the nodes and the strings of the document */
+		private void collect() {
+			addString(document.hasId().toString());
+
+			for (Docuverse docuverse : document.getAllDocuverses()) {
+				docuverseHandles.put(docuverse.hasId(), docuverses.size());
+				docuverses.add(docuverse);
+				addPrefix(docuverse);
+			}
+
+			for (EARMARKNode node : document.getAllEARMARKNode()) {
+				addNode(node);
+			}
+			for (RangeTable table : document.getRangeTables()) {
+				for (PointerRange row : table) {
+					if (!nodeHandles.containsKey(row.hasId())) {
+						addNode(row);
+					}
+				}
+			}
+		}
+
+		private void addNode(EARMARKNode node) {
+			nodeHandles.put(((EARMARKItem) node).hasId(), nodes.size());
+			nodes.add(node);
+			addPrefix((EARMARKItem) node);
+
+			if (node instanceof XPathPointerRange) {
+				addString(((XPathPointerRange) node).hasXPathContext());
+			} else if (node instanceof MarkupItem) {
+				MarkupItem item = (MarkupItem) node;
+				addString(item.hasGeneralIdentifier());
+				addString(item.hasNamespace() == null ? null : item.hasNamespace().toString());
+			}
+		}
+
+		private void addPrefix(EARMARKItem item) {
+			String id = item.hasId().toString();
+			addString(id.substring(0, BinaryFormat.prefixLength(id)));
+		}
+
+		private void addString(String string) {
+			if (string != null && !strings.containsKey(string)) {
+				strings.put(string, strings.size());
+			}
+		}
+
+		private void writeId(DataOutputStream output, EARMARKItem item) throws IOException {
+			String id = item.hasId().toString();
+			int prefixLength = BinaryFormat.prefixLength(id);
+			BinaryFormat.writeNumber(output, strings.get(id.substring(0, prefixLength)));
+			BinaryFormat.writeString(output, id.substring(prefixLength));
+		}
+
+		/* Write the index of a string plus one, or zero if the string is not specified */
+		private void writeOptionalString(DataOutputStream output, String string) throws IOException {
+			BinaryFormat.writeNumber(output, (string == null ? 0 : strings.get(string) + 1));
+		}
+
+		private void writeDocuverse(DataOutputStream output, Docuverse docuverse) throws IOException {
+			Docuverse.Type type = docuverse.getType();
+			if (type == Docuverse.Type.URIDocuverse) {
+				BinaryFormat.writeNumber(output, BinaryFormat.URI_DOCUVERSE);
+			} else if (type == Docuverse.Type.MappedFileDocuverse) {
+				BinaryFormat.writeNumber(output, BinaryFormat.MAPPED_FILE_DOCUVERSE);
+			} else if (type == Docuverse.Type.EditableDocuverse) {
+				BinaryFormat.writeNumber(output, BinaryFormat.EDITABLE_DOCUVERSE);
+			} else {
+				BinaryFormat.writeNumber(output, BinaryFormat.STRING_DOCUVERSE);
+			}
+
+			writeId(output, docuverse);
+			if (type == Docuverse.Type.StringDocuverse || type == Docuverse.Type.EditableDocuverse) {
+				BinaryFormat.writeText(output, docuverse.getText());
+			} else {
+				BinaryFormat.writeString(output, docuverse.hasContent().toString());
+			}
+		}
+
+		private void writeNode(DataOutputStream output, EARMARKNode node) throws IOException {
+			EARMARKNode.Type type = node.getNodeType();
+
+			if (type == EARMARKNode.Type.PointerRange || type == EARMARKNode.Type.XPathPointerRange) {
+				boolean xpath = (type == EARMARKNode.Type.XPathPointerRange);
+				BinaryFormat.writeNumber(output, (xpath ? BinaryFormat.XPATH_POINTER_RANGE : BinaryFormat.POINTER_RANGE));
+				writeId(output, (EARMARKItem) node);
+
+				Range range = (Range) node;
+				BinaryFormat.writeNumber(output, docuverseHandles.get(range.refersTo().hasId()));
+				BinaryFormat.writeOptionalNumber(output, (Integer) range.begins());
+				BinaryFormat.writeOptionalNumber(output, (Integer) range.ends());
+				if (xpath) {
+					writeOptionalString(output, ((XPathPointerRange) node).hasXPathContext());
+				}
+			} else {
+				if (type == EARMARKNode.Type.Attribute) {
+					BinaryFormat.writeNumber(output, BinaryFormat.ATTRIBUTE);
+				} else if (type == EARMARKNode.Type.Comment) {
+					BinaryFormat.writeNumber(output, BinaryFormat.COMMENT);
+				} else {
+					BinaryFormat.writeNumber(output, BinaryFormat.ELEMENT);
+				}
+
+				MarkupItem item = (MarkupItem) node;
+				writeId(output, item);
+				if (item.isSet()) {
+					BinaryFormat.writeNumber(output, BinaryFormat.SET);
+				} else if (item.isBag()) {
+					BinaryFormat.writeNumber(output, BinaryFormat.BAG);
+				} else {
+					BinaryFormat.writeNumber(output, BinaryFormat.LIST);
+				}
+				writeOptionalString(output, item.hasGeneralIdentifier());
+				writeOptionalString(output, (item.hasNamespace() == null ? null : item.hasNamespace().toString()));
+			}
+		}
+
+		/* Write the handles of the children of the parent specified through its code, recording it as their
+		 * parent */
+		private void writeChildren(
+				DataOutputStream output, Iterable<EARMARKChildNode> children, int parent) throws IOException {
+			List<Integer> handles = new ArrayList<Integer>();
+			for (EARMARKChildNode child : children) {
+				Integer handle = nodeHandles.get(child.hasId());
+				if (handle == null) {
+					getLogger().warning("The node " + child.hasId() + " is not in the document"
+							+ " [in 'writeChildren' method]");
+				} else {
+					handles.add(handle);
+					if (parents != null && !parents.get(handle).contains(parent)) {
+						parents.get(handle).add(parent);
+					}
+				}
+			}
+
+			BinaryFormat.writeNumber(output, handles.size());
+			for (Integer handle : handles) {
+				BinaryFormat.writeNumber(output, handle);
+			}
+		}
+	}
+
+	private Logger getLogger() {
+		return getLogger(BinaryWriter.class);
+	}
+}
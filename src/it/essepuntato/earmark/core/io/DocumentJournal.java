@@ -0,0 +1,731 @@
+package it.essepuntato.earmark.core.io;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EARMARKHierarchicalNode;
+import it.essepuntato.earmark.core.EARMARKItem;
+import it.essepuntato.earmark.core.EARMARKListener;
+import it.essepuntato.earmark.core.EARMARKNode;
+import it.essepuntato.earmark.core.EditableDocuverse;
+import it.essepuntato.earmark.core.MarkupItem;
+import it.essepuntato.earmark.core.Range;
+import it.essepuntato.earmark.core.XPathPointerRange;
+import it.essepuntato.earmark.core.exception.EARMARKGraphException;
+import it.essepuntato.earmark.core.exception.ExistingIdException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.rdf.listeners.StatementListener;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.rdf.model.Statement;
+
+/**
+ * <p>A write-ahead journal of the modifications of an EARMARK document, which makes storing the document
+ * cost as much as the modifications made since the previous store instead of the whole document.</p>
+ * <p>The document is stored in a snapshot file in the binary format of the BinaryWriter, and each following
+ * modification (the creation and the removal of the items, the modifications of the children of the
+ * hierarchical nodes, the replacements of the content of the editable docuverses and the additions and
+ * removals of the RDF assertions) is appended as a record to the journal file having the same name of the
+ * snapshot followed by ".journal". The records are buffered until the method flush is called. Opening the
+ * document loads the snapshot and replays the journal.</p>
+ * <p>The compaction folds the journal into a new snapshot. It can run in background while the document is
+ * modified: the journal is moved aside at the beginning of the compaction and the new modifications are
+ * recorded in a new journal, while the new snapshot is built from the files only, without reading the
+ * document.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class DocumentJournal extends EARMARKBaseLogger implements EARMARKListener {
+
+	/* The kinds of records */
+	private static final int CREATE_DOCUVERSE = 0;
+	private static final int CREATE_RANGE = 1;
+	private static final int CREATE_MARKUP_ITEM = 2;
+	private static final int APPEND_CHILD = 3;
+	private static final int SET_CHILDREN = 4;
+	private static final int REMOVE = 5;
+	private static final int REPLACE_TEXT = 6;
+	private static final int ADD_STATEMENT = 7;
+	private static final int REMOVE_STATEMENT = 8;
+
+	/* The kinds of RDF nodes */
+	private static final int URI_NODE = 0;
+	private static final int BLANK_NODE = 1;
+	private static final int LITERAL_NODE = 2;
+
+	/* The thread compacting the journals in background, shared by all the journals */
+	private static ExecutorService executor = null;
+
+	private EARMARKDocument document;
+	private File snapshot;
+	private File journal;
+	private File compacting;
+	private File temporary;
+	private FileOutputStream file;
+	private DataOutputStream output;
+	private long size = 0;
+	private Assertions assertions = new Assertions();
+
+	/* It is used to run one compaction at a time */
+	private Object compaction = new Object();
+
+	private DocumentJournal(EARMARKDocument document, File snapshot) {
+		this.document = document;
+		this.snapshot = snapshot;
+		this.journal = new File(snapshot.getPath() + ".journal");
+		this.compacting = new File(snapshot.getPath() + ".journal.compacting");
+		this.temporary = new File(snapshot.getPath() + ".tmp");
+	}
+
+	/**
+	 * This method stores a document in a snapshot file with an empty journal, and starts recording its
+	 * modifications.
+	 *
+	 * @param document the document to store.
+	 * @param file the snapshot file.
+	 * @return the journal of the document.
+	 * @throws IOException if the document cannot be stored.
+	 */
+	public static DocumentJournal create(EARMARKDocument document, File file) throws IOException {
+		DocumentJournal result = new DocumentJournal(document, file);
+		if (!new BinaryWriter().write(document, result.temporary)) {
+			throw new IOException("The EARMARK document has not been stored in '" + result.temporary + "'");
+		}
+		result.compacting.delete();
+		result.journal.delete();
+		replace(result.temporary, file);
+		result.start(0);
+		return result;
+	}
+
+	/**
+	 * This method loads a document from a snapshot file, replaying the modifications recorded in its
+	 * journal, and starts recording its following modifications.
+	 *
+	 * @param file the snapshot file.
+	 * @return the journal of the document, which is returned by the method getDocument.
+	 * @throws IOException if the document cannot be loaded.
+	 */
+	public static DocumentJournal open(File file) throws IOException {
+		DocumentJournal result = new DocumentJournal(null, file);
+		result.recover();
+
+		result.document = load(file);
+		if (result.compacting.exists()) {
+			replay(result.document, result.compacting);
+		}
+		long valid = (result.journal.exists() ? replay(result.document, result.journal) : 0);
+		if (result.journal.exists() && valid < result.journal.length()) {
+			/* Drop the last record, which has not been entirely written */
+			RandomAccessFile journal = new RandomAccessFile(result.journal, "rw");
+			try {
+				journal.setLength(valid);
+			} finally {
+				journal.close();
+			}
+		}
+
+		result.start(valid);
+		return result;
+	}
+
+	/**
+	 * This method returns the document whose modifications are recorded.
+	 *
+	 * @return the document of the journal.
+	 */
+	public EARMARKDocument getDocument() {
+		return document;
+	}
+
+	/**
+	 * This method returns the number of bytes of the records written in the current journal file.
+	 *
+	 * @return the size of the journal.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * This method writes the records buffered so far to the journal file and forces them to the storage
+	 * device, so that the modifications recorded are not lost.
+	 *
+	 * @throws IOException if the records cannot be written.
+	 */
+	public synchronized void flush() throws IOException {
+		output.flush();
+		file.getFD().sync();
+	}
+
+	/**
+	 * This method stops recording the modifications of the document, and closes the journal file.
+	 *
+	 * @throws IOException if the records buffered cannot be written.
+	 */
+	public synchronized void close() throws IOException {
+		document.removeListener(this);
+		document.getModel().unregister(assertions);
+		try {
+			flush();
+		} finally {
+			output.close();
+		}
+	}
+
+	/**
+	 * <p>This method folds the journal into a new snapshot of the document.</p>
+	 * <p>The records written since the beginning of the compaction are kept in a new journal. If a previous
+	 * compaction has been interrupted, only the journal it was folding is folded.</p>
+	 *
+	 * @return true if the journal has been folded, false otherwise.
+	 */
+	public boolean compact() {
+		boolean result = false;
+
+		synchronized (compaction) {
+			try {
+				if (!compacting.exists()) {
+					rotate();
+				}
+
+				EARMARKDocument folded = load(snapshot);
+				replay(folded, compacting);
+				if (!new BinaryWriter().write(folded, temporary)) {
+					throw new IOException("The EARMARK document has not been stored in '" + temporary + "'");
+				}
+				if (!compacting.delete()) {
+					throw new IOException("The journal '" + compacting + "' has not been deleted");
+				}
+				replace(temporary, snapshot);
+				result = true;
+			} catch (IOException e) {
+				getLogger().warning("The journal has not been folded into the snapshot '" + snapshot + "'"
+						+ " [in 'compact' method]\nException: " + e.getMessage());
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * This method runs the compaction of the journal in background, as described in the method compact.
+	 *
+	 * @return the result of the compaction, available when it ends.
+	 */
+	public Future<Boolean> compactInBackground() {
+		return getExecutor().submit(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return compact();
+			}
+		});
+	}
+
+	@Override
+	public synchronized void itemCreated(EARMARKItem item) {
+		try {
+			Record record = new Record();
+			if (item instanceof Docuverse) {
+				Docuverse docuverse = (Docuverse) item;
+				Docuverse.Type type = docuverse.getType();
+				record.writeNumber(CREATE_DOCUVERSE);
+				if (type == Docuverse.Type.URIDocuverse) {
+					record.writeNumber(BinaryFormat.URI_DOCUVERSE);
+				} else if (type == Docuverse.Type.MappedFileDocuverse) {
+					record.writeNumber(BinaryFormat.MAPPED_FILE_DOCUVERSE);
+				} else if (type == Docuverse.Type.EditableDocuverse) {
+					record.writeNumber(BinaryFormat.EDITABLE_DOCUVERSE);
+				} else {
+					record.writeNumber(BinaryFormat.STRING_DOCUVERSE);
+				}
+				record.writeString(docuverse.hasId().toString());
+				if (type == Docuverse.Type.StringDocuverse || type == Docuverse.Type.EditableDocuverse) {
+					BinaryFormat.writeText(record.data, docuverse.getText());
+				} else {
+					record.writeString(docuverse.hasContent().toString());
+				}
+			} else if (item instanceof Range) {
+				Range range = (Range) item;
+				boolean xpath = (range.getNodeType() == EARMARKNode.Type.XPathPointerRange);
+				record.writeNumber(CREATE_RANGE);
+				record.writeNumber(xpath ? BinaryFormat.XPATH_POINTER_RANGE : BinaryFormat.POINTER_RANGE);
+				record.writeString(range.hasId().toString());
+				record.writeString(range.refersTo().hasId().toString());
+				BinaryFormat.writeOptionalNumber(record.data, (Integer) range.begins());
+				BinaryFormat.writeOptionalNumber(record.data, (Integer) range.ends());
+				if (xpath) {
+					record.writeOptionalString(((XPathPointerRange) range).hasXPathContext());
+				}
+			} else if (item instanceof MarkupItem) {
+				MarkupItem markupitem = (MarkupItem) item;
+				EARMARKNode.Type type = markupitem.getNodeType();
+				record.writeNumber(CREATE_MARKUP_ITEM);
+				if (type == EARMARKNode.Type.Attribute) {
+					record.writeNumber(BinaryFormat.ATTRIBUTE);
+				} else if (type == EARMARKNode.Type.Comment) {
+					record.writeNumber(BinaryFormat.COMMENT);
+				} else {
+					record.writeNumber(BinaryFormat.ELEMENT);
+				}
+				record.writeString(markupitem.hasId().toString());
+				if (markupitem.isSet()) {
+					record.writeNumber(BinaryFormat.SET);
+				} else if (markupitem.isBag()) {
+					record.writeNumber(BinaryFormat.BAG);
+				} else {
+					record.writeNumber(BinaryFormat.LIST);
+				}
+				URI ns = markupitem.hasNamespace();
+				record.writeOptionalString(markupitem.hasGeneralIdentifier());
+				record.writeOptionalString(ns == null ? null : ns.toString());
+			}
+			append(record);
+		} catch (IOException e) {
+			getLogger().warning("The creation of the item " + item.hasId() + " has not been recorded"
+					+ " [in 'itemCreated' method]\nException: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public synchronized void itemRemoved(EARMARKItem item) {
+		try {
+			Record record = new Record();
+			record.writeNumber(REMOVE);
+			record.writeString(item.hasId().toString());
+			append(record);
+		} catch (IOException e) {
+			getLogger().warning("The removal of the item " + item.hasId() + " has not been recorded"
+					+ " [in 'itemRemoved' method]\nException: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public synchronized void childAppended(EARMARKHierarchicalNode parent, EARMARKChildNode child) {
+		try {
+			Record record = new Record();
+			record.writeNumber(APPEND_CHILD);
+			record.writeParent(parent);
+			record.writeString(((EARMARKItem) child).hasId().toString());
+			append(record);
+		} catch (IOException e) {
+			getLogger().warning("The appending of a child has not been recorded"
+					+ " [in 'childAppended' method]\nException: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public synchronized void childrenChanged(EARMARKHierarchicalNode parent, Collection children) {
+		try {
+			Record record = new Record();
+			record.writeNumber(SET_CHILDREN);
+			record.writeParent(parent);
+			record.writeNumber(children.size());
+			for (EARMARKChildNode child : children) {
+				record.writeString(((EARMARKItem) child).hasId().toString());
+			}
+			append(record);
+		} catch (IOException e) {
+			getLogger().warning("The modification of the children of a node has not been recorded"
+					+ " [in 'childrenChanged' method]\nException: " + e.getMessage());
+		}
+	}
+
+	@Override
+	public synchronized void textReplaced(EditableDocuverse docuverse, int begin, int end, String replacement) {
+		try {
+			Record record = new Record();
+			record.writeNumber(REPLACE_TEXT);
+			record.writeString(docuverse.hasId().toString());
+			record.writeNumber(begin);
+			record.writeNumber(end);
+			record.writeString(replacement);
+			append(record);
+		} catch (IOException e) {
+			getLogger().warning("The replacement of the content of " + docuverse.hasId() + " has not been"
+					+ " recorded [in 'textReplaced' method]\nException: " + e.getMessage());
+		}
+	}
+
+	/* Record the modifications of the RDF assertions of the document */
+	private class Assertions extends StatementListener {
+		@Override
+		public void addedStatement(Statement statement) {
+			statementChanged(ADD_STATEMENT, statement);
+		}
+
+		@Override
+		public void removedStatement(Statement statement) {
+			statementChanged(REMOVE_STATEMENT, statement);
+		}
+	}
+
+	private synchronized void statementChanged(int kind, Statement statement) {
+		try {
+			Record record = new Record();
+			Triple triple = statement.asTriple();
+			record.writeNumber(kind);
+			record.writeNode(triple.getSubject());
+			record.writeNode(triple.getPredicate());
+			record.writeNode(triple.getObject());
+			append(record);
+		} catch (IOException e) {
+			getLogger().warning("The modification of the assertion " + statement + " has not been recorded"
+					+ " [in 'statementChanged' method]\nException: " + e.getMessage());
+		}
+	}
+
+	/* A record being written, which is appended to the journal as its length followed by its data */
+	private static class Record {
+		private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private DataOutputStream data = new DataOutputStream(bytes);
+
+		private void writeNumber(int number) throws IOException {
+			BinaryFormat.writeNumber(data, number);
+		}
+
+		private void writeString(String string) throws IOException {
+			BinaryFormat.writeString(data, string);
+		}
+
+		/* Write zero if the string is not specified, one and the string otherwise */
+		private void writeOptionalString(String string) throws IOException {
+			if (string == null) {
+				writeNumber(0);
+			} else {
+				writeNumber(1);
+				writeString(string);
+			}
+		}
+
+		/* Write the id of a markup item, or nothing for the document */
+		private void writeParent(EARMARKHierarchicalNode parent) throws IOException {
+			writeOptionalString(parent instanceof MarkupItem ? ((MarkupItem) parent).hasId().toString() : null);
+		}
+
+		private void writeNode(Node node) throws IOException {
+			if (node.isURI()) {
+				writeNumber(URI_NODE);
+				writeString(node.getURI());
+			} else if (node.isBlank()) {
+				writeNumber(BLANK_NODE);
+				writeString(node.getBlankNodeLabel());
+			} else {
+				String language = node.getLiteralLanguage();
+				writeNumber(LITERAL_NODE);
+				writeString(node.getLiteralLexicalForm());
+				writeOptionalString(language == null || language.equals("") ? null : language);
+				writeOptionalString(node.getLiteralDatatypeURI());
+			}
+		}
+	}
+
+	private void append(Record record) throws IOException {
+		BinaryFormat.writeNumber(output, record.bytes.size());
+		record.bytes.writeTo(output);
+		size += numberLength(record.bytes.size()) + record.bytes.size();
+	}
+
+	/* Open the journal file for appending the records after the ones specified, and start listening */
+	private void start(long valid) throws IOException {
+		openJournal();
+		size = valid;
+		document.addListener(this);
+		document.getModel().register(assertions);
+	}
+
+	private void openJournal() throws IOException {
+		file = new FileOutputStream(journal, true);
+		output = new DataOutputStream(new BufferedOutputStream(file));
+	}
+
+	/* Move the journal aside for the compaction, and continue with a new one */
+	private synchronized void rotate() throws IOException {
+		output.close();
+		if (!journal.renameTo(compacting)) {
+			openJournal();
+			throw new IOException("The journal '" + journal + "' has not been moved to '" + compacting + "'");
+		}
+		openJournal();
+		size = 0;
+	}
+
+	/* Complete a compaction interrupted after having written the new snapshot, or discard it if the
+	 * snapshot has not been entirely written */
+	private void recover() throws IOException {
+		if (temporary.exists()) {
+			if (compacting.exists()) {
+				temporary.delete();
+			} else {
+				replace(temporary, snapshot);
+			}
+		}
+	}
+
+	private static void replace(File source, File target) throws IOException {
+		target.delete();
+		if (!source.renameTo(target)) {
+			throw new IOException("The file '" + source + "' has not been moved to '" + target + "'");
+		}
+	}
+
+	private static EARMARKDocument load(File file) throws IOException {
+		EARMARKDocument result = new BinaryReader().read(file);
+		if (result == null) {
+			throw new IOException("The EARMARK document in '" + file + "' has not been loaded");
+		}
+		return result;
+	}
+
+	/* Apply the records of a journal to the document, returning the length of the records entirely read */
+	private static long replay(EARMARKDocument document, File journal) throws IOException {
+		long result = 0;
+
+		Replaying replaying = new Replaying(document);
+		DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)));
+		try {
+			long length = journal.length();
+			while (result < length) {
+				byte[] record;
+				int header;
+				try {
+					int size = BinaryFormat.readNumber(input);
+					header = numberLength(size);
+					if (result + header + size > length) {
+						break;
+					}
+					record = new byte[size];
+					input.readFully(record);
+				} catch (EOFException e) {
+					break;
+				}
+				replaying.apply(new DataInputStream(new ByteArrayInputStream(record)));
+				result += header + record.length;
+			}
+		} finally {
+			input.close();
+		}
+
+		return result;
+	}
+
+	private static int numberLength(int number) {
+		int result = 1;
+		while ((number & ~0x7F) != 0) {
+			number >>>= 7;
+			result++;
+		}
+		return result;
+	}
+
+	/* The state of the replay of the journals on a document */
+	private static class Replaying {
+		private EARMARKDocument document;
+		private Graph graph;
+
+		/* The items that have been created with ids different from the ones recorded, since the document
+		 * returned equal ranges already existing */
+		private Map<String, EARMARKItem> aliases = new HashMap<String, EARMARKItem>();
+
+		private Replaying(EARMARKDocument document) {
+			this.document = document;
+			this.graph = document.getModel().getGraph();
+		}
+
+		private void apply(DataInputStream input) throws IOException {
+			int kind = BinaryFormat.readNumber(input);
+			try {
+				if (kind == CREATE_DOCUVERSE) {
+					int type = BinaryFormat.readNumber(input);
+					URI id = URI.create(BinaryFormat.readString(input));
+					String content = BinaryFormat.readString(input);
+					if (type == BinaryFormat.URI_DOCUVERSE) {
+						document.createURIDocuverse(id, URI.create(content));
+					} else if (type == BinaryFormat.MAPPED_FILE_DOCUVERSE) {
+						document.createMappedFileDocuverse(id, URI.create(content));
+					} else if (type == BinaryFormat.EDITABLE_DOCUVERSE) {
+						document.createEditableDocuverse(id, content);
+					} else {
+						document.createStringDocuverse(id, content);
+					}
+				} else if (kind == CREATE_RANGE) {
+					int type = BinaryFormat.readNumber(input);
+					String id = BinaryFormat.readString(input);
+					Docuverse docuverse = (Docuverse) resolve(BinaryFormat.readString(input));
+					Integer begins = BinaryFormat.readOptionalNumber(input);
+					Integer ends = BinaryFormat.readOptionalNumber(input);
+					Range range;
+					if (type == BinaryFormat.XPATH_POINTER_RANGE) {
+						range = document.createXPathPointerRange(
+								URI.create(id), docuverse, begins, ends, readOptionalString(input));
+					} else {
+						range = document.createPointerRange(URI.create(id), docuverse, begins, ends);
+					}
+					if (!range.hasId().toString().equals(id)) {
+						aliases.put(id, range);
+					}
+				} else if (kind == CREATE_MARKUP_ITEM) {
+					int type = BinaryFormat.readNumber(input);
+					URI id = URI.create(BinaryFormat.readString(input));
+					int collection = BinaryFormat.readNumber(input);
+					Collection.Type collectionType =
+						(collection == BinaryFormat.SET ? Collection.Type.Set :
+							(collection == BinaryFormat.BAG ? Collection.Type.Bag : Collection.Type.List));
+					String gi = readOptionalString(input);
+					String namespace = readOptionalString(input);
+					URI ns = (namespace == null ? null : URI.create(namespace));
+					if (type == BinaryFormat.ATTRIBUTE) {
+						document.createAttribute(id, gi, ns, collectionType);
+					} else if (type == BinaryFormat.COMMENT) {
+						document.createComment(id, gi, ns, collectionType);
+					} else {
+						document.createElement(id, gi, ns, collectionType);
+					}
+				} else if (kind == APPEND_CHILD) {
+					EARMARKHierarchicalNode parent = readParent(input);
+					EARMARKItem child = resolve(BinaryFormat.readString(input));
+					if (parent != null && child instanceof EARMARKChildNode) {
+						parent.appendChild((EARMARKChildNode) child);
+					}
+				} else if (kind == SET_CHILDREN) {
+					EARMARKHierarchicalNode parent = readParent(input);
+					List<EARMARKItem> children = new ArrayList<EARMARKItem>();
+					int size = BinaryFormat.readNumber(input);
+					for (int i = 0; i < size; i++) {
+						children.add(resolve(BinaryFormat.readString(input)));
+					}
+					if (parent != null) {
+						for (EARMARKChildNode child : new LinkedHashSet<EARMARKChildNode>(parent.getChildNodes())) {
+							parent.removeAllChild(child);
+						}
+						for (EARMARKItem child : children) {
+							if (child instanceof EARMARKChildNode) {
+								parent.appendChild((EARMARKChildNode) child);
+							}
+						}
+					}
+				} else if (kind == REMOVE) {
+					EARMARKItem item = resolve(BinaryFormat.readString(input));
+					if (item instanceof Range) {
+						document.removeRange((Range) item);
+					} else if (item instanceof MarkupItem) {
+						document.removeMarkupItem((MarkupItem) item);
+					} else if (item instanceof Docuverse) {
+						document.removeDocuverse((Docuverse) item);
+					}
+				} else if (kind == REPLACE_TEXT) {
+					EARMARKItem docuverse = resolve(BinaryFormat.readString(input));
+					int begin = BinaryFormat.readNumber(input);
+					int end = BinaryFormat.readNumber(input);
+					String replacement = BinaryFormat.readString(input);
+					if (docuverse instanceof EditableDocuverse) {
+						((EditableDocuverse) docuverse).replace(begin, end, replacement);
+					}
+				} else if (kind == ADD_STATEMENT || kind == REMOVE_STATEMENT) {
+					Triple triple = Triple.create(readNode(input), readNode(input), readNode(input));
+					if (kind == ADD_STATEMENT) {
+						graph.add(triple);
+					} else {
+						graph.delete(triple);
+					}
+				} else {
+					throw new IOException("Unknown record in the journal");
+				}
+			} catch (ExistingIdException e) {
+				getReplayLogger().warning("A record of the journal has not been applied"
+						+ " [in 'apply' method]\nException: " + e.getMessage());
+			} catch (EARMARKGraphException e) {
+				getReplayLogger().warning("A record of the journal has not been applied"
+						+ " [in 'apply' method]\nException: " + e.getMessage());
+			}
+		}
+
+		private EARMARKItem resolve(String id) {
+			EARMARKItem result = aliases.get(id);
+			return (result == null ? document.getEntityById(URI.create(id)) : result);
+		}
+
+		private EARMARKHierarchicalNode readParent(DataInputStream input) throws IOException {
+			String id = readOptionalString(input);
+			if (id == null) {
+				return document;
+			} else {
+				EARMARKItem result = resolve(id);
+				return (result instanceof MarkupItem ? (MarkupItem) result : null);
+			}
+		}
+
+		private String readOptionalString(DataInputStream input) throws IOException {
+			return (BinaryFormat.readNumber(input) == 0 ? null : BinaryFormat.readString(input));
+		}
+
+		private Node readNode(DataInputStream input) throws IOException {
+			int kind = BinaryFormat.readNumber(input);
+			if (kind == URI_NODE) {
+				return Node.createURI(BinaryFormat.readString(input));
+			} else if (kind == BLANK_NODE) {
+				return Node.createAnon(new AnonId(BinaryFormat.readString(input)));
+			} else {
+				String lexical = BinaryFormat.readString(input);
+				String language = readOptionalString(input);
+				String datatype = readOptionalString(input);
+				RDFDatatype type = (datatype == null ? null : TypeMapper.getInstance().getSafeTypeByName(datatype));
+				return Node.createLiteral(lexical, (language == null ? "" : language), type);
+			}
+		}
+	}
+
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread result = new Thread(runnable, "EARMARK journal");
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+
+		return executor;
+	}
+
+	private static Logger getReplayLogger() {
+		return Logger.getLogger(DocumentJournal.class.getName());
+	}
+
+	private Logger getLogger() {
+		return getLogger(DocumentJournal.class);
+	}
+}
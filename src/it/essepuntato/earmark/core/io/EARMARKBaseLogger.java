@@ -1,42 +1,68 @@
 package it.essepuntato.earmark.core.io;
 
 import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 import java.util.logging.StreamHandler;
 import java.util.logging.XMLFormatter;
 
 /**
- * An abstract class implementing the basic methods of an EARMARK input/output logger.
+ * <p>An abstract class implementing the basic methods of an EARMARK input/output logger.</p>
+ * <p>The handlers recording the log are registered only once for each logger, and the log is shared
+ * by all the instances using the same logger.</p>
  * 
  * @author Silvio Peroni
  *
  */
 public abstract class EARMARKBaseLogger implements EARMARKIOLogger {
 
-	private Logger logger = null;
-	private ByteArrayOutputStream plainText = new ByteArrayOutputStream();
-	private ByteArrayOutputStream xml = new ByteArrayOutputStream();
+	/* The logs of all the loggers used, by name of the logger */
+	private static final Map<String,Log> logs = new HashMap<String,Log>();
 
-	@Override
-	public Logger getLogger(Class<?> c) {
-		if (logger == null) {
-			logger = Logger.getLogger(c.getName());
+	private Log log = null;
+
+	/* A logger with the streams recording its log */
+	private static class Log {
+		private Logger logger;
+		private ByteArrayOutputStream plainText = new ByteArrayOutputStream();
+		private ByteArrayOutputStream xml = new ByteArrayOutputStream();
+
+		private Log(Logger logger) {
+			this.logger = logger;
 			logger.addHandler(new StreamHandler(plainText, new SimpleFormatter()));
 			logger.addHandler(new StreamHandler(xml, new XMLFormatter()));
 		}
-		
-		return logger;
+	}
+
+	@Override
+	public Logger getLogger(Class<?> c) {
+		synchronized (logs) {
+			if (log == null) {
+				log = logs.get(c.getName());
+				if (log == null) {
+					log = new Log(Logger.getLogger(c.getName()));
+					logs.put(c.getName(), log);
+				}
+			}
+			
+			return log.logger;
+		}
 	}
 
 	@Override
 	public String getPlainText() {
-		return plainText.toString();
+		synchronized (logs) {
+			return (log == null ? "" : log.plainText.toString());
+		}
 	}
 	
 	@Override
 	public String getXML() {
-		return xml.toString();
+		synchronized (logs) {
+			return (log == null ? "" : log.xml.toString());
+		}
 	}
 
 }
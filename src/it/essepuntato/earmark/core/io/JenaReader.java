@@ -36,16 +36,22 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Logger;
 
 import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
-import com.hp.hpl.jena.rdf.model.NodeIterator;
 import com.hp.hpl.jena.rdf.model.Property;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.ResIterator;
 import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
 import com.hp.hpl.jena.rdf.model.Statement;
 import com.hp.hpl.jena.rdf.model.StmtIterator;
 import com.hp.hpl.jena.vocabulary.OWL;
@@ -60,45 +66,69 @@ import com.hp.hpl.jena.vocabulary.RDF;
 public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 
 	private Model model = null;
+	private Model assertions = null;
 	private EARMARKDocument document = null;
 	private Set<Resource> visited = new HashSet<Resource>();
-	private boolean removeOWLStandardStatement = true;
-	
-	private Resource markupitem_r;
-	private Resource element_r;
-	private Resource attribute_r;
-	private Resource comment_r;
-	private Resource docuverse_r;
-	private Resource stringdocuverse_r;
-	private Resource uridocuverse_r;
-	private Resource range_r;
-	private Resource pointerrange_r;
-	private Resource xpathrange_r;
-	private Resource xpathpointerrange_r;
-	private Resource set_r;
-	private Resource bag_r;
-	private Resource list_r;
-	private Resource item_r;
-	private Resource listitem_r;
-	private Resource collection_r;
-	
-	private Property phasgeneralidentifier_r;
-	private Property phasnamespace_r;
-	private Property phascontent_r;
-	private Property pelement_r;
-	private Property pitem_r;
-	private Property pfirstitem_r;
-	private Property pnextitem_r;
-	private Property pbegins_r;
-	private Property pends_r;
-	private Property prefersto_r;
-	private Property phasxpathcontext_r;
-	private Property pitemcontent_r;
-	private Property pfollowedby_r;
-	private Property ppreceededby_r;
-	private Property ppreviousitem_r;
-	private Property psize_r;
-	private Property plastitem_r;
+	private volatile boolean removeOWLStandardStatement = true;
+	private volatile int parallelism = Runtime.getRuntime().availableProcessors();
+	private Map<Resource, List<Resource>> itemsByClass = null;
+	private Map<Resource, Description> descriptions = null;
+	/* The threads building the properties of the items, created for a single reading when needed */
+	private ExecutorService executor = null;
+	/* The reader whose log is used, i.e., this one or the reader that created this one for a single reading */
+	private JenaReader owner = this;
+	
+	private static final Resource markupitem_r = ResourceFactory.createResource(EARMARKClassURI.MARKUP_ITEM.toString());
+	private static final Resource element_r = ResourceFactory.createResource(EARMARKClassURI.ELEMENT.toString());
+	private static final Resource attribute_r = ResourceFactory.createResource(EARMARKClassURI.ATTRIBUTE.toString());
+	private static final Resource comment_r = ResourceFactory.createResource(EARMARKClassURI.COMMENT.toString());
+	private static final Resource docuverse_r = ResourceFactory.createResource(EARMARKClassURI.DOCUVERSE.toString());
+	private static final Resource stringdocuverse_r = ResourceFactory.createResource(EARMARKClassURI.STRING_DOCUVERSE.toString());
+	private static final Resource uridocuverse_r = ResourceFactory.createResource(EARMARKClassURI.URI_DOCUVERSE.toString());
+	private static final Resource range_r = ResourceFactory.createResource(EARMARKClassURI.RANGE.toString());
+	private static final Resource pointerrange_r = ResourceFactory.createResource(EARMARKClassURI.POINTER_RANGE.toString());
+	private static final Resource xpathrange_r = ResourceFactory.createResource(EARMARKClassURI.XPATH_RANGE.toString());
+	private static final Resource xpathpointerrange_r = ResourceFactory.createResource(EARMARKClassURI.XPATH_POINTER_RANGE.toString());
+	private static final Resource set_r = ResourceFactory.createResource(EARMARKClassURI.SET.toString());
+	private static final Resource bag_r = ResourceFactory.createResource(EARMARKClassURI.BAG.toString());
+	private static final Resource list_r = ResourceFactory.createResource(EARMARKClassURI.LIST.toString());
+	private static final Resource item_r = ResourceFactory.createResource(EARMARKClassURI.ITEM.toString());
+	private static final Resource listitem_r = ResourceFactory.createResource(EARMARKClassURI.LIST_ITEM.toString());
+	private static final Resource collection_r = ResourceFactory.createResource(EARMARKClassURI.COLLECTION.toString());
+	
+	private static final Property phasgeneralidentifier_r = ResourceFactory.createProperty(EARMARKPropertyURI.HAS_GENERAL_IDENTIFIER.toString());
+	private static final Property phasnamespace_r = ResourceFactory.createProperty(EARMARKPropertyURI.HAS_NAMESPACE.toString());
+	private static final Property phascontent_r = ResourceFactory.createProperty(EARMARKPropertyURI.HAS_CONTENT.toString());
+	private static final Property pelement_r = ResourceFactory.createProperty(EARMARKPropertyURI.ELEMENT.toString());
+	private static final Property pitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.ITEM.toString());
+	private static final Property pfirstitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.FIRST_ITEM.toString());
+	private static final Property pnextitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.NEXT_ITEM.toString());
+	private static final Property pbegins_r = ResourceFactory.createProperty(EARMARKPropertyURI.BEGINS.toString());
+	private static final Property pends_r = ResourceFactory.createProperty(EARMARKPropertyURI.ENDS.toString());
+	private static final Property prefersto_r = ResourceFactory.createProperty(EARMARKPropertyURI.REFERS_TO.toString());
+	private static final Property phasxpathcontext_r = ResourceFactory.createProperty(EARMARKPropertyURI.HAS_XPATH_CONTEXT.toString());
+	private static final Property pitemcontent_r = ResourceFactory.createProperty(EARMARKPropertyURI.ITEM_CONTENT.toString());
+	private static final Property pfollowedby_r = ResourceFactory.createProperty(EARMARKPropertyURI.FOLLOWED_BY.toString());
+	private static final Property ppreceededby_r = ResourceFactory.createProperty(EARMARKPropertyURI.PRECEEDED_BY.toString());
+	private static final Property ppreviousitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.PREVIOUS_ITEM.toString());
+	private static final Property psize_r = ResourceFactory.createProperty(EARMARKPropertyURI.SIZE.toString());
+	private static final Property plastitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.LAST_ITEM.toString());
+	
+	/* The minimum number of items whose properties are built by a single task */
+	private static final int MIN_ITEMS_PER_TASK = 256;
+	
+	/**
+	 * Create a new reader.
+	 */
+	public JenaReader() {
+	}
+	
+	/* Create a reader for a single reading, having the settings and the log of the reader specified */
+	private JenaReader(JenaReader owner) {
+		this.owner = owner;
+		removeOWLStandardStatement = owner.removeOWLStandardStatement;
+		parallelism = owner.parallelism;
+	}
 	
 	@Override
 	public EARMARKDocument read(URL url) {
@@ -151,9 +181,116 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return removeOWLStandardStatement;
 	}
 	
+	/**
+	 * <p>This method sets the maximum number of threads used for building the docuverses, ranges and markup 
+	 * items while reading a model. The properties of all the items are copied out of the model by the thread
+	 * calling the reader first, then the threads build the parameters of the items (e.g., identifiers, 
+	 * locations and collection types) from such copies, and finally the thread calling the reader creates the 
+	 * items in the document in a single step, in the same order as a sequential reading.</p>
+	 * <p>By default, it is the number of processors available.</p>
+	 * 
+	 * @param parallelism the maximum number of threads, where 1 means that the reading is sequential.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("The parallelism must be positive: " + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * This method returns the maximum number of threads used for building the items while reading a model.
+	 * 
+	 * @return the maximum number of threads.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+	
 	@Override
 	public EARMARKDocument read(Model model) {
+		return read(model, null);
+	}
+	
+	/**
+	 * This method converts a model containing the EARMARK statements of a document into the document, whose
+	 * additional RDF assertions will be the ones of the second model specified, plus the statements of the
+	 * first model that do not describe the document.
+	 * 
+	 * @param model the model to convert, whose statements are removed while converting it.
+	 * @param assertions the model to use for the additional RDF assertions of the document.
+	 * @return an EARMARK document.
+	 */
+	protected EARMARKDocument read(Model model, Model assertions) {
+		/* A new reader is used for each model, so that the same reader can be used by several threads */
+		return new JenaReader(this).readModel(model, assertions);
+	}
+	
+	/* What is known about a resource: the EARMARK classes it declares, for deciding which EARMARK item it is,
+	 * and the values of the EARMARK properties needed for creating the item, i.e., the first ones found. A 
+	 * description is filled by a single pass over the statements of the model and it is not modified after 
+	 * that, so that several threads can build the items from the descriptions without reading the model. */
+	private static class Description {
+		private String uri = null;
+		private Set<Resource> types = new HashSet<Resource>();
+		private Collection.Type collectionType = null;
+		private boolean hasContent = false;
+		private boolean isURI = false;
+		private String content = null;
+		private boolean hasRangeProperties = false;
+		private String begins = null;
+		private String ends = null;
+		private String refersTo = null;
+		private boolean hasXPathContext = false;
+		private String xpathContext = null;
+		private boolean hasMarkupItemProperties = false;
+		private String generalIdentifier = null;
+		private String namespace = null;
+		private boolean hasListItems = false;
+		private boolean hasBagItems = false;
+		private boolean hasElements = false;
+		
+		/* Return the class of the item described, i.e., the first one in the order used for reading the
+		 * items whose resources either declare it or have the properties needed for inferring it */
+		private Resource getItemClass() {
+			if (types.contains(uridocuverse_r) || (hasContent && isURI && !types.contains(stringdocuverse_r))) {
+				return uridocuverse_r;
+			} else if (
+					types.contains(stringdocuverse_r) || 
+					(hasContent && !isURI && !types.contains(uridocuverse_r))) {
+				return stringdocuverse_r;
+			} else if (types.contains(docuverse_r)) {
+				return docuverse_r;
+			} else if (types.contains(xpathpointerrange_r) || hasXPathContext) {
+				return xpathpointerrange_r;
+			} else if (
+					types.contains(pointerrange_r) || 
+					(hasRangeProperties && !types.contains(xpathrange_r))) {
+				return pointerrange_r;
+			} else if (types.contains(xpathrange_r)) {
+				return xpathrange_r;
+			} else if (types.contains(range_r)) {
+				return range_r;
+			} else if (
+					types.contains(element_r) || 
+					(hasMarkupItemProperties && !types.contains(attribute_r) && !types.contains(comment_r))) {
+				return element_r;
+			} else if (types.contains(attribute_r)) {
+				return attribute_r;
+			} else if (types.contains(comment_r)) {
+				return comment_r;
+			} else if (types.contains(markupitem_r)) {
+				return markupitem_r;
+			} else {
+				return null;
+			}
+		}
+	}
+	
+	/* Convert a model into a document using the state of this reader, which is used for a single reading */
+	private EARMARKDocument readModel(Model model, Model assertions) {
 		this.model = model;
+		this.assertions = assertions;
 		
 		/* Create a new EARMARK document, using the URL defined by the URI of the ontology,
 		 * if present, or an empty URL otherwise. */
@@ -162,31 +299,38 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		while (ite.hasNext() && id.equals("")) {
 			id = ite.next().getURI();
 		}
-		document = new EARMARKDocument(URI.create(id));
+		document = (assertions == null ? 
+				new EARMARKDocument(URI.create(id)) : new EARMARKDocument(URI.create(id), assertions));
 		removeOWLStandardStatements(document);
 		
-		/* Initialise all the RDF resources */
-		initializeResources();
-		
-		/* Add all the docuverses to the EARMARK document (it has to be done
-		 * before everything else, because the other nodes have to used them) */
-		ArrayList<URI> params = new ArrayList<URI>();
-		params.add(EARMARKClassURI.URI_DOCUVERSE);
-		params.add(EARMARKClassURI.STRING_DOCUVERSE);
-		params.add(EARMARKClassURI.DOCUVERSE);
-		apply(params);
-		
-		/* Add all the ranges and markup items to the EARMARK document */
-		params.clear();
-		params.add(EARMARKClassURI.XPATH_POINTER_RANGE);
-		params.add(EARMARKClassURI.POINTER_RANGE);
-		params.add(EARMARKClassURI.XPATH_RANGE);
-		params.add(EARMARKClassURI.RANGE);
-		params.add(EARMARKClassURI.ELEMENT);
-		params.add(EARMARKClassURI.ATTRIBUTE);
-		params.add(EARMARKClassURI.COMMENT);
-		params.add(EARMARKClassURI.MARKUP_ITEM);
-		apply(params);
+		/* Find the class of all the items at once, before reading them */
+		itemsByClass = classify();
+		
+		try {
+			/* Add all the docuverses to the EARMARK document (it has to be done
+			 * before everything else, because the other nodes have to used them) */
+			ArrayList<URI> params = new ArrayList<URI>();
+			params.add(EARMARKClassURI.URI_DOCUVERSE);
+			params.add(EARMARKClassURI.STRING_DOCUVERSE);
+			params.add(EARMARKClassURI.DOCUVERSE);
+			apply(params);
+			
+			/* Add all the ranges and markup items to the EARMARK document */
+			params.clear();
+			params.add(EARMARKClassURI.XPATH_POINTER_RANGE);
+			params.add(EARMARKClassURI.POINTER_RANGE);
+			params.add(EARMARKClassURI.XPATH_RANGE);
+			params.add(EARMARKClassURI.RANGE);
+			params.add(EARMARKClassURI.ELEMENT);
+			params.add(EARMARKClassURI.ATTRIBUTE);
+			params.add(EARMARKClassURI.COMMENT);
+			params.add(EARMARKClassURI.MARKUP_ITEM);
+			apply(params);
+		} finally {
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
 		
 		/* Build the hierarchies among markup items */
 		Iterator<EARMARKChildNode> roots = setRoots().iterator(); /* Find and set all the roots */
@@ -327,23 +471,29 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
+	/* Find the roots of the document, i.e., the nodes that are not contained by any markup item, through
+	 * two indexes built scanning once the statements about the collections: the resources referring to
+	 * each node and the items contained by some markup item */
 	private Set<EARMARKChildNode> setRoots() {
 		Set<EARMARKChildNode> result = new HashSet<EARMARKChildNode>();
 		
+		Map<Resource, Set<Resource>> containers = new HashMap<Resource, Set<Resource>>();
+		addContainers(containers, pitemcontent_r);
+		addContainers(containers, pelement_r);
+		Set<Resource> itemsInMarkupItems = findItemsInMarkupItems();
+		
 		Iterator<EARMARKChildNode> nodes = document.getAllEARMARKNode().iterator();
 		while (nodes.hasNext()) {
 			EARMARKChildNode node = nodes.next();
-			Resource resource = model.createResource(node.hasId().toString());
-			Set<Resource> contents = model.listResourcesWithProperty(pitemcontent_r, resource).toSet();
-			contents.addAll(model.listResourcesWithProperty(pelement_r, resource).toSet());
-			if (contents.isEmpty()) {
+			Set<Resource> contents = containers.get(model.createResource(node.hasId().toString()));
+			if (contents == null) {
 				result.add(node);
 				document.appendChild(node);
 			} else {
 				Iterator<Resource> itemContents = contents.iterator();
 				while (itemContents.hasNext()) {
 					Resource item = itemContents.next();
-					if (!visited.contains(item) && !isItemInMarkupItem(item, new HashSet<Resource>())) {
+					if (!visited.contains(item) && !itemsInMarkupItems.contains(item)) {
 						result.add(node);
 						document.appendChild(node);
 					}
@@ -354,189 +504,325 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private boolean isItemInMarkupItem(Resource item, Set<Resource> visitedItems) {
-		if (!visitedItems.contains(item)) {
-			visitedItems.add(item);
-			
-			Set<Resource> subjects = model.listResourcesWithProperty(pitem_r, item).toSet();
-			subjects.addAll(model.listResourcesWithProperty(pfirstitem_r, item).toSet());
-			subjects.addAll(model.listResourcesWithProperty(plastitem_r, item).toSet());
-			Iterator<Resource> subjectsIte = subjects.iterator();
-			while (subjectsIte.hasNext()) {
-				Resource resource = subjectsIte.next();
-				if (
-						visited.contains(resource) && 
-						document.getEntityById(resource.getURI()) instanceof MarkupItem) {
-					return true;
+	/* Associate each object of the property specified to the subjects referring to it */
+	private void addContainers(Map<Resource, Set<Resource>> containers, Property property) {
+		StmtIterator ite = model.listStatements(null, property, (RDFNode) null);
+		while (ite.hasNext()) {
+			Statement statement = ite.nextStatement();
+			RDFNode object = statement.getObject();
+			if (object.isResource()) {
+				Set<Resource> subjects = containers.get(object);
+				if (subjects == null) {
+					subjects = new HashSet<Resource>();
+					containers.put((Resource) object, subjects);
 				}
+				subjects.add(statement.getSubject());
 			}
-			
-			Set<Resource> objects = model.listResourcesWithProperty(pnextitem_r, item).toSet();
-			NodeIterator nodes = model.listObjectsOfProperty(item, ppreviousitem_r);
-			while (nodes.hasNext()) {
-				RDFNode node = nodes.next();
-				if (node.isResource()) {
-					objects.add((Resource) node);
+		}
+	}
+	
+	/* Return the items referred by a markup item through the properties item, firstItem and lastItem,
+	 * and the items following them through the properties nextItem and previousItem */
+	private Set<Resource> findItemsInMarkupItems() {
+		Set<Resource> result = new HashSet<Resource>();
+		
+		Map<Resource, List<Resource>> following = new HashMap<Resource, List<Resource>>();
+		StmtIterator ite = model.listStatements(null, pnextitem_r, (RDFNode) null);
+		while (ite.hasNext()) {
+			Statement statement = ite.nextStatement();
+			if (statement.getObject().isResource()) {
+				addFollowing(following, statement.getSubject(), (Resource) statement.getObject());
+			}
+		}
+		ite = model.listStatements(null, ppreviousitem_r, (RDFNode) null);
+		while (ite.hasNext()) {
+			Statement statement = ite.nextStatement();
+			if (statement.getObject().isResource()) {
+				addFollowing(following, (Resource) statement.getObject(), statement.getSubject());
+			}
+		}
+		
+		Stack<Resource> toVisit = new Stack<Resource>();
+		for (Property property : new Property[] { pitem_r, pfirstitem_r, plastitem_r }) {
+			ite = model.listStatements(null, property, (RDFNode) null);
+			while (ite.hasNext()) {
+				Statement statement = ite.nextStatement();
+				Resource subject = statement.getSubject();
+				if (
+						statement.getObject().isResource() && visited.contains(subject) &&
+						document.getEntityById(subject.getURI()) instanceof MarkupItem) {
+					toVisit.push((Resource) statement.getObject());
 				}
 			}
-			Iterator<Resource> objectsIte = objects.iterator();
-			while (objectsIte.hasNext()) {
-				if (isItemInMarkupItem(objectsIte.next(), visitedItems)) {
-					return true;
+		}
+		
+		while (!toVisit.isEmpty()) {
+			Resource item = toVisit.pop();
+			if (result.add(item)) {
+				List<Resource> next = following.get(item);
+				if (next != null) {
+					toVisit.addAll(next);
 				}
 			}
 		}
 		
-		return false;
+		return result;
+	}
+	
+	private void addFollowing(Map<Resource, List<Resource>> following, Resource item, Resource next) {
+		List<Resource> list = following.get(item);
+		if (list == null) {
+			list = new ArrayList<Resource>(1);
+			following.put(item, list);
+		}
+		list.add(next);
 	}
 	
 	private void apply(List<URI> orderedURIs) { // Ritorna gli statement considerati
 		for (URI uri : orderedURIs) {
 			Resource currentTypeClass = model.createResource(uri.toString());
 			
-			Set<Resource> resources = model.listResourcesWithProperty(RDF.type, currentTypeClass).toSet();
-			
-			resources.addAll(getResourceByProperties(currentTypeClass));
+			List<Resource> ordered = itemsByClass.get(currentTypeClass);
+			if (ordered == null) {
+				continue;
+			}
 			
-			Iterator<Resource> ite = resources.iterator();
-			while (ite.hasNext()) {
-				forwardMethodRequest(ite.next(), currentTypeClass);
+			/* The properties of the items are built from the descriptions, possibly in parallel, and then the 
+			 * items are added to the document by this thread in a single step, in the same order */
+			List<Map<String, Object>> properties = buildProperties(ordered, currentTypeClass);
+			for (int i = 0; i < ordered.size(); i++) {
+				forwardMethodRequest(ordered.get(i), currentTypeClass, properties.get(i));
 			}
 		}
 	}
 	
-	private Set<Resource> getResourceByProperties(Resource type) {
-		Set<Resource> result = new HashSet<Resource>();
+	/* Return the properties of the items of a certain class described by the resources specified, in the 
+	 * same order. The tasks building them only read the descriptions. */
+	private List<Map<String, Object>> buildProperties(final List<Resource> resources, final Resource type) {
+		final List<Map<String, Object>> result = new ArrayList<Map<String, Object>>(resources.size());
+		for (int i = 0; i < resources.size(); i++) {
+			result.add(null);
+		}
 		
-		if (
-				type.equals(docuverse_r) ||
-				type.equals(stringdocuverse_r) ||
-				type.equals(uridocuverse_r)) {
-			ResIterator resources = model.listResourcesWithProperty(phascontent_r);
-			while (resources.hasNext()) {
-				Resource resource = resources.next();
-				boolean isURI = 
-					resource.getProperty(phascontent_r).getObject().asNode().getLiteralDatatype().equals(
-							XSDDatatype.XSDanyURI);
-				
-				Set<RDFNode> resourceTypes = model.listObjectsOfProperty(resource, RDF.type).toSet();
-				if (type.equals(uridocuverse_r) && isURI 
-						&& !resourceTypes.contains(stringdocuverse_r)) {
-					result.add(resource);
-				} else if (type.equals(stringdocuverse_r) && !isURI 
-						&& !resourceTypes.contains(uridocuverse_r)) {
-					result.add(resource);
-				} else if (type.equals(docuverse_r) 
-						&& !resourceTypes.contains(uridocuverse_r) 
-						&& !resourceTypes.contains(stringdocuverse_r)) {
-					result.add(resource);
-				}
+		int tasks = Math.min(parallelism, resources.size() / MIN_ITEMS_PER_TASK);
+		if (tasks <= 1) {
+			buildProperties(resources, type, result, 0, resources.size());
+		} else {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>();
+			int size = (resources.size() + tasks - 1) / tasks;
+			for (int i = 0; i < resources.size(); i += size) {
+				final int begin = i;
+				final int end = Math.min(resources.size(), i + size);
+				futures.add(getExecutor().submit(new Callable<Object>() {
+					@Override
+					public Object call() {
+						buildProperties(resources, type, result, begin, end);
+						return null;
+					}
+				}));
 			}
-		} else if (
-				type.equals(range_r) ||
-				type.equals(pointerrange_r)) {
-			Set<Resource> resources = model.listResourcesWithProperty(pbegins_r).toSet();
-			resources.addAll(model.listResourcesWithProperty(pends_r).toSet());
-			resources.addAll(model.listResourcesWithProperty(prefersto_r).toSet());
 			
-			for (Resource resource : resources) {
-				boolean isWithContext = 
-					!model.listObjectsOfProperty(resource, phasxpathcontext_r).toSet().isEmpty();
-				Set<RDFNode> resourceTypes = model.listObjectsOfProperty(resource, RDF.type).toSet();
-				
-				if (
-						!isWithContext && 
-						!resourceTypes.contains(xpathrange_r) &&
-						!resourceTypes.contains(xpathpointerrange_r)) {
-					result.add(resource);
+			for (int i = 0; i < futures.size(); i++) {
+				try {
+					futures.get(i).get();
+				} catch (Exception e) {
+					getLogger().warning("The properties of some items have been built sequentially" 
+							+ " [in 'buildProperties' method]\nException: " + e.getMessage());
+					buildProperties(resources, type, result, i * size, Math.min(resources.size(), (i + 1) * size));
 				}
 			}
-		} else if (
-				type.equals(xpathrange_r) ||
-				type.equals(xpathpointerrange_r)) {
-			result.addAll(model.listResourcesWithProperty(phasxpathcontext_r).toSet());
-		} else if (
-				type.equals(markupitem_r) ||
-				type.equals(element_r) ||
-				type.equals(attribute_r) ||
-				type.equals(comment_r)) {
-			Set<Resource> resources = model.listResourcesWithProperty(phasnamespace_r).toSet();
-			resources.addAll(model.listResourcesWithProperty(phasgeneralidentifier_r).toSet());
+		}
+		
+		return result;
+	}
+	
+	/* Store the properties of the items described by the resources in [begin, end) in the same positions 
+	 * of the result */
+	private void buildProperties(
+			List<Resource> resources, Resource type, List<Map<String, Object>> result, int begin, int end) {
+		for (int i = begin; i < end; i++) {
+			Description description = descriptions.get(resources.get(i));
+			Map<String, Object> properties = null;
 			
-			for (Resource resource : resources) {
-				Set<RDFNode> resourceTypes = model.listObjectsOfProperty(resource, RDF.type).toSet();
-				
-				if (
-						(type.equals(element_r)) && 
-						!resourceTypes.contains(attribute_r) &&
-						!resourceTypes.contains(comment_r)) {
-					result.add(resource);
-				} else if (
-						(type.equals(attribute_r)) && 
-						!resourceTypes.contains(element_r) &&
-						!resourceTypes.contains(comment_r)) {
-					result.add(resource);
-				} else if (
-						(type.equals(comment_r)) && 
-						!resourceTypes.contains(attribute_r) &&
-						!resourceTypes.contains(element_r)) {
-					result.add(resource);
-				} else if (
-						(type.equals(markupitem_r)) && 
-						!resourceTypes.contains(element_r) &&
-						!resourceTypes.contains(attribute_r) &&
-						!resourceTypes.contains(comment_r)) {
-					result.add(resource);
+			if (type.equals(docuverse_r) || type.equals(stringdocuverse_r) || type.equals(uridocuverse_r)) {
+				properties = addDocuverseProperties(description);
+			} else if (
+					type.equals(range_r) || type.equals(pointerrange_r) ||
+					type.equals(xpathrange_r) || type.equals(xpathpointerrange_r)) {
+				properties = addRangeProperties(description);
+			} else {
+				properties = addMarkupItemProperties(description);
+			}
+			
+			result.set(i, properties);
+		}
+	}
+	
+	/* Return the threads of this reading, creating them if needed */
+	private ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread result = new Thread(runnable, "EARMARK reader");
+					result.setDaemon(true);
+					return result;
+				}
+			});
+		}
+		
+		return executor;
+	}
+	
+	/* Group the resources by the class of the items they describe, looking at all the statements of the
+	 * model once: each resource belongs to the first class, in the order used for reading the items, it
+	 * either declares or can be inferred from its properties. The same pass copies the properties needed 
+	 * for creating the items into the descriptions of the resources. */
+	private Map<Resource, List<Resource>> classify() {
+		descriptions = new HashMap<Resource, Description>();
+		
+		StmtIterator ite = model.listStatements();
+		while (ite.hasNext()) {
+			Statement statement = ite.nextStatement();
+			Property predicate = statement.getPredicate();
+			RDFNode object = statement.getObject();
+			
+			if (predicate.equals(RDF.type)) {
+				if (object.isURIResource()) {
+					Description description = getDescription(descriptions, statement.getSubject());
+					description.types.add((Resource) object);
+					if (description.collectionType == null) {
+						if (object.equals(list_r)) {
+							description.collectionType = Collection.Type.List;
+						} else if (object.equals(bag_r)) {
+							description.collectionType = Collection.Type.Bag;
+						} else if (object.equals(set_r)) {
+							description.collectionType = Collection.Type.Set;
+						}
+					}
+				}
+			} else if (predicate.equals(phascontent_r)) {
+				Description description = getDescription(descriptions, statement.getSubject());
+				if (!description.hasContent) {
+					description.hasContent = true;
+					description.isURI = 
+						object.isLiteral() && 
+						XSDDatatype.XSDanyURI.equals(object.asNode().getLiteralDatatype());
+					description.content = getString(object);
 				}
+			} else if (predicate.equals(pbegins_r) || predicate.equals(pends_r) || predicate.equals(prefersto_r)) {
+				Description description = getDescription(descriptions, statement.getSubject());
+				description.hasRangeProperties = true;
+				if (predicate.equals(pbegins_r)) {
+					description.begins = (description.begins == null ? getString(object) : description.begins);
+				} else if (predicate.equals(pends_r)) {
+					description.ends = (description.ends == null ? getString(object) : description.ends);
+				} else if (description.refersTo == null && object.isURIResource()) {
+					description.refersTo = object.asNode().getURI();
+				}
+			} else if (predicate.equals(phasxpathcontext_r)) {
+				Description description = getDescription(descriptions, statement.getSubject());
+				if (!description.hasXPathContext) {
+					description.hasXPathContext = true;
+					description.xpathContext = object.toString();
+				}
+			} else if (predicate.equals(phasgeneralidentifier_r) || predicate.equals(phasnamespace_r)) {
+				Description description = getDescription(descriptions, statement.getSubject());
+				description.hasMarkupItemProperties = true;
+				if (predicate.equals(phasgeneralidentifier_r)) {
+					description.generalIdentifier = (description.generalIdentifier == null ? 
+							getString(object) : description.generalIdentifier);
+				} else {
+					description.namespace = (description.namespace == null ? 
+							getString(object) : description.namespace);
+				}
+			} else if (predicate.equals(pfirstitem_r) || predicate.equals(plastitem_r)) {
+				getDescription(descriptions, statement.getSubject()).hasListItems = true;
+			} else if (predicate.equals(pitem_r)) {
+				getDescription(descriptions, statement.getSubject()).hasBagItems = true;
+			} else if (predicate.equals(pelement_r)) {
+				getDescription(descriptions, statement.getSubject()).hasElements = true;
+			}
+		}
+		
+		Map<Resource, List<Resource>> result = new HashMap<Resource, List<Resource>>();
+		for (Map.Entry<Resource, Description> entry : descriptions.entrySet()) {
+			Resource itemClass = entry.getValue().getItemClass();
+			if (itemClass != null) {
+				addItem(result, itemClass, entry.getKey());
 			}
 		}
 		
 		return result;
 	}
 	
-	private EARMARKItem forwardMethodRequest(Resource resource, Resource type) {
+	private Description getDescription(Map<Resource, Description> descriptions, Resource resource) {
+		Description result = descriptions.get(resource);
+		if (result == null) {
+			result = new Description();
+			result.uri = resource.getURI();
+			descriptions.put(resource, result);
+		}
+		return result;
+	}
+	
+	/* Return the lexical form of a literal, or null if the node is not a literal */
+	private String getString(RDFNode node) {
+		return (node.isLiteral() ? ((Literal) node).getLexicalForm() : null);
+	}
+	
+	private void addItem(Map<Resource, List<Resource>> items, Resource itemClass, Resource resource) {
+		List<Resource> list = items.get(itemClass);
+		if (list == null) {
+			list = new ArrayList<Resource>();
+			items.put(itemClass, list);
+		}
+		list.add(resource);
+	}
+	
+	private EARMARKItem forwardMethodRequest(Resource resource, Resource type, Map<String, Object> map) {
 		EARMARKItem result = null;
 		
 		try {
 			if (type.equals(docuverse_r)) {
-				result = readDocuverse(resource);
+				result = readDocuverse(resource, map);
 				removeDocuverseStatements(result);
 			} else if (type.equals(stringdocuverse_r)) {
-				result = readStringDocuverse(resource);
+				result = readStringDocuverse(resource, map);
 				removeDocuverseStatements(result);
 			} else if (type.equals(uridocuverse_r)) {
-				result = readURIDocuverse(resource);
+				result = readURIDocuverse(resource, map);
 				removeDocuverseStatements(result);
 			} else if (type.equals(range_r)) {
-				result = readRange(resource);
+				result = readRange(resource, map);
 				removeRangeStatements(result);
 				visited.add(resource);
 			} else if (type.equals(pointerrange_r)) {
-				result = readPointerRange(resource);
+				result = readPointerRange(resource, map);
 				removeRangeStatements(result);
 				visited.add(resource);
 			} else if (type.equals(xpathrange_r)) {
-				result = readXPathRange(resource);
+				result = readXPathRange(resource, map);
 				removeRangeStatements(result);
 				visited.add(resource);
 			} else if (type.equals(xpathpointerrange_r)) {
-				result = readXPathPointerRange(resource);
+				result = readXPathPointerRange(resource, map);
 				removeRangeStatements(result);
 				visited.add(resource);
 			} else if (type.equals(markupitem_r)) {
-				result = readMarkupItem(resource);
+				result = readMarkupItem(resource, map);
 				removeMarkupItemStatements(result);
 				visited.add(resource);
 			} else if (type.equals(element_r)) {
-				result = readElement(resource);
+				result = readElement(resource, map);
 				removeMarkupItemStatements(result);
 				visited.add(resource);
 			} else if (type.equals(attribute_r)) {
-				result = readAttribute(resource);
+				result = readAttribute(resource, map);
 				removeMarkupItemStatements(result);
 				visited.add(resource);
 			} else if (type.equals(comment_r)) {
-				result = readComment(resource);
+				result = readComment(resource, map);
 				removeMarkupItemStatements(result);
 				visited.add(resource);
 			}
@@ -548,15 +834,13 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private PointerRange readPointerRange(Resource resource) {
+	private PointerRange readPointerRange(Resource resource, Map<String, Object> map) {
 		PointerRange result = null;
 		
-		Map<String, Object> map = addRangeProperties(resource);
-		
 		try {
 			result = document.createPointerRange(
 					(URI) map.get("id"), 
-					(Docuverse) map.get("refersTo"), 
+					getDocuverse((String) map.get("refersTo")), 
 					(Integer) map.get("begins"), 
 					(Integer) map.get("ends"));
 		} catch (NullPointerException e) {
@@ -573,22 +857,13 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private XPathPointerRange readXPathPointerRange(Resource resource) {
+	private XPathPointerRange readXPathPointerRange(Resource resource, Map<String, Object> map) {
 		XPathPointerRange result = null;
 		
-		Map<String, Object> map = addRangeProperties(resource);
-		
-		Statement hasXPathContext = resource.getProperty(phasxpathcontext_r);
-		try {
-			map.put("hasXPathContext", hasXPathContext.getObject().toString());
-		} catch (Exception e) {
-			map.put("hasXPathContext", null);
-		}
-		
 		try {
 			result = document.createXPathPointerRange(
 					(URI) map.get("id"), 
-					(Docuverse) map.get("refersTo"),
+					getDocuverse((String) map.get("refersTo")),
 					(Integer) map.get("begins"), 
 					(Integer) map.get("ends"),
 					(String) map.get("hasXPathContext"));
@@ -606,57 +881,57 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private Map<String, Object> addRangeProperties(Resource resource) {
+	private Map<String, Object> addRangeProperties(Description description) {
 		Map<String, Object> result = new HashMap<String, Object>();
 		
-		result.put("id", getId(resource));
+		result.put("id", getId(description));
 		
-		Statement begins = resource.getProperty(pbegins_r);
 		try {
-			result.put("begins", new Integer (begins.getString()));
+			result.put("begins", Integer.valueOf(description.begins));
 		} catch (Exception e) {
 			result.put("begins", null);
 		}
 		
-		Statement ends = resource.getProperty(pends_r);
 		try {
-			result.put("ends", new Integer (ends.getString()));
+			result.put("ends", Integer.valueOf(description.ends));
 		} catch (Exception e) {
 			result.put("ends", null);
 		}
 		
-		Statement refersTo = resource.getProperty(prefersto_r);
+		result.put("refersTo", description.refersTo);
+		result.put("hasXPathContext", description.xpathContext);
+		
+		return result;
+	}
+	
+	/* Return the docuverse having the id specified, which has been added to the document already */
+	private Docuverse getDocuverse(String id) {
 		try {
-			result.put("refersTo", document.getEntityById(refersTo.getObject().asNode().getURI()));
+			return (Docuverse) document.getEntityById(id);
 		} catch (Exception e) {
-			result.put("refersTo", null);
+			return null;
 		}
-		
-		return result;
 	}
 	
-	private Range readRange(Resource resource) {
+	private Range readRange(Resource resource, Map<String, Object> map) {
 		Range result = null;
 		
-		Statement hasXPathContext = resource.getProperty(phasxpathcontext_r);
-		if (hasXPathContext == null) {
-			result = readPointerRange(resource);
+		if (map.get("hasXPathContext") == null) {
+			result = readPointerRange(resource, map);
 		} else {
-			result = readXPathRange(resource);
+			result = readXPathRange(resource, map);
 		}
 		
 		return result;
 	}
 	
-	private Range readXPathRange(Resource resource) {
-		return readXPathPointerRange(resource);
+	private Range readXPathRange(Resource resource, Map<String, Object> map) {
+		return readXPathPointerRange(resource, map);
 	}
 
-	private Element readElement(Resource resource) {
+	private Element readElement(Resource resource, Map<String, Object> map) {
 		Element result = null;
 		
-		Map<String, Object> map = addMarkupItemProperties(resource);
-		
 		try {
 			result = document.createElement(
 					(URI) map.get("id"),
@@ -677,11 +952,9 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private Attribute readAttribute(Resource resource) {
+	private Attribute readAttribute(Resource resource, Map<String, Object> map) {
 		Attribute result = null;
 		
-		Map<String, Object> map = addMarkupItemProperties(resource);
-		
 		try {
 			result = document.createAttribute(
 					(URI) map.get("id"),
@@ -702,11 +975,9 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private Comment readComment(Resource resource) {
+	private Comment readComment(Resource resource, Map<String, Object> map) {
 		Comment result = null;
 		
-		Map<String, Object> map = addMarkupItemProperties(resource);
-		
 		try {
 			result = document.createComment(
 					(URI) map.get("id"),
@@ -727,55 +998,32 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private Map<String, Object> addMarkupItemProperties(Resource resource) {
+	private Map<String, Object> addMarkupItemProperties(Description description) {
 		Map<String, Object> result = new HashMap<String, Object>();
 		
-		result.put("id", getId(resource));
+		result.put("id", getId(description));
 		
-		Statement hasNamespace = resource.getProperty(phasnamespace_r);
 		try {
-			result.put("hasNamespace", URI.create(hasNamespace.getString()));
+			result.put("hasNamespace", URI.create(description.namespace));
 		} catch (Exception e) {
 			result.put("hasNamespace", null);
 		}
 		
-		Statement hasGeneralIdentifier = resource.getProperty(phasgeneralidentifier_r);
-		try {
-			result.put("hasGeneralIdentifier", hasGeneralIdentifier.getString());
-		} catch (Exception e) {
-			result.put("hasGeneralIdentifier", null);
-		}
-		
-		result.put("type", getType(resource));
+		result.put("hasGeneralIdentifier", description.generalIdentifier);
+		result.put("type", getType(description));
 		
 		return result;
 	}
 	
-	private Collection.Type getType(Resource resource) {
-		Collection.Type result = null;
-		
-		StmtIterator ite = resource.listProperties(RDF.type);
-		while (ite.hasNext() && result == null) {
-			RDFNode object = ite.next().getObject();
-			if (object.isURIResource()) {
-				URI currentType = URI.create(object.asNode().getURI());
-				
-				if (currentType.equals(EARMARKClassURI.LIST)) {
-					result = Collection.Type.List;
-				} else if (currentType.equals(EARMARKClassURI.BAG)) {
-					result = Collection.Type.Bag;
-				} else if (currentType.equals(EARMARKClassURI.SET)) {
-					result = Collection.Type.Set;
-				}
-			}
-		}
+	private Collection.Type getType(Description description) {
+		Collection.Type result = description.collectionType;
 		
 		if (result == null) {
-			if (resource.getProperty(pfirstitem_r) != null || resource.getProperty(plastitem_r) != null) {
+			if (description.hasListItems) {
 				result = Collection.Type.List;
-			} else if (resource.getProperty(pitem_r) != null) {
+			} else if (description.hasBagItems) {
 				result = Collection.Type.Bag;
-			} else if (resource.getProperty(pelement_r) != null) {
+			} else if (description.hasElements) {
 				result = Collection.Type.Set;
 			} else { // Default without explicit declaration and no child
 				result = Collection.Type.List;
@@ -785,15 +1033,13 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private MarkupItem readMarkupItem(Resource resource) {
-		return readElement(resource);
+	private MarkupItem readMarkupItem(Resource resource, Map<String, Object> map) {
+		return readElement(resource, map);
 	}
 	
-	private StringDocuverse readStringDocuverse(Resource resource) {
+	private StringDocuverse readStringDocuverse(Resource resource, Map<String, Object> map) {
 		StringDocuverse result = null;
 		
-		Map<String, Object> map = addDocuverseProperties(resource);
-		
 		try {
 			result = document.createStringDocuverse(
 					(URI) map.get("id"),
@@ -812,11 +1058,9 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private URIDocuverse readURIDocuverse(Resource resource) {
+	private URIDocuverse readURIDocuverse(Resource resource, Map<String, Object> map) {
 		URIDocuverse result = null;
 		
-		Map<String, Object> map = addDocuverseProperties(resource);
-		
 		try {
 			result = document.createURIDocuverse(
 					(URI) map.get("id"),
@@ -835,42 +1079,31 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		return result;
 	}
 	
-	private Map<String, Object> addDocuverseProperties(Resource resource) {
+	private Map<String, Object> addDocuverseProperties(Description description) {
 		Map<String, Object> result = new HashMap<String, Object>();
 		
-		result.put("id", getId(resource));
-		
-		Statement hasContent = resource.getProperty(phascontent_r);
-		try {
-			result.put("hasContent", hasContent.getString());
-		} catch (Exception e) {
-			result.put("hasContent", null);
-		}
+		result.put("id", getId(description));
+		result.put("hasContent", description.content);
+		result.put("isURI", description.isURI);
 		
 		return result;
 	}
 	
-	private Docuverse readDocuverse(Resource resource) {
+	private Docuverse readDocuverse(Resource resource, Map<String, Object> map) {
 		Docuverse result = null;
 		
-		Statement hasContent = resource.getProperty(phascontent_r);
-		
-		try {
-			if (hasContent.getObject().asNode().getLiteralDatatype().equals(XSDDatatype.XSDanyURI)) {
-				result = readURIDocuverse(resource);
-			} else {
-				result = readStringDocuverse(resource);
-			}
-		} catch (Exception e) {
-			result = readStringDocuverse(resource);
+		if (Boolean.TRUE.equals(map.get("isURI"))) {
+			result = readURIDocuverse(resource, map);
+		} else {
+			result = readStringDocuverse(resource, map);
 		}
 		
 		return result;
 	}
 	
-	private URI getId(Resource resource) {
+	private URI getId(Description description) {
 		try {
-			return URI.create(resource.getURI());
+			return URI.create(description.uri);
 		} catch (Exception e) {
 			return null;
 		}
@@ -931,48 +1164,7 @@ public class JenaReader extends EARMARKBaseLogger implements EARMARKReader {
 		removeOWLStandardStatements(resource);
 	}
 	
-	private void initializeResources() {
-		/* Initialize the EARMARK classes */
-		markupitem_r = model.createResource(EARMARKClassURI.MARKUP_ITEM.toString());
-		element_r = model.createResource(EARMARKClassURI.ELEMENT.toString());
-		attribute_r = model.createResource(EARMARKClassURI.ATTRIBUTE.toString());
-		comment_r = model.createResource(EARMARKClassURI.COMMENT.toString());
-		docuverse_r = model.createResource(EARMARKClassURI.DOCUVERSE.toString());
-		stringdocuverse_r = model.createResource(EARMARKClassURI.STRING_DOCUVERSE.toString());
-		uridocuverse_r = model.createResource(EARMARKClassURI.URI_DOCUVERSE.toString());
-		range_r = model.createResource(EARMARKClassURI.RANGE.toString());
-		pointerrange_r = model.createResource(EARMARKClassURI.POINTER_RANGE.toString());
-		xpathrange_r = model.createResource(EARMARKClassURI.XPATH_RANGE.toString());
-		xpathpointerrange_r = model.createResource(EARMARKClassURI.XPATH_POINTER_RANGE.toString());
-		set_r = model.createResource(EARMARKClassURI.SET.toString());
-		bag_r = model.createResource(EARMARKClassURI.BAG.toString());
-		list_r = model.createResource(EARMARKClassURI.LIST.toString());
-		item_r = model.createResource(EARMARKClassURI.ITEM.toString());
-		listitem_r = model.createResource(EARMARKClassURI.LIST_ITEM.toString());
-		collection_r = model.createResource(EARMARKClassURI.COLLECTION.toString());
-		
-		/* Initialize the EARMARK properties */
-		pbegins_r = model.createProperty(EARMARKPropertyURI.BEGINS.toString());
-		pends_r = model.createProperty(EARMARKPropertyURI.ENDS.toString());
-		prefersto_r = model.createProperty(EARMARKPropertyURI.REFERS_TO.toString());
-		phasxpathcontext_r = model.createProperty(EARMARKPropertyURI.HAS_XPATH_CONTEXT.toString());
-		phascontent_r = model.createProperty(EARMARKPropertyURI.HAS_CONTENT.toString());
-		phasgeneralidentifier_r = model.createProperty(EARMARKPropertyURI.HAS_GENERAL_IDENTIFIER.toString());
-		phasnamespace_r = model.createProperty(EARMARKPropertyURI.HAS_NAMESPACE.toString());
-		
-		pfollowedby_r = model.createProperty(EARMARKPropertyURI.FOLLOWED_BY.toString());
-		ppreceededby_r = model.createProperty(EARMARKPropertyURI.PRECEEDED_BY.toString());
-		pnextitem_r = model.createProperty(EARMARKPropertyURI.NEXT_ITEM.toString());
-		ppreviousitem_r = model.createProperty(EARMARKPropertyURI.PREVIOUS_ITEM.toString());
-		pelement_r = model.createProperty(EARMARKPropertyURI.ELEMENT.toString());
-		pfirstitem_r = model.createProperty(EARMARKPropertyURI.FIRST_ITEM.toString());
-		plastitem_r = model.createProperty(EARMARKPropertyURI.LAST_ITEM.toString());
-		pitem_r = model.createProperty(EARMARKPropertyURI.ITEM.toString());
-		pitemcontent_r = model.createProperty(EARMARKPropertyURI.ITEM_CONTENT.toString());
-		psize_r = model.createProperty(EARMARKPropertyURI.SIZE.toString());
-	}
-	
 	private Logger getLogger() {
-		return getLogger(JenaReader.class);
+		return owner.getLogger(JenaReader.class);
 	}
 }
@@ -11,18 +11,23 @@ import it.essepuntato.earmark.core.EARMARKItem;
 import it.essepuntato.earmark.core.EARMARKNode;
 import it.essepuntato.earmark.core.EARMARKOntologyURI;
 import it.essepuntato.earmark.core.EARMARKPropertyURI;
+import it.essepuntato.earmark.core.EditableDocuverse;
 import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.MappedFileDocuverse;
 import it.essepuntato.earmark.core.MarkupItem;
 import it.essepuntato.earmark.core.PointerRange;
 import it.essepuntato.earmark.core.Range;
+import it.essepuntato.earmark.core.RangeTable;
 import it.essepuntato.earmark.core.StringDocuverse;
 import it.essepuntato.earmark.core.URIDocuverse;
 import it.essepuntato.earmark.core.XPathPointerRange;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.net.URI;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -36,6 +41,7 @@ import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.Property;
 import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
 import com.hp.hpl.jena.rdf.model.Statement;
 import com.hp.hpl.jena.vocabulary.OWL;
 import com.hp.hpl.jena.vocabulary.RDF;
@@ -47,40 +53,54 @@ import com.hp.hpl.jena.vocabulary.RDF;
  *
  */
 public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
-	private boolean removeOWLStandardStatement = true;
+	private volatile boolean removeOWLStandardStatement = true;
 	private EARMARKDocument document = null;
 	private Set<EARMARKItem> visited = new HashSet<EARMARKItem>();
 	private Model model = null;
 	private Map<String,String> prefixes = new HashMap<String,String>();
+	/* The writer whose log is used, i.e., this one or the writer that created this one for a single writing */
+	private JenaWriter owner = this;
 	
-	private Resource element_r;
-	private Resource attribute_r;
-	private Resource comment_r;
-	private Resource stringdocuverse_r;
-	private Resource uridocuverse_r;
-	private Resource pointerrange_r;
-	private Resource xpathpointerrange_r;
-	private Resource set_r;
-	private Resource bag_r;
-	private Resource list_r;
-	private Resource item_r;
-	private Resource listitem_r;
+	private static final Resource element_r = ResourceFactory.createResource(EARMARKClassURI.ELEMENT.toString());
+	private static final Resource attribute_r = ResourceFactory.createResource(EARMARKClassURI.ATTRIBUTE.toString());
+	private static final Resource comment_r = ResourceFactory.createResource(EARMARKClassURI.COMMENT.toString());
+	private static final Resource stringdocuverse_r = ResourceFactory.createResource(EARMARKClassURI.STRING_DOCUVERSE.toString());
+	private static final Resource uridocuverse_r = ResourceFactory.createResource(EARMARKClassURI.URI_DOCUVERSE.toString());
+	private static final Resource pointerrange_r = ResourceFactory.createResource(EARMARKClassURI.POINTER_RANGE.toString());
+	private static final Resource xpathpointerrange_r = ResourceFactory.createResource(EARMARKClassURI.XPATH_POINTER_RANGE.toString());
+	private static final Resource set_r = ResourceFactory.createResource(EARMARKClassURI.SET.toString());
+	private static final Resource bag_r = ResourceFactory.createResource(EARMARKClassURI.BAG.toString());
+	private static final Resource list_r = ResourceFactory.createResource(EARMARKClassURI.LIST.toString());
+	private static final Resource item_r = ResourceFactory.createResource(EARMARKClassURI.ITEM.toString());
+	private static final Resource listitem_r = ResourceFactory.createResource(EARMARKClassURI.LIST_ITEM.toString());
 	
-	private Property phasgeneralidentifier_r;
-	private Property phasnamespace_r;
-	private Property phascontent_r;
-	private Property pelement_r;
-	private Property pitem_r;
-	private Property pfirstitem_r;
-	private Property pnextitem_r;
-	private Property pbegins_r;
-	private Property pends_r;
-	private Property prefersto_r;
-	private Property phasxpathcontext_r;
-	private Property pitemcontent_r;
-	private Property ppreviousitem_r;
-	private Property psize_r;
-	private Property plastitem_r;
+	private static final Property phasgeneralidentifier_r = ResourceFactory.createProperty(EARMARKPropertyURI.HAS_GENERAL_IDENTIFIER.toString());
+	private static final Property phasnamespace_r = ResourceFactory.createProperty(EARMARKPropertyURI.HAS_NAMESPACE.toString());
+	private static final Property phascontent_r = ResourceFactory.createProperty(EARMARKPropertyURI.HAS_CONTENT.toString());
+	private static final Property pelement_r = ResourceFactory.createProperty(EARMARKPropertyURI.ELEMENT.toString());
+	private static final Property pitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.ITEM.toString());
+	private static final Property pfirstitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.FIRST_ITEM.toString());
+	private static final Property pnextitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.NEXT_ITEM.toString());
+	private static final Property pbegins_r = ResourceFactory.createProperty(EARMARKPropertyURI.BEGINS.toString());
+	private static final Property pends_r = ResourceFactory.createProperty(EARMARKPropertyURI.ENDS.toString());
+	private static final Property prefersto_r = ResourceFactory.createProperty(EARMARKPropertyURI.REFERS_TO.toString());
+	private static final Property phasxpathcontext_r = ResourceFactory.createProperty(EARMARKPropertyURI.HAS_XPATH_CONTEXT.toString());
+	private static final Property pitemcontent_r = ResourceFactory.createProperty(EARMARKPropertyURI.ITEM_CONTENT.toString());
+	private static final Property ppreviousitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.PREVIOUS_ITEM.toString());
+	private static final Property psize_r = ResourceFactory.createProperty(EARMARKPropertyURI.SIZE.toString());
+	private static final Property plastitem_r = ResourceFactory.createProperty(EARMARKPropertyURI.LAST_ITEM.toString());
+	
+	/**
+	 * Create a new writer.
+	 */
+	public JenaWriter() {
+	}
+	
+	/* Create a writer for a single writing, having the settings and the log of the writer specified */
+	private JenaWriter(JenaWriter owner) {
+		this.owner = owner;
+		removeOWLStandardStatement = owner.removeOWLStandardStatement;
+	}
 	
 	@Override
 	public String write(EARMARKDocument document) {
@@ -92,7 +112,13 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 		return write(document, file, RDFXML);
 	}
 	
-	private void setPrefixes(Model model) {
+	/**
+	 * This method sets the prefixes used for serialising a document in a model.
+	 * 
+	 * @param model the model to set the prefixes in.
+	 * @param document the document to serialise.
+	 */
+	protected void setPrefixes(Model model, EARMARKDocument document) {
 		model.setNsPrefix("earmark", EARMARKOntologyURI.EARMARK.toString() + "#");
 		model.setNsPrefix("co", EARMARKOntologyURI.COLLECTIONS.toString() + "/");
 		model.setNsPrefix("this", document.hasId().toString() + EARMARKDocument.SEPARATOR);
@@ -102,7 +128,9 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 		model.setNsPrefix("rdfs", "http://www.w3.org/2000/01/rdf-schema#");
 		model.setNsPrefix("prov", "http://www.w3.org/ns/prov#");
 		model.setNsPrefix("la", "http://www.ontologydesignpatterns.org/cp/owl/semiotics.owl#");
-		model.setNsPrefixes(prefixes);
+		synchronized (prefixes) {
+			model.setNsPrefixes(prefixes);
+		}
 	}
 	
 	@Override
@@ -111,7 +139,7 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 		
 		Model model = getModel(document);
 		try {
-			setPrefixes(model);
+			setPrefixes(model, document);
 			StringWriter writer = new StringWriter();
 			model.write(writer, format);
 			result = writer.toString();
@@ -129,8 +157,13 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 		
 		Model model = getModel(document);
 		try {
-			setPrefixes(model);
-			model.write(new FileWriter(file), format);
+			setPrefixes(model, document);
+			Writer writer = new BufferedWriter(new FileWriter(file));
+			try {
+				model.write(writer, format);
+			} finally {
+				writer.close();
+			}
 		} catch (IOException e) {
 			result = false;
 			getLogger().warning("The EARMARK document has not been stored in '" + file.toString() + "'" 
@@ -146,20 +179,36 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 	
 	@Override
 	public Model getModel(EARMARKDocument document) {
+		return addStatements(document, ModelFactory.createDefaultModel());
+	}
+	
+	/**
+	 * This method adds all the statements describing a document to a model, one at a time.
+	 * 
+	 * @param document the document to describe.
+	 * @param model the model the statements are added to.
+	 * @return the model specified.
+	 */
+	protected Model addStatements(EARMARKDocument document, Model model) {
+		/* A new writer is used for each document, so that the same writer can be used by several threads */
+		return new JenaWriter(this).addAllStatements(document, model);
+	}
+	
+	/* Add the statements describing a document to a model using the state of this writer, which is used for
+	 * a single writing */
+	private Model addAllStatements(EARMARKDocument document, Model model) {
 		this.document = document;
+		this.model = model;
 		
 		/* Add information about the document */
 		try {
 			String id = document.hasId().toString();
-			model = ModelFactory.createDefaultModel();
 			model.add(model.createResource(id), RDF.type, OWL.Ontology);
 			model.add(document.getModel());
 		} catch (NullPointerException e) {
 			return model;
 		}
 		
-		initializeResources();
-		
 		/* Add information about docuverses */
 		for (Docuverse docuverse : document.getAllDocuverses()) {
 			forwardMethodRequest(docuverse);
@@ -170,6 +219,15 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 			forwardMethodRequest(node);
 		}
 		
+		/* Add information about the rows of the range tables not yet visited as nodes */
+		for (RangeTable table : document.getRangeTables()) {
+			for (PointerRange row : table) {
+				if (!visited.contains(row)) {
+					forwardMethodRequest(row);
+				}
+			}
+		}
+		
 		return model;
 	}
 	
@@ -184,6 +242,12 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 			} else if (type == Docuverse.Type.URIDocuverse) {
 				result = readURIDocuverse((URIDocuverse) item);
 				visited.add(item);
+			} else if (type == Docuverse.Type.EditableDocuverse) {
+				result = readEditableDocuverse((EditableDocuverse) item);
+				visited.add(item);
+			} else if (type == Docuverse.Type.MappedFileDocuverse) {
+				result = readMappedFileDocuverse((MappedFileDocuverse) item);
+				visited.add(item);
 			} 
 		} catch (NullPointerException e) {
 			getLogger().warning("The docuverse " + item.hasId() + " has not been added to the model" 
@@ -201,6 +265,24 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 		return result;
 	}
 
+	/* Editable docuverses are stored as string docuverses, since the ontology does not define them */
+	private Resource readEditableDocuverse(EditableDocuverse item) {
+		Resource result = addDocuverseProperties(item, XSDDatatype.XSDstring);
+		
+		addOWLStatement(model.createStatement(result, RDF.type, stringdocuverse_r));
+		
+		return result;
+	}
+	
+	/* Mapped file docuverses are stored as URI docuverses, since the ontology does not define them */
+	private Resource readMappedFileDocuverse(MappedFileDocuverse item) {
+		Resource result = addDocuverseProperties(item, XSDDatatype.XSDanyURI);
+		
+		addOWLStatement(model.createStatement(result, RDF.type, uridocuverse_r));
+		
+		return result;
+	}
+
 	private Resource readStringDocuverse(StringDocuverse item) {
 		Resource result = addDocuverseProperties(item, XSDDatatype.XSDstring);
 		
@@ -212,7 +294,8 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 	private Resource addDocuverseProperties(Docuverse item, RDFDatatype type) {
 		Resource result = model.createResource(item.hasId().toString());
 		
-		Object content = item.hasContent();
+		/* The literal of string and editable docuverses is built from their textual content */
+		Object content = (type == XSDDatatype.XSDstring ? item.getText() : item.hasContent());
 		try {
 			result.addProperty(phascontent_r, content.toString(), type);
 		} catch (NullPointerException e) {
@@ -406,7 +489,13 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 		
 		return result;
 	}
-
+	
+	private void addOWLStatement(Statement statement) {
+		if (!removeOWLStandardStatement) {
+			model.add(statement);
+		}
+	}
+	
 	public void setRemoveOWLStandardStatements(boolean value) {
 		removeOWLStandardStatement = value;
 	}
@@ -416,52 +505,14 @@ public class JenaWriter extends EARMARKBaseLogger implements EARMARKWriter {
 	}
 	
 	private Logger getLogger() {
-		return getLogger(JenaWriter.class);
-	}
-	
-	private void addOWLStatement(Statement statement) {
-		if (!removeOWLStandardStatement) {
-			model.add(statement);
-		}
-	}
-
-	private void initializeResources() {
-		/* Initialize the EARMARK classes */
-		element_r = model.createResource(EARMARKClassURI.ELEMENT.toString());
-		attribute_r = model.createResource(EARMARKClassURI.ATTRIBUTE.toString());
-		comment_r = model.createResource(EARMARKClassURI.COMMENT.toString());
-		stringdocuverse_r = model.createResource(EARMARKClassURI.STRING_DOCUVERSE.toString());
-		uridocuverse_r = model.createResource(EARMARKClassURI.URI_DOCUVERSE.toString());
-		pointerrange_r = model.createResource(EARMARKClassURI.POINTER_RANGE.toString());
-		xpathpointerrange_r = model.createResource(EARMARKClassURI.XPATH_POINTER_RANGE.toString());
-		set_r = model.createResource(EARMARKClassURI.SET.toString());
-		bag_r = model.createResource(EARMARKClassURI.BAG.toString());
-		list_r = model.createResource(EARMARKClassURI.LIST.toString());
-		item_r = model.createResource(EARMARKClassURI.ITEM.toString());
-		listitem_r = model.createResource(EARMARKClassURI.LIST_ITEM.toString());
-		
-		/* Initialize the EARMARK properties */
-		pbegins_r = model.createProperty(EARMARKPropertyURI.BEGINS.toString());
-		pends_r = model.createProperty(EARMARKPropertyURI.ENDS.toString());
-		prefersto_r = model.createProperty(EARMARKPropertyURI.REFERS_TO.toString());
-		phasxpathcontext_r = model.createProperty(EARMARKPropertyURI.HAS_XPATH_CONTEXT.toString());
-		phascontent_r = model.createProperty(EARMARKPropertyURI.HAS_CONTENT.toString());
-		phasgeneralidentifier_r = model.createProperty(EARMARKPropertyURI.HAS_GENERAL_IDENTIFIER.toString());
-		phasnamespace_r = model.createProperty(EARMARKPropertyURI.HAS_NAMESPACE.toString());
-		
-		pnextitem_r = model.createProperty(EARMARKPropertyURI.NEXT_ITEM.toString());
-		ppreviousitem_r = model.createProperty(EARMARKPropertyURI.PREVIOUS_ITEM.toString());
-		pelement_r = model.createProperty(EARMARKPropertyURI.ELEMENT.toString());
-		pfirstitem_r = model.createProperty(EARMARKPropertyURI.FIRST_ITEM.toString());
-		plastitem_r = model.createProperty(EARMARKPropertyURI.LAST_ITEM.toString());
-		pitem_r = model.createProperty(EARMARKPropertyURI.ITEM.toString());
-		pitemcontent_r = model.createProperty(EARMARKPropertyURI.ITEM_CONTENT.toString());
-		psize_r = model.createProperty(EARMARKPropertyURI.SIZE.toString());
+		return owner.getLogger(JenaWriter.class);
 	}
 
 	@Override
 	public void addPrefixes(Map<String, String> prefixNsPair) {
-		prefixes.clear();
-		prefixes.putAll(prefixNsPair);
+		synchronized (prefixes) {
+			prefixes.clear();
+			prefixes.putAll(prefixNsPair);
+		}
 	}
 }
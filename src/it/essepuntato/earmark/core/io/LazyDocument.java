@@ -0,0 +1,781 @@
+package it.essepuntato.earmark.core.io;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EARMARKHierarchicalNode;
+import it.essepuntato.earmark.core.EARMARKItem;
+import it.essepuntato.earmark.core.EARMARKNode;
+import it.essepuntato.earmark.core.EARMARKSnapshot;
+import it.essepuntato.earmark.core.EditableDocuverse;
+import it.essepuntato.earmark.core.MarkupItem;
+import it.essepuntato.earmark.core.Range;
+import it.essepuntato.earmark.core.exception.EARMARKGraphException;
+import it.essepuntato.earmark.core.exception.ExistingIdException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+
+/**
+ * <p>An EARMARK document backed by a file stored by a BinaryWriter with the index enabled, which is
+ * memory-mapped and read only when needed.</p>
+ * <p>Opening the document reads its header and its footer only. An item is read from the file the first
+ * time it is reached, i.e., when it is asked through getEntityById, or when the children, the parents, the
+ * siblings or the text content of a node that contains it are asked. The docuverses are read together with
+ * the first range referring to them, and the additional assertions are read the first time the model or
+ * the assertions of an item are asked.</p>
+ * <p>All the methods involving the whole document (e.g., getAllEARMARKNode, the searches by general
+ * identifier and range location, the snapshots and the stores) and all the methods modifying it read the
+ * whole file first, through the method materializeAll. Since the ids of the items not yet read are not known,
+ * new items should be created only after having called it.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class LazyDocument extends EARMARKDocument {
+
+	private ByteBuffer buffer;
+	private String[] strings;
+	private int docuverseCount;
+	private int nodeCount;
+	private int rootsOffset;
+	private int assertionsOffset;
+	private int handleTableOffset;
+	private int idTableOffset;
+
+	/* The items read so far and their handles */
+	private Map<Integer, EARMARKItem> items = new HashMap<Integer, EARMARKItem>();
+	private Map<EARMARKItem, Integer> handles = new HashMap<EARMARKItem, Integer>();
+
+	/* The handles of the markup items whose children have been read */
+	private Set<Integer> childrenLoaded = new HashSet<Integer>();
+	private boolean rootsLoaded = false;
+	private boolean assertionsLoaded = false;
+	private volatile boolean allLoaded = false;
+
+	/* The number of items being created from the file, whose constructors set their ids */
+	private int materializing = 0;
+
+	private LazyDocument(URI id, ByteBuffer buffer, String[] strings) {
+		super(id);
+		this.buffer = buffer;
+		this.strings = strings;
+	}
+
+	/* Map the file and read its header and its footer */
+	static LazyDocument open(File file) throws IOException {
+		MappedByteBuffer buffer;
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = input.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			input.close();
+		}
+
+		byte[] magic = new byte[BinaryFormat.MAGIC.length];
+		buffer.get(magic);
+		if (!Arrays.equals(magic, BinaryFormat.MAGIC)) {
+			throw new IOException("The file '" + file + "' is not a binary EARMARK document");
+		}
+		int version = BinaryFormat.readNumber(buffer);
+		if (version != BinaryFormat.VERSION) {
+			throw new IOException("The version " + version + " of the binary format is not supported");
+		}
+
+		int footer = buffer.limit() - BinaryFormat.FOOTER_LENGTH;
+		magic = new byte[BinaryFormat.INDEX_MAGIC.length];
+		if (footer > buffer.position()) {
+			ByteBuffer end = buffer.duplicate();
+			end.position(buffer.limit() - magic.length);
+			end.get(magic);
+		}
+		if (!Arrays.equals(magic, BinaryFormat.INDEX_MAGIC)) {
+			throw new IOException("The file '" + file + "' does not contain the index of the document");
+		}
+
+		String[] strings = new String[BinaryFormat.readNumber(buffer)];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = BinaryFormat.readString(buffer);
+		}
+		URI id = URI.create(strings[BinaryFormat.readNumber(buffer)]);
+
+		LazyDocument result = new LazyDocument(id, buffer, strings);
+		result.docuverseCount = buffer.getInt(footer);
+		result.nodeCount = buffer.getInt(footer + 4);
+		result.rootsOffset = buffer.getInt(footer + 8);
+		result.assertionsOffset = buffer.getInt(footer + 12);
+		result.handleTableOffset = buffer.getInt(footer + 16);
+		result.idTableOffset = buffer.getInt(footer + 20);
+		return result;
+	}
+
+	/**
+	 * This method reads all the items, the hierarchy and the additional assertions of the document that
+	 * have not been read yet from the file, so that the document behaves as one loaded entirely.
+	 */
+	public synchronized void materializeAll() {
+		if (!allLoaded && materializing == 0) {
+			try {
+				for (int handle = 0; handle < docuverseCount + nodeCount; handle++) {
+					materialize(handle);
+				}
+				ensureRoots();
+				for (int handle = docuverseCount; handle < docuverseCount + nodeCount; handle++) {
+					ensureChildren(handle);
+				}
+				ensureAssertions();
+			} catch (IOException e) {
+				getLogger().warning("The EARMARK document has not been entirely read"
+						+ " [in 'materializeAll' method]\nException: " + e.getMessage());
+			}
+			allLoaded = true;
+		}
+	}
+
+	/**
+	 * This method returns the number of docuverses and nodes read so far from the file.
+	 *
+	 * @return the number of the items read.
+	 */
+	public synchronized int getMaterializedItemCount() {
+		return items.size();
+	}
+
+	@Override
+	public EARMARKItem getEntityById(URI id) {
+		if (!allLoaded && id != null) {
+			synchronized (this) {
+				try {
+					int handle = findHandle(id.toString());
+					if (handle >= 0) {
+						materialize(handle);
+					}
+				} catch (IOException e) {
+					getLogger().warning("The item " + id + " has not been read"
+							+ " [in 'getEntityById' method]\nException: " + e.getMessage());
+				}
+			}
+		}
+		return super.getEntityById(id);
+	}
+
+	/* The navigation of the hierarchy, which reads the nodes reached */
+
+	@Override
+	protected Collection getChildNodes(EARMARKNode node) {
+		ensureChildren(node);
+		return super.getChildNodes(node);
+	}
+
+	@Override
+	protected EARMARKChildNode getFirstChild(EARMARKHierarchicalNode node) {
+		ensureChildren(node);
+		return super.getFirstChild(node);
+	}
+
+	@Override
+	protected EARMARKChildNode getLastChild(EARMARKHierarchicalNode node) {
+		ensureChildren(node);
+		return super.getLastChild(node);
+	}
+
+	@Override
+	protected boolean hasChildNodes(EARMARKNode node) {
+		ensureChildren(node);
+		return super.hasChildNodes(node);
+	}
+
+	@Override
+	protected Collection getChildElements(EARMARKNode node) {
+		ensureChildren(node);
+		return super.getChildElements(node);
+	}
+
+	@Override
+	protected Collection getAttributes(EARMARKNode node) {
+		ensureChildren(node);
+		return super.getAttributes(node);
+	}
+
+	@Override
+	protected Collection getComments(EARMARKNode node) {
+		ensureChildren(node);
+		return super.getComments(node);
+	}
+
+	@Override
+	protected boolean hasElementNodes(EARMARKNode node) {
+		ensureChildren(node);
+		return super.hasElementNodes(node);
+	}
+
+	@Override
+	protected boolean hasAttribute(EARMARKNode node) {
+		ensureChildren(node);
+		return super.hasAttribute(node);
+	}
+
+	@Override
+	protected String getTextContent(EARMARKHierarchicalNode node) {
+		ensureSubtree(node);
+		return super.getTextContent(node);
+	}
+
+	@Override
+	protected void writeTextContent(EARMARKHierarchicalNode node, Appendable out) throws IOException {
+		ensureSubtree(node);
+		super.writeTextContent(node, out);
+	}
+
+	@Override
+	protected EARMARKHierarchicalNode getParentNode(EARMARKChildNode node) {
+		ensureParents(node);
+		return super.getParentNode(node);
+	}
+
+	@Override
+	protected Set<EARMARKHierarchicalNode> getParentNodes(EARMARKChildNode node) {
+		ensureParents(node);
+		return super.getParentNodes(node);
+	}
+
+	@Override
+	protected EARMARKChildNode getNextSibling(EARMARKChildNode node) {
+		ensureParents(node);
+		return super.getNextSibling(node);
+	}
+
+	@Override
+	protected Set<EARMARKChildNode> getNextSiblings(EARMARKChildNode node) {
+		ensureParents(node);
+		return super.getNextSiblings(node);
+	}
+
+	@Override
+	protected EARMARKChildNode getPreviousSibling(EARMARKChildNode node) {
+		ensureParents(node);
+		return super.getPreviousSibling(node);
+	}
+
+	@Override
+	protected Set<EARMARKChildNode> getPreviousSiblings(EARMARKChildNode node) {
+		ensureParents(node);
+		return super.getPreviousSiblings(node);
+	}
+
+	/* The additional assertions, which are read the first time they are asked */
+
+	@Override
+	public Model getModel() {
+		ensureAssertions();
+		return super.getModel();
+	}
+
+	@Override
+	protected Set<Statement> getAssertionsAsObject(EARMARKItem ei) {
+		ensureAssertions();
+		return super.getAssertionsAsObject(ei);
+	}
+
+	@Override
+	protected Set<Statement> getAssertionsAsSubject(EARMARKItem ei) {
+		ensureAssertions();
+		return super.getAssertionsAsSubject(ei);
+	}
+
+	@Override
+	protected Set<Statement> removeAllAssertions(EARMARKItem item) {
+		ensureAssertions();
+		return super.removeAllAssertions(item);
+	}
+
+	@Override
+	protected Set<Statement> removeAllLinguisticActs(EARMARKItem item) {
+		ensureAssertions();
+		return super.removeAllLinguisticActs(item);
+	}
+
+	@Override
+	protected Set<Statement> removeLinguisticAct(EARMARKItem item, Resource linguisticAct) {
+		ensureAssertions();
+		return super.removeLinguisticAct(item, linguisticAct);
+	}
+
+	/* The methods involving the whole document, which read it entirely first */
+
+	@Override
+	public Set<EARMARKChildNode> getAllEARMARKNode() {
+		materializeAll();
+		return super.getAllEARMARKNode();
+	}
+
+	@Override
+	public Set<Docuverse> getAllDocuverses() {
+		materializeAll();
+		return super.getAllDocuverses();
+	}
+
+	@Override
+	public Set<MarkupItem> getMarkupItemByGeneralIdentifier(String gi) {
+		materializeAll();
+		return super.getMarkupItemByGeneralIdentifier(gi);
+	}
+
+	@Override
+	public Set<MarkupItem> getMarkupItemByGeneralIdentifierAndNamespace(String gi, URI ns) {
+		materializeAll();
+		return super.getMarkupItemByGeneralIdentifierAndNamespace(gi, ns);
+	}
+
+	/* The ids of the items not read yet are used as well, so that they are neither generated again nor
+	 * accepted for new items */
+	@Override
+	protected boolean isIdUsed(URI id) {
+		if (super.isIdUsed(id)) {
+			return true;
+		}
+		
+		if (!allLoaded) {
+			synchronized (this) {
+				if (materializing == 0) {
+					try {
+						int handle = findHandle(id.toString());
+						return handle >= 0 && !items.containsKey(handle);
+					} catch (IOException e) {
+						getLogger().warning("The id " + id + " has not been looked up"
+								+ " [in 'isIdUsed' method]\nException: " + e.getMessage());
+					}
+				}
+			}
+		}
+		
+		return false;
+	}
+
+	@Override
+	public Set<URI> getIdPool() {
+		materializeAll();
+		return super.getIdPool();
+	}
+
+	@Override
+	protected Map<URI, EARMARKItem> getIdMap() {
+		materializeAll();
+		return super.getIdMap();
+	}
+
+	@Override
+	public Set<Range> findRangesOverlapping(Docuverse docuverse, int begin, int end) {
+		materializeAll();
+		return super.findRangesOverlapping(docuverse, begin, end);
+	}
+
+	@Override
+	public Set<Range> findRangesContaining(Docuverse docuverse, int location) {
+		materializeAll();
+		return super.findRangesContaining(docuverse, location);
+	}
+
+	@Override
+	public Set<URI> getNamespaces() {
+		materializeAll();
+		return super.getNamespaces();
+	}
+
+	@Override
+	public Set<String> getGeneralIdentifiersFromNamespace(URI ns) {
+		materializeAll();
+		return super.getGeneralIdentifiersFromNamespace(ns);
+	}
+
+	@Override
+	public EARMARKSnapshot snapshot() {
+		materializeAll();
+		return super.snapshot();
+	}
+
+	@Override
+	public void setConcurrent(boolean concurrent) {
+		/* Reading the file later would need the write lock while holding the read one */
+		if (concurrent) {
+			materializeAll();
+		}
+		super.setConcurrent(concurrent);
+	}
+
+	@Override
+	public void compressStringDocuverses() {
+		materializeAll();
+		super.compressStringDocuverses();
+	}
+
+	@Override
+	public EARMARKNode cloneNode(boolean deep) {
+		materializeAll();
+		return super.cloneNode(deep);
+	}
+
+	@Override
+	public EARMARKChildNode copyNode(EARMARKChildNode node, boolean deep) {
+		materializeAll();
+		return super.copyNode(node, deep);
+	}
+
+	@Override
+	public EARMARKChildNode adoptNode(EARMARKChildNode n) {
+		materializeAll();
+		return super.adoptNode(n);
+	}
+
+	/* The modifications of the document, which read it entirely first */
+
+	@Override
+	public boolean removeRange(Range range) {
+		materializeAll();
+		return super.removeRange(range);
+	}
+
+	@Override
+	protected boolean removeMarkupItem(MarkupItem markupitem, boolean strong) {
+		materializeAll();
+		return super.removeMarkupItem(markupitem, strong);
+	}
+
+	@Override
+	public boolean removeDocuverse(Docuverse d) throws EARMARKGraphException {
+		materializeAll();
+		return super.removeDocuverse(d);
+	}
+
+	@Override
+	protected EARMARKChildNode appendChild(EARMARKChildNode newChild, EARMARKHierarchicalNode node)
+	throws EARMARKGraphException {
+		materializeAll();
+		return super.appendChild(newChild, node);
+	}
+
+	@Override
+	protected EARMARKChildNode insertBefore(
+			EARMARKChildNode newChild, EARMARKChildNode refChild, EARMARKHierarchicalNode node)
+	throws EARMARKGraphException {
+		materializeAll();
+		return super.insertBefore(newChild, refChild, node);
+	}
+
+	@Override
+	protected EARMARKChildNode insertBefore(
+			EARMARKChildNode newChild, EARMARKChildNode refChild, int occurrence, EARMARKHierarchicalNode node)
+	throws EARMARKGraphException {
+		materializeAll();
+		return super.insertBefore(newChild, refChild, occurrence, node);
+	}
+
+	@Override
+	protected EARMARKChildNode removeChild(EARMARKChildNode oldChild, EARMARKHierarchicalNode node)
+	throws EARMARKGraphException {
+		materializeAll();
+		return super.removeChild(oldChild, node);
+	}
+
+	@Override
+	protected EARMARKChildNode removeAllChild(EARMARKChildNode oldChild, EARMARKHierarchicalNode node) {
+		materializeAll();
+		return super.removeAllChild(oldChild, node);
+	}
+
+	@Override
+	protected EARMARKChildNode removeChildByOccurrence(
+			EARMARKChildNode oldChild, int occurrence, EARMARKHierarchicalNode node) {
+		materializeAll();
+		return super.removeChildByOccurrence(oldChild, occurrence, node);
+	}
+
+	@Override
+	protected EARMARKChildNode replaceChild(
+			EARMARKChildNode newChild, EARMARKChildNode oldChild, EARMARKHierarchicalNode node)
+	throws EARMARKGraphException {
+		materializeAll();
+		return super.replaceChild(newChild, oldChild, node);
+	}
+
+	@Override
+	protected EARMARKChildNode replaceAllChild(
+			EARMARKChildNode newChild, EARMARKChildNode oldChild, EARMARKHierarchicalNode node)
+	throws EARMARKGraphException {
+		materializeAll();
+		return super.replaceAllChild(newChild, oldChild, node);
+	}
+
+	@Override
+	protected EARMARKChildNode replaceChildByOccurrence(
+			EARMARKChildNode newChild, EARMARKChildNode oldChild, int occurrence, EARMARKHierarchicalNode node)
+	throws EARMARKGraphException {
+		materializeAll();
+		return super.replaceChildByOccurrence(newChild, oldChild, occurrence, node);
+	}
+
+	@Override
+	protected boolean setId(EARMARKItem item, URI newId) {
+		materializeAll();
+		return super.setId(item, newId);
+	}
+
+	@Override
+	protected void shiftRanges(EditableDocuverse docuverse, int from, int to, int inserted) {
+		materializeAll();
+		super.shiftRanges(docuverse, from, to, inserted);
+	}
+
+	/* Read the children of the node specified, if they have not been read yet */
+	private void ensureChildren(EARMARKNode node) {
+		if (!allLoaded) {
+			synchronized (this) {
+				try {
+					if (node == this) {
+						ensureRoots();
+					} else {
+						Integer handle = handles.get(node);
+						if (handle != null) {
+							ensureChildren(handle);
+						}
+					}
+				} catch (IOException e) {
+					getLogger().warning("The children of the node have not been read"
+							+ " [in 'ensureChildren' method]\nException: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/* Read the parents of the node specified, and the children of each of them */
+	private void ensureParents(EARMARKChildNode node) {
+		if (!allLoaded) {
+			synchronized (this) {
+				try {
+					Integer handle = handles.get(node);
+					if (handle != null) {
+						ByteBuffer input = at(buffer.getInt(entryOffset(handle) + 8));
+						int size = BinaryFormat.readNumber(input);
+						for (int i = 0; i < size; i++) {
+							int parent = BinaryFormat.readNumber(input);
+							if (parent == 0) {
+								ensureRoots();
+							} else {
+								ensureChildren(docuverseCount + parent - 1);
+							}
+						}
+					}
+				} catch (IOException e) {
+					getLogger().warning("The parents of the node have not been read"
+							+ " [in 'ensureParents' method]\nException: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/* Read all the descendants of the node specified */
+	private void ensureSubtree(EARMARKHierarchicalNode node) {
+		if (!allLoaded) {
+			synchronized (this) {
+				java.util.List<EARMARKNode> nodes = new ArrayList<EARMARKNode>();
+				nodes.add(node);
+				while (!nodes.isEmpty()) {
+					EARMARKNode current = nodes.remove(nodes.size() - 1);
+					ensureChildren(current);
+					for (EARMARKChildNode child : super.getChildNodes(current)) {
+						if (child instanceof MarkupItem) {
+							nodes.add(child);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private synchronized void ensureAssertions() {
+		if (!assertionsLoaded) {
+			assertionsLoaded = true;
+			try {
+				ByteBuffer input = at(assertionsOffset);
+				byte[] assertions = new byte[BinaryFormat.readNumber(input)];
+				input.get(assertions);
+				if (assertions.length > 0) {
+					super.getModel().read(new ByteArrayInputStream(assertions), null, EARMARKWriter.NTRIPLE);
+				}
+			} catch (IOException e) {
+				getLogger().warning("The additional assertions have not been read"
+						+ " [in 'ensureAssertions' method]\nException: " + e.getMessage());
+			}
+		}
+	}
+
+	private void ensureRoots() throws IOException {
+		if (!rootsLoaded) {
+			rootsLoaded = true;
+			readChildren(rootsOffset, this);
+		}
+	}
+
+	private void ensureChildren(int handle) throws IOException {
+		if (childrenLoaded.add(handle)) {
+			EARMARKItem item = materialize(handle);
+			int offset = buffer.getInt(entryOffset(handle) + 4);
+			if (item instanceof MarkupItem && offset > 0) {
+				readChildren(offset, (MarkupItem) item);
+			}
+		}
+	}
+
+	/* Append the children stored at the position specified to their parent */
+	private void readChildren(int offset, EARMARKHierarchicalNode parent) throws IOException {
+		ByteBuffer input = at(offset);
+		int size = BinaryFormat.readNumber(input);
+		for (int i = 0; i < size; i++) {
+			EARMARKItem child = materialize(docuverseCount + BinaryFormat.readNumber(input));
+			if (child instanceof EARMARKChildNode) {
+				try {
+					super.appendChild((EARMARKChildNode) child, parent);
+				} catch (EARMARKGraphException e) {
+					getLogger().warning("The node " + child.hasId() + " has not been appended"
+							+ " [in 'readChildren' method]\nException: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/* Return the item having the handle specified, reading it from the file if needed */
+	private EARMARKItem materialize(int handle) throws IOException {
+		EARMARKItem result = items.get(handle);
+
+		if (result == null && !items.containsKey(handle)) {
+			ByteBuffer input = at(buffer.getInt(entryOffset(handle)));
+			int kind = BinaryFormat.readNumber(input);
+			URI id = URI.create(strings[BinaryFormat.readNumber(input)] + BinaryFormat.readString(input));
+			materializing++;
+			try {
+				if (handle < docuverseCount) {
+					/* The content of string docuverses is decoded from the file only when it is accessed */
+					CharSequence content = BinaryFormat.readText(input);
+					if (kind == BinaryFormat.URI_DOCUVERSE) {
+						result = createURIDocuverse(id, URI.create(content.toString()));
+					} else if (kind == BinaryFormat.MAPPED_FILE_DOCUVERSE) {
+						result = createMappedFileDocuverse(id, URI.create(content.toString()));
+					} else if (kind == BinaryFormat.EDITABLE_DOCUVERSE) {
+						result = createEditableDocuverse(id, content.toString());
+					} else {
+						result = createStringDocuverse(id, content);
+					}
+				} else if (kind == BinaryFormat.POINTER_RANGE || kind == BinaryFormat.XPATH_POINTER_RANGE) {
+					Docuverse docuverse = (Docuverse) materialize(BinaryFormat.readNumber(input));
+					Integer begins = BinaryFormat.readOptionalNumber(input);
+					Integer ends = BinaryFormat.readOptionalNumber(input);
+					if (kind == BinaryFormat.XPATH_POINTER_RANGE) {
+						result = createXPathPointerRange(id, docuverse, begins, ends, readOptionalString(input));
+					} else {
+						result = createPointerRange(id, docuverse, begins, ends);
+					}
+				} else {
+					int type = BinaryFormat.readNumber(input);
+					Collection.Type collectionType =
+						(type == BinaryFormat.SET ? Collection.Type.Set :
+							(type == BinaryFormat.BAG ? Collection.Type.Bag : Collection.Type.List));
+					String gi = readOptionalString(input);
+					String namespace = readOptionalString(input);
+					URI ns = (namespace == null ? null : URI.create(namespace));
+					if (kind == BinaryFormat.ATTRIBUTE) {
+						result = createAttribute(id, gi, ns, collectionType);
+					} else if (kind == BinaryFormat.COMMENT) {
+						result = createComment(id, gi, ns, collectionType);
+					} else {
+						result = createElement(id, gi, ns, collectionType);
+					}
+				}
+			} catch (ExistingIdException e) {
+				getLogger().warning("The item " + id + " has not been read"
+						+ " [in 'materialize' method]\nException: " + e.getMessage());
+			} catch (EARMARKGraphException e) {
+				getLogger().warning("The item " + id + " has not been read"
+						+ " [in 'materialize' method]\nException: " + e.getMessage());
+			} finally {
+				materializing--;
+			}
+
+			items.put(handle, result);
+			if (result != null) {
+				handles.put(result, handle);
+			}
+		}
+
+		return result;
+	}
+
+	/* Return the handle of the item having the id specified through a binary search in the id table, or a
+	 * negative number if there is not such an item in the file */
+	private int findHandle(String id) throws IOException {
+		int low = 0;
+		int high = docuverseCount + nodeCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int handle = buffer.getInt(idTableOffset + middle * 4);
+
+			ByteBuffer input = at(buffer.getInt(entryOffset(handle)));
+			BinaryFormat.readNumber(input);
+			String current = strings[BinaryFormat.readNumber(input)] + BinaryFormat.readString(input);
+
+			int comparison = current.compareTo(id);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return handle;
+			}
+		}
+		return -1;
+	}
+
+	/* Return the position of the entry of the handle table related to the handle specified, which contains
+	 * the position of the item followed, for the nodes, by the positions of their children and parents */
+	private int entryOffset(int handle) {
+		if (handle < docuverseCount) {
+			return handleTableOffset + handle * 4;
+		} else {
+			return handleTableOffset + docuverseCount * 4 + (handle - docuverseCount) * 12;
+		}
+	}
+
+	/* Return a view of the file starting from the position specified */
+	private ByteBuffer at(int offset) {
+		ByteBuffer result = buffer.duplicate();
+		result.position(offset);
+		return result;
+	}
+
+	private String readOptionalString(ByteBuffer input) throws IOException {
+		int index = BinaryFormat.readNumber(input);
+		return (index == 0 ? null : strings[index - 1]);
+	}
+
+	private Logger getLogger() {
+		return Logger.getLogger(LazyDocument.class.getName());
+	}
+}
@@ -0,0 +1,255 @@
+package it.essepuntato.earmark.core.io;
+
+import it.essepuntato.earmark.core.EARMARKDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXParseException;
+
+import com.hp.hpl.jena.datatypes.TypeMapper;
+import com.hp.hpl.jena.graph.Graph;
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.n3.turtle.TurtleEventHandler;
+import com.hp.hpl.jena.n3.turtle.parser.TurtleParser;
+import com.hp.hpl.jena.rdf.arp.ALiteral;
+import com.hp.hpl.jena.rdf.arp.ARP;
+import com.hp.hpl.jena.rdf.arp.AResource;
+import com.hp.hpl.jena.rdf.arp.StatementHandler;
+import com.hp.hpl.jena.rdf.model.AnonId;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.shared.JenaException;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * <p>A reader that parses RDF/XML, Turtle or N-Triples sources as streams of triples, splitting them
+ * between two Jena models instead of loading them in a single one.</p>
+ * <p>Each triple is dispatched as soon as it is parsed: the ones using the EARMARK and the collections
+ * vocabularies are added to an in-memory model, which is then used for building the document as the
+ * JenaReader does, while all the others are added directly to the model that will contain the additional
+ * RDF assertions of the document. Thus, only the additional assertions are streamed: they are neither
+ * stored twice nor scanned while building the document, but all the EARMARK triples of the source are still
+ * held in memory until the document has been built.</p>
+ * <p>As for the JenaReader, a source is parsed as RDF/XML first and, if it is not, as Turtle (which
+ * N-Triples is a subset of).</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class StreamingReader extends JenaReader {
+
+	private static final String EARMARK_NS = "http://www.essepuntato.it/2008/12/earmark#";
+	private static final String COLLECTIONS_NS = "http://swan.mindinformatics.org/ontologies/1.2/collections/";
+	private static final String NAMED_INDIVIDUAL = "http://www.w3.org/2002/07/owl#NamedIndividual";
+
+	/* A source that can be opened more than once, since it could be parsed in two formats */
+	private static abstract class Source {
+		abstract InputStream open() throws IOException;
+	}
+
+	@Override
+	public EARMARKDocument read(final URL url) {
+		return read(new Source() {
+			@Override
+			InputStream open() throws IOException {
+				return url.openStream();
+			}
+		});
+	}
+
+	@Override
+	public EARMARKDocument read(final File file) throws FileNotFoundException {
+		if (!file.exists()) {
+			throw new FileNotFoundException(file.getPath());
+		}
+
+		return read(new Source() {
+			@Override
+			InputStream open() throws IOException {
+				return new FileInputStream(file);
+			}
+		});
+	}
+
+	@Override
+	public EARMARKDocument read(String source) {
+		final byte[] content;
+		try {
+			content = source.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new JenaException(e);
+		}
+
+		return read(new Source() {
+			@Override
+			InputStream open() {
+				return new ByteArrayInputStream(content);
+			}
+		});
+	}
+
+	/* Parse the source as RDF/XML or, if it is not, as Turtle, and build the document from the EARMARK model */
+	private EARMARKDocument read(Source source) {
+		Splitting splitting = new Splitting();
+		try {
+			splitting.parseRDFXML(source);
+		} catch (Exception e) {
+			splitting = new Splitting();
+			try {
+				splitting.parseTurtle(source);
+			} catch (JenaException e1) {
+				throw e1;
+			} catch (Exception e1) {
+				throw new JenaException(e1);
+			}
+		}
+
+		return read(splitting.earmark, splitting.assertions);
+	}
+
+	/* The triples parsed from a source, split between the ones describing the document and the others */
+	private class Splitting implements StatementHandler, TurtleEventHandler, ErrorHandler {
+		private Model earmark = ModelFactory.createDefaultModel();
+		private Model assertions = ModelFactory.createDefaultModel();
+		private Graph earmarkGraph = earmark.getGraph();
+		private Graph assertionsGraph = assertions.getGraph();
+		private Map<String, Node> blankNodes = new HashMap<String, Node>();
+
+		private void parseRDFXML(Source source) throws Exception {
+			InputStream input = source.open();
+			try {
+				ARP arp = new ARP();
+				arp.getHandlers().setStatementHandler(this);
+				arp.getHandlers().setErrorHandler(this);
+				arp.load(input, "");
+			} finally {
+				input.close();
+			}
+		}
+
+		private void parseTurtle(Source source) throws Exception {
+			InputStream input = source.open();
+			try {
+				TurtleParser parser = new TurtleParser(input, "UTF-8");
+				parser.setEventHandler(this);
+				parser.parse();
+			} finally {
+				input.close();
+			}
+		}
+
+		/* Add the triple to the model it belongs to */
+		private void dispatch(Triple triple) {
+			if (isEARMARK(triple)) {
+				earmarkGraph.add(triple);
+			} else {
+				assertionsGraph.add(triple);
+			}
+		}
+
+		/* Check whether the triple uses the EARMARK or the collections vocabularies, or whether it is
+		 * one of the OWL standard statements considered by the JenaReader */
+		private boolean isEARMARK(Triple triple) {
+			Node predicate = triple.getPredicate();
+			if (predicate.isURI()) {
+				String uri = predicate.getURI();
+				if (uri.startsWith(EARMARK_NS) || uri.startsWith(COLLECTIONS_NS)) {
+					return true;
+				}
+
+				Node object = triple.getObject();
+				if (predicate.equals(RDF.type.asNode()) && object.isURI()) {
+					String type = object.getURI();
+					return
+						type.startsWith(EARMARK_NS) || type.startsWith(COLLECTIONS_NS) ||
+						object.equals(OWL.Ontology.asNode()) || object.equals(OWL.Thing.asNode()) ||
+						type.equals(NAMED_INDIVIDUAL);
+				}
+			}
+
+			return false;
+		}
+
+		private Node convert(AResource resource) {
+			if (resource.isAnonymous()) {
+				String id = resource.getAnonymousID();
+				Node result = blankNodes.get(id);
+				if (result == null) {
+					result = Node.createAnon(new AnonId(id));
+					blankNodes.put(id, result);
+				}
+				return result;
+			} else {
+				return Node.createURI(resource.getURI());
+			}
+		}
+
+		private Node convert(ALiteral literal) {
+			if (literal.isWellFormedXML()) {
+				return Node.createLiteral(literal.toString(), null, true);
+			} else if (literal.getDatatypeURI() != null) {
+				return Node.createLiteral(literal.toString(), null,
+						TypeMapper.getInstance().getSafeTypeByName(literal.getDatatypeURI()));
+			} else {
+				return Node.createLiteral(literal.toString(), literal.getLang(), false);
+			}
+		}
+
+		@Override
+		public void statement(AResource subject, AResource predicate, AResource object) {
+			dispatch(Triple.create(convert(subject), convert(predicate), convert(object)));
+		}
+
+		@Override
+		public void statement(AResource subject, AResource predicate, ALiteral object) {
+			dispatch(Triple.create(convert(subject), convert(predicate), convert(object)));
+		}
+
+		@Override
+		public void triple(int line, int col, Triple triple) {
+			dispatch(triple);
+		}
+
+		@Override
+		public void prefix(int line, int col, String prefix, String iri) {
+			/* The prefixes are set by the writer */
+		}
+
+		@Override
+		public void startFormula(int line, int col) {
+			throw new JenaException("Formulae are not allowed [line " + line + ", column " + col + "]");
+		}
+
+		@Override
+		public void endFormula(int line, int col) {
+			throw new JenaException("Formulae are not allowed [line " + line + ", column " + col + "]");
+		}
+
+		@Override
+		public void warning(SAXParseException exception) {
+			/* The warnings do not stop the parsing, as for the JenaReader */
+		}
+
+		@Override
+		public void error(SAXParseException exception) throws SAXParseException {
+			throw exception;
+		}
+
+		@Override
+		public void fatalError(SAXParseException exception) throws SAXParseException {
+			throw exception;
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package it.essepuntato.earmark.core.io;
+
+import it.essepuntato.earmark.core.EARMARKDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.hp.hpl.jena.graph.Node;
+import com.hp.hpl.jena.graph.Triple;
+import com.hp.hpl.jena.graph.TripleMatch;
+import com.hp.hpl.jena.graph.impl.GraphBase;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.shared.JenaException;
+import com.hp.hpl.jena.util.iterator.ExtendedIterator;
+import com.hp.hpl.jena.util.iterator.NullIterator;
+
+/**
+ * <p>A writer that serialises EARMARK documents in N-Triples or Turtle while walking their docuverses,
+ * ranges and markup items, without building the model of the whole document first.</p>
+ * <p>Each statement, including the ones of the items of the collections, is written to the output as soon
+ * as it is produced, so that the memory needed does not depend on the size of the document. In Turtle,
+ * each statement is written on its own line using the prefixes of the writer. The other formats are
+ * serialised as the JenaWriter does.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class StreamingWriter extends JenaWriter {
+
+	/**
+	 * This method stores a document in an output stream, which is not closed.
+	 *
+	 * @param document the document to store.
+	 * @param output the output stream.
+	 * @param format the format to use.
+	 * @return true if the document has been stored, false otherwise.
+	 */
+	public boolean write(EARMARKDocument document, OutputStream output, String format) {
+		boolean result = true;
+
+		try {
+			if (isStreamable(format)) {
+				Writer writer = new BufferedWriter(new OutputStreamWriter(output, "UTF-8"));
+				Output graph = new Output(writer, !NTRIPLE.equals(format));
+				Model model = ModelFactory.createModelForGraph(graph);
+				setPrefixes(model, document);
+				graph.writePrefixes();
+				addStatements(document, model);
+				writer.flush();
+			} else {
+				Model model = getModel(document);
+				setPrefixes(model, document);
+				model.write(output, format);
+				output.flush();
+			}
+		} catch (IOException e) {
+			result = false;
+			getLogger().warning("The EARMARK document has not been stored"
+					+ " [in 'write' method]\nException: " + e.getMessage());
+		} catch (JenaException e) {
+			result = false;
+			getLogger().warning("The EARMARK document has not been stored"
+					+ " [in 'write' method]\nException: " + e.getMessage());
+		} catch (NullPointerException e) {
+			result = false;
+			getLogger().warning("The EARMARK document passed as input is null"
+					+ " [in 'write' method]\nException: " + e.getMessage());
+		}
+
+		return result;
+	}
+
+	/**
+	 * This method stores a document in a channel, which is not closed.
+	 *
+	 * @param document the document to store.
+	 * @param channel the channel.
+	 * @param format the format to use.
+	 * @return true if the document has been stored, false otherwise.
+	 */
+	public boolean write(EARMARKDocument document, WritableByteChannel channel, String format) {
+		return write(document, Channels.newOutputStream(channel), format);
+	}
+
+	@Override
+	public boolean write(EARMARKDocument document, File file, String format) {
+		boolean result = false;
+
+		try {
+			OutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+			try {
+				result = write(document, output, format);
+			} finally {
+				output.close();
+			}
+		} catch (IOException e) {
+			result = false;
+			getLogger().warning("The EARMARK document has not been stored in '" + file.toString() + "'"
+					+ " [in 'write' method]\nException: " + e.getMessage());
+		}
+
+		return result;
+	}
+
+	@Override
+	public String write(EARMARKDocument document, String format) {
+		if (!isStreamable(format)) {
+			return super.write(document, format);
+		}
+
+		String result = null;
+
+		try {
+			StringWriter writer = new StringWriter();
+			Output graph = new Output(writer, !NTRIPLE.equals(format));
+			Model model = ModelFactory.createModelForGraph(graph);
+			setPrefixes(model, document);
+			graph.writePrefixes();
+			addStatements(document, model);
+			result = writer.toString();
+		} catch (JenaException e) {
+			getLogger().warning("The EARMARK document has not been stored"
+					+ " [in 'write' method]\nException: " + e.getMessage());
+		} catch (NullPointerException e) {
+			getLogger().warning("The EARMARK document passed as input is null"
+					+ " [in 'write' method]\nException: " + e.getMessage());
+		}
+
+		return result;
+	}
+
+	private boolean isStreamable(String format) {
+		return NTRIPLE.equals(format) || TURTLE.equals(format) || TTL.equals(format);
+	}
+
+	/* A graph that writes each triple added to it, without storing it */
+	private static class Output extends GraphBase {
+		private Writer writer;
+		private boolean usePrefixes;
+		private String[] prefixes = new String[0];
+		private String[] namespaces = new String[0];
+
+		private Output(Writer writer, boolean usePrefixes) {
+			this.writer = writer;
+			this.usePrefixes = usePrefixes;
+		}
+
+		/* Write the prefixes set, if they are used */
+		private void writePrefixes() {
+			if (usePrefixes) {
+				Map<String,String> map = getPrefixMapping().getNsPrefixMap();
+				prefixes = map.keySet().toArray(new String[map.size()]);
+				namespaces = new String[prefixes.length];
+				for (int i = 0; i < prefixes.length; i++) {
+					namespaces[i] = map.get(prefixes[i]);
+					write("@prefix " + prefixes[i] + ": <" + escape(namespaces[i]) + "> .\n");
+				}
+				write("\n");
+			}
+		}
+
+		@Override
+		public void performAdd(Triple triple) {
+			StringBuilder line = new StringBuilder();
+			append(line, triple.getSubject());
+			line.append(' ');
+			append(line, triple.getPredicate());
+			line.append(' ');
+			append(line, triple.getObject());
+			line.append(" .\n");
+			write(line.toString());
+		}
+
+		@Override
+		protected ExtendedIterator<Triple> graphBaseFind(TripleMatch match) {
+			return NullIterator.instance();
+		}
+
+		private void write(String text) {
+			try {
+				writer.write(text);
+			} catch (IOException e) {
+				throw new JenaException(e);
+			}
+		}
+
+		private void append(StringBuilder line, Node node) {
+			if (node.isURI()) {
+				String uri = node.getURI();
+				for (int i = 0; i < namespaces.length; i++) {
+					if (uri.startsWith(namespaces[i]) && isLocalName(uri, namespaces[i].length())) {
+						line.append(prefixes[i]).append(':').append(uri.substring(namespaces[i].length()));
+						return;
+					}
+				}
+				line.append('<').append(escape(uri)).append('>');
+			} else if (node.isBlank()) {
+				line.append("_:b");
+				String label = node.getBlankNodeLabel();
+				for (int i = 0; i < label.length(); i++) {
+					char c = label.charAt(i);
+					if (c != 'x' && (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9')) {
+						line.append(c);
+					} else {
+						/* Labels may contain only letters and digits: 'x' introduces an escaped character */
+						line.append('x').append(hex(c));
+					}
+				}
+			} else {
+				line.append('"').append(escape(node.getLiteralLexicalForm())).append('"');
+				String datatype = node.getLiteralDatatypeURI();
+				String language = node.getLiteralLanguage();
+				if (datatype != null) {
+					line.append("^^");
+					append(line, Node.createURI(datatype));
+				} else if (language != null && !language.equals("")) {
+					line.append('@').append(language);
+				}
+			}
+		}
+
+		/* Check whether the rest of the URI can be written as the local name of a prefixed name */
+		private boolean isLocalName(String uri, int begin) {
+			for (int i = begin; i < uri.length(); i++) {
+				char c = uri.charAt(i);
+				boolean letter = c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_';
+				boolean other = c >= '0' && c <= '9' || c == '-';
+				if (!letter && (i == begin || !other)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static String escape(String text) {
+			StringBuilder result = new StringBuilder(text.length());
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				if (c == '\\') {
+					result.append("\\\\");
+				} else if (c == '"') {
+					result.append("\\\"");
+				} else if (c == '\n') {
+					result.append("\\n");
+				} else if (c == '\r') {
+					result.append("\\r");
+				} else if (c == '\t') {
+					result.append("\\t");
+				} else if (c < 0x20 || c > 0x7e) {
+					result.append("\\u").append(hex(c));
+				} else {
+					result.append(c);
+				}
+			}
+			return result.toString();
+		}
+
+		private static String hex(char c) {
+			String result = Integer.toHexString(c).toUpperCase();
+			while (result.length() < 4) {
+				result = "0" + result;
+			}
+			return result;
+		}
+	}
+
+	private Logger getLogger() {
+		return getLogger(StreamingWriter.class);
+	}
+}
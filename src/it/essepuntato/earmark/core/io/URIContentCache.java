@@ -0,0 +1,313 @@
+package it.essepuntato.earmark.core.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>This class defines a cache of the contents available at some URIs, in particular within methods
+ * concerning URI docuverses. The default cache is shared by all the EARMARK documents of the JVM, so that
+ * all the docuverses referring to the same URI share the same copy of its content.</p>
+ * <p>The contents are loaded through NIO channels and decoded with the charset declared by the
+ * connection (e.g., in the HTTP content type), or with the default charset of the cache otherwise. The
+ * content is kept as is, including its line terminators.</p>
+ * <p>The cache keeps the most recently used contents up to a maximum weight (i.e., two bytes per character),
+ * and the contents evicted are still available through soft references until the garbage collector
+ * reclaims them.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class URIContentCache {
+	/**
+	 * The default maximum weight, in bytes, of the contents kept by a cache.
+	 */
+	public static final long DEFAULT_MAX_WEIGHT = 64L * 1024L * 1024L;
+
+	/**
+	 * The charset used by default for decoding the contents.
+	 */
+	public static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final Pattern charsetPattern = Pattern.compile("(?i)charset\\s*=\\s*\"?([^\\s;\"]+)");
+
+	private static URIContentCache defaultCache = new URIContentCache();
+
+	private long maxWeight;
+	private long weight = 0L;
+	private Charset charset;
+
+	private LinkedHashMap<URI,String> contents = new LinkedHashMap<URI,String>(16, 0.75f, true);
+	private Map<URI,SoftReference<String>> evicted = new HashMap<URI,SoftReference<String>>();
+
+	/**
+	 * Create a cache with the default maximum weight and charset.
+	 */
+	public URIContentCache() {
+		this(DEFAULT_MAX_WEIGHT, DEFAULT_CHARSET);
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxWeight the maximum weight, in bytes, of the contents kept by the cache.
+	 * @param charset the charset used for decoding the contents whose charset is not declared.
+	 */
+	public URIContentCache(long maxWeight, Charset charset) {
+		this.maxWeight = Math.max(0L, maxWeight);
+		this.charset = charset;
+	}
+
+	/**
+	 * This method returns the cache shared by all the EARMARK documents of the JVM.
+	 *
+	 * @return the default cache.
+	 */
+	public static URIContentCache getDefault() {
+		return defaultCache;
+	}
+
+	/**
+	 * <p>This method returns the content available at a URI, loading it if it is not cached.</p>
+	 * <p>It can be called by many threads at the same time: if the same content is loaded concurrently,
+	 * only one copy of it is kept and returned to all the callers.</p>
+	 *
+	 * @param uri the URI of the content.
+	 * @return the content available at the URI.
+	 * @throws IOException if the content cannot be loaded.
+	 */
+	public String getContent(URI uri) throws IOException {
+		String result = get(uri);
+
+		if (result == null) {
+			result = put(uri, load(uri));
+		}
+
+		return result;
+	}
+
+	/**
+	 * This method removes the content of a URI from the cache, so that it will be loaded again
+	 * the next time it is needed.
+	 *
+	 * @param uri the URI of the content.
+	 */
+	public synchronized void remove(URI uri) {
+		String content = contents.remove(uri);
+		if (content != null) {
+			weight -= getWeight(content);
+		}
+		evicted.remove(uri);
+	}
+
+	/**
+	 * This method removes all the contents from the cache.
+	 */
+	public synchronized void clear() {
+		contents.clear();
+		evicted.clear();
+		weight = 0L;
+	}
+
+	/**
+	 * This method returns the weight, in bytes, of the contents currently kept by the cache (i.e., excluding
+	 * the ones available through soft references only).
+	 *
+	 * @return the weight of the contents of the cache.
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	/**
+	 * This method returns the maximum weight, in bytes, of the contents kept by the cache.
+	 *
+	 * @return the maximum weight of the contents of the cache.
+	 */
+	public synchronized long getMaxWeight() {
+		return maxWeight;
+	}
+
+	/**
+	 * This method sets the maximum weight, in bytes, of the contents kept by the cache, evicting the least
+	 * recently used contents if needed.
+	 *
+	 * @param maxWeight the maximum weight of the contents of the cache.
+	 */
+	public synchronized void setMaxWeight(long maxWeight) {
+		this.maxWeight = Math.max(0L, maxWeight);
+		evict();
+	}
+
+	/**
+	 * This method returns the charset used for decoding the contents whose charset is not declared.
+	 *
+	 * @return the default charset of the cache.
+	 */
+	public synchronized Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * This method sets the charset used for decoding the contents whose charset is not declared. It does
+	 * not affect the contents already cached.
+	 *
+	 * @param charset the default charset of the cache.
+	 */
+	public synchronized void setCharset(Charset charset) {
+		this.charset = charset;
+	}
+
+	/* Return the content cached for a URI, moving it back from the soft references if needed. */
+	private synchronized String get(URI uri) {
+		String result = contents.get(uri);
+
+		if (result == null) {
+			SoftReference<String> reference = evicted.remove(uri);
+			if (reference != null) {
+				result = reference.get();
+				if (result != null) {
+					add(uri, result);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/* Add a content loaded, unless another thread loaded it meanwhile. */
+	private synchronized String put(URI uri, String content) {
+		String result = get(uri);
+
+		if (result == null) {
+			result = content;
+			add(uri, result);
+		}
+
+		return result;
+	}
+
+	private void add(URI uri, String content) {
+		contents.put(uri, content);
+		weight += getWeight(content);
+		evict();
+	}
+
+	/* Move the least recently used contents to the soft references until the maximum weight is respected. */
+	private void evict() {
+		Iterator<Map.Entry<URI,String>> ite = contents.entrySet().iterator();
+		while (weight > maxWeight && ite.hasNext()) {
+			Map.Entry<URI,String> entry = ite.next();
+			weight -= getWeight(entry.getValue());
+			evicted.put(entry.getKey(), new SoftReference<String>(entry.getValue()));
+			ite.remove();
+		}
+
+		/* Forget the references already cleared by the garbage collector */
+		Iterator<SoftReference<String>> references = evicted.values().iterator();
+		while (references.hasNext()) {
+			if (references.next().get() == null) {
+				references.remove();
+			}
+		}
+	}
+
+	private long getWeight(String content) {
+		return 2L * content.length();
+	}
+
+	/* Load and decode the content available at a URI. */
+	private String load(URI uri) throws IOException {
+		InputStream in = null;
+		ByteBuffer bytes = null;
+		Charset contentCharset = null;
+
+		try {
+			if ("file".equals(uri.getScheme())) {
+				FileInputStream file = new FileInputStream(new File(uri));
+				in = file;
+				FileChannel channel = file.getChannel();
+				bytes = read(channel, channel.size());
+			} else {
+				URLConnection connection = uri.toURL().openConnection();
+				contentCharset = getCharset(connection.getContentType());
+				in = connection.getInputStream();
+				bytes = read(Channels.newChannel(in), connection.getContentLength());
+			}
+		} finally {
+			if (in != null) {
+				in.close();
+			}
+		}
+
+		if (contentCharset == null) {
+			contentCharset = getCharset();
+		}
+
+		CharsetDecoder decoder = contentCharset.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		return decoder.decode(bytes).toString();
+	}
+
+	/* Read all the bytes of a channel, starting from a buffer of the expected size if known. */
+	private ByteBuffer read(ReadableByteChannel channel, long expected) throws IOException {
+		if (expected > Integer.MAX_VALUE) {
+			throw new IOException("The content is too big to be loaded in memory (" + expected + " bytes).");
+		}
+
+		ByteBuffer result = ByteBuffer.allocate(expected > 0 ? (int) expected + 1 : BUFFER_SIZE);
+		while (channel.read(result) != -1) {
+			if (!result.hasRemaining()) {
+				ByteBuffer bigger = ByteBuffer.allocate(result.capacity() * 2);
+				result.flip();
+				bigger.put(result);
+				result = bigger;
+			}
+		}
+		result.flip();
+
+		return result;
+	}
+
+	/* Return the charset declared in a content type, if any and supported. */
+	private Charset getCharset(String contentType) {
+		Charset result = null;
+
+		if (contentType != null) {
+			Matcher matcher = charsetPattern.matcher(contentType);
+			if (matcher.find()) {
+				try {
+					result = Charset.forName(matcher.group(1));
+				} catch (IllegalCharsetNameException e) {
+					/* Do nothing: the default charset will be used */
+				} catch (UnsupportedCharsetException e) {
+					/* Do nothing: the default charset will be used */
+				}
+			}
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,158 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.RangeTable;
+import it.essepuntato.earmark.core.io.BinaryReader;
+import it.essepuntato.earmark.core.io.BinaryWriter;
+import it.essepuntato.earmark.core.io.JenaReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**
+ * A test aims to check that the documents stored in the binary format are loaded as they were, measuring
+ * the size and the loading time of the binary format compared to RDF/XML.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class BinaryFormatTest extends AbstractTest {
+
+	private static final String label = "A document stored in the binary format";
+
+	/* The number of loads measured for each format */
+	private static final int loads = 5;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		BinaryWriter writer = new BinaryWriter();
+		BinaryReader reader = new BinaryReader();
+
+		result.add("\n[i] Check the documents stored in the binary format");
+		String msg1 = "Document stored as a string, test";
+		EARMARKDocument document = DocumentStructure.getDocument();
+		document.assertsAsSubject(RDFS.label, document.getModel().createLiteral(label));
+		EARMARKDocument loaded = reader.read(writer.write(document));
+		if (
+				loaded != null && document.isEqualNode(loaded) && document.hasId().equals(loaded.hasId()) &&
+				loaded.getModel().contains(null, RDFS.label, label)) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, "the document loaded differs from the one stored"));
+		}
+
+		String msg2 = "Docuverses, XPath ranges and range tables stored in a file, test";
+		EARMARKDocument various = createDocument();
+		try {
+			File file = File.createTempFile("earmark", ".emkb");
+			file.deleteOnExit();
+			if (!writer.write(various, file)) {
+				result.add(failed(msg2, "the document has not been stored"));
+			} else {
+				loaded = reader.read(file);
+				if (
+						loaded != null && various.isEqualNode(loaded) &&
+						various.getTextContent().equals(loaded.getTextContent()) &&
+						loaded.getEntityById(URI.create("http://www.essepuntato.it/binary/editable"))
+							instanceof it.essepuntato.earmark.core.EditableDocuverse) {
+					result.add(passed(msg2));
+				} else {
+					result.add(failed(msg2, "the document loaded differs from the one stored"));
+				}
+			}
+		} catch (IOException e) {
+			result.add(failed(msg2, e.getMessage()));
+		}
+
+		String msg3 = "RDF/XML read by the binary reader, test";
+		if (document.isEqualNode(reader.read(document.getDocumentAsRDFXML()))) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, "the document loaded differs from the one stored"));
+		}
+
+		result.add("\n[i] Compare the binary format with RDF/XML");
+		String msg4 = "Size and loading time";
+		try {
+			EARMARKDocument big = new JenaReader().read(new File("ParadiseLost.owl"));
+			String binary = writer.write(big);
+			String rdfxml = big.getDocumentAsRDFXML();
+
+			/* Warm up */
+			reader.read(binary);
+			new JenaReader().read(rdfxml);
+
+			long binaryTime = System.nanoTime();
+			for (int i = 0; i < loads; i++) {
+				loaded = reader.read(binary);
+			}
+			binaryTime = System.nanoTime() - binaryTime;
+			long rdfTime = System.nanoTime();
+			for (int i = 0; i < loads; i++) {
+				new JenaReader().read(rdfxml);
+			}
+			rdfTime = System.nanoTime() - rdfTime;
+
+			msg4 += " [binary: " + binary.length() + " bytes, " + (binaryTime / loads / 1000000) + " ms, RDF/XML: " +
+				rdfxml.length() + " characters, " + (rdfTime / loads / 1000000) + " ms], test";
+			if (big.isEqualNode(loaded) && binary.length() < rdfxml.length()) {
+				result.add(passed(msg4));
+			} else {
+				result.add(failed(msg4, "the document loaded differs from the one stored or it is not smaller"));
+			}
+		} catch (IOException e) {
+			result.add(failed(msg4, e.getMessage()));
+		}
+
+		return result;
+	}
+
+	/* Create a document using all the kinds of docuverses and ranges stored in the binary format */
+	private EARMARKDocument createDocument() {
+		EARMARKDocument result = new EARMARKDocument(URI.create("http://www.essepuntato.it/binary"));
+
+		try {
+			Docuverse text = result.createStringDocuverse("Hello world");
+			Docuverse editable = result.createEditableDocuverse(
+					URI.create("http://www.essepuntato.it/binary/editable"), "\u00e8 \u4e2d");
+			Docuverse xml = result.createStringDocuverse("<p>XPath <b>text</b></p>");
+
+			Element list = result.createElement("list", URI.create("http://www.example.org/ns"), Collection.Type.List);
+			Element bag = result.createElement(null, Collection.Type.Bag);
+			result.appendChild(list);
+			result.appendChild(bag);
+			list.appendChild(result.createPointerRange(text, 0, 5));
+			list.appendChild(result.createPointerRange(editable, 0, 3));
+			list.appendChild(result.createXPathPointerRange(xml, null, null, "//b"));
+			bag.appendChild(result.createAttribute("set", Collection.Type.Set));
+
+			RangeTable table = result.createRangeTable();
+			bag.appendChild(table.get(table.add(text, 6, 11)));
+		} catch (Exception e) {
+			return null;
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Binary format test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
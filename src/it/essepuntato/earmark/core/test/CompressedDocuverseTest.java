@@ -0,0 +1,147 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.PointerRange;
+import it.essepuntato.earmark.core.StringDocuverse;
+import it.essepuntato.earmark.core.io.BinaryReader;
+import it.essepuntato.earmark.core.io.BinaryWriter;
+import it.essepuntato.facility.text.CompressedText;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A test aims to check the content of compressed string docuverses and of the ranges referring to them.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class CompressedDocuverseTest extends AbstractTest {
+
+	private static final String sentence =
+		"Nel mezzo del cammin di nostra vita mi ritrovai per una selva oscura, ché la diritta via era smarrita. 😀\n";
+
+	private static final int numberOfSentences = 300;
+
+	private static final int numberOfRanges = 500;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < numberOfSentences; i++) {
+			builder.append(i).append(' ').append(sentence);
+		}
+		String content = builder.toString();
+		Random random = new Random(23);
+
+		result.add("\n[i] Check the compressed text");
+		String msg1 = "Characters and portions of a compressed text, test";
+		CompressedText text = new CompressedText(content, 100, 2);
+		String wrong = null;
+		for (int i = 0; wrong == null && i < content.length(); i++) {
+			if (text.charAt(i) != content.charAt(i)) {
+				wrong = "the character " + i + " is '" + text.charAt(i) + "'";
+			}
+		}
+		for (int i = 0; wrong == null && i < numberOfRanges; i++) {
+			int begin = random.nextInt(content.length() + 1);
+			int end = begin + random.nextInt(content.length() - begin + 1);
+			if (!text.subSequence(begin, end).toString().equals(content.substring(begin, end))) {
+				wrong = "the portion from " + begin + " to " + end + " is '" + text.subSequence(begin, end) + "'";
+			}
+		}
+		if (wrong == null && text.toString().equals(content) && text.length() == content.length()) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, (wrong == null ? "the whole text is different" : wrong)));
+		}
+
+		String msg2 = "Size of the compressed text, test";
+		CompressedText whole = new CompressedText(content);
+		if (whole.getCompressedSize() * 10 < content.length() * 2) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, whole.getCompressedSize() + " bytes for " + content.length() + " characters"));
+		}
+
+		String msg3 = "Empty compressed text, test";
+		CompressedText empty = new CompressedText("");
+		if (empty.length() == 0 && empty.toString().equals("") && empty.subSequence(0, 0).length() == 0) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, "the text is '" + empty + "'"));
+		}
+
+		result.add("\n[i] Check the ranges referring to compressed docuverses");
+		String msg4 = "Text content of pointer ranges, test";
+		EARMARKDocument doc = new EARMARKDocument(URI.create("http://www.essepuntato.it/compressed"));
+		StringDocuverse docuverse = doc.createStringDocuverse(content);
+		List<PointerRange> ranges = new ArrayList<PointerRange>();
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < numberOfRanges; i++) {
+			PointerRange range = doc.createPointerRange(
+					docuverse, random.nextInt(content.length() + 1), random.nextInt(content.length() + 1));
+			ranges.add(range);
+			expected.add(range.getTextContent());
+		}
+		doc.compressStringDocuverses();
+		wrong = null;
+		for (int i = 0; wrong == null && i < numberOfRanges; i++) {
+			if (!expected.get(i).equals(ranges.get(i).getTextContent())) {
+				wrong = "the range " + ranges.get(i).hasId() + " contains '" + ranges.get(i).getTextContent() + "'";
+			}
+		}
+		if (wrong == null && docuverse.isCompressed() && docuverse.hasContent().equals(content)) {
+			result.add(passed(msg4));
+		} else {
+			result.add(failed(msg4, (wrong == null ? "the docuverse has not been compressed" : wrong)));
+		}
+
+		String msg5 = "Compressed docuverses in cloned documents, test";
+		EARMARKDocument cloned = (EARMARKDocument) doc.cloneNode(true);
+		Docuverse clonedDocuverse = (Docuverse) cloned.getEntityById(docuverse.hasId());
+		if (
+				clonedDocuverse != null && ((StringDocuverse) clonedDocuverse).isCompressed() &&
+				clonedDocuverse.hasContent().equals(content)) {
+			result.add(passed(msg5));
+		} else {
+			result.add(failed(msg5, "the docuverse cloned is " + clonedDocuverse));
+		}
+
+		String msg6 = "Compressed docuverses written in the binary format, test";
+		EARMARKDocument loaded = new BinaryReader().read(new BinaryWriter().write(doc));
+		Docuverse loadedDocuverse = (Docuverse) loaded.getEntityById(docuverse.hasId());
+		if (loadedDocuverse != null && loadedDocuverse.hasContent().equals(content) && docuverse.isCompressed()) {
+			result.add(passed(msg6));
+		} else {
+			result.add(failed(msg6, "the docuverse loaded is " + loadedDocuverse));
+		}
+
+		String msg7 = "String docuverses without content, test";
+		StringDocuverse none = doc.createStringDocuverse((String) null);
+		none.compress();
+		if (none.hasContent() == null && !none.isCompressed()) {
+			result.add(passed(msg7));
+		} else {
+			result.add(failed(msg7, "the docuverse contains '" + none.hasContent() + "'"));
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Compressed docuverse test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
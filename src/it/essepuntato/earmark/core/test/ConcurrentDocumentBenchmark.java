@@ -0,0 +1,193 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.Element;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A benchmark aims to check that a document in concurrent mode can be read by several threads while
+ * another thread modifies it, measuring the time spent by the readers with and without the writer.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class ConcurrentDocumentBenchmark extends AbstractTest {
+
+	private static final String text = "The quick brown fox jumps over the lazy dog. ";
+
+	private static final String note = "[note]";
+
+	private static final int numberOfParagraphs = 50;
+
+	private static final int numberOfReaders = 4;
+
+	/* The number of queries made by each reader */
+	private static final int queries = 2000;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		result.add("\n[i] Check the concurrent mode");
+		String msg1 = "Concurrent mode enabled and disabled, test";
+		EARMARKDocument doc = new EARMARKDocument(URI.create("http://www.essepuntato.it/concurrent"));
+		Element p = doc.createElement("p", Collection.Type.List);
+		doc.appendChild(p);
+		p.appendChild(doc.createPointerRange(doc.createStringDocuverse(text), 0, text.length()));
+		boolean before = doc.isConcurrent();
+		doc.setConcurrent(true);
+		boolean during = doc.isConcurrent();
+		String content = doc.getTextContent();
+		doc.setConcurrent(false);
+		if (
+				!before && during && !doc.isConcurrent() &&
+				content.equals(text) && text.equals(doc.getTextContent())) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, "the document is " + (during ? "" : "not ") + "concurrent when enabled"));
+		}
+
+		/* Warm up */
+		read(createDocument(), false);
+
+		result.add("\n[i] Check readers and a writer working on the same document");
+		String msg2 = "Queries made by several readers";
+		long alone = read(createDocument(), false);
+		long contended = read(createDocument(), true);
+		msg2 += " [" + numberOfReaders + " readers, " + queries + " queries each, without writer: " +
+			(alone / 1000000) + " ms, with writer: " + (contended / 1000000) + " ms], test";
+		if (alone >= 0 && contended >= 0) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "a reader found an inconsistent document"));
+		}
+
+		return result;
+	}
+
+	/* Create a document made by an element containing the paragraphs */
+	private EARMARKDocument createDocument() {
+		EARMARKDocument result = new EARMARKDocument(URI.create("http://www.essepuntato.it/concurrent"));
+
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < numberOfParagraphs; i++) {
+			content.append(text);
+		}
+		content.append(note);
+		Docuverse docuverse = result.createStringDocuverse(content.toString());
+
+		Element body = result.createElement("body", Collection.Type.List);
+		result.appendChild(body);
+		for (int i = 0; i < numberOfParagraphs; i++) {
+			Element p = result.createElement("p", Collection.Type.List);
+			body.appendChild(p);
+			p.appendChild(result.createPointerRange(docuverse, i * text.length(), (i + 1) * text.length()));
+		}
+
+		result.setConcurrent(true);
+
+		return result;
+	}
+
+	/* Run the readers on a document, together with a writer adding and removing notes if specified, and
+	 * return the time in ns spent, or -1 if any reader found an inconsistent document */
+	private long read(final EARMARKDocument doc, boolean withWriter) {
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfReaders + 1);
+		final Element body = (Element) doc.getFirstChild();
+		final Docuverse docuverse = doc.getAllDocuverses().iterator().next();
+		final String expected = doc.getTextContent();
+		final URI bodyId = body.hasId();
+		final boolean[] stop = new boolean[1];
+
+		Future<Boolean> writer = null;
+		if (withWriter) {
+			writer = executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					int begin = numberOfParagraphs * text.length();
+					while (!isStopped(stop)) {
+						Element element = doc.createElement("note", Collection.Type.List);
+						element.appendChild(doc.createPointerRange(docuverse, begin, begin + note.length()));
+						body.appendChild(element);
+						doc.removeMarkupItem(element);
+					}
+					return true;
+				}
+			});
+		}
+
+		long result = System.nanoTime();
+		List<Future<Boolean>> readers = new ArrayList<Future<Boolean>>();
+		for (int i = 0; i < numberOfReaders; i++) {
+			readers.add(executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					boolean consistent = true;
+					for (int j = 0; consistent && j < queries; j++) {
+						String content = body.getTextContent();
+						Collection children = body.getChildNodes();
+						EARMARKChildNode first = children.iterator().next();
+						consistent =
+							(content.equals(expected) || content.equals(expected + note)) &&
+							children.size() >= numberOfParagraphs &&
+							first.getParentNodes().contains(body) &&
+							doc.getEntityById(bodyId) == body &&
+							doc.getMarkupItemByGeneralIdentifier("p").size() == numberOfParagraphs;
+					}
+					return consistent;
+				}
+			}));
+		}
+
+		boolean consistent = true;
+		for (Future<Boolean> reader : readers) {
+			try {
+				consistent &= reader.get();
+			} catch (Exception e) {
+				consistent = false;
+			}
+		}
+		result = System.nanoTime() - result;
+
+		synchronized (stop) {
+			stop[0] = true;
+		}
+		if (writer != null) {
+			try {
+				consistent &= writer.get();
+			} catch (Exception e) {
+				consistent = false;
+			}
+		}
+		executor.shutdown();
+
+		return (consistent && doc.getTextContent().equals(expected) ? result : -1);
+	}
+
+	private boolean isStopped(boolean[] stop) {
+		synchronized (stop) {
+			return stop[0];
+		}
+	}
+
+	@Override
+	public String getTestName() {
+		return "Concurrent document benchmark";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
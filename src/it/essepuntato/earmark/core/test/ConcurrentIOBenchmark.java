@@ -0,0 +1,117 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.EARMARKDocument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A benchmark aims to check that EARMARK documents can be loaded and stored by several threads at the same
+ * time through the shared reader and writer, obtaining the same documents obtained by a single thread.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class ConcurrentIOBenchmark extends AbstractTest {
+
+	private static final int numberOfThreads = 4;
+
+	/* The number of loads and stores made by each thread */
+	private static final int roundTrips = 25;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		EARMARKDocument document = DocumentStructure.getDocument();
+		final String rdfxml = document.getDocumentAsRDFXML();
+
+		result.add("\n[i] Check consecutive loads through the same reader");
+		String msg1 = "The same document loaded twice, test";
+		EARMARKDocument first = EARMARKDocument.load(rdfxml);
+		EARMARKDocument second = EARMARKDocument.load(rdfxml);
+		if (
+				document.isEqualNode(first) && document.isEqualNode(second) &&
+				first.getAllEARMARKNode().size() == second.getAllEARMARKNode().size()) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, "the second document contains " + second.getAllEARMARKNode().size() +
+					" nodes instead of " + first.getAllEARMARKNode().size()));
+		}
+
+		/* Warm up */
+		roundTrip(rdfxml, roundTrips);
+
+		result.add("\n[i] Check loads and stores made by several threads");
+		String msg2 = "Documents loaded and stored concurrently";
+		long sequential = System.nanoTime();
+		for (int i = 0; i < numberOfThreads; i++) {
+			roundTrip(rdfxml, roundTrips);
+		}
+		sequential = System.nanoTime() - sequential;
+
+		ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+		List<Future<EARMARKDocument>> futures = new ArrayList<Future<EARMARKDocument>>();
+		long concurrent = System.nanoTime();
+		for (int i = 0; i < numberOfThreads; i++) {
+			futures.add(executor.submit(new Callable<EARMARKDocument>() {
+				@Override
+				public EARMARKDocument call() {
+					return roundTrip(rdfxml, roundTrips);
+				}
+			}));
+		}
+
+		String wrong = null;
+		for (Future<EARMARKDocument> future : futures) {
+			try {
+				EARMARKDocument loaded = future.get();
+				if (wrong == null && !document.isEqualNode(loaded)) {
+					wrong = "a document loaded differs from the original one";
+				}
+			} catch (Exception e) {
+				wrong = "a thread failed: " + e.getMessage();
+			}
+		}
+		concurrent = System.nanoTime() - concurrent;
+		executor.shutdown();
+
+		msg2 += " [" + numberOfThreads + " threads, " + roundTrips + " loads and stores each, sequential: " +
+			(sequential / 1000000) + " ms, concurrent: " + (concurrent / 1000000) + " ms], test";
+		if (wrong == null) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, wrong));
+		}
+
+		return result;
+	}
+
+	/* Load and store a document a number of times, returning the last document loaded */
+	private EARMARKDocument roundTrip(String rdfxml, int times) {
+		EARMARKDocument result = null;
+
+		String current = rdfxml;
+		for (int i = 0; i < times; i++) {
+			result = EARMARKDocument.load(current);
+			current = result.getDocumentAsRDFXML();
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Concurrent input/output benchmark";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,86 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.DocuverseContentPool;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.PointerRange;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A test aims to check that identical contents of string docuverses are shared among docuverses, clones
+ * and documents through the content pool.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class DocuverseContentPoolTest extends AbstractTest {
+
+	private static final int numberOfCollections = 10;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		result.add("\n[i] Check the sharing of the contents of docuverses");
+		String msg1 = "Same content in different documents, test";
+		EARMARKDocument one = new EARMARKDocument(URI.create("http://www.essepuntato.it/one"));
+		EARMARKDocument two = new EARMARKDocument(URI.create("http://www.essepuntato.it/two"));
+		Docuverse first = one.createStringDocuverse(new StringBuilder("Once upon a time").toString());
+		Docuverse second = two.createStringDocuverse(new StringBuilder("Once upon a time").toString());
+		Docuverse other = two.createStringDocuverse(new StringBuilder("Once upon a time.").toString());
+		if (first.hasContent() == second.hasContent() && first.hasContent() != other.hasContent()) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, "the contents are not shared"));
+		}
+
+		String msg2 = "Content of cloned ranges, test";
+		PointerRange upon = one.createPointerRange(first, 5, 9);
+		Docuverse firstClone = ((PointerRange) upon.clone()).refersTo();
+		Docuverse secondClone = ((PointerRange) two.createPointerRange(second, 5, 9).clone()).refersTo();
+		if (firstClone.hasContent().equals("upon") && firstClone.hasContent() == secondClone.hasContent()) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "the contents of the clones are not shared"));
+		}
+
+		String msg3 = "Content of cloned documents, test";
+		EARMARKDocument cloned = (EARMARKDocument) one.cloneNode(true);
+		Docuverse clonedDocuverse = (Docuverse) cloned.getEntityById(first.hasId());
+		if (clonedDocuverse != null && clonedDocuverse.hasContent() == first.hasContent()) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, "the contents of the cloned document are not shared"));
+		}
+
+		result.add("\n[i] Check the release of the contents");
+		String msg4 = "Contents not referred anymore discarded, test";
+		DocuverseContentPool pool = new DocuverseContentPool();
+		String kept = pool.share(new StringBuilder("kept").toString());
+		pool.share(new StringBuilder("discarded").toString());
+		for (int i = 0; pool.size() > 1 && i < numberOfCollections; i++) {
+			System.gc();
+		}
+		if (pool.size() == 1 && pool.share(new StringBuilder("kept").toString()) == kept) {
+			result.add(passed(msg4));
+		} else {
+			result.add(failed(msg4, "the pool contains " + pool.size() + " contents"));
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Docuverse content pool test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,262 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EditableDocuverse;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.PointerRange;
+import it.essepuntato.earmark.core.Range;
+import it.essepuntato.earmark.core.RangeTable;
+import it.essepuntato.facility.text.PieceTable;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * A test aims to check the modification of the content of editable docuverses and the consequent
+ * update of the locations of the ranges referring to them.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class EditableDocuverseTest extends AbstractTest {
+
+	private static final int numberOfEdits = 1000;
+
+	private static final int numberOfRanges = 200;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		result.add("\n[i] Check the piece table");
+		String msg1 = "Random modifications of a piece table, test";
+		Random random = new Random(17);
+		PieceTable table = new PieceTable("The quick brown fox jumps over the lazy dog");
+		StringBuilder expected = new StringBuilder(table.toString());
+		String wrong = null;
+		for (int i = 0; wrong == null && i < numberOfEdits; i++) {
+			int begin = random.nextInt(expected.length() + 1);
+			int end = begin + random.nextInt(Math.min(5, expected.length() - begin) + 1);
+			String text = (random.nextBoolean() ? "" : Integer.toString(i));
+			table.replace(begin, end, text);
+			expected.replace(begin, end, text);
+			wrong = compare(table, expected.toString(), random);
+		}
+		if (wrong == null) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, wrong));
+		}
+
+		String msg2 = "Consecutive insertions extending a piece, test";
+		PieceTable typed = new PieceTable("Hello world");
+		String word = ", dear";
+		for (int i = 0; i < word.length(); i++) {
+			typed.insert(5 + i, word.substring(i, i + 1));
+		}
+		if (typed.toString().equals("Hello, dear world") && typed.getPieceCount() == 3) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "the table contains '" + typed + "' in " + typed.getPieceCount() + " pieces"));
+		}
+
+		result.add("\n[i] Check the ranges referring to an editable docuverse");
+		EARMARKDocument doc = new EARMARKDocument(URI.create("http://www.essepuntato.it/editable"));
+		EditableDocuverse docuverse = doc.createEditableDocuverse("Fix the tpyo here");
+		PointerRange fix = doc.createPointerRange(docuverse, 0, 3);
+		PointerRange the = doc.createPointerRange(docuverse, 4, 7);
+		PointerRange typo = doc.createPointerRange(docuverse, 8, 12);
+		PointerRange here = doc.createPointerRange(docuverse, 13, 17);
+		PointerRange reversed = doc.createPointerRange(docuverse, 7, 4);
+		PointerRange empty = doc.createPointerRange(docuverse, 3, 3);
+		PointerRange all = doc.createPointerRange(docuverse, null, null);
+		RangeTable rows = doc.createRangeTable();
+		int row = rows.add(docuverse, 13, 17);
+
+		Element p = doc.createElement("p", Collection.Type.List);
+		doc.appendChild(p);
+		p.appendChild(fix);
+		p.appendChild(the);
+		p.appendChild(typo);
+		p.appendChild(here);
+		String before = p.getTextContent();
+
+		String msg3 = "Replacement of a portion within a range, test";
+		docuverse.replace(8, 12, "typo");
+		if (
+				before.equals("Fixthetpyohere") && p.getTextContent().equals("Fixthetypohere") &&
+				typo.getTextContent().equals("typo") && here.getTextContent().equals("here")) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, "the text content is '" + p.getTextContent() + "'"));
+		}
+
+		String msg4 = "Insertion before the ranges, test";
+		docuverse.insert(3, "ed");
+		docuverse.insert(0, ">> ");
+		if (
+				fix.getTextContent().equals("Fix") && the.getTextContent().equals("the") &&
+				reversed.getTextContent().equals("eht") &&
+				empty.getTextContent().equals("") && empty.begins() == 8 &&
+				all.getTextContent().equals(">> Fixed the typo here") &&
+				rows.getTextContent(row).equals("here") && p.getTextContent().equals("Fixthetypohere")) {
+			result.add(passed(msg4));
+		} else {
+			result.add(failed(msg4, "the text content is '" + p.getTextContent() + "'"));
+		}
+
+		String msg5 = "Deletion across ranges, test";
+		docuverse.delete(11, 15);
+		if (
+				the.getTextContent().equals("th") && typo.getTextContent().equals("po") &&
+				here.getTextContent().equals("here") && rows.getTextContent(row).equals("here") &&
+				p.getTextContent().equals("Fixthpohere") &&
+				doc.createPointerRange(docuverse, 9, 11) == the &&
+				doc.findRangesContaining(docuverse, 12).contains(typo)) {
+			result.add(passed(msg5));
+		} else {
+			result.add(failed(msg5, "the text content is '" + p.getTextContent() + "'"));
+		}
+
+		String msg6 = "Index of the ranges after random modifications, test";
+		EARMARKDocument randomDoc = new EARMARKDocument(URI.create("http://www.essepuntato.it/editable"));
+		EditableDocuverse randomDocuverse = randomDoc.createEditableDocuverse(expected.toString());
+		List<PointerRange> ranges = new ArrayList<PointerRange>();
+		for (int i = 0; i < numberOfRanges; i++) {
+			int length = randomDocuverse.getText().length();
+			ranges.add(randomDoc.createPointerRange(
+					randomDocuverse, random.nextInt(length + 1), random.nextInt(length + 1)));
+		}
+		wrong = null;
+		for (int i = 0; wrong == null && i < numberOfEdits; i++) {
+			int length = randomDocuverse.getText().length();
+			int begin = random.nextInt(length + 1);
+			int end = begin + random.nextInt(Math.min(5, length - begin) + 1);
+			randomDocuverse.replace(begin, end, (random.nextBoolean() ? "" : Integer.toString(i)));
+			wrong = checkIndex(randomDoc, randomDocuverse, ranges, random);
+		}
+		if (wrong == null) {
+			result.add(passed(msg6));
+		} else {
+			result.add(failed(msg6, wrong));
+		}
+
+		String msg7 = "Locations of the ranges and of the rows after random modifications, test";
+		EARMARKDocument shiftDoc = new EARMARKDocument(URI.create("http://www.essepuntato.it/editable"));
+		EditableDocuverse shiftDocuverse = shiftDoc.createEditableDocuverse(expected.toString());
+		RangeTable shiftRows = shiftDoc.createRangeTable();
+		List<PointerRange> shiftRanges = new ArrayList<PointerRange>();
+		for (int i = 0; i < numberOfRanges; i++) {
+			int length = shiftDocuverse.getText().length();
+			Integer begin = (i % 10 == 0 ? null : random.nextInt(length + 1));
+			Integer end = (i % 10 == 5 ? null : random.nextInt(length + 1));
+			PointerRange range = shiftDoc.createPointerRange(shiftDocuverse, begin, end);
+			if (!shiftRanges.contains(range)) {
+				shiftRanges.add(range);
+				shiftRows.add(shiftDocuverse, range.beginOffset(), range.endOffset());
+			}
+		}
+		wrong = null;
+		for (int i = 0; wrong == null && i < numberOfEdits; i++) {
+			int length = shiftDocuverse.getText().length();
+			int begin = random.nextInt(length + 1);
+			int end = begin + random.nextInt(Math.min(5, length - begin) + 1);
+			shiftDocuverse.replace(begin, end, (random.nextBoolean() ? "" : Integer.toString(i)));
+			if (i % 50 == 0 || i == numberOfEdits - 1) {
+				wrong = checkLocations(shiftDoc, shiftDocuverse, shiftRanges, shiftRows);
+			}
+		}
+		if (wrong == null) {
+			result.add(passed(msg7));
+		} else {
+			result.add(failed(msg7, wrong));
+		}
+
+		return result;
+	}
+
+	/* Compare the characters and some portions of a piece table with the expected text */
+	private String compare(PieceTable table, String expected, Random random) {
+		if (!table.toString().equals(expected) || table.length() != expected.length()) {
+			return "the table contains '" + table + "' instead of '" + expected + "'";
+		}
+
+		if (expected.length() > 0) {
+			table.insert(0, "");
+			int index = random.nextInt(expected.length());
+			if (table.charAt(index) != expected.charAt(index)) {
+				return "the character " + index + " is '" + table.charAt(index) + "'";
+			}
+			int end = index + random.nextInt(expected.length() - index + 1);
+			if (!table.subSequence(index, end).toString().equals(expected.substring(index, end))) {
+				return "the portion from " + index + " to " + end + " is '" + table.subSequence(index, end) + "'";
+			}
+		}
+
+		return null;
+	}
+
+	/* Compare the ranges retrieved through the index of the document with the ones found by brute force */
+	private String checkIndex(EARMARKDocument doc, EditableDocuverse docuverse, List<PointerRange> ranges,
+			Random random) {
+		int length = docuverse.getText().length();
+		int begin = random.nextInt(length + 1);
+		int end = begin + random.nextInt(length - begin + 1);
+
+		Set<Range> expected = new HashSet<Range>();
+		for (PointerRange range : ranges) {
+			int low = Math.min(range.begins(), range.ends());
+			int high = Math.max(range.begins(), range.ends());
+			if (high > length) {
+				return "the range " + range.hasId() + " ends after the content";
+			}
+			if (low < end && (high > begin || (low == high && low >= begin))) {
+				expected.add(range);
+			}
+		}
+
+		Set<Range> found = new HashSet<Range>(doc.findRangesOverlapping(docuverse, begin, end));
+		if (!expected.equals(found)) {
+			return "the ranges overlapping [" + begin + ", " + end + ") are " + found + " instead of " + expected;
+		}
+
+		return null;
+	}
+
+	/* Compare the locations of the ranges, kept by the index of the document, with the ones of the rows of
+	 * a table, to which the same edits are applied when they are read */
+	private String checkLocations(EARMARKDocument doc, EditableDocuverse docuverse, List<PointerRange> ranges,
+			RangeTable rows) {
+		for (int i = 0; i < ranges.size(); i++) {
+			PointerRange range = ranges.get(i);
+			if (range.beginOffset() != rows.getBegin(i) || range.endOffset() != rows.getEnd(i)) {
+				return "the range " + range.hasId() + " is [" + range.begins() + ", " + range.ends() + 
+					"] instead of [" + rows.getBegin(i) + ", " + rows.getEnd(i) + "]";
+			}
+			if (!ranges.contains(doc.createPointerRange(docuverse, range.begins(), range.ends()))) {
+				return "no range found at [" + range.begins() + ", " + range.ends() + "]";
+			}
+			if (!rows.getTextContent(i).equals(range.getTextContent())) {
+				return "the range " + range.hasId() + " contains '" + range.getTextContent() + "'";
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Editable docuverse test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,134 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.PointerRange;
+import it.essepuntato.earmark.core.exception.ExistingIdException;
+import it.essepuntato.earmark.core.id.ContentHashIdGenerator;
+import it.essepuntato.earmark.core.id.UUIDIdGenerator;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A test aims to check the generation of the ids of the items created without an explicit id.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class IdGeneratorTest extends AbstractTest {
+
+	private static final String base = "http://www.essepuntato.it/idgenerator";
+	private static final int numberOfItems = 20000;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		result.add("\n[i] Check the generated ids after the use of explicit ones");
+		String msg1 = "Generated ids following explicit ids, test";
+		try {
+			EARMARKDocument doc = new EARMARKDocument(URI.create(base));
+			Docuverse docuverse = doc.createStringDocuverse("docuverse1", "Some text");
+			doc.createPointerRange("r1", docuverse, 0, 4);
+			doc.createPointerRange("r7", docuverse, 5, 9);
+			doc.createElement("e5", "e", Collection.Type.List);
+
+			PointerRange range = doc.createPointerRange(docuverse, 0, 9);
+			Element element = doc.createElement("e", Collection.Type.List);
+			Docuverse other = doc.createStringDocuverse("Other text");
+			if (
+					range.hasId().toString().equals(base + EARMARKDocument.SEPARATOR + "r8") &&
+					element.hasId().toString().equals(base + EARMARKDocument.SEPARATOR + "e6") &&
+					other.hasId().toString().equals(base + EARMARKDocument.SEPARATOR + "docuverse2")) {
+				result.add(passed(msg1));
+			} else {
+				result.add(failed(msg1, "the ids generated are " +
+						range.hasId() + ", " + element.hasId() + " and " + other.hasId()));
+			}
+		} catch (ExistingIdException e) {
+			result.add(failed(msg1, e.getMessage()));
+		}
+
+		result.add("\n[i] Check the generated ids of a loaded document");
+		String msg2 = "Generated ids not clashing with loaded ones, test";
+		EARMARKDocument loaded = EARMARKDocument.load(DocumentStructure.getDocument().getDocumentAsRDFXML());
+		int size = loaded.getIdPool().size();
+		for (Docuverse docuverse : loaded.getAllDocuverses()) {
+			loaded.createPointerRange(docuverse, 1, 2);
+			loaded.createPointerRange(docuverse, 2, 3);
+		}
+		loaded.createElement("p", Collection.Type.List);
+		loaded.createElement(Collection.Type.Bag);
+		int expected = size + loaded.getAllDocuverses().size() * 2 + 2;
+		if (loaded.getIdPool().size() == expected) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "there are " + loaded.getIdPool().size() + " ids instead of " + expected));
+		}
+
+		result.add("\n[i] Check the ids generated by the default generator");
+		result.add(checkUniqueness(new EARMARKDocument(URI.create(base)), "Default generator"));
+
+		result.add("\n[i] Check the ids generated by the UUID generator");
+		EARMARKDocument uuidDoc = new EARMARKDocument(URI.create(base));
+		uuidDoc.setIdGenerator(new UUIDIdGenerator());
+		result.add(checkUniqueness(uuidDoc, "UUID generator"));
+
+		result.add("\n[i] Check the ids generated by the content-hash generator");
+		EARMARKDocument hashDoc = new EARMARKDocument(URI.create(base));
+		hashDoc.setIdGenerator(new ContentHashIdGenerator());
+		result.add(checkUniqueness(hashDoc, "Content-hash generator"));
+
+		String msg3 = "Same ids for the same content in different documents, test";
+		EARMARKDocument one = new EARMARKDocument(URI.create(base));
+		one.setIdGenerator(new ContentHashIdGenerator());
+		EARMARKDocument two = new EARMARKDocument(URI.create(base));
+		two.setIdGenerator(new ContentHashIdGenerator());
+		URI idOne = one.createPointerRange(one.createStringDocuverse("Some text"), 0, 4).hasId();
+		URI idTwo = two.createPointerRange(two.createStringDocuverse("Some text"), 0, 4).hasId();
+		if (idOne.equals(idTwo)) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, idOne + " differs from " + idTwo));
+		}
+
+		return result;
+	}
+
+	/* Create a lot of items without explicit ids and check that all of them have a different id */
+	private String checkUniqueness(EARMARKDocument doc, String generator) {
+		String msg = generator + " creating " + numberOfItems + " distinct ids, test";
+
+		Set<URI> ids = new HashSet<URI>();
+		Docuverse docuverse = doc.createStringDocuverse("Some text");
+		ids.add(docuverse.hasId());
+		for (int i = 0; i < numberOfItems; i++) {
+			ids.add(doc.createElement("p", Collection.Type.List).hasId());
+			ids.add(doc.createPointerRange(docuverse, i, i + 1).hasId());
+		}
+
+		int expected = numberOfItems * 2 + 1;
+		if (ids.size() == expected && doc.getIdPool().size() == expected) {
+			return passed(msg);
+		} else {
+			return failed(msg, "there are " + ids.size() + " ids instead of " + expected);
+		}
+	}
+
+	@Override
+	public String getTestName() {
+		return "Id generator test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,198 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EditableDocuverse;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.MarkupItem;
+import it.essepuntato.earmark.core.Range;
+import it.essepuntato.earmark.core.io.DocumentJournal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**
+ * A test aims to check that the modifications of the documents recorded in their journals are replayed
+ * when the documents are opened, also after the compaction of the journals.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class JournalTest extends AbstractTest {
+
+	private static final int paragraphs = 2000;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		EARMARKDocument document = DocumentStructure.getDocument();
+		File file = null;
+		DocumentJournal journal = null;
+		try {
+			file = File.createTempFile("earmark", ".emkb");
+			file.deleteOnExit();
+			new File(file.getPath() + ".journal").deleteOnExit();
+			journal = DocumentJournal.create(document, file);
+		} catch (IOException e) {
+			result.add(failed("Journal created, test", e.getMessage()));
+			return result;
+		}
+
+		result.add("\n[i] Check the modifications recorded");
+		String msg1 = "Size of the journal after appending an attribute to a large document";
+		try {
+			EARMARKDocument large = createLargeDocument();
+			File largeFile = File.createTempFile("earmark", ".emkb");
+			largeFile.deleteOnExit();
+			new File(largeFile.getPath() + ".journal").deleteOnExit();
+			DocumentJournal largeJournal = DocumentJournal.create(large, largeFile);
+			MarkupItem root = (MarkupItem) large.getFirstChild();
+			root.appendChild(large.createAttribute("id", Collection.Type.Set));
+			largeJournal.close();
+			msg1 += " [journal: " + largeJournal.getSize() + " bytes, snapshot: " + largeFile.length() + " bytes], test";
+			if (largeJournal.getSize() > 0 && largeJournal.getSize() < largeFile.length() / 100) {
+				result.add(passed(msg1));
+			} else {
+				result.add(failed(msg1, "the journal is not much smaller than the snapshot"));
+			}
+		} catch (Exception e) {
+			result.add(failed(msg1 + ", test", e.getMessage()));
+		}
+
+		String msg2 = "Modifications replayed, test";
+		EARMARKDocument reopened = null;
+		try {
+			modify(document);
+			journal.close();
+			reopened = DocumentJournal.open(file).getDocument();
+			if (isSame(document, reopened)) {
+				result.add(passed(msg2));
+			} else {
+				result.add(failed(msg2, "the document replayed differs from the one modified"));
+			}
+		} catch (Exception e) {
+			result.add(failed(msg2, e.getMessage()));
+		}
+
+		String msg3 = "Last record not entirely written ignored, test";
+		try {
+			FileOutputStream output = new FileOutputStream(file.getPath() + ".journal", true);
+			output.write(new byte[] { 100, 3, 1 });
+			output.close();
+			journal = DocumentJournal.open(file);
+			Element verse = (Element) journal.getDocument().getEntityById("verse3");
+			verse.appendChild(journal.getDocument().createComment("note", Collection.Type.Set));
+			journal.close();
+			reopened = DocumentJournal.open(file).getDocument();
+			if (isSame(journal.getDocument(), reopened)) {
+				result.add(passed(msg3));
+			} else {
+				result.add(failed(msg3, "the document replayed differs from the one modified"));
+			}
+		} catch (Exception e) {
+			result.add(failed(msg3, e.getMessage()));
+		}
+
+		result.add("\n[i] Check the compaction");
+		String msg4 = "Journal folded in background while modifying the document, test";
+		try {
+			journal = DocumentJournal.open(file);
+			EARMARKDocument modified = journal.getDocument();
+			long size = journal.getSize();
+			boolean compacted = journal.compactInBackground().get();
+			Element stanza = (Element) modified.getEntityById("stanza");
+			stanza.appendChild(modified.createElement("added", Collection.Type.List));
+			journal.close();
+			reopened = DocumentJournal.open(file).getDocument();
+			if (
+					compacted && size > 0 && journal.getSize() < size &&
+					!new File(file.getPath() + ".journal.compacting").exists() && isSame(modified, reopened)) {
+				result.add(passed(msg4));
+			} else {
+				result.add(failed(msg4, "the journal has not been folded into the snapshot"));
+			}
+		} catch (Exception e) {
+			result.add(failed(msg4, e.getMessage()));
+		}
+
+		return result;
+	}
+
+	/* Apply all the kinds of modifications recorded by the journals */
+	private void modify(EARMARKDocument document) throws Exception {
+		Element stanza = (Element) document.getEntityById("stanza");
+		Element verse1 = (Element) document.getEntityById("verse1");
+		Element verse3 = (Element) document.getEntityById("verse3");
+
+		Element title = document.createElement("title", Collection.Type.List);
+		stanza.insertBefore(title, verse1);
+		EditableDocuverse editable = document.createEditableDocuverse(
+				document.hasId().resolve("editable"), "Paradise Lost");
+		Range range = document.createPointerRange(editable, 0, 8);
+		title.appendChild(range);
+		editable.replace(0, 8, "Paradise");
+		stanza.replaceChild(document.createElement("line", Collection.Type.Bag), verse3);
+		stanza.removeChild(verse1);
+		document.removeMarkupItem((MarkupItem) document.getEntityById("unit1"));
+
+		Model model = document.getModel();
+		Resource note = model.createResource();
+		model.add(note, RDFS.label, model.createLiteral("A note", "en"));
+		model.add(model.createResource(title.hasId().toString()), RDFS.comment, note);
+		model.add(note, RDFS.comment, "removed");
+		model.remove(note, RDFS.comment, model.createLiteral("removed"));
+	}
+
+	/* Create a document made by many paragraphs, each containing a range */
+	private EARMARKDocument createLargeDocument() throws Exception {
+		EARMARKDocument result = new EARMARKDocument(URI.create("http://www.essepuntato.it/journal"));
+
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < paragraphs; i++) {
+			content.append("Paragraph ").append(i).append(". ");
+		}
+		Docuverse text = result.createStringDocuverse(content.toString());
+
+		Element body = result.createElement("body", Collection.Type.List);
+		result.appendChild(body);
+		int begin = 0;
+		for (int i = 0; i < paragraphs; i++) {
+			Element paragraph = result.createElement("p", Collection.Type.List);
+			body.appendChild(paragraph);
+			int end = content.indexOf(". ", begin) + 2;
+			paragraph.appendChild(result.createPointerRange(text, begin, end));
+			begin = end;
+		}
+
+		return result;
+	}
+
+	/* Check whether two documents have the same structure, text and assertions */
+	private boolean isSame(EARMARKDocument document, EARMARKDocument other) {
+		return
+			document.isEqualNode(other) && document.getTextContent().equals(other.getTextContent()) &&
+			document.getAllEARMARKNode().size() == other.getAllEARMARKNode().size() &&
+			document.getModel().isIsomorphicWith(other.getModel());
+	}
+
+	@Override
+	public String getTestName() {
+		return "Journal test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
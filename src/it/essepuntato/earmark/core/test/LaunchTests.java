@@ -36,6 +36,28 @@ public class LaunchTests {
 		tests.add(new LoadTest());
 		tests.add(new StoreTest(DocumentStructure.getDocument()));
 		tests.add(new FrancescoPoggiTestOne(DocumentCreation.getDocument()));
+		tests.add(new RangeIndexTest(DocumentStructure.getDocument()));
+		tests.add(new RangeCreationBenchmark());
+		tests.add(new IdGeneratorTest());
+		tests.add(new RangeTableTest());
+		tests.add(new TextContentTest(DocumentStructure.getDocument()));
+		tests.add(new XPathRangeTest());
+		tests.add(new URIDocuverseTest());
+		tests.add(new MappedFileDocuverseTest());
+		tests.add(new EditableDocuverseTest());
+		tests.add(new DocuverseContentPoolTest());
+		tests.add(new CompressedDocuverseTest());
+		tests.add(new ConcurrentIOBenchmark());
+		tests.add(new ConcurrentDocumentBenchmark());
+		tests.add(new SnapshotTest());
+		tests.add(new ParallelReaderBenchmark());
+		tests.add(new StreamingReaderTest());
+		tests.add(new StreamingWriterTest());
+		tests.add(new BinaryFormatTest());
+		tests.add(new LazyDocumentTest());
+		tests.add(new JournalTest());
+		tests.add(new RootDetectionTest());
+		tests.add(new TypeClassificationTest());
 		
 		for (EARMARKTest test : tests) {
 			System.out.print("\n*** BEGIN: " + test.getTestName() + " ***\n");
@@ -0,0 +1,294 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EARMARKHierarchicalNode;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.Range;
+import it.essepuntato.earmark.core.exception.ExistingIdException;
+import it.essepuntato.earmark.core.io.BinaryReader;
+import it.essepuntato.earmark.core.io.BinaryWriter;
+import it.essepuntato.earmark.core.io.LazyDocument;
+import it.essepuntato.facility.text.MappedFileText;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**
+ * A test aims to check that the documents opened from indexed binary files read only the items reached,
+ * and that they behave as the documents loaded entirely.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class LazyDocumentTest extends AbstractTest {
+
+	private static final String base = "http://www.essepuntato.it/lazy/";
+	private static final int sections = 300;
+	private static final int paragraphs = 5;
+	private static final String label = "A document opened lazily";
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		EARMARKDocument document = createDocument();
+		BinaryWriter writer = new BinaryWriter();
+		writer.setIndexed(true);
+		BinaryReader reader = new BinaryReader();
+
+		File file = null;
+		File plain = null;
+		try {
+			file = File.createTempFile("earmark", ".emkb");
+			file.deleteOnExit();
+			plain = File.createTempFile("earmark", ".emkb");
+			plain.deleteOnExit();
+			writer.write(document, file);
+			new BinaryWriter().write(document, plain);
+		} catch (IOException e) {
+			result.add(failed("Indexed document stored in a file, test", e.getMessage()));
+			return result;
+		}
+
+		result.add("\n[i] Check the items read when reached");
+		String msg1 = "Indexed document read entirely by the binary reader, test";
+		try {
+			if (document.isEqualNode(reader.read(file))) {
+				result.add(passed(msg1));
+			} else {
+				result.add(failed(msg1, "the document loaded differs from the one stored"));
+			}
+		} catch (IOException e) {
+			result.add(failed(msg1, e.getMessage()));
+		}
+
+		String msg2 = "Non-indexed document not opened, test";
+		try {
+			reader.open(plain);
+			result.add(failed(msg2, "the document has been opened without the index"));
+		} catch (IOException e) {
+			result.add(passed(msg2));
+		}
+
+		LazyDocument lazy = null;
+		try {
+			lazy = reader.open(file);
+		} catch (IOException e) {
+			result.add(failed("Indexed document opened, test", e.getMessage()));
+			return result;
+		}
+
+		String msg3 = "Nothing read when opening, test";
+		if (lazy.hasId().equals(document.hasId()) && lazy.getMaterializedItemCount() == 0) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, lazy.getMaterializedItemCount() + " items have been read"));
+		}
+
+		String msg4 = "Item asked by id read alone, test";
+		URI id = URI.create(base + "s200p3");
+		Element original = (Element) document.getEntityById(id);
+		Element element = (Element) lazy.getEntityById(id);
+		if (
+				element != null && element.hasGeneralIdentifier().equals(original.hasGeneralIdentifier()) &&
+				lazy.getMaterializedItemCount() == 1 &&
+				lazy.getEntityById(URI.create(base + "missing")) == null) {
+			result.add(passed(msg4));
+		} else {
+			result.add(failed(msg4, lazy.getMaterializedItemCount() + " items have been read"));
+		}
+
+		String msg5 = "Children and text content read when asked, test";
+		if (
+				element.getChildNodes().size() == original.getChildNodes().size() &&
+				element.getTextContent().equals(original.getTextContent()) &&
+				lazy.getMaterializedItemCount() == 3) {
+			result.add(passed(msg5));
+		} else {
+			result.add(failed(msg5, lazy.getMaterializedItemCount() + " items have been read"));
+		}
+
+		String msg6 = "Content of the docuverses decoded from the file when accessed, test";
+		Docuverse docuverse = null;
+		for (EARMARKChildNode child : element.getChildNodes()) {
+			if (docuverse == null && child instanceof Range) {
+				docuverse = ((Range) child).refersTo();
+			}
+		}
+		if (docuverse != null && docuverse.getText() instanceof MappedFileText) {
+			result.add(passed(msg6));
+		} else {
+			result.add(failed(msg6, "the content of the docuverse " + docuverse + " has been read in memory"));
+		}
+
+		String msg7 = "Parents and siblings read when asked, test";
+		Element shared = (Element) lazy.getEntityById(URI.create(base + "shared"));
+		Set<URI> parents = new HashSet<URI>();
+		for (EARMARKHierarchicalNode parent : shared.getParentNodes()) {
+			parents.add(((Element) parent).hasId());
+		}
+		if (
+				parents.size() == 2 && parents.contains(URI.create(base + "s0")) &&
+				parents.contains(URI.create(base + "s" + (sections - 1))) &&
+				element.getParentNode() != null &&
+				((Element) element.getParentNode()).hasId().equals(URI.create(base + "s200")) &&
+				lazy.getMaterializedItemCount() < (sections * paragraphs) / 10) {
+			result.add(passed(msg7));
+		} else {
+			result.add(failed(msg7, lazy.getMaterializedItemCount() + " items have been read"));
+		}
+
+		result.add("\n[i] Check the whole document");
+		String msg8 = "Assertions read when asked, test";
+		if (lazy.getModel().contains(null, RDFS.label, label)) {
+			result.add(passed(msg8));
+		} else {
+			result.add(failed(msg8, "the additional assertions have not been read"));
+		}
+
+		String msg9 = "Document read entirely, test";
+		if (
+				document.getTextContent().equals(lazy.getTextContent()) &&
+				lazy.getAllEARMARKNode().size() == document.getAllEARMARKNode().size() &&
+				document.isEqualNode(lazy)) {
+			result.add(passed(msg9));
+		} else {
+			result.add(failed(msg9, "the document read differs from the one stored"));
+		}
+
+		String msg10 = "Document modified after being read entirely, test";
+		try {
+			LazyDocument modified = reader.open(file);
+			Element section = (Element) modified.getEntityById(URI.create(base + "s10"));
+			section.appendChild(modified.createElement("added", Collection.Type.Set));
+			if (
+					modified.getMaterializedItemCount() == document.getAllEARMARKNode().size() + 1 &&
+					modified.getChildNodes().size() == sections) {
+				result.add(passed(msg10));
+			} else {
+				result.add(failed(msg10, "the document has not been read before being modified"));
+			}
+		} catch (Exception e) {
+			result.add(failed(msg10, e.getMessage()));
+		}
+
+		result.add("\n[i] Compare the opening with the loading of the whole document");
+		String msg11 = "Time for getting the text of a node";
+		try {
+			long lazyTime = System.nanoTime();
+			String text = ((Element) reader.open(file).getEntityById(id)).getTextContent();
+			lazyTime = System.nanoTime() - lazyTime;
+			long fullTime = System.nanoTime();
+			String fullText = ((Element) reader.read(file).getEntityById(id)).getTextContent();
+			fullTime = System.nanoTime() - fullTime;
+
+			msg11 += " [opened: " + (lazyTime / 1000000) + " ms, loaded: " + (fullTime / 1000000) + " ms], test";
+			if (text.equals(fullText)) {
+				result.add(passed(msg11));
+			} else {
+				result.add(failed(msg11, "the texts differ"));
+			}
+		} catch (IOException e) {
+			result.add(failed(msg11 + ", test", e.getMessage()));
+		}
+
+		result.add("\n[i] Check the ids of the items created before reading the document");
+		String msg12 = "Ids generated not used by the items not read yet, test";
+		try {
+			EARMARKDocument small = new EARMARKDocument(URI.create(base + "small"));
+			Element root = small.createElement("root", Collection.Type.List);
+			small.appendChild(root);
+			root.appendChild(small.createPointerRange(small.createStringDocuverse("Some text"), 0, 4));
+			File smallFile = File.createTempFile("earmark", ".emkb");
+			smallFile.deleteOnExit();
+			writer.write(small, smallFile);
+
+			LazyDocument opened = reader.open(smallFile);
+			Element created = opened.createElement("root", Collection.Type.List);
+			opened.materializeAll();
+			Element stored = (Element) opened.getEntityById(root.hasId());
+			if (
+					!created.hasId().equals(root.hasId()) && stored != null && stored != created &&
+					stored.getChildNodes().size() == 1 && opened.getChildNodes().size() == 1) {
+				result.add(passed(msg12));
+			} else {
+				result.add(failed(msg12, "the id " + created.hasId() + " of the stored element has been reused"));
+			}
+
+			String msg13 = "Ids of the items not read yet refused, test";
+			opened = reader.open(smallFile);
+			try {
+				opened.createElement(root.hasId(), "root", null, Collection.Type.List);
+				result.add(failed(msg13, "the id " + root.hasId() + " has been accepted"));
+			} catch (ExistingIdException e) {
+				if (opened.getMaterializedItemCount() == 0) {
+					result.add(passed(msg13));
+				} else {
+					result.add(failed(msg13, opened.getMaterializedItemCount() + " items have been read"));
+				}
+			}
+		} catch (Exception e) {
+			result.add(failed(msg12, e.getMessage()));
+		}
+
+		return result;
+	}
+
+	/* Create a document made by many sections of paragraphs, and a paragraph shared by two sections */
+	private EARMARKDocument createDocument() {
+		EARMARKDocument result = new EARMARKDocument(URI.create(base + "document"));
+
+		try {
+			StringBuilder content = new StringBuilder();
+			for (int i = 0; i < sections * paragraphs; i++) {
+				content.append("Paragraph ").append(i).append(". ");
+			}
+			Docuverse text = result.createStringDocuverse(content.toString());
+
+			int begin = 0;
+			for (int i = 0; i < sections; i++) {
+				Element section = result.createElement(URI.create(base + "s" + i), "section", Collection.Type.List);
+				result.appendChild(section);
+				for (int j = 0; j < paragraphs; j++) {
+					Element paragraph = result.createElement(
+							URI.create(base + "s" + i + "p" + j), "p", Collection.Type.List);
+					section.appendChild(paragraph);
+					int end = content.indexOf(". ", begin) + 2;
+					paragraph.appendChild(result.createPointerRange(text, begin, end));
+					begin = end;
+				}
+			}
+
+			Element shared = result.createElement(URI.create(base + "shared"), "note", Collection.Type.Set);
+			((Element) result.getEntityById(URI.create(base + "s0"))).appendChild(shared);
+			((Element) result.getEntityById(URI.create(base + "s" + (sections - 1)))).appendChild(shared);
+
+			result.assertsAsSubject(RDFS.label, result.getModel().createLiteral(label));
+		} catch (Exception e) {
+			return null;
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Lazy document test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
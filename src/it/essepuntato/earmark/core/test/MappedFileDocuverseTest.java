@@ -0,0 +1,159 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.MappedFileDocuverse;
+import it.essepuntato.earmark.core.PointerRange;
+import it.essepuntato.facility.text.MappedFileText;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A test aims to check the textual content of docuverses whose content is a memory-mapped file.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class MappedFileDocuverseTest extends AbstractTest {
+
+	private static final String line = "Once upon a time, caffè € 😀 end\r\n";
+
+	private static final int numberOfLines = 500;
+
+	private static final int numberOfSlices = 500;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < numberOfLines; i++) {
+			builder.append(i).append(' ').append(line);
+		}
+		String content = builder.toString();
+		String ascii = content.replaceAll("[^\\p{ASCII}]", "?");
+
+		try {
+			File file = createFile(content);
+			File asciiFile = createFile(ascii);
+
+			result.add("\n[i] Check the content of mapped files");
+			result.add(checkText(new MappedFileText(file, 7), content, "Content of a file mapped in segments"));
+			result.add(checkText(new MappedFileText(file), content, "Content of a file mapped as a whole"));
+			result.add(checkText(new MappedFileText(asciiFile, 5), ascii, "Content of an ASCII file"));
+
+			result.add("\n[i] Check the text content of pointer ranges on mapped files");
+			String msg1 = "Text content of pointer ranges, test";
+			EARMARKDocument doc = new EARMARKDocument(URI.create("http://www.essepuntato.it/mapped"));
+			MappedFileDocuverse docuverse = doc.createMappedFileDocuverse(file.toURI());
+			Random random = new Random(11);
+			String wrong = null;
+			for (int i = 0; wrong == null && i < numberOfSlices; i++) {
+				int begin = random.nextInt(content.length() + 1);
+				int end = random.nextInt(content.length() + 1);
+				PointerRange range = doc.createPointerRange(docuverse, begin, end);
+				String expected = (begin <= end ?
+						content.substring(begin, end) :
+						new StringBuilder(content.substring(end, begin)).reverse().toString());
+				if (!expected.equals(range.getTextContent())) {
+					wrong = "the range from " + begin + " to " + end + " contains '" + range.getTextContent() + "'";
+				}
+			}
+			PointerRange outside = doc.createPointerRange(docuverse, 0, content.length() + 1);
+			if (wrong == null && outside.getTextContent() == null) {
+				result.add(passed(msg1));
+			} else {
+				result.add(failed(msg1, (wrong == null ? "the range out of the content is not null" : wrong)));
+			}
+
+			String msg2 = "Mapped file docuverses in cloned documents, test";
+			EARMARKDocument cloned = (EARMARKDocument) doc.cloneNode(true);
+			Docuverse clonedDocuverse = (Docuverse) cloned.getEntityById(docuverse.hasId());
+			if (
+					clonedDocuverse.getType() == Docuverse.Type.MappedFileDocuverse &&
+					clonedDocuverse.getText().length() == content.length()) {
+				result.add(passed(msg2));
+			} else {
+				result.add(failed(msg2, "the docuverse cloned is " + clonedDocuverse));
+			}
+
+			String msg3 = "Mapped file docuverse referring to a missing file, test";
+			File missing = new File(file.getPath() + ".missing");
+			MappedFileDocuverse missingDocuverse = doc.createMappedFileDocuverse(missing.toURI());
+			if (missingDocuverse.getText().length() == 0) {
+				result.add(passed(msg3));
+			} else {
+				result.add(failed(msg3, "the docuverse has a content"));
+			}
+
+			file.delete();
+			asciiFile.delete();
+		} catch (IOException e) {
+			result.add(failed("Mapping of files, test", e.getMessage()));
+		}
+
+		return result;
+	}
+
+	/* Compare the characters, the whole content and some portions of a mapped file with the expected ones */
+	private String checkText(MappedFileText text, String expected, String test) {
+		String msg = test + ", test";
+
+		if (text.length() != expected.length()) {
+			return failed(msg, "the length is " + text.length() + " instead of " + expected.length());
+		}
+
+		for (int i = 0; i < expected.length(); i++) {
+			if (text.charAt(i) != expected.charAt(i)) {
+				return failed(msg, "the character " + i + " is '" + text.charAt(i) + "'");
+			}
+		}
+
+		if (!text.toString().equals(expected)) {
+			return failed(msg, "the content is different");
+		}
+
+		Random random = new Random(7);
+		for (int i = 0; i < numberOfSlices; i++) {
+			int begin = random.nextInt(expected.length() + 1);
+			int end = begin + random.nextInt(expected.length() - begin + 1);
+			CharSequence slice = text.subSequence(begin, end);
+			if (!slice.toString().equals(expected.substring(begin, end)) || slice.length() != end - begin) {
+				return failed(msg, "the portion from " + begin + " to " + end + " is '" + slice + "'");
+			}
+		}
+
+		return passed(msg);
+	}
+
+	private File createFile(String text) throws IOException {
+		File result = File.createTempFile("earmark", ".txt");
+		result.deleteOnExit();
+
+		FileOutputStream out = new FileOutputStream(result);
+		try {
+			out.write(text.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Mapped file docuverse test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
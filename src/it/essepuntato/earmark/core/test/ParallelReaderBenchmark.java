@@ -0,0 +1,113 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Attribute;
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.io.JenaReader;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A benchmark aims to check that a big EARMARK document loaded by a reader building its items in parallel
+ * is the same loaded sequentially, measuring the time spent in both cases.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class ParallelReaderBenchmark extends AbstractTest {
+
+	private static final String text = "The quick brown fox jumps over the lazy dog. ";
+
+	private static final int numberOfParagraphs = 1200;
+
+	private static final int numberOfThreads = 4;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		EARMARKDocument document = createDocument();
+		String rdfxml = document.getDocumentAsRDFXML();
+
+		JenaReader sequentialReader = new JenaReader();
+		sequentialReader.setParallelism(1);
+		JenaReader parallelReader = new JenaReader();
+		parallelReader.setParallelism(numberOfThreads);
+
+		/* Warm up */
+		sequentialReader.read(rdfxml);
+		parallelReader.read(rdfxml);
+
+		result.add("\n[i] Check the documents loaded in parallel");
+		String msg1 = "Big document loaded sequentially and in parallel";
+		long sequential = System.nanoTime();
+		EARMARKDocument first = sequentialReader.read(rdfxml);
+		sequential = System.nanoTime() - sequential;
+		long parallel = System.nanoTime();
+		EARMARKDocument second = parallelReader.read(rdfxml);
+		parallel = System.nanoTime() - parallel;
+		msg1 += " [" + document.getAllEARMARKNode().size() + " nodes, sequential: " + (sequential / 1000000) +
+			" ms, " + numberOfThreads + " threads: " + (parallel / 1000000) + " ms], test";
+		if (
+				document.isEqualNode(first) && document.isEqualNode(second) &&
+				first.getAllEARMARKNode().size() == second.getAllEARMARKNode().size() &&
+				first.getTextContent().equals(second.getTextContent())) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, "the document loaded in parallel contains " +
+					second.getAllEARMARKNode().size() + " nodes instead of " + first.getAllEARMARKNode().size()));
+		}
+
+		String msg2 = "Parallelism not positive refused, test";
+		try {
+			parallelReader.setParallelism(0);
+			result.add(failed(msg2, "the parallelism has been set to 0"));
+		} catch (IllegalArgumentException e) {
+			result.add(passed(msg2));
+		}
+
+		return result;
+	}
+
+	/* Create a document made by an element containing the paragraphs, each with its own range and with
+	 * alternating collection types, and some of them with an attribute */
+	private EARMARKDocument createDocument() {
+		EARMARKDocument result = new EARMARKDocument(URI.create("http://www.essepuntato.it/parallel"));
+
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < numberOfParagraphs; i++) {
+			content.append(text);
+		}
+		Docuverse docuverse = result.createStringDocuverse(content.toString());
+
+		Element body = result.createElement("body", Collection.Type.List);
+		result.appendChild(body);
+		for (int i = 0; i < numberOfParagraphs; i++) {
+			Element p = result.createElement("p", Collection.Type.values()[i % Collection.Type.values().length]);
+			body.appendChild(p);
+			p.appendChild(result.createPointerRange(docuverse, i * text.length(), (i + 1) * text.length()));
+			if (i % 10 == 0) {
+				Attribute n = result.createAttribute("n", Collection.Type.Set);
+				n.appendChild(result.createPointerRange(docuverse, i * text.length(), i * text.length() + 3));
+				p.appendChild(n);
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Parallel reader benchmark";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,106 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.Range;
+import it.essepuntato.earmark.core.exception.ExistingIdException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A benchmark aims to check that the creation of a range takes constant time whatever the number
+ * of ranges already referring to the same docuverse is.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class RangeCreationBenchmark extends AbstractTest {
+
+	private static final int[] sizes = { 2000, 8000, 32000 };
+
+	/* The number of runs for each size, whose best time is considered */
+	private static final int runs = 3;
+
+	/* The maximum ratio allowed between the time per range of the biggest and the smallest size */
+	private static final double maxRatio = 5.0;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		/* Warm up */
+		createRanges(sizes[sizes.length - 1]);
+
+		result.add("\n[i] Check the time for creating a range as the docuverse grows");
+		String msg1 = "Time per range creation";
+		double[] times = new double[sizes.length];
+		for (int i = 0; i < sizes.length; i++) {
+			times[i] = Double.MAX_VALUE;
+			for (int j = 0; j < runs; j++) {
+				times[i] = Math.min(times[i], createRanges(sizes[i]));
+			}
+			msg1 += " [" + sizes[i] + " ranges: " + Math.round(times[i]) + " ns]";
+		}
+		msg1 += ", test";
+
+		double ratio = times[times.length - 1] / times[0];
+		if (ratio <= maxRatio) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, "the time per range grew " + ratio + " times"));
+		}
+
+		result.add("\n[i] Check the deduplication of ranges");
+		String msg2 = "The same range returned for the same docuverse and locations, test";
+		EARMARKDocument doc = new EARMARKDocument(URI.create("http://www.essepuntato.it/benchmark"));
+		Docuverse docuverse = doc.createStringDocuverse("The content of the docuverse");
+		Range xpathRange = doc.createXPathPointerRange(docuverse, 4, 11, null);
+		Range pointerRange = doc.createPointerRange(docuverse, 4, 11);
+		if (
+				!pointerRange.equals(xpathRange) &&
+				pointerRange == doc.createPointerRange(docuverse, 4, 11) &&
+				xpathRange == doc.createXPathPointerRange(docuverse, 4, 11, null) &&
+				doc.createPointerRange(docuverse, null, 11) == doc.createPointerRange(docuverse, null, 11)) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "different ranges returned"));
+		}
+
+		return result;
+	}
+
+	/* Create a number of ranges on the same docuverse and return the average time per range in ns */
+	private double createRanges(int size) {
+		EARMARKDocument doc = new EARMARKDocument(URI.create("http://www.essepuntato.it/benchmark"));
+
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < size; i++) {
+			content.append('a');
+		}
+		Docuverse docuverse = doc.createStringDocuverse(content.toString());
+
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < size; i++) {
+				doc.createPointerRange("r" + i, docuverse, i, i + 1);
+			}
+		} catch (ExistingIdException e) {
+			return Double.MAX_VALUE;
+		}
+
+		return (double) (System.nanoTime() - start) / size;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Range creation benchmark";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,148 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.PointerRange;
+import it.essepuntato.earmark.core.Range;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A test aims to check the queries on the ranges of a docuverse by locations.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class RangeIndexTest extends AbstractTest {
+
+	private EARMARKDocument doc = null;
+
+	public RangeIndexTest(EARMARKDocument doc) {
+		this.doc = doc;
+	}
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		for (Docuverse docuverse : doc.getAllDocuverses()) {
+			int length = docuverse.hasContent().toString().length();
+
+			result.add("\n[i] Check overlapping ranges of '" + docuverse.hasId() + "'");
+			String msg1 = "Ranges overlapping all the windows of the docuverse, test";
+			String wrong1 = null;
+			for (int begin = 0; wrong1 == null && begin <= length; begin++) {
+				for (int end = begin; wrong1 == null && end <= length + 1; end += 3) {
+					Set<Range> found = doc.findRangesOverlapping(docuverse, begin, end);
+					Set<Range> expected = getOverlapping(docuverse, begin, end);
+					if (!found.equals(expected)) {
+						wrong1 = "[" + begin + ", " + end + ") returns " + found + " instead of " + expected;
+					}
+				}
+			}
+			if (wrong1 == null) {
+				result.add(passed(msg1));
+			} else {
+				result.add(failed(msg1, wrong1));
+			}
+
+			result.add("\n[i] Check ranges containing a location of '" + docuverse.hasId() + "'");
+			String msg2 = "Ranges containing all the locations of the docuverse, test";
+			String wrong2 = null;
+			for (int location = 0; wrong2 == null && location <= length; location++) {
+				Set<Range> found = doc.findRangesContaining(docuverse, location);
+				Set<Range> expected = getContaining(docuverse, location);
+				if (!found.equals(expected)) {
+					wrong2 = location + " returns " + found + " instead of " + expected;
+				}
+			}
+			if (wrong2 == null) {
+				result.add(passed(msg2));
+			} else {
+				result.add(failed(msg2, wrong2));
+			}
+		}
+
+		result.add("\n[i] Check the index after the creation and the removal of ranges");
+		String msg3 = "Ranges found after creation and removal, test";
+		Docuverse docuverse = doc.createStringDocuverse("a new docuverse for the index");
+		PointerRange one = doc.createPointerRange(docuverse, 2, 5);
+		PointerRange two = doc.createPointerRange(docuverse, 10, 4);
+		PointerRange three = doc.createPointerRange(docuverse, 20, null);
+		doc.removeRange(one);
+		Set<Range> found = doc.findRangesContaining(docuverse, 4);
+		Set<Range> all = doc.findRangesOverlapping(docuverse, 0, Integer.MAX_VALUE);
+		if (found.size() == 1 && found.contains(two) && all.size() == 2 && all.contains(three)) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, "found " + found + " and " + all));
+		}
+		doc.removeRange(two);
+		doc.removeRange(three);
+
+		return result;
+	}
+
+	/* Look for the overlapping ranges by scanning all the nodes of the document */
+	private Set<Range> getOverlapping(Docuverse docuverse, int begin, int end) {
+		Set<Range> result = new HashSet<Range>();
+
+		for (PointerRange range : getPointerRanges(docuverse)) {
+			int[] interval = getInterval(range);
+			if (interval[0] < end &&
+					(interval[1] > begin || (interval[0] == interval[1] && interval[0] >= begin))) {
+				result.add(range);
+			}
+		}
+
+		return result;
+	}
+
+	/* Look for the ranges containing a location by scanning all the nodes of the document */
+	private Set<Range> getContaining(Docuverse docuverse, int location) {
+		Set<Range> result = new HashSet<Range>();
+
+		for (PointerRange range : getPointerRanges(docuverse)) {
+			int[] interval = getInterval(range);
+			if (interval[0] <= location && interval[1] > location) {
+				result.add(range);
+			}
+		}
+
+		return result;
+	}
+
+	private Set<PointerRange> getPointerRanges(Docuverse docuverse) {
+		Set<PointerRange> result = new HashSet<PointerRange>();
+
+		for (EARMARKChildNode node : doc.getAllEARMARKNode()) {
+			if (node instanceof PointerRange && ((PointerRange) node).refersTo().equals(docuverse)) {
+				result.add((PointerRange) node);
+			}
+		}
+
+		return result;
+	}
+
+	private int[] getInterval(PointerRange range) {
+		int begin = (range.begins() == null ? 0 : range.begins());
+		int end = (range.ends() == null ? Integer.MAX_VALUE : range.ends());
+		return new int[] { Math.min(begin, end), Math.max(begin, end) };
+	}
+
+	@Override
+	public String getTestName() {
+		return "Range index test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		doc = document;
+		return true;
+	}
+
+}
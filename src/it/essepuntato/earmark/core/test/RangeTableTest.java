@@ -0,0 +1,133 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EARMARKItem;
+import it.essepuntato.earmark.core.EARMARKNode;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.PointerRange;
+import it.essepuntato.earmark.core.RangeTable;
+import it.essepuntato.earmark.core.exception.ExistingIdException;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A test aims to check the columnar store of pointer ranges.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class RangeTableTest extends AbstractTest {
+
+	private static final String base = "http://www.essepuntato.it/rangetable";
+	private static final String content = "Hello world of tables";
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		EARMARKDocument doc = new EARMARKDocument(URI.create(base));
+		Docuverse docuverse = doc.createStringDocuverse(content);
+		RangeTable table = doc.createRangeTable();
+		int hello = table.add(docuverse, 0, 5);
+		int world = table.add(docuverse, 6, 11);
+		int of = table.add(docuverse, 12, 14);
+		int tables = table.add(docuverse, 21, 15);
+
+		result.add("\n[i] Check the rows of the table");
+		String msg1 = "Content of the rows, test";
+		if (
+				table.size() == 4 &&
+				table.getTextContent(world).equals("world") &&
+				table.get(tables).getTextContent().equals("selbat") &&
+				table.getBegin(tables) == 21 && table.getEnd(tables) == 15 &&
+				table.getDocuverse(hello).equals(docuverse)) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, "the content of the rows is not the expected one"));
+		}
+
+		String msg2 = "Rows not considered as nodes of the document, test";
+		if (
+				doc.getAllEARMARKNode().isEmpty() &&
+				doc.findRangesContaining(docuverse, 7).isEmpty() &&
+				table.get(hello).equals(doc.getEntityById(table.get(hello).hasId()))) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "the document contains " + doc.getAllEARMARKNode()));
+		}
+
+		String msg3 = "Ids of the rows not reusable, test";
+		try {
+			doc.createPointerRange(table.get(of).hasId().toString(), docuverse, 0, 1);
+			result.add(failed(msg3, "a range with the id of a row has been created"));
+		} catch (ExistingIdException e) {
+			result.add(passed(msg3));
+		}
+
+		result.add("\n[i] Check a row involved in a hierarchy");
+		String msg4 = "Row appended to an element, test";
+		Element element = doc.createElement("greeting", Collection.Type.List);
+		element.appendChild(table.get(hello));
+		PointerRange attached = table.get(hello);
+		if (
+				element.getChildNodes().contains(attached) &&
+				attached.getParentNodes().contains(element) &&
+				doc.getAllEARMARKNode().contains(attached) &&
+				!doc.getAllEARMARKNode().contains(table.get(world)) &&
+				doc.findRangesContaining(docuverse, 2).contains(attached)) {
+			result.add(passed(msg4));
+		} else {
+			result.add(failed(msg4, "the row is not a node of the document"));
+		}
+
+		result.add("\n[i] Check the removal of rows");
+		String msg5 = "Rows removed, test";
+		table.remove(of);
+		table.remove(hello);
+		if (
+				table.isRemoved(of) && table.get(of) == null && table.isRemoved(hello) &&
+				element.getChildNodes().isEmpty() &&
+				doc.getEntityById(attached.hasId()) == null &&
+				table.size() == 4 &&
+				doc.getAllDocuverses().contains(docuverse)) {
+			result.add(passed(msg5));
+		} else {
+			result.add(failed(msg5, "the rows have not been removed correctly"));
+		}
+
+		result.add("\n[i] Check the rows of a stored document");
+		String msg6 = "Rows loaded as pointer ranges, test";
+		element.appendChild(table.get(tables));
+		EARMARKDocument loaded = EARMARKDocument.load(doc.getDocumentAsRDFXML());
+		EARMARKItem loadedWorld = loaded.getEntityById(table.get(world).hasId());
+		EARMARKItem loadedTables = loaded.getEntityById(table.get(tables).hasId());
+		if (
+				loadedWorld instanceof PointerRange &&
+				((EARMARKNode) loadedWorld).getTextContent().equals("world") &&
+				loadedTables instanceof PointerRange &&
+				loaded.getEntityById(element.hasId()) != null &&
+				loaded.getEntityById(table.get(world).hasId()) != null &&
+				loaded.getAllEARMARKNode().size() == 3) {
+			result.add(passed(msg6));
+		} else {
+			result.add(failed(msg6, "the loaded document contains " + loaded.getAllEARMARKNode()));
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Range table test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
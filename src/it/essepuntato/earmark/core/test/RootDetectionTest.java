@@ -0,0 +1,143 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKClassURI;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EARMARKPropertyURI;
+import it.essepuntato.earmark.core.io.JenaReader;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.hp.hpl.jena.datatypes.xsd.XSDDatatype;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.ResourceFactory;
+import com.hp.hpl.jena.vocabulary.OWL;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * A test aims to check that the reader sets as roots of the documents all and only the nodes that are not
+ * contained by any markup item, whatever the collection items referring to them.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class RootDetectionTest extends AbstractTest {
+
+	private static final String base = "http://www.essepuntato.it/roots";
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		JenaReader reader = new JenaReader();
+
+		result.add("\n[i] Check the roots of the documents read");
+		String msg1 = "Ranges outside any markup item kept as roots, test";
+		Model model = createModel();
+		Resource list = addMarkupItem(model, "list", EARMARKClassURI.LIST);
+		Resource first = addItem(model, EARMARKClassURI.LIST_ITEM, addRange(model, "contained", 0, 4));
+		model.add(list, property(EARMARKPropertyURI.FIRST_ITEM), first);
+		addRange(model, "alone", 5, 9);
+		addItem(model, EARMARKClassURI.LIST_ITEM, addRange(model, "orphan", 10, 14));
+		result.add(check(msg1, reader.read(model), "list", "alone", "orphan"));
+
+		String msg2 = "Items reached only through previousItem not considered roots, test";
+		model = createModel();
+		list = addMarkupItem(model, "list", EARMARKClassURI.LIST);
+		Resource previous = addItem(model, EARMARKClassURI.LIST_ITEM, addRange(model, "first", 0, 4));
+		model.add(list, property(EARMARKPropertyURI.FIRST_ITEM), previous);
+		for (int i = 0; i < 50; i++) {
+			Resource item = addItem(model, EARMARKClassURI.LIST_ITEM, addRange(model, "next" + i, 5, 9));
+			model.add(item, property(EARMARKPropertyURI.PREVIOUS_ITEM), previous);
+			previous = item;
+		}
+		result.add(check(msg2, reader.read(model), "list"));
+
+		String msg3 = "Items shared between two markup items not considered roots, test";
+		model = createModel();
+		Resource shared = addItem(model, EARMARKClassURI.ITEM, addRange(model, "shared", 0, 4));
+		model.add(addMarkupItem(model, "bag1", EARMARKClassURI.BAG), property(EARMARKPropertyURI.ITEM), shared);
+		model.add(addMarkupItem(model, "bag2", EARMARKClassURI.BAG), property(EARMARKPropertyURI.ITEM), shared);
+		result.add(check(msg3, reader.read(model), "bag1", "bag2"));
+
+		return result;
+	}
+
+	/* Check that the roots of the document are the nodes having the local ids specified */
+	private String check(String msg, EARMARKDocument document, String... roots) {
+		Set<URI> expected = new HashSet<URI>();
+		for (String root : roots) {
+			expected.add(URI.create(base + "/" + root));
+		}
+
+		Set<URI> found = new HashSet<URI>();
+		for (EARMARKChildNode node : document.getChildNodes()) {
+			found.add(node.hasId());
+		}
+
+		if (found.equals(expected)) {
+			return passed(msg);
+		} else {
+			return failed(msg, "the roots are " + found + " instead of " + expected);
+		}
+	}
+
+	/* Create a model describing a document with a single string docuverse */
+	private Model createModel() {
+		Model result = ModelFactory.createDefaultModel();
+		result.add(result.createResource(base), RDF.type, OWL.Ontology);
+		result.add(
+				result.createResource(base + "/text"), property(EARMARKPropertyURI.HAS_CONTENT),
+				result.createTypedLiteral("Some text for the roots", XSDDatatype.XSDstring));
+		return result;
+	}
+
+	private Resource addRange(Model model, String id, int begin, int end) {
+		Resource result = model.createResource(base + "/" + id);
+		model.add(result, RDF.type, model.createResource(EARMARKClassURI.POINTER_RANGE.toString()));
+		model.add(result, property(EARMARKPropertyURI.REFERS_TO), model.createResource(base + "/text"));
+		model.add(result, property(EARMARKPropertyURI.BEGINS), model.createTypedLiteral(
+				Integer.toString(begin), XSDDatatype.XSDnonNegativeInteger));
+		model.add(result, property(EARMARKPropertyURI.ENDS), model.createTypedLiteral(
+				Integer.toString(end), XSDDatatype.XSDnonNegativeInteger));
+		return result;
+	}
+
+	private Resource addMarkupItem(Model model, String id, URI collection) {
+		Resource result = model.createResource(base + "/" + id);
+		model.add(result, RDF.type, model.createResource(EARMARKClassURI.ELEMENT.toString()));
+		model.add(result, RDF.type, model.createResource(collection.toString()));
+		model.add(result, property(EARMARKPropertyURI.HAS_GENERAL_IDENTIFIER), id);
+		return result;
+	}
+
+	/* Add a collection item, not referred by any collection, whose content is the node specified */
+	private Resource addItem(Model model, URI type, Resource content) {
+		Resource result = model.createResource();
+		model.add(result, RDF.type, model.createResource(type.toString()));
+		model.add(result, property(EARMARKPropertyURI.ITEM_CONTENT), content);
+		return result;
+	}
+
+	private Property property(URI uri) {
+		return ResourceFactory.createProperty(uri.toString());
+	}
+
+	@Override
+	public String getTestName() {
+		return "Root detection test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,193 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EARMARKSnapshot;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.facility.map.PersistentMap;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A test aims to check the persistent maps and the snapshots of EARMARK documents built on them.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class SnapshotTest extends AbstractTest {
+
+	private static final int numberOfOperations = 5000;
+
+	private static final int numberOfParents = 200;
+
+	private static final int numberOfChildren = 50;
+
+	/* A key whose hash code is shared by many keys, in order to test the collisions */
+	private static class Key {
+		private int value;
+
+		private Key(int value) {
+			this.value = value;
+		}
+
+		@Override
+		public int hashCode() {
+			return value % 64;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && ((Key) obj).value == value;
+		}
+	}
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		result.add("\n[i] Check the persistent maps");
+		String msg1 = "Random additions and removals, test";
+		Random random = new Random(31);
+		PersistentMap<Key,Integer> map = PersistentMap.empty();
+		Map<Key,Integer> expected = new HashMap<Key,Integer>();
+		PersistentMap<Key,Integer> old = null;
+		Map<Key,Integer> oldExpected = null;
+		String wrong = null;
+		for (int i = 0; wrong == null && i < numberOfOperations; i++) {
+			Key key = new Key(random.nextInt(1000));
+			if (random.nextInt(3) == 0) {
+				map = map.without(key);
+				expected.remove(key);
+			} else {
+				map = map.with(key, i);
+				expected.put(key, i);
+			}
+			if (i == numberOfOperations / 2) {
+				old = map;
+				oldExpected = new HashMap<Key,Integer>(expected);
+			}
+			wrong = compare(map, expected);
+		}
+		if (wrong == null) {
+			wrong = compare(old, oldExpected);
+		}
+		if (wrong == null) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, wrong));
+		}
+
+		result.add("\n[i] Check the snapshots of a document");
+		EARMARKDocument doc = new EARMARKDocument(URI.create("http://www.essepuntato.it/snapshot"));
+		Docuverse docuverse = doc.createStringDocuverse("Hello world");
+		Element p = doc.createElement("p", Collection.Type.List);
+		doc.appendChild(p);
+		p.appendChild(doc.createPointerRange(docuverse, 0, 5));
+		EARMARKSnapshot first = doc.snapshot();
+
+		String msg2 = "Same snapshot without modifications, test";
+		if (doc.snapshot() == first) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "a new snapshot has been taken"));
+		}
+
+		String msg3 = "Snapshots not affected by later modifications, test";
+		Element span = doc.createElement("span", Collection.Type.List);
+		span.appendChild(doc.createPointerRange(docuverse, 5, 11));
+		p.appendChild(span);
+		doc.removeMarkupItem(doc.createElement("removed", Collection.Type.List));
+		EARMARKSnapshot second = doc.snapshot();
+		p.removeChild(span);
+		EARMARKSnapshot third = doc.snapshot();
+		if (
+				"Hello".equals(first.getTextContent(doc)) && first.getChildNodes(p).size() == 1 &&
+				first.getEntityById(span.hasId()) == null &&
+				first.getMarkupItemByGeneralIdentifier("span").isEmpty() &&
+				"Hello world".equals(second.getTextContent(doc)) && second.getChildNodes(p).size() == 2 &&
+				second.getParentNodes(span).contains(p) && second.getEntityById(span.hasId()) == span &&
+				second.getMarkupItemByGeneralIdentifier("span").contains(span) &&
+				second.getMarkupItemByGeneralIdentifier("removed").isEmpty() &&
+				"Hello".equals(third.getTextContent(p)) && third.getParentNodes(span).isEmpty() &&
+				doc.getTextContent().equals(third.getTextContent(doc))) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, "the snapshots contain '" + first.getTextContent(doc) + "', '" +
+					second.getTextContent(doc) + "' and '" + third.getTextContent(doc) + "'"));
+		}
+
+		String msg4 = "Snapshots of a big document";
+		EARMARKDocument big = createDocument();
+		long whole = System.nanoTime();
+		EARMARKSnapshot before = big.snapshot();
+		whole = System.nanoTime() - whole;
+		Element parent = (Element) before.getChildNodes(big).get(0);
+		EARMARKChildNode child = before.getChildNodes(parent).get(0);
+		parent.removeChild(child);
+		long changed = System.nanoTime();
+		EARMARKSnapshot after = big.snapshot();
+		changed = System.nanoTime() - changed;
+		msg4 += " [first snapshot: " + (whole / 1000) + " us, after one change: " + (changed / 1000) + " us], test";
+		if (
+				before.getChildNodes(parent).size() == numberOfChildren &&
+				after.getChildNodes(parent).size() == numberOfChildren - 1 &&
+				before.getAllEARMARKNode().size() == after.getAllEARMARKNode().size() && changed < whole) {
+			result.add(passed(msg4));
+		} else {
+			result.add(failed(msg4, "the snapshot after the change does not reflect it or is not faster"));
+		}
+
+		return result;
+	}
+
+	/* Compare a persistent map with the expected associations */
+	private String compare(PersistentMap<Key,Integer> map, Map<Key,Integer> expected) {
+		if (map.size() != expected.size() || map.keys().size() != expected.size()) {
+			return "the map contains " + map.size() + " keys instead of " + expected.size();
+		}
+
+		for (Map.Entry<Key,Integer> entry : expected.entrySet()) {
+			if (!entry.getValue().equals(map.get(entry.getKey()))) {
+				return "the key " + entry.getKey().value + " is associated to " + map.get(entry.getKey());
+			}
+		}
+
+		return null;
+	}
+
+	/* Create a document made by parent elements, each containing a number of elements */
+	private EARMARKDocument createDocument() {
+		EARMARKDocument result = new EARMARKDocument(URI.create("http://www.essepuntato.it/snapshot"));
+		Docuverse docuverse = result.createStringDocuverse("abcdefghij");
+
+		for (int i = 0; i < numberOfParents; i++) {
+			Element parent = result.createElement("section", Collection.Type.List);
+			result.appendChild(parent);
+			for (int j = 0; j < numberOfChildren; j++) {
+				Element child = result.createElement("p", Collection.Type.List);
+				parent.appendChild(child);
+				child.appendChild(result.createPointerRange(docuverse, j % 10, j % 10 + 1));
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Snapshot test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,111 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.io.JenaReader;
+import it.essepuntato.earmark.core.io.StreamingReader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**
+ * A test aims to check that the streaming reader loads the same documents, and the same additional
+ * assertions, loaded by the JenaReader.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class StreamingReaderTest extends AbstractTest {
+
+	private static final String label = "A document read as a stream of triples";
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		EARMARKDocument document = DocumentStructure.getDocument();
+		document.assertsAsSubject(RDFS.label, document.getModel().createLiteral(label));
+		JenaReader jenaReader = new JenaReader();
+		StreamingReader streamingReader = new StreamingReader();
+
+		result.add("\n[i] Check the documents read as streams");
+		String msg1 = "Document read from RDF/XML, test";
+		String rdfxml = document.getDocumentAsRDFXML();
+		result.add(compare(msg1, jenaReader.read(rdfxml), streamingReader.read(rdfxml)));
+
+		String msg2 = "Document read from Turtle, test";
+		String turtle = document.getDocumentAsTurtle();
+		result.add(compare(msg2, jenaReader.read(turtle), streamingReader.read(turtle)));
+
+		File file = new File("ParadiseLost.owl");
+		String msg3 = "Document read from " + file + ", test";
+		try {
+			result.add(compare(msg3, jenaReader.read(file), streamingReader.read(file)));
+		} catch (FileNotFoundException e) {
+			result.add(failed(msg3, e.getMessage()));
+		}
+
+		result.add("\n[i] Check the additional assertions");
+		String msg4 = "Non-EARMARK assertions only, test";
+		EARMARKDocument loaded = streamingReader.read(rdfxml);
+		String wrong = null;
+		if (!loaded.getModel().contains(null, RDFS.label, label)) {
+			wrong = "the label of the document is missing";
+		}
+		StmtIterator ite = loaded.getModel().listStatements();
+		while (wrong == null && ite.hasNext()) {
+			Statement statement = ite.next();
+			if (statement.getPredicate().getURI().startsWith("http://www.essepuntato.it/2008/12/earmark#")) {
+				wrong = "the statement " + statement + " is in the model";
+			}
+		}
+		if (wrong == null) {
+			result.add(passed(msg4));
+		} else {
+			result.add(failed(msg4, wrong));
+		}
+
+		String msg5 = "Missing file, test";
+		try {
+			streamingReader.read(new File("missing.owl"));
+			result.add(failed(msg5, "no exception has been thrown"));
+		} catch (FileNotFoundException e) {
+			result.add(passed(msg5));
+		}
+
+		return result;
+	}
+
+	/* Compare the documents read by the JenaReader and by the streaming reader */
+	private String compare(String msg, EARMARKDocument expected, EARMARKDocument streamed) {
+		Model expectedModel = expected.getModel();
+		Model streamedModel = streamed.getModel();
+		if (
+				expected.isEqualNode(streamed) && expected.hasId().equals(streamed.hasId()) &&
+				expected.getAllEARMARKNode().size() == streamed.getAllEARMARKNode().size() &&
+				expectedModel.size() == streamedModel.size() && expectedModel.isIsomorphicWith(streamedModel)) {
+			return passed(msg);
+		} else {
+			return failed(msg, "the document read as a stream contains " + streamed.getAllEARMARKNode().size() +
+					" nodes and " + streamedModel.size() + " additional assertions instead of " +
+					expected.getAllEARMARKNode().size() + " and " + expectedModel.size());
+		}
+	}
+
+	@Override
+	public String getTestName() {
+		return "Streaming reader test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
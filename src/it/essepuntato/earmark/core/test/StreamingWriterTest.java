@@ -0,0 +1,119 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.io.EARMARKWriter;
+import it.essepuntato.earmark.core.io.JenaReader;
+import it.essepuntato.earmark.core.io.JenaWriter;
+import it.essepuntato.earmark.core.io.StreamingWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
+/**
+ * A test aims to check that the streaming writer stores the same statements stored by the JenaWriter.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class StreamingWriterTest extends AbstractTest {
+
+	private static final String label = "A document written as a stream of \"triples\"\n\u00e8 \u4e2d";
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		EARMARKDocument document = DocumentStructure.getDocument();
+		document.assertsAsSubject(RDFS.label, document.getModel().createLiteral(label, "it"));
+		JenaWriter jenaWriter = new JenaWriter();
+		StreamingWriter streamingWriter = new StreamingWriter();
+		Model expected = jenaWriter.getModel(document);
+
+		result.add("\n[i] Check the documents written as streams");
+		String msg1 = "Document written in N-Triples, test";
+		String ntriples = streamingWriter.write(document, EARMARKWriter.NTRIPLE);
+		result.add(compare(msg1, document, expected, ntriples, EARMARKWriter.NTRIPLE));
+
+		String msg2 = "Document written in Turtle, test";
+		String turtle = streamingWriter.write(document, EARMARKWriter.TURTLE);
+		result.add(compare(msg2, document, expected, turtle, EARMARKWriter.TURTLE));
+
+		String msg3 = "Document written in RDF/XML, test";
+		String rdfxml = streamingWriter.write(document, EARMARKWriter.RDFXML);
+		result.add(compare(msg3, document, expected, rdfxml, EARMARKWriter.RDFXML));
+
+		result.add("\n[i] Check the documents written in files and channels");
+		String msg4 = "Document written in a file, test";
+		try {
+			File file = File.createTempFile("earmark", ".nt");
+			file.deleteOnExit();
+			if (streamingWriter.write(document, file, EARMARKWriter.NTRIPLE)) {
+				result.add(compare(msg4, document, new JenaReader().read(file)));
+			} else {
+				result.add(failed(msg4, "the document has not been stored"));
+			}
+
+			String msg5 = "Document written in a channel, test";
+			FileOutputStream output = new FileOutputStream(file);
+			boolean written = false;
+			try {
+				written = streamingWriter.write(document, output.getChannel(), EARMARKWriter.TURTLE);
+			} finally {
+				output.close();
+			}
+			if (written) {
+				result.add(compare(msg5, document, new JenaReader().read(file)));
+			} else {
+				result.add(failed(msg5, "the document has not been stored"));
+			}
+		} catch (IOException e) {
+			result.add(failed(msg4, e.getMessage()));
+		}
+
+		return result;
+	}
+
+	/* Compare the statements written with the ones of the model of the JenaWriter */
+	private String compare(String msg, EARMARKDocument document, Model expected, String written, String format) {
+		Model model = ModelFactory.createDefaultModel();
+		try {
+			model.read(new StringReader(written), null, format);
+		} catch (Exception e) {
+			return failed(msg, "the output cannot be parsed: " + e.getMessage());
+		}
+
+		if (!model.isIsomorphicWith(expected)) {
+			return failed(msg, "the output contains " + model.size() + " statements instead of " + expected.size());
+		}
+
+		return compare(msg, document, new JenaReader().read(written));
+	}
+
+	/* Compare a document with the one stored and loaded again */
+	private String compare(String msg, EARMARKDocument document, EARMARKDocument loaded) {
+		if (document.isEqualNode(loaded) && loaded.getModel().contains(null, RDFS.label, label, "it")) {
+			return passed(msg);
+		} else {
+			return failed(msg, "the document loaded differs from the one stored");
+		}
+	}
+
+	@Override
+	public String getTestName() {
+		return "Streaming writer test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
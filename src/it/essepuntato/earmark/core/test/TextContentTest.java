@@ -0,0 +1,188 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Collection;
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKChildNode;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EARMARKHierarchicalNode;
+import it.essepuntato.earmark.core.EARMARKNode;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.PointerRange;
+import it.essepuntato.earmark.core.Range;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A test aims to check that the text content of markup items and documents is kept up to date
+ * when their descendants change, and that it is consistent with the text views and the written text.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class TextContentTest extends AbstractTest {
+
+	private EARMARKDocument doc = null;
+
+	public TextContentTest(EARMARKDocument doc) {
+		this.doc = doc;
+	}
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		result.add("\n[i] Check the text content of an existing document");
+		result.add(check(doc, "Text content of all the nodes of the document"));
+		result.add(checkViews(doc, "Text views and written text of all the nodes of the document"));
+
+		EARMARKDocument edited = new EARMARKDocument(URI.create("http://www.essepuntato.it/textcontent"));
+		Docuverse docuverse = edited.createStringDocuverse("Once upon a time there was a cache");
+		PointerRange once = edited.createPointerRange(docuverse, 0, 5);
+		PointerRange upon = edited.createPointerRange(docuverse, 5, 10);
+		PointerRange time = edited.createPointerRange(docuverse, 10, 17);
+		PointerRange cache = edited.createPointerRange(docuverse, 28, 34);
+
+		Element body = edited.createElement("body", Collection.Type.List);
+		Element p1 = edited.createElement("p", Collection.Type.List);
+		Element p2 = edited.createElement("p", Collection.Type.List);
+		Element shared = edited.createElement("span", Collection.Type.List);
+		edited.appendChild(body);
+		body.appendChild(p1);
+		body.appendChild(p2);
+		p1.appendChild(once);
+		p1.appendChild(shared);
+		p2.appendChild(shared);
+		shared.appendChild(upon);
+
+		result.add("\n[i] Check the text content after the modification of the document");
+		result.add(check(edited, "Text content after appending children"));
+
+		shared.appendChild(time);
+		result.add(check(edited, "Text content after appending a child to a node with two parents"));
+
+		p2.insertBefore(cache, shared);
+		result.add(check(edited, "Text content after inserting a child"));
+
+		shared.replaceChild(cache, upon);
+		result.add(check(edited, "Text content after replacing a child"));
+
+		p1.removeChild(shared);
+		result.add(check(edited, "Text content after removing a child"));
+
+		edited.removeMarkupItem(shared);
+		result.add(check(edited, "Text content after removing a markup item"));
+
+		result.add(checkViews(edited, "Text views and written text after the modification of the document"));
+
+		String msg = "Text content of the whole document, test";
+		if ("Once  cache".equals(edited.getTextContent())) {
+			result.add(passed(msg));
+		} else {
+			result.add(failed(msg, "the text content is '" + edited.getTextContent() + "'"));
+		}
+
+		result.add("\n[i] Check the view of a reversed range");
+		String msg2 = "Text view of a reversed range, test";
+		CharSequence view = edited.createPointerRange(docuverse, 10, 5).getTextView();
+		if (
+				view.toString().equals(" nopu") &&
+				view.length() == 5 && view.charAt(0) == ' ' &&
+				view.subSequence(1, 3).toString().equals("no")) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "the view contains '" + view + "'"));
+		}
+
+		return result;
+	}
+
+	/* Compare the text content of all the hierarchical nodes of a document with the one computed
+	 * by visiting their descendants */
+	private String check(EARMARKDocument document, String test) {
+		String msg = test + ", test";
+
+		List<EARMARKHierarchicalNode> nodes = new ArrayList<EARMARKHierarchicalNode>();
+		nodes.add(document);
+		for (EARMARKChildNode node : document.getAllEARMARKNode()) {
+			if (node instanceof EARMARKHierarchicalNode) {
+				nodes.add((EARMARKHierarchicalNode) node);
+			}
+		}
+
+		for (EARMARKHierarchicalNode node : nodes) {
+			String expected = getTextContent(node);
+			String found = node.getTextContent();
+			if (expected == null ? found != null : !expected.equals(found)) {
+				return failed(msg, "the text of " + node.hasId() + " is '" + found +
+						"' instead of '" + expected + "'");
+			}
+		}
+
+		return passed(msg);
+	}
+
+	/* Compare the text views of all the ranges and the text written by all the nodes of a document
+	 * with their text content */
+	private String checkViews(EARMARKDocument document, String test) {
+		String msg = test + ", test";
+
+		List<EARMARKNode> nodes = new ArrayList<EARMARKNode>();
+		nodes.add(document);
+		nodes.addAll(document.getAllEARMARKNode());
+
+		try {
+			for (EARMARKNode node : nodes) {
+				String expected = node.getTextContent();
+
+				if (node instanceof Range) {
+					CharSequence view = ((Range) node).getTextView();
+					if (expected == null ? view != null : !expected.equals(view.toString())) {
+						return failed(msg, "the view of " + node.hasId() + " is '" + view +
+								"' instead of '" + expected + "'");
+					}
+				}
+
+				StringWriter written = new StringWriter();
+				node.writeTextContent(written);
+				if (!written.toString().equals(expected == null ? "" : expected)) {
+					return failed(msg, "the text written by " + node.hasId() + " is '" + written +
+							"' instead of '" + expected + "'");
+				}
+			}
+		} catch (IOException e) {
+			return failed(msg, e.getMessage());
+		}
+
+		return passed(msg);
+	}
+
+	private String getTextContent(EARMARKHierarchicalNode node) {
+		StringBuilder result = null;
+
+		for (EARMARKChildNode child : node.getChildNodes()) {
+			String text = (child instanceof EARMARKHierarchicalNode ?
+					getTextContent((EARMARKHierarchicalNode) child) : child.getTextContent());
+			if (text != null) {
+				result = (result == null ? new StringBuilder() : result).append(text);
+			}
+		}
+
+		return (result == null ? null : result.toString());
+	}
+
+	@Override
+	public String getTestName() {
+		return "Text content test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		doc = document;
+		return true;
+	}
+
+}
@@ -0,0 +1,91 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.EARMARKClassURI;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EARMARKNode;
+import it.essepuntato.earmark.core.Element;
+import it.essepuntato.earmark.core.io.JenaReader;
+import it.essepuntato.earmark.core.io.JenaWriter;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.vocabulary.RDF;
+
+/**
+ * A test aims to check that the readers find the class of the items both from the classes they declare and
+ * from their properties.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class TypeClassificationTest extends AbstractTest {
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		EARMARKDocument document = DocumentStructure.getDocument();
+		JenaReader reader = new JenaReader();
+
+		result.add("\n[i] Check the classes of the items");
+		String msg1 = "Classes declared by the items, test";
+		EARMARKDocument declared = reader.read(document.getDocumentAsRDFXML());
+		if (
+				document.isEqualNode(declared) &&
+				declared.getAllEARMARKNode().size() == document.getAllEARMARKNode().size() &&
+				declared.getTextContent().equals(document.getTextContent())) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, "the document loaded differs from the one written"));
+		}
+
+		String msg2 = "Classes of the ranges and of the elements inferred from their properties, test";
+		EARMARKDocument inferred = reader.read(removeTypes(document));
+		if (
+				document.isEqualNode(inferred) &&
+				inferred.getAllEARMARKNode().size() == document.getAllEARMARKNode().size()) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "the document loaded differs from the one written"));
+		}
+
+		String msg3 = "Resource declaring more than one class read once, test";
+		URI verseId = ((Element) document.getEntityById("verse1")).hasId();
+		Model model = new JenaWriter().getModel(document);
+		Resource verse = model.createResource(verseId.toString());
+		model.add(verse, RDF.type, model.createResource(EARMARKClassURI.MARKUP_ITEM.toString()));
+		model.add(verse, RDF.type, model.createResource(EARMARKClassURI.COMMENT.toString()));
+		EARMARKDocument twice = reader.read(model);
+		EARMARKNode node = (EARMARKNode) twice.getEntityById(verseId);
+		if (node != null && node.getNodeType() == EARMARKNode.Type.Element && document.isEqualNode(twice)) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, "the resource has not been read as a single element"));
+		}
+
+		return result;
+	}
+
+	/* Return the model of the document without the classes declared by its ranges and its elements */
+	private Model removeTypes(EARMARKDocument document) {
+		Model result = new JenaWriter().getModel(document);
+		result.removeAll(null, RDF.type, result.createResource(EARMARKClassURI.POINTER_RANGE.toString()));
+		result.removeAll(null, RDF.type, result.createResource(EARMARKClassURI.ELEMENT.toString()));
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "Type classification test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,145 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.URIDocuverse;
+import it.essepuntato.earmark.core.io.URIContentCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A test aims to check the loading of the contents of URI docuverses and their cache.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class URIDocuverseTest extends AbstractTest {
+
+	private static final String content = "First line\nSecond line è\r\nThird";
+
+	private static final int numberOfThreads = 8;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		try {
+			File file = createFile(content, "UTF-8");
+			URI uri = file.toURI();
+
+			result.add("\n[i] Check the content of URI docuverses");
+			String msg1 = "Content with line terminators, test";
+			EARMARKDocument one = new EARMARKDocument(URI.create("http://www.essepuntato.it/one"));
+			URIDocuverse docuverse = one.createURIDocuverse(uri);
+			String second = one.createPointerRange(docuverse, 11, 24).getTextContent();
+			String all = one.createPointerRange(docuverse, null, null).getTextContent();
+			if (second.equals("Second line è") && all.equals(content)) {
+				result.add(passed(msg1));
+			} else {
+				result.add(failed(msg1, "the content is '" + all + "'"));
+			}
+
+			String msg2 = "Content shared by documents, test";
+			EARMARKDocument two = new EARMARKDocument(URI.create("http://www.essepuntato.it/two"));
+			if (two.createURIDocuverse(uri).getText() == docuverse.getText()) {
+				result.add(passed(msg2));
+			} else {
+				result.add(failed(msg2, "the docuverses have different copies of the content"));
+			}
+
+			String msg3 = "Content decoded with the charset specified, test";
+			File latin = createFile(content, "ISO-8859-1");
+			URIContentCache latinCache = new URIContentCache(
+					URIContentCache.DEFAULT_MAX_WEIGHT, Charset.forName("ISO-8859-1"));
+			if (latinCache.getContent(latin.toURI()).equals(content)) {
+				result.add(passed(msg3));
+			} else {
+				result.add(failed(msg3, "the content is '" + latinCache.getContent(latin.toURI()) + "'"));
+			}
+
+			result.add("\n[i] Check the eviction of the cache");
+			String msg4 = "Least recently used contents evicted, test";
+			long weight = 2L * content.length();
+			URIContentCache cache = new URIContentCache(weight, URIContentCache.DEFAULT_CHARSET);
+			cache.getContent(uri);
+			long firstWeight = cache.getWeight();
+			String other = cache.getContent(latin.toURI());
+			cache.setMaxWeight(0L);
+			if (
+					firstWeight == weight && cache.getWeight() == 0L &&
+					!other.equals(content) && cache.getContent(uri).equals(content)) {
+				result.add(passed(msg4));
+			} else {
+				result.add(failed(msg4, "the weight of the cache is " + cache.getWeight()));
+			}
+
+			String msg5 = "Content loaded concurrently shared, test";
+			final URIContentCache shared = new URIContentCache();
+			final URI sharedURI = uri;
+			final String[] loaded = new String[numberOfThreads];
+			Thread[] threads = new Thread[numberOfThreads];
+			for (int i = 0; i < numberOfThreads; i++) {
+				final int index = i;
+				threads[i] = new Thread() {
+					public void run() {
+						try {
+							loaded[index] = shared.getContent(sharedURI);
+						} catch (IOException e) {
+							loaded[index] = null;
+						}
+					}
+				};
+				threads[i].start();
+			}
+			boolean same = true;
+			for (int i = 0; i < numberOfThreads; i++) {
+				threads[i].join();
+				same &= loaded[i] != null && loaded[i] == shared.getContent(sharedURI);
+			}
+			if (same) {
+				result.add(passed(msg5));
+			} else {
+				result.add(failed(msg5, "different copies of the content returned"));
+			}
+
+			file.delete();
+			latin.delete();
+		} catch (IOException e) {
+			result.add(failed("Loading of URI contents, test", e.getMessage()));
+		} catch (InterruptedException e) {
+			result.add(failed("Loading of URI contents, test", e.getMessage()));
+		}
+
+		return result;
+	}
+
+	private File createFile(String text, String charset) throws IOException {
+		File result = File.createTempFile("earmark", ".txt");
+		result.deleteOnExit();
+
+		FileOutputStream out = new FileOutputStream(result);
+		try {
+			out.write(text.getBytes(charset));
+		} finally {
+			out.close();
+		}
+
+		return result;
+	}
+
+	@Override
+	public String getTestName() {
+		return "URI docuverse test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
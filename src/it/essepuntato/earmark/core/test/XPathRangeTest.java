@@ -0,0 +1,246 @@
+package it.essepuntato.earmark.core.test;
+
+import it.essepuntato.earmark.core.Docuverse;
+import it.essepuntato.earmark.core.EARMARKDocument;
+import it.essepuntato.earmark.core.EditableDocuverse;
+import it.essepuntato.earmark.core.StringDocuverse;
+import it.essepuntato.earmark.core.XPathPointerRange;
+import it.essepuntato.earmark.core.xml.XMLContentCache;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A test aims to check the text content of xpath ranges, evaluated through the cache of the parsed
+ * XML contents of their docuverses or in streaming.
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class XPathRangeTest extends AbstractTest {
+
+	private static final String xml =
+		"<doc xmlns:e=\"http://www.essepuntato.it/e\">" +
+		"<p id=\"a\">Hello <b>big</b> world</p><p id=\"b\">Second</p><e:x>ns</e:x></doc>";
+
+	private static final String[][] expected = {
+		{ null, "Hello big worldSecondns" },
+		{ "/doc/p[2]/text()", "Second" },
+		{ "//p[1]", "Hello big world" },
+		{ "//@id", "ab" },
+		{ "//e:x", "ns" },
+		{ "//p[", "" } };
+
+	private static final String nestedXml =
+		"<doc xmlns=\"http://www.essepuntato.it/d\" xmlns:e=\"http://www.essepuntato.it/e\">\n" +
+		"  <p id=\"a\" class=\"c\">Hello <b>big</b> world</p>\n" +
+		"  <p id=\"b\">Second <p id=\"n\">nested</p> tail &amp; more</p>\n" +
+		"  <e:x e:k=\"v\">ns<!-- comment --></e:x><s><p>deep</p></s>\n</doc>";
+
+	private static final String[] expressions = {
+		null, "/doc/p[2]/text()", "//p", "//p[1]", "//@*", "//@id", "//e:x", "/doc/*[3]", "//e:x/@e:k",
+		"/doc//p[1]/text()", "//b/text()", "//s//p", "/doc/p[3]", "//p[@id='a']" };
+
+	private static final int numberOfRanges = 2000;
+
+	@Override
+	public List<String> doTest() {
+		List<String> result = new ArrayList<String>();
+
+		EARMARKDocument doc = new EARMARKDocument(URI.create("http://www.essepuntato.it/xpathrange"));
+		Docuverse docuverse = doc.createStringDocuverse(xml);
+		XMLContentCache cache = doc.getXMLContentCache();
+
+		result.add("\n[i] Check the text content of xpath ranges");
+		result.add(checkContents(doc, docuverse, "Text content of xpath ranges"));
+
+		String msg1 = "Text content of xpath pointer ranges, test";
+		List<XPathPointerRange> ranges = new ArrayList<XPathPointerRange>();
+		for (int i = 0; i < numberOfRanges; i++) {
+			ranges.add(doc.createXPathPointerRange(docuverse, i % 15, 15, "//p[1]"));
+		}
+		String wrong = null;
+		for (int i = 0; wrong == null && i < numberOfRanges; i++) {
+			String text = ranges.get(i).getTextContent();
+			if (!text.equals("Hello big world".substring(i % 15))) {
+				wrong = ranges.get(i).hasId() + " contains '" + text + "'";
+			}
+		}
+		if (wrong == null && cache.size() == 1) {
+			result.add(passed(msg1));
+		} else {
+			result.add(failed(msg1, (wrong == null ? cache.size() + " docuverses cached" : wrong)));
+		}
+
+		String msg2 = "Text content of a docuverse that is not XML, test";
+		Docuverse text = doc.createStringDocuverse("this is not XML");
+		XPathPointerRange notXML = doc.createXPathPointerRange(text, null, null, "//text()");
+		if (notXML.getTextContent().equals("") && cache.size() == 1) {
+			result.add(passed(msg2));
+		} else {
+			result.add(failed(msg2, "the range contains '" + notXML.getTextContent() + "'"));
+		}
+
+		result.add("\n[i] Check the eviction of the cache");
+		String msg3 = "Docuverses removed from the cache, test";
+		Docuverse other = doc.createStringDocuverse("<doc>Other</doc>");
+		XPathPointerRange otherRange = doc.createXPathPointerRange(other, null, null, null);
+		String otherText = otherRange.getTextContent();
+		int sizeWithOther = cache.size();
+		doc.removeRange(otherRange);
+		if (otherText.equals("Other") && sizeWithOther == 2 && cache.size() == 1) {
+			result.add(passed(msg3));
+		} else {
+			result.add(failed(msg3, "the cache contains " + cache.size() + " docuverses"));
+		}
+
+		String msg4 = "Least recently used docuverses evicted, test";
+		cache.setMaxSources(1);
+		Docuverse last = doc.createStringDocuverse("<doc>Last</doc>");
+		String lastText = doc.createXPathPointerRange(last, null, null, null).getTextContent();
+		String firstText = ranges.get(0).getTextContent();
+		if (lastText.equals("Last") && firstText.equals("Hello big world") && cache.size() == 1) {
+			result.add(passed(msg4));
+		} else {
+			result.add(failed(msg4, "the cache contains " + cache.size() + " docuverses"));
+		}
+
+		cache.setMaxSources(0);
+		cache.setMaxExpressions(0);
+		result.add(checkContents(doc, docuverse, "Text content of xpath ranges without cache"));
+		String msg5 = "Cache disabled, test";
+		if (cache.size() == 0) {
+			result.add(passed(msg5));
+		} else {
+			result.add(failed(msg5, "the cache contains " + cache.size() + " docuverses"));
+		}
+
+		result.add("\n[i] Check the streaming evaluation of xpath ranges");
+		result.add(compareModes(xml, "Streaming and DOM evaluations on a simple document"));
+		result.add(compareModes(nestedXml, "Streaming and DOM evaluations on a document with nested elements"));
+
+		String msg6 = "XPath contexts of a docuverse evaluated together, test";
+		EARMARKDocument streamed = new EARMARKDocument(URI.create("http://www.essepuntato.it/xpathrange"));
+		streamed.getXMLContentCache().setMode(XMLContentCache.Mode.STREAMING);
+		Docuverse streamedDocuverse = streamed.createStringDocuverse(nestedXml);
+		for (String expression : expressions) {
+			streamed.createXPathPointerRange(streamedDocuverse, null, null, expression);
+		}
+		streamed.createXPathPointerRange(streamedDocuverse, null, null, "//b").getTextContent();
+		String notResolved = null;
+		for (int i = 0; notResolved == null && i < expressions.length - 1; i++) {
+			if (!streamed.getXMLContentCache().isResolved(
+					streamedDocuverse, streamedDocuverse.getVersion(), expressions[i])) {
+				notResolved = expressions[i];
+			}
+		}
+		if (notResolved == null) {
+			result.add(passed(msg6));
+		} else {
+			result.add(failed(msg6, "the expression '" + notResolved + "' has not been evaluated"));
+		}
+
+		result.add("\n[i] Check the versions of the docuverses cached");
+		String msg7 = "Cached content reused until the version changes, test";
+		try {
+			XMLContentCache versioned = new XMLContentCache();
+			Object source = new Object();
+			String first = versioned.getTextContent(source, 0, "<doc>First</doc>", null);
+			String same = versioned.getTextContent(source, 0, "<doc>Second</doc>", null);
+			String second = versioned.getTextContent(source, 1, "<doc>Second</doc>", null);
+			if (first.equals("First") && same.equals("First") && second.equals("Second")) {
+				result.add(passed(msg7));
+			} else {
+				result.add(failed(msg7, "the cache returns '" + first + "', '" + same + "' and '" + second + "'"));
+			}
+		} catch (Exception e) {
+			result.add(failed(msg7, e.getMessage()));
+		}
+
+		String msg8 = "Text content of xpath ranges after the modification of their docuverse, test";
+		EARMARKDocument editing = new EARMARKDocument(URI.create("http://www.essepuntato.it/xpathrange"));
+		EditableDocuverse editable = editing.createEditableDocuverse("<doc>Before</doc>");
+		XPathPointerRange edited = editing.createXPathPointerRange(editable, null, null, null);
+		String before = edited.getTextContent();
+		long version = editable.getVersion();
+		editable.replace(5, 11, "After");
+		String after = edited.getTextContent();
+		if (before.equals("Before") && after.equals("After") && editable.getVersion() > version) {
+			result.add(passed(msg8));
+		} else {
+			result.add(failed(msg8, "the range contains '" + after + "' after the modification"));
+		}
+
+		String msg9 = "Streaming evaluation on a compressed docuverse, test";
+		EARMARKDocument compressed = new EARMARKDocument(URI.create("http://www.essepuntato.it/xpathrange"));
+		compressed.getXMLContentCache().setMode(XMLContentCache.Mode.STREAMING);
+		StringDocuverse compressedDocuverse = compressed.createStringDocuverse(nestedXml);
+		compressedDocuverse.compress();
+		String notEqual = null;
+		for (int i = 1; notEqual == null && i < expressions.length; i++) {
+			String found = compressed.createXPathPointerRange(
+					compressedDocuverse, null, null, expressions[i]).getTextContent();
+			String expectedText = streamed.createXPathPointerRange(
+					streamedDocuverse, null, null, expressions[i]).getTextContent();
+			if (!found.equals(expectedText)) {
+				notEqual = expressions[i];
+			}
+		}
+		if (notEqual == null && compressedDocuverse.isCompressed()) {
+			result.add(passed(msg9));
+		} else {
+			result.add(failed(msg9, "the expression '" + notEqual + "' returns a different content"));
+		}
+
+		return result;
+	}
+
+	/* Compare the text content of xpath ranges evaluated through the DOM and in streaming */
+	private String compareModes(String content, String test) {
+		String msg = test + ", test";
+
+		EARMARKDocument dom = new EARMARKDocument(URI.create("http://www.essepuntato.it/xpathrange"));
+		Docuverse domDocuverse = dom.createStringDocuverse(content);
+		EARMARKDocument streamed = new EARMARKDocument(URI.create("http://www.essepuntato.it/xpathrange"));
+		streamed.getXMLContentCache().setMode(XMLContentCache.Mode.STREAMING);
+		Docuverse streamedDocuverse = streamed.createStringDocuverse(content);
+
+		for (String expression : expressions) {
+			String expected = dom.createXPathPointerRange(domDocuverse, null, null, expression).getTextContent();
+			String found = streamed.createXPathPointerRange(
+					streamedDocuverse, null, null, expression).getTextContent();
+			if (!expected.equals(found)) {
+				return failed(msg, "the expression '" + expression + "' returns '" + found +
+						"' instead of '" + expected + "'");
+			}
+		}
+
+		return passed(msg);
+	}
+
+	private String checkContents(EARMARKDocument doc, Docuverse docuverse, String test) {
+		String msg = test + ", test";
+
+		for (String[] pair : expected) {
+			String found = doc.createXPathPointerRange(docuverse, null, null, pair[0]).getTextContent();
+			if (!pair[1].equals(found)) {
+				return failed(msg, "the expression '" + pair[0] + "' returns '" + found +
+						"' instead of '" + pair[1] + "'");
+			}
+		}
+
+		return passed(msg);
+	}
+
+	@Override
+	public String getTestName() {
+		return "XPath range test";
+	}
+
+	@Override
+	public boolean useDocument(EARMARKDocument document) {
+		return false;
+	}
+
+}
@@ -0,0 +1,353 @@
+package it.essepuntato.earmark.core.xml;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * <p>This class evaluates XPath expressions on an XML content in a single pass over its events, without
+ * building the DOM of the content, in particular within methods concerning XPath ranges over huge XML
+ * docuverses.</p>
+ * <p>It supports the following subset of XPath, enough for the contexts of xpath ranges:</p>
+ * <ul>
+ * <li>absolute location paths made by child ("/") and descendant ("//") steps;</li>
+ * <li>element steps by name (possibly with a prefix) or "*", with an optional positional predicate
+ * (e.g., "p[2]");</li>
+ * <li>a final "text()" or attribute ("@name" or "@*") step.</li>
+ * </ul>
+ * <p>For each expression, it returns the same textual content that XMLContentCache returns using the DOM,
+ * i.e., the concatenation of the values of the matched attributes and text nodes and of the text of the
+ * matched elements, in document order. As for the DOM evaluation, the prefix of a name identifies
+ * the namespace of the name and the elements in the default namespace are considered as elements without
+ * namespace.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class StreamingXPathEvaluator {
+	/* The expression used when no XPath expression is specified */
+	private static final String DEFAULT_EXPRESSION = "//text()";
+
+	/* The name the DOM evaluation gives to the declarations of default namespaces */
+	private static final String DEFAULT_NAMESPACE_ATTRIBUTE = "xlmns";
+
+	private static final Pattern stepPattern = Pattern.compile(
+			"(//|/)(text\\(\\)|@\\*|@[\\w.-]+(?::[\\w.-]+)?|\\*|[\\w.-]+(?::[\\w.-]+)?)(?:\\[([1-9][0-9]{0,8})\\])?");
+
+	private enum Kind { ELEMENT, TEXT, ATTRIBUTE }
+
+	/* A step of a location path */
+	private static class Step {
+		private boolean descendant;
+		private Kind kind;
+		/* The qualified name of the step, or null for "*" */
+		private String name;
+		/* The position required among the siblings matching the step, or 0 */
+		private int position;
+
+		private boolean matches(String qname) {
+			return name == null || name.equals(qname);
+		}
+	}
+
+	/* An element open during the visit */
+	private static class Frame {
+		/* For each expression, the steps for which the element is a context node */
+		private Map<Integer,List<Integer>> contexts = new HashMap<Integer,List<Integer>>();
+		/* For each expression and step with a positional predicate, the number of children matching it */
+		private Map<Long,Integer> counters = null;
+		/* The expressions whose text is being captured because they matched the element */
+		private List<Integer> captures = null;
+
+		private void addContext(int expression, int step) {
+			List<Integer> steps = contexts.get(expression);
+			if (steps == null) {
+				steps = new ArrayList<Integer>(2);
+				contexts.put(expression, steps);
+			}
+			if (!steps.contains(step)) {
+				steps.add(step);
+			}
+		}
+
+		private int count(int expression, int step) {
+			if (counters == null) {
+				counters = new HashMap<Long,Integer>();
+			}
+			Long key = ((long) expression << 32) | step;
+			Integer value = counters.get(key);
+			int result = (value == null ? 1 : value + 1);
+			counters.put(key, result);
+			return result;
+		}
+	}
+
+	/* The textual content built for an expression */
+	private static class Result {
+		private List<StringBuilder> parts = new ArrayList<StringBuilder>();
+		private List<StringBuilder> open = new ArrayList<StringBuilder>();
+
+		/* Add a text returned by the expression, merging it with the last one if its capture is closed */
+		private void add(char[] text, int start, int length) {
+			StringBuilder last = (parts.isEmpty() ? null : parts.get(parts.size() - 1));
+			if (last == null || open.contains(last)) {
+				last = new StringBuilder();
+				parts.add(last);
+			}
+			last.append(text, start, length);
+		}
+	}
+
+	private XMLInputFactory factory = null;
+
+	/**
+	 * This method says whether an expression belongs to the subset of XPath supported by this class.
+	 *
+	 * @param expression the XPath expression, or null for considering all the text nodes.
+	 * @return true if the expression is supported, false otherwise.
+	 */
+	public static boolean isSupported(String expression) {
+		return compile(expression == null ? DEFAULT_EXPRESSION : expression) != null;
+	}
+
+	/**
+	 * This method evaluates all the expressions specified on an XML content in a single pass.
+	 *
+	 * @param reader the reader of the XML content.
+	 * @param expressions the XPath expressions to evaluate (null stands for all the text nodes).
+	 * @return a map associating each expression to the textual content of the nodes it returns.
+	 * @throws XMLStreamException if the content is not well-formed XML.
+	 * @throws IllegalArgumentException if an expression is not supported.
+	 */
+	public Map<String,String> evaluate(Reader reader, Collection<String> expressions) throws XMLStreamException {
+		List<String> names = new ArrayList<String>();
+		List<Step[]> paths = new ArrayList<Step[]>();
+		for (String expression : expressions) {
+			if (!names.contains(expression)) {
+				Step[] path = compile(expression == null ? DEFAULT_EXPRESSION : expression);
+				if (path == null) {
+					throw new IllegalArgumentException("The expression '" + expression + "' is not supported.");
+				}
+				names.add(expression);
+				paths.add(path);
+			}
+		}
+
+		Result[] results = new Result[paths.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = new Result();
+		}
+
+		visit(reader, paths, results);
+
+		Map<String,String> result = new LinkedHashMap<String,String>();
+		for (int i = 0; i < results.length; i++) {
+			StringBuilder text = new StringBuilder();
+			for (StringBuilder part : results[i].parts) {
+				text.append(part);
+			}
+			result.put(names.get(i), text.toString());
+		}
+
+		return result;
+	}
+
+	/* Visit the XML content and fill the results of the paths. */
+	private void visit(Reader reader, List<Step[]> paths, Result[] results) throws XMLStreamException {
+		XMLStreamReader xml = getFactory().createXMLStreamReader(reader);
+
+		try {
+			List<Frame> stack = new ArrayList<Frame>();
+			Frame root = new Frame();
+			for (int i = 0; i < paths.size(); i++) {
+				root.addContext(i, 0);
+			}
+			stack.add(root);
+
+			while (xml.hasNext()) {
+				int event = xml.next();
+
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					Frame parent = stack.get(stack.size() - 1);
+					Frame frame = startElement(xml, parent, paths, results);
+					stack.add(frame);
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					Frame frame = stack.remove(stack.size() - 1);
+					if (frame.captures != null) {
+						for (Integer expression : frame.captures) {
+							List<StringBuilder> open = results[expression].open;
+							open.remove(open.size() - 1);
+						}
+					}
+				} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE) {
+					Frame frame = stack.get(stack.size() - 1);
+					addText(xml, frame, paths, results);
+				}
+			}
+		} finally {
+			xml.close();
+		}
+	}
+
+	/* Create the frame of an element, capture its attributes and start capturing its text if needed. */
+	private Frame startElement(XMLStreamReader xml, Frame parent, List<Step[]> paths, Result[] results) {
+		Frame frame = new Frame();
+		String qname = getQName(xml.getPrefix(), xml.getLocalName());
+
+		for (Map.Entry<Integer,List<Integer>> context : parent.contexts.entrySet()) {
+			int expression = context.getKey();
+			Step[] path = paths.get(expression);
+
+			for (Integer k : context.getValue()) {
+				if (k < path.length) { /* The parent is not the last node matched by the path */
+					Step step = path[k];
+					if (step.descendant) { /* The element is a descendant of the context node as well */
+						frame.addContext(expression, k);
+					}
+					if (step.kind == Kind.ELEMENT && step.matches(qname) &&
+							(step.position == 0 || parent.count(expression, k) == step.position)) {
+						frame.addContext(expression, k + 1);
+					}
+				}
+			}
+		}
+
+		Map<String,String> attributes = null;
+		for (Map.Entry<Integer,List<Integer>> context : frame.contexts.entrySet()) {
+			int expression = context.getKey();
+			Step[] path = paths.get(expression);
+			List<Integer> steps = context.getValue();
+
+			if (steps.contains(path.length)) { /* The element is returned by the expression */
+				StringBuilder capture = new StringBuilder();
+				results[expression].parts.add(capture);
+				results[expression].open.add(capture);
+				if (frame.captures == null) {
+					frame.captures = new ArrayList<Integer>();
+				}
+				frame.captures.add(expression);
+			}
+
+			Step last = path[path.length - 1];
+			if (last.kind == Kind.ATTRIBUTE && steps.contains(path.length - 1)) {
+				if (attributes == null) {
+					attributes = getAttributes(xml);
+				}
+				for (Map.Entry<String,String> attribute : attributes.entrySet()) {
+					if (last.matches(attribute.getKey())) {
+						String value = attribute.getValue();
+						results[expression].add(value.toCharArray(), 0, value.length());
+					}
+				}
+			}
+		}
+
+		return frame;
+	}
+
+	/* Add a text to the texts being captured and to the results of the expressions returning it. */
+	private void addText(XMLStreamReader xml, Frame frame, List<Step[]> paths, Result[] results) {
+		for (Result result : results) {
+			for (StringBuilder capture : result.open) {
+				capture.append(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+			}
+		}
+
+		for (Map.Entry<Integer,List<Integer>> context : frame.contexts.entrySet()) {
+			int expression = context.getKey();
+			Step[] path = paths.get(expression);
+			Step last = path[path.length - 1];
+			if (last.kind == Kind.TEXT && context.getValue().contains(path.length - 1)) {
+				results[expression].add(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+			}
+		}
+	}
+
+	/* Return the attributes of the current element sorted by qualified name, as the DOM does. */
+	private Map<String,String> getAttributes(XMLStreamReader xml) {
+		Map<String,String> result = new TreeMap<String,String>();
+
+		int size = xml.getAttributeCount();
+		for (int i = 0; i < size; i++) {
+			result.put(
+					getQName(xml.getAttributePrefix(i), xml.getAttributeLocalName(i)),
+					xml.getAttributeValue(i));
+		}
+
+		int namespaces = xml.getNamespaceCount();
+		for (int i = 0; i < namespaces; i++) {
+			String prefix = xml.getNamespacePrefix(i);
+			if (prefix == null || prefix.equals("")) {
+				result.put(DEFAULT_NAMESPACE_ATTRIBUTE, xml.getNamespaceURI(i));
+			}
+		}
+
+		return result;
+	}
+
+	private String getQName(String prefix, String localName) {
+		return (prefix == null || prefix.equals("") ? localName : prefix + ":" + localName);
+	}
+
+	private XMLInputFactory getFactory() {
+		if (factory == null) {
+			factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+			factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+		}
+
+		return factory;
+	}
+
+	/* Return the steps of an expression, or null if the expression is not supported. */
+	private static Step[] compile(String expression) {
+		List<Step> steps = new ArrayList<Step>();
+
+		Matcher matcher = stepPattern.matcher(expression);
+		int end = 0;
+		while (matcher.find() && matcher.start() == end) {
+			end = matcher.end();
+
+			Step step = new Step();
+			step.descendant = matcher.group(1).equals("//");
+
+			String test = matcher.group(2);
+			if (test.equals("text()")) {
+				step.kind = Kind.TEXT;
+			} else if (test.startsWith("@")) {
+				step.kind = Kind.ATTRIBUTE;
+				step.name = (test.equals("@*") ? null : test.substring(1));
+			} else {
+				step.kind = Kind.ELEMENT;
+				step.name = (test.equals("*") ? null : test);
+			}
+
+			if (matcher.group(3) != null) {
+				if (step.kind != Kind.ELEMENT) {
+					return null;
+				}
+				step.position = Integer.parseInt(matcher.group(3));
+			}
+
+			if (!steps.isEmpty() && steps.get(steps.size() - 1).kind != Kind.ELEMENT) {
+				return null;
+			}
+			steps.add(step);
+		}
+
+		return (end == expression.length() && !steps.isEmpty() ? steps.toArray(new Step[steps.size()]) : null);
+	}
+}
@@ -0,0 +1,405 @@
+package it.essepuntato.earmark.core.xml;
+
+import it.essepuntato.facility.text.CharSequenceReader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import javax.xml.xpath.XPathFactoryConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * <p>This class defines a cache of the XML contents on which XPath expressions are evaluated, in
+ * particular within methods concerning XPath ranges.</p>
+ * <p>For each source (e.g., a docuverse) it keeps the parsed DOM of its content, the namespace context
+ * and a bounded number of compiled XPath expressions. Both the sources and the expressions of each source
+ * are evicted according to a least-recently-used policy when their maximum number is exceeded. A maximum
+ * number equal to 0 disables the related cache.</p>
+ * <p>In the streaming mode, the supported expressions (see StreamingXPathEvaluator) are evaluated without
+ * building the DOM of the content, and the textual content they return is kept in the cache of the
+ * source. The content is read as a character sequence, without building it as a string, so that it
+ * can be a compressed text or the text of a mapped file. Many expressions can be evaluated on a content
+ * in a single pass through the method resolve. The other expressions are evaluated using the DOM in any
+ * case, and only in this case the content is built as a string.</p>
+ * <p>All the methods are synchronized, since neither the DOM nor the XPath objects are thread-safe.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class XMLContentCache {
+	/**
+	 * This enumeration describes all the possible modes for evaluating XPath expressions.
+	 * 
+	 * @author Silvio Peroni
+	 *
+	 */
+	public enum Mode {
+		/**
+		 * This variable is used to refer to the evaluation on the parsed DOM of the content.
+		 */
+		DOM ,
+		
+		/**
+		 * This variable is used to refer to the evaluation in a single pass over the content, 
+		 * without building its DOM.
+		 */
+		STREAMING
+	}
+	
+	/**
+	 * The default maximum number of sources whose parsed content is cached.
+	 */
+	public static final int DEFAULT_MAX_SOURCES = 16;
+
+	/**
+	 * The default maximum number of compiled expressions cached for each source.
+	 */
+	public static final int DEFAULT_MAX_EXPRESSIONS = 256;
+
+	/* The expression used when no XPath expression is specified */
+	private static final String DEFAULT_EXPRESSION = "//text()";
+
+	/* The parsed content of a version of a source */
+	private class Entry {
+		private long version;
+		private CharSequence text;
+		private Document document;
+		private XPath xpath;
+		/* The textual content returned by the expressions evaluated in the streaming mode */
+		private Map<String,String> texts = new HashMap<String,String>();
+		private Map<String,XPathExpression> expressions =
+			new LinkedHashMap<String,XPathExpression>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String,XPathExpression> eldest) {
+					return size() > maxExpressions;
+				}
+			};
+	}
+
+	private int maxSources;
+	private int maxExpressions;
+
+	private Map<Object,Entry> entries = new LinkedHashMap<Object,Entry>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object,Entry> eldest) {
+			return size() > maxSources;
+		}
+	};
+
+	private DocumentBuilderFactory factory = null;
+
+	private Mode mode = Mode.DOM;
+	private StreamingXPathEvaluator evaluator = new StreamingXPathEvaluator();
+
+	/**
+	 * Create a cache with the default maximum numbers of sources and expressions.
+	 */
+	public XMLContentCache() {
+		this(DEFAULT_MAX_SOURCES, DEFAULT_MAX_EXPRESSIONS);
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxSources the maximum number of sources whose parsed content is cached.
+	 * @param maxExpressions the maximum number of compiled expressions cached for each source.
+	 */
+	public XMLContentCache(int maxSources, int maxExpressions) {
+		this.maxSources = Math.max(0, maxSources);
+		this.maxExpressions = Math.max(0, maxExpressions);
+	}
+
+	/**
+	 * <p>This method applies an XPath expression to the XML content of a source, and returns the textual
+	 * content of all the nodes (elements, attributes and text nodes only) returned by the expression,
+	 * considering the sequence order.</p>
+	 * <p>The content is parsed only if it is not cached for the source, or if the version cached differs from
+	 * the one specified. The content is never compared with the one cached.</p>
+	 *
+	 * @param source the source of the content, used as key of the cache.
+	 * @param version the version of the content of the source, which changes whenever the content changes.
+	 * @param content the XML content of the source.
+	 * @param expression the XPath expression, or null for considering all the text nodes.
+	 * @return the textual content of the nodes returned by the expression.
+	 * @throws ParserConfigurationException if the XML parser cannot be created.
+	 * @throws SAXException if the content is not well-formed XML.
+	 * @throws IOException if the content cannot be read.
+	 * @throws XPathFactoryConfigurationException if the XPath factory cannot be created.
+	 * @throws XPathExpressionException if the expression is not a valid XPath expression.
+	 */
+	public synchronized String getTextContent(
+			Object source, long version, CharSequence content, String expression)
+	throws ParserConfigurationException, SAXException, IOException,
+	XPathFactoryConfigurationException, XPathExpressionException {
+		Entry entry = getEntry(source, version, content);
+
+		String query = (expression == null ? DEFAULT_EXPRESSION : expression);
+		if (mode == Mode.STREAMING && StreamingXPathEvaluator.isSupported(query)) {
+			resolve(entry, Collections.singleton(query));
+			store(source, entry);
+			return entry.texts.get(query);
+		}
+
+		parse(entry);
+		store(source, entry);
+		XPathExpression compiled = entry.expressions.get(query);
+		if (compiled == null) {
+			compiled = entry.xpath.compile(query);
+			if (maxExpressions > 0) {
+				entry.expressions.put(query, compiled);
+			}
+		}
+
+		NodeList matched = (NodeList) compiled.evaluate(entry.document, XPathConstants.NODESET);
+
+		StringBuilder result = new StringBuilder();
+		int size = matched.getLength();
+		for (int i = 0; i < size; i++) {
+			appendTextualContent(matched.item(i), result);
+		}
+
+		return result.toString();
+	}
+
+	/**
+	 * <p>This method evaluates, in a single pass over the content of a source, all the expressions specified that
+	 * are supported by the streaming evaluation and that have not been evaluated yet, and it keeps their
+	 * textual content in the cache of the source.</p>
+	 * <p>It does not evaluate anything if the mode of the cache is not the streaming one.</p>
+	 *
+	 * @param source the source of the content, used as key of the cache.
+	 * @param version the version of the content of the source, which changes whenever the content changes.
+	 * @param content the XML content of the source.
+	 * @param expressions the XPath expressions (null stands for all the text nodes).
+	 * @throws SAXException if the content is not well-formed XML.
+	 */
+	public synchronized void resolve(
+			Object source, long version, CharSequence content, Collection<String> expressions)
+	throws SAXException {
+		if (mode == Mode.STREAMING) {
+			Set<String> queries = new HashSet<String>();
+			for (String expression : expressions) {
+				queries.add(expression == null ? DEFAULT_EXPRESSION : expression);
+			}
+			Entry entry = getEntry(source, version, content);
+			resolve(entry, queries);
+			store(source, entry);
+		}
+	}
+
+	/**
+	 * This method says whether the textual content returned by an expression is already kept in the cache of
+	 * a source, after its evaluation in the streaming mode.
+	 *
+	 * @param source the source of the content, used as key of the cache.
+	 * @param version the version of the content of the source.
+	 * @param expression the XPath expression, or null for considering all the text nodes.
+	 * @return true if the textual content of the expression is cached, false otherwise.
+	 */
+	public synchronized boolean isResolved(Object source, long version, String expression) {
+		Entry entry = entries.get(source);
+		return
+			entry != null && entry.version == version &&
+			entry.texts.containsKey(expression == null ? DEFAULT_EXPRESSION : expression);
+	}
+
+	/**
+	 * This method returns the mode used for evaluating the XPath expressions.
+	 *
+	 * @return the evaluation mode of the cache.
+	 */
+	public synchronized Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * This method sets the mode used for evaluating the XPath expressions. By default, it is Mode.DOM.
+	 *
+	 * @param mode the evaluation mode of the cache.
+	 */
+	public synchronized void setMode(Mode mode) {
+		this.mode = mode;
+	}
+
+	/**
+	 * This method removes the parsed content of a source from the cache.
+	 *
+	 * @param source the source to be removed.
+	 */
+	public synchronized void remove(Object source) {
+		entries.remove(source);
+	}
+
+	/**
+	 * This method removes all the parsed contents from the cache.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * This method returns the number of sources whose parsed content is cached.
+	 *
+	 * @return the number of sources cached.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * This method returns the maximum number of sources whose parsed content is cached.
+	 *
+	 * @return the maximum number of sources cached.
+	 */
+	public synchronized int getMaxSources() {
+		return maxSources;
+	}
+
+	/**
+	 * This method sets the maximum number of sources whose parsed content is cached, evicting the least
+	 * recently used ones if needed.
+	 *
+	 * @param maxSources the maximum number of sources cached, or 0 for disabling the cache.
+	 */
+	public synchronized void setMaxSources(int maxSources) {
+		this.maxSources = Math.max(0, maxSources);
+		evict(entries, this.maxSources);
+	}
+
+	/**
+	 * This method returns the maximum number of compiled expressions cached for each source.
+	 *
+	 * @return the maximum number of compiled expressions cached for each source.
+	 */
+	public synchronized int getMaxExpressions() {
+		return maxExpressions;
+	}
+
+	/**
+	 * This method sets the maximum number of compiled expressions cached for each source, evicting the least
+	 * recently used ones if needed.
+	 *
+	 * @param maxExpressions the maximum number of compiled expressions cached for each source, or 0 for
+	 * disabling the cache of the expressions.
+	 */
+	public synchronized void setMaxExpressions(int maxExpressions) {
+		this.maxExpressions = Math.max(0, maxExpressions);
+		for (Entry entry : entries.values()) {
+			evict(entry.expressions, this.maxExpressions);
+		}
+	}
+
+	/* Return the entry of a source, creating a new one if it is not cached or if its version changed. A new
+	 * entry is kept in the cache only after its content has been successfully evaluated. */
+	private Entry getEntry(Object source, long version, CharSequence content) {
+		Entry result = entries.get(source);
+
+		if (result == null || result.version != version) {
+			entries.remove(source);
+			result = new Entry();
+			result.version = version;
+			result.text = content;
+		}
+
+		return result;
+	}
+
+	/* Keep the entry of a source in the cache, if it is enabled. */
+	private void store(Object source, Entry entry) {
+		if (maxSources > 0 && !entries.containsKey(source)) {
+			entries.put(source, entry);
+		}
+	}
+
+	/* Parse the content of an entry, if it has not been parsed yet. */
+	private void parse(Entry entry)
+	throws ParserConfigurationException, SAXException, IOException, XPathFactoryConfigurationException {
+		if (entry.document == null) {
+			String xml = entry.text.toString().replaceAll("xmlns=", "xlmns="); /* OMG... */
+			DocumentBuilder builder = getFactory().newDocumentBuilder();
+			Document document = builder.parse(new InputSource(new StringReader(xml)));
+
+			XPathFactory xpathFactory = XPathFactory.newInstance(XPathConstants.DOM_OBJECT_MODEL);
+			entry.xpath = xpathFactory.newXPath();
+			entry.xpath.setNamespaceContext(new EARMARKNamespaceContext(document));
+			entry.document = document;
+		}
+	}
+
+	/* Evaluate in a single pass the supported expressions whose textual content is not cached yet. */
+	private void resolve(Entry entry, Collection<String> queries) throws SAXException {
+		List<String> missing = new ArrayList<String>();
+		for (String query : queries) {
+			if (!entry.texts.containsKey(query) && StreamingXPathEvaluator.isSupported(query)) {
+				missing.add(query);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			try {
+				entry.texts.putAll(evaluator.evaluate(new CharSequenceReader(entry.text), missing));
+			} catch (XMLStreamException e) {
+				throw new SAXException(e);
+			}
+		}
+	}
+
+	private DocumentBuilderFactory getFactory() {
+		if (factory == null) {
+			factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+		}
+
+		return factory;
+	}
+
+	/* Remove the least recently used entries of a map until its size does not exceed the maximum. */
+	private <K,V> void evict(Map<K,V> map, int max) {
+		Iterator<K> ite = map.keySet().iterator();
+		while (map.size() > max && ite.hasNext()) {
+			ite.next();
+			ite.remove();
+		}
+	}
+
+	/* Append the textual content of a node if it is an attribute, an element or a text node. */
+	private void appendTextualContent(Node n, StringBuilder result) {
+		if (n.getNodeType() == Node.ATTRIBUTE_NODE || n.getNodeType() == Node.TEXT_NODE) {
+			result.append(n.getNodeValue());
+		} else if (n.getNodeType() == Node.ELEMENT_NODE) {
+			NodeList children = n.getChildNodes();
+			int size = children.getLength();
+			for (int i = 0; i < size; i++) {
+				appendTextualContent(children.item(i), result);
+			}
+		}
+	}
+}
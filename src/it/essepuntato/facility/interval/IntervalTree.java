@@ -0,0 +1,515 @@
+package it.essepuntato.facility.interval;
+
+import java.util.Collection;
+
+/**
+ * <p>An augmented interval tree, i.e., a balanced (AVL) binary search tree of half-open intervals
+ * [begin, end) ordered by their begin location, in which each node stores the maximum end location
+ * of its subtree.</p>
+ * <p>It allows to retrieve all the intervals overlapping a window or containing a location in
+ * O(log n + k), where k is the number of intervals returned.</p>
+ * <p>All the intervals beginning from a location on can be shifted in O(log n) through the method shift:
+ * the shift is applied to the nodes along a single path, while it is kept as pending for the subtrees
+ * hanging from such path and pushed down to the children of a node only when the node is modified.
+ * The end location Integer.MAX_VALUE means an unbounded interval and it is never shifted.</p>
+ *
+ * @author Silvio Peroni
+ *
+ * @param <T> the type of the values associated to the intervals.
+ */
+public class IntervalTree<T> {
+	/**
+	 * An entry of the tree, i.e., an interval with its associated value.
+	 *
+	 * @param <T> the type of the value associated to the interval.
+	 */
+	public static class Entry<T> {
+		private int begin;
+		private int end;
+		private int maxEnd;
+		private int height = 1;
+		/* The shift not applied to the children of the entry yet */
+		private int delta = 0;
+		private T value;
+		private Entry<T> left;
+		private Entry<T> right;
+		private Entry<T> parent;
+
+		private Entry(int begin, int end, T value) {
+			this.begin = begin;
+			this.end = end;
+			this.maxEnd = end;
+			this.value = value;
+		}
+
+		/**
+		 * This method returns the begin location of the interval, taking into account the shifts still
+		 * pending on its ancestors in O(log n).
+		 *
+		 * @return the begin location of the interval.
+		 */
+		public int getBegin() {
+			return begin + getPendingDelta();
+		}
+
+		/**
+		 * This method returns the end location of the interval, taking into account the shifts still
+		 * pending on its ancestors in O(log n).
+		 *
+		 * @return the end location of the interval.
+		 */
+		public int getEnd() {
+			return shifted(end, getPendingDelta());
+		}
+
+		/* The sum of the shifts pending on the ancestors of the entry */
+		private int getPendingDelta() {
+			int result = 0;
+			for (Entry<T> ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+				result += ancestor.delta;
+			}
+			return result;
+		}
+
+		/**
+		 * This method returns the value associated to the interval.
+		 *
+		 * @return the value associated to the interval.
+		 */
+		public T getValue() {
+			return value;
+		}
+	}
+
+	private Entry<T> root = null;
+	private int size = 0;
+
+	/**
+	 * This method adds a new interval to the tree. If end is lower than begin, the two locations
+	 * are swapped.
+	 *
+	 * @param begin the begin location of the interval.
+	 * @param end the end location of the interval.
+	 * @param value the value associated to the interval.
+	 * @return the entry created in the tree.
+	 */
+	public Entry<T> add(int begin, int end, T value) {
+		Entry<T> entry = (begin <= end ? new Entry<T>(begin, end, value) : new Entry<T>(end, begin, value));
+
+		if (root == null) {
+			root = entry;
+		} else {
+			Entry<T> current = root;
+			Entry<T> parent = null;
+			boolean isLeft = false;
+			while (current != null) {
+				push(current);
+				parent = current;
+				isLeft = compare(entry.begin, entry.end, current) < 0;
+				current = (isLeft ? current.left : current.right);
+			}
+
+			entry.parent = parent;
+			if (isLeft) {
+				parent.left = entry;
+			} else {
+				parent.right = entry;
+			}
+			rebalance(parent);
+		}
+
+		size++;
+		return entry;
+	}
+
+	/**
+	 * This method removes an entry from the tree.
+	 *
+	 * @param entry the entry to be removed, as returned by the method add.
+	 */
+	public void remove(Entry<T> entry) {
+		Entry<T> from = null;
+
+		pushPath(entry);
+		if (entry.left == null || entry.right == null) {
+			from = entry.parent;
+			replaceInParent(entry, (entry.left != null ? entry.left : entry.right));
+		} else {
+			Entry<T> successor = entry.right;
+			push(successor);
+			while (successor.left != null) {
+				successor = successor.left;
+				push(successor);
+			}
+
+			if (successor.parent != entry) {
+				from = successor.parent;
+				replaceInParent(successor, successor.right);
+				successor.right = entry.right;
+				successor.right.parent = successor;
+			} else {
+				from = successor;
+			}
+
+			replaceInParent(entry, successor);
+			successor.left = entry.left;
+			successor.left.parent = successor;
+		}
+
+		entry.left = null;
+		entry.right = null;
+		entry.parent = null;
+
+		rebalance(from);
+		size--;
+	}
+
+	/**
+	 * This method removes the entry having the interval and the value specified.
+	 *
+	 * @param begin the begin location of the interval.
+	 * @param end the end location of the interval.
+	 * @param value the value associated to the interval.
+	 * @return true if an entry has been removed, false otherwise.
+	 */
+	public boolean remove(int begin, int end, T value) {
+		Entry<T> entry = (begin <= end ? find(root, begin, end, value, 0) : find(root, end, begin, value, 0));
+
+		if (entry != null) {
+			remove(entry);
+		}
+
+		return entry != null;
+	}
+
+	/**
+	 * <p>This method adds to the result collection all the values whose intervals overlap the
+	 * window [begin, end), in ascending order of begin location.</p>
+	 * <p>An interval [b, e) overlaps the window if b &lt; end and e &gt; begin. An empty interval
+	 * (i.e., b == e) overlaps the window if its location falls in [begin, end).</p>
+	 *
+	 * @param begin the begin location of the window.
+	 * @param end the end location of the window.
+	 * @param result the collection to fill.
+	 * @return the collection in input.
+	 */
+	public Collection<T> findOverlapping(int begin, int end, Collection<T> result) {
+		findOverlapping(root, begin, end, result, 0);
+		return result;
+	}
+
+	/**
+	 * This method adds to the result collection all the values whose intervals are equal to the one
+	 * specified. If end is lower than begin, the two locations are swapped.
+	 *
+	 * @param begin the begin location of the interval.
+	 * @param end the end location of the interval.
+	 * @param result the collection to fill.
+	 * @return the collection in input.
+	 */
+	public Collection<T> findEqual(int begin, int end, Collection<T> result) {
+		if (begin <= end) {
+			findEqual(root, begin, end, result, 0);
+		} else {
+			findEqual(root, end, begin, result, 0);
+		}
+		return result;
+	}
+
+	/**
+	 * This method adds to the result collection all the values whose intervals [b, e) contain the
+	 * location specified, i.e., such that b &lt;= location &lt; e, in ascending order of begin location.
+	 *
+	 * @param location the location to consider.
+	 * @param result the collection to fill.
+	 * @return the collection in input.
+	 */
+	public Collection<T> findContaining(int location, Collection<T> result) {
+		findContaining(root, location, result, 0);
+		return result;
+	}
+
+	/**
+	 * <p>This method shifts by delta both the locations of all the intervals beginning at or after the
+	 * location specified, in O(log n). Unbounded end locations (i.e., Integer.MAX_VALUE) are not
+	 * shifted.</p>
+	 * <p>The order of the tree is not checked: the caller must guarantee that no shifted interval begins
+	 * before an interval that is not shifted, e.g., by removing and adding again the intervals that
+	 * would violate such order.</p>
+	 *
+	 * @param location the location from which the intervals are shifted.
+	 * @param delta the shift to apply.
+	 */
+	public void shift(int location, int delta) {
+		Entry<T> current = root;
+		Entry<T> last = null;
+		while (current != null) {
+			push(current);
+			last = current;
+			if (current.begin >= location) {
+				apply(current, delta);
+				current.delta = 0;
+				if (current.right != null) {
+					apply(current.right, delta);
+				}
+				current = current.left;
+			} else {
+				current = current.right;
+			}
+		}
+
+		while (last != null) {
+			update(last);
+			last = last.parent;
+		}
+	}
+
+	/**
+	 * This method returns the number of intervals in the tree.
+	 *
+	 * @return the number of intervals in the tree.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method says whether the tree is empty.
+	 *
+	 * @return true if the tree does not contain any interval, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * This method removes all the intervals from the tree.
+	 */
+	public void clear() {
+		root = null;
+		size = 0;
+	}
+
+	/* Compare an interval with the one of an entry. */
+	private int compare(int begin, int end, Entry<T> entry) {
+		if (begin != entry.begin) {
+			return (begin < entry.begin ? -1 : 1);
+		} else if (end != entry.end) {
+			return (end < entry.end ? -1 : 1);
+		} else {
+			return 0;
+		}
+	}
+
+	/* Compare an interval with the one of an entry whose ancestors have the pending shift specified. */
+	private int compare(int begin, int end, Entry<T> entry, int pending) {
+		int entryBegin = entry.begin + pending;
+		int entryEnd = shifted(entry.end, pending);
+		if (begin != entryBegin) {
+			return (begin < entryBegin ? -1 : 1);
+		} else if (end != entryEnd) {
+			return (end < entryEnd ? -1 : 1);
+		} else {
+			return 0;
+		}
+	}
+
+	/* Look for the entry having the same interval and value. Equal intervals may stay on both
+	 * sides of a node because of the rotations. The searches do not modify the tree, so they carry
+	 * the shift pending on the ancestors of the node visited. */
+	private Entry<T> find(Entry<T> node, int begin, int end, T value, int pending) {
+		Entry<T> result = null;
+
+		if (node != null) {
+			int cmp = compare(begin, end, node, pending);
+			int childPending = pending + node.delta;
+			if (cmp < 0) {
+				result = find(node.left, begin, end, value, childPending);
+			} else if (cmp > 0) {
+				result = find(node.right, begin, end, value, childPending);
+			} else if (value == null ? node.value == null : value.equals(node.value)) {
+				result = node;
+			} else {
+				result = find(node.left, begin, end, value, childPending);
+				if (result == null) {
+					result = find(node.right, begin, end, value, childPending);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	private void findEqual(Entry<T> node, int begin, int end, Collection<T> result, int pending) {
+		if (node != null) {
+			int cmp = compare(begin, end, node, pending);
+			int childPending = pending + node.delta;
+			if (cmp <= 0) {
+				findEqual(node.left, begin, end, result, childPending);
+			}
+			if (cmp == 0) {
+				result.add(node.value);
+			}
+			if (cmp >= 0) {
+				findEqual(node.right, begin, end, result, childPending);
+			}
+		}
+	}
+
+	private void findOverlapping(Entry<T> node, int begin, int end, Collection<T> result, int pending) {
+		if (node != null && shifted(node.maxEnd, pending) >= begin) {
+			int childPending = pending + node.delta;
+			findOverlapping(node.left, begin, end, result, childPending);
+
+			int nodeBegin = node.begin + pending;
+			int nodeEnd = shifted(node.end, pending);
+			if (nodeBegin < end) {
+				if (nodeEnd > begin || (nodeBegin == nodeEnd && nodeBegin >= begin)) {
+					result.add(node.value);
+				}
+				findOverlapping(node.right, begin, end, result, childPending);
+			}
+		}
+	}
+
+	private void findContaining(Entry<T> node, int location, Collection<T> result, int pending) {
+		if (node != null && shifted(node.maxEnd, pending) > location) {
+			int childPending = pending + node.delta;
+			findContaining(node.left, location, result, childPending);
+
+			if (node.begin + pending <= location) {
+				if (shifted(node.end, pending) > location) {
+					result.add(node.value);
+				}
+				findContaining(node.right, location, result, childPending);
+			}
+		}
+	}
+
+	/* Shift an end location, unless it is unbounded. */
+	private static int shifted(int end, int delta) {
+		return (end == Integer.MAX_VALUE ? end : end + delta);
+	}
+
+	/* Shift the interval of a node and the maximum end location of its subtree, and keep the shift as
+	 * pending for its children. */
+	private void apply(Entry<T> node, int delta) {
+		node.begin += delta;
+		node.end = shifted(node.end, delta);
+		node.maxEnd = shifted(node.maxEnd, delta);
+		node.delta += delta;
+	}
+
+	/* Apply the shift pending on a node to its children. */
+	private void push(Entry<T> node) {
+		if (node.delta != 0) {
+			if (node.left != null) {
+				apply(node.left, node.delta);
+			}
+			if (node.right != null) {
+				apply(node.right, node.delta);
+			}
+			node.delta = 0;
+		}
+	}
+
+	/* Apply all the shifts pending on the path from the root to a node, the node included. */
+	private void pushPath(Entry<T> node) {
+		if (node.parent != null) {
+			pushPath(node.parent);
+		}
+		push(node);
+	}
+
+	/* Put 'replacement' in the position of 'node' in the tree. */
+	private void replaceInParent(Entry<T> node, Entry<T> replacement) {
+		Entry<T> parent = node.parent;
+		if (parent == null) {
+			root = replacement;
+		} else if (parent.left == node) {
+			parent.left = replacement;
+		} else {
+			parent.right = replacement;
+		}
+
+		if (replacement != null) {
+			replacement.parent = parent;
+		}
+	}
+
+	private int height(Entry<T> node) {
+		return (node == null ? 0 : node.height);
+	}
+
+	/* Recompute the height and the maximum end location of a node from its children. */
+	private void update(Entry<T> node) {
+		node.height = 1 + Math.max(height(node.left), height(node.right));
+
+		int max = node.end;
+		if (node.left != null && node.left.maxEnd > max) {
+			max = node.left.maxEnd;
+		}
+		if (node.right != null && node.right.maxEnd > max) {
+			max = node.right.maxEnd;
+		}
+		node.maxEnd = max;
+	}
+
+	private Entry<T> rotateLeft(Entry<T> node) {
+		Entry<T> pivot = node.right;
+		push(node);
+		push(pivot);
+
+		node.right = pivot.left;
+		if (pivot.left != null) {
+			pivot.left.parent = node;
+		}
+		replaceInParent(node, pivot);
+		pivot.left = node;
+		node.parent = pivot;
+
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+
+	private Entry<T> rotateRight(Entry<T> node) {
+		Entry<T> pivot = node.left;
+		push(node);
+		push(pivot);
+
+		node.left = pivot.right;
+		if (pivot.right != null) {
+			pivot.right.parent = node;
+		}
+		replaceInParent(node, pivot);
+		pivot.right = node;
+		node.parent = pivot;
+
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+
+	/* Restore the AVL property and the augmented data from a node up to the root. */
+	private void rebalance(Entry<T> node) {
+		while (node != null) {
+			update(node);
+
+			int balance = height(node.left) - height(node.right);
+			if (balance > 1) {
+				if (height(node.left.left) < height(node.left.right)) {
+					rotateLeft(node.left);
+				}
+				node = rotateRight(node);
+			} else if (balance < -1) {
+				if (height(node.right.right) < height(node.right.left)) {
+					rotateRight(node.right);
+				}
+				node = rotateLeft(node);
+			}
+
+			node = node.parent;
+		}
+	}
+}
@@ -0,0 +1,381 @@
+package it.essepuntato.facility.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <p>An immutable map implemented as a hash array mapped trie, i.e., a tree of nodes with 32 branches
+ * indexed by five bits of the hash codes of the keys.</p>
+ * <p>Adding or removing a key returns a new map which shares with the original one all the nodes not
+ * involved by the change, copying only the O(log32 n) nodes on the path to the key. Since a map is never
+ * modified, it can be read by many threads at the same time without any synchronisation.</p>
+ *
+ * @author Silvio Peroni
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ */
+public final class PersistentMap<K,V> {
+	private static final int BITS = 5;
+	private static final int MASK = (1 << BITS) - 1;
+
+	@SuppressWarnings("rawtypes")
+	private static final PersistentMap EMPTY = new PersistentMap(null, 0);
+
+	private final Node root;
+	private final int size;
+
+	/* A key with its value and hash code */
+	private static final class Entry {
+		private final Object key;
+		private final Object value;
+		private final int hash;
+
+		private Entry(Object key, Object value, int hash) {
+			this.key = key;
+			this.value = value;
+			this.hash = hash;
+		}
+	}
+
+	/* A node of the trie */
+	private static abstract class Node {
+		abstract Entry find(Object key, int hash, int shift);
+
+		abstract Node with(Entry entry, int shift, boolean[] added);
+
+		abstract Node without(Object key, int hash, int shift);
+
+		abstract void collectKeys(Collection<Object> result);
+	}
+
+	/* A node whose slots, either entries or nodes, are the ones whose bit is set in the bitmap */
+	private static final class BitmapNode extends Node {
+		private final int bitmap;
+		private final Object[] slots;
+
+		private BitmapNode(int bitmap, Object[] slots) {
+			this.bitmap = bitmap;
+			this.slots = slots;
+		}
+
+		@Override
+		Entry find(Object key, int hash, int shift) {
+			int bit = bit(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return null;
+			}
+
+			Object slot = slots[index(bit)];
+			if (slot instanceof Node) {
+				return ((Node) slot).find(key, hash, shift + BITS);
+			}
+
+			Entry entry = (Entry) slot;
+			return (entry.hash == hash && entry.key.equals(key) ? entry : null);
+		}
+
+		@Override
+		Node with(Entry entry, int shift, boolean[] added) {
+			int bit = bit(entry.hash, shift);
+			int index = index(bit);
+
+			if ((bitmap & bit) == 0) {
+				Object[] newSlots = new Object[slots.length + 1];
+				System.arraycopy(slots, 0, newSlots, 0, index);
+				newSlots[index] = entry;
+				System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+				added[0] = true;
+				return new BitmapNode(bitmap | bit, newSlots);
+			}
+
+			Object slot = slots[index];
+			Object newSlot = null;
+			if (slot instanceof Node) {
+				newSlot = ((Node) slot).with(entry, shift + BITS, added);
+			} else {
+				Entry existing = (Entry) slot;
+				if (existing.hash == entry.hash && existing.key.equals(entry.key)) {
+					newSlot = (existing.value == entry.value ? existing : entry);
+				} else {
+					newSlot = merge(existing, entry, shift + BITS);
+					added[0] = true;
+				}
+			}
+
+			if (newSlot == slot) {
+				return this;
+			}
+
+			Object[] newSlots = slots.clone();
+			newSlots[index] = newSlot;
+			return new BitmapNode(bitmap, newSlots);
+		}
+
+		@Override
+		Node without(Object key, int hash, int shift) {
+			int bit = bit(hash, shift);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+
+			int index = index(bit);
+			Object slot = slots[index];
+			if (slot instanceof Node) {
+				Node newNode = ((Node) slot).without(key, hash, shift + BITS);
+				if (newNode == slot) {
+					return this;
+				} else if (newNode != null) {
+					Object[] newSlots = slots.clone();
+					newSlots[index] = newNode;
+					return new BitmapNode(bitmap, newSlots);
+				}
+			} else {
+				Entry entry = (Entry) slot;
+				if (entry.hash != hash || !entry.key.equals(key)) {
+					return this;
+				}
+			}
+
+			if (slots.length == 1) {
+				return null;
+			}
+
+			Object[] newSlots = new Object[slots.length - 1];
+			System.arraycopy(slots, 0, newSlots, 0, index);
+			System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+			return new BitmapNode(bitmap & ~bit, newSlots);
+		}
+
+		@Override
+		void collectKeys(Collection<Object> result) {
+			for (Object slot : slots) {
+				if (slot instanceof Node) {
+					((Node) slot).collectKeys(result);
+				} else {
+					result.add(((Entry) slot).key);
+				}
+			}
+		}
+
+		private int index(int bit) {
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+	}
+
+	/* A node containing the entries whose keys have the same hash code */
+	private static final class CollisionNode extends Node {
+		private final int hash;
+		private final Entry[] entries;
+
+		private CollisionNode(int hash, Entry[] entries) {
+			this.hash = hash;
+			this.entries = entries;
+		}
+
+		@Override
+		Entry find(Object key, int hash, int shift) {
+			int index = indexOf(key);
+			return (hash == this.hash && index >= 0 ? entries[index] : null);
+		}
+
+		@Override
+		Node with(Entry entry, int shift, boolean[] added) {
+			if (entry.hash != hash) {
+				/* Move the collision one level down, next to the new entry */
+				return new BitmapNode(bit(hash, shift), new Object[] { this }).with(entry, shift, added);
+			}
+
+			int index = indexOf(entry.key);
+			Entry[] newEntries = null;
+			if (index >= 0) {
+				if (entries[index].value == entry.value) {
+					return this;
+				}
+				newEntries = entries.clone();
+				newEntries[index] = entry;
+			} else {
+				newEntries = new Entry[entries.length + 1];
+				System.arraycopy(entries, 0, newEntries, 0, entries.length);
+				newEntries[entries.length] = entry;
+				added[0] = true;
+			}
+
+			return new CollisionNode(hash, newEntries);
+		}
+
+		@Override
+		Node without(Object key, int hash, int shift) {
+			int index = (hash == this.hash ? indexOf(key) : -1);
+			if (index < 0) {
+				return this;
+			} else if (entries.length == 1) {
+				return null;
+			}
+
+			Entry[] newEntries = new Entry[entries.length - 1];
+			System.arraycopy(entries, 0, newEntries, 0, index);
+			System.arraycopy(entries, index + 1, newEntries, index, entries.length - index - 1);
+			return new CollisionNode(hash, newEntries);
+		}
+
+		@Override
+		void collectKeys(Collection<Object> result) {
+			for (Entry entry : entries) {
+				result.add(entry.key);
+			}
+		}
+
+		private int indexOf(Object key) {
+			for (int i = 0; i < entries.length; i++) {
+				if (entries[i].key.equals(key)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	private PersistentMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * This method returns the empty map.
+	 *
+	 * @param <K> the type of the keys.
+	 * @param <V> the type of the values.
+	 * @return the empty map.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K,V> PersistentMap<K,V> empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * This method returns the value associated to a key.
+	 *
+	 * @param key the key.
+	 * @return the value associated to the key, or null if the map does not contain the key.
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		Entry entry = (root == null || key == null ? null : root.find(key, hash(key), 0));
+		return (entry == null ? null : (V) entry.value);
+	}
+
+	/**
+	 * This method says whether the map contains a key.
+	 *
+	 * @param key the key.
+	 * @return true if the map contains the key, false otherwise.
+	 */
+	public boolean containsKey(Object key) {
+		return root != null && key != null && root.find(key, hash(key), 0) != null;
+	}
+
+	/**
+	 * This method returns a map containing all the associations of this map and the one specified,
+	 * which replaces the existing association of the key, if any.
+	 *
+	 * @param key the key, which cannot be null.
+	 * @param value the value associated to the key.
+	 * @return the new map, or this map if it already associates the key to the value.
+	 */
+	public PersistentMap<K,V> with(K key, V value) {
+		if (key == null) {
+			throw new IllegalArgumentException("The keys of a persistent map cannot be null.");
+		}
+
+		Entry entry = new Entry(key, value, hash(key));
+		boolean[] added = new boolean[1];
+		Node newRoot = null;
+		if (root == null) {
+			newRoot = new BitmapNode(bit(entry.hash, 0), new Object[] { entry });
+			added[0] = true;
+		} else {
+			newRoot = root.with(entry, 0, added);
+		}
+
+		return (newRoot == root ? this : new PersistentMap<K,V>(newRoot, (added[0] ? size + 1 : size)));
+	}
+
+	/**
+	 * This method returns a map containing all the associations of this map but the one of the key specified.
+	 *
+	 * @param key the key.
+	 * @return the new map, or this map if it does not contain the key.
+	 */
+	public PersistentMap<K,V> without(Object key) {
+		if (root == null || key == null) {
+			return this;
+		}
+
+		Node newRoot = root.without(key, hash(key), 0);
+		if (newRoot == root) {
+			return this;
+		}
+
+		return (newRoot == null ? PersistentMap.<K,V>empty() : new PersistentMap<K,V>(newRoot, size - 1));
+	}
+
+	/**
+	 * This method returns the number of keys of the map.
+	 *
+	 * @return the size of the map.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * This method says whether the map does not contain any key.
+	 *
+	 * @return true if the map is empty, false otherwise.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * This method returns the keys of the map, in no particular order.
+	 *
+	 * @return a new list containing the keys of the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<K> keys() {
+		ArrayList<Object> result = new ArrayList<Object>(size);
+		if (root != null) {
+			root.collectKeys(result);
+		}
+		return (List<K>) (List<?>) result;
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private static int bit(int hash, int shift) {
+		return 1 << ((hash >>> shift) & MASK);
+	}
+
+	/* Return a node containing two entries with different keys */
+	private static Object merge(Entry one, Entry two, int shift) {
+		if (one.hash == two.hash) {
+			return new CollisionNode(one.hash, new Entry[] { one, two });
+		}
+
+		int oneBit = bit(one.hash, shift);
+		int twoBit = bit(two.hash, shift);
+		if (oneBit == twoBit) {
+			return new BitmapNode(oneBit, new Object[] { merge(one, two, shift + BITS) });
+		} else if (Integer.numberOfTrailingZeros(oneBit) < Integer.numberOfTrailingZeros(twoBit)) {
+			return new BitmapNode(oneBit | twoBit, new Object[] { one, two });
+		} else {
+			return new BitmapNode(oneBit | twoBit, new Object[] { two, one });
+		}
+	}
+}
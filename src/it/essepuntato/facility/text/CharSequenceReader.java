@@ -0,0 +1,99 @@
+package it.essepuntato.facility.text;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * <p>A reader of the characters of a character sequence, e.g., a compressed text, a piece table or the
+ * text of a mapped file.</p>
+ * <p>The characters are read through portions of the sequence no longer than the buffer of the caller, so
+ * that the whole sequence is never built as a string. The sequence must not change while it is read.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class CharSequenceReader extends Reader {
+	private CharSequence text;
+	private int position = 0;
+	private int mark = 0;
+
+	/**
+	 * Create a reader of a character sequence.
+	 *
+	 * @param text the character sequence to read.
+	 */
+	public CharSequenceReader(CharSequence text) {
+		this.text = text;
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException {
+		checkOpen();
+		if (offset < 0 || length < 0 || offset + length > buffer.length) {
+			throw new IndexOutOfBoundsException("Offset: " + offset + ", length: " + length);
+		}
+
+		int available = text.length() - position;
+		if (available <= 0) {
+			return (length == 0 ? 0 : -1);
+		}
+
+		int result = Math.min(length, available);
+		if (text instanceof String) {
+			((String) text).getChars(position, position + result, buffer, offset);
+		} else {
+			text.subSequence(position, position + result).toString().getChars(0, result, buffer, offset);
+		}
+		position += result;
+
+		return result;
+	}
+
+	@Override
+	public int read() throws IOException {
+		checkOpen();
+		return (position < text.length() ? text.charAt(position++) : -1);
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		checkOpen();
+		long result = Math.max(0, Math.min(n, text.length() - position));
+		position += (int) result;
+		return result;
+	}
+
+	@Override
+	public boolean ready() throws IOException {
+		checkOpen();
+		return true;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public void mark(int readAheadLimit) throws IOException {
+		checkOpen();
+		mark = position;
+	}
+
+	@Override
+	public void reset() throws IOException {
+		checkOpen();
+		position = mark;
+	}
+
+	@Override
+	public void close() {
+		text = null;
+	}
+
+	private void checkOpen() throws IOException {
+		if (text == null) {
+			throw new IOException("The reader has been closed.");
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package it.essepuntato.facility.text;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * <p>A text stored in blocks of characters compressed independently through the deflate algorithm, with an
+ * index of the offsets of the blocks in the compressed data.</p>
+ * <p>Accessing a character or a portion of the text decompresses only the blocks involved, and the most
+ * recently decompressed blocks are kept in a small cache, so that close accesses do not decompress the same
+ * blocks again. The whole text is decompressed only when requested through toString.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class CompressedText implements CharSequence {
+	/**
+	 * The default number of characters of a block.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 16 * 1024;
+
+	/**
+	 * The default number of decompressed blocks kept in the cache.
+	 */
+	public static final int DEFAULT_HOT_BLOCKS = 4;
+
+	private int length;
+	private int blockSize;
+	private byte[] data;
+	private int[] offsets;
+
+	private Map<Integer,char[]> hotBlocks;
+
+	/**
+	 * Create a compressed text with the default block size and number of cached blocks.
+	 *
+	 * @param text the text to compress.
+	 */
+	public CompressedText(CharSequence text) {
+		this(text, DEFAULT_BLOCK_SIZE, DEFAULT_HOT_BLOCKS);
+	}
+
+	/**
+	 * Create a compressed text.
+	 *
+	 * @param text the text to compress.
+	 * @param blockSize the number of characters of a block.
+	 * @param hotBlocks the number of decompressed blocks kept in the cache.
+	 */
+	public CompressedText(CharSequence text, int blockSize, final int hotBlocks) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("The size of the blocks must be positive: " + blockSize);
+		}
+
+		this.length = text.length();
+		this.blockSize = blockSize;
+		this.hotBlocks = new LinkedHashMap<Integer,char[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer,char[]> eldest) {
+				return size() > hotBlocks;
+			}
+		};
+
+		int blocks = (length + blockSize - 1) / blockSize;
+		offsets = new int[blocks + 1];
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Deflater deflater = new Deflater();
+		byte[] input = new byte[Math.min(length, blockSize) * 2];
+		byte[] output = new byte[input.length + 64];
+		try {
+			for (int i = 0; i < blocks; i++) {
+				offsets[i] = out.size();
+
+				int begin = i * blockSize;
+				int end = Math.min(length, begin + blockSize);
+				int b = 0;
+				for (int j = begin; j < end; j++) {
+					char c = text.charAt(j);
+					input[b++] = (byte) (c >> 8);
+					input[b++] = (byte) c;
+				}
+
+				deflater.reset();
+				deflater.setInput(input, 0, b);
+				deflater.finish();
+				while (!deflater.finished()) {
+					out.write(output, 0, deflater.deflate(output));
+				}
+			}
+		} finally {
+			deflater.end();
+		}
+
+		offsets[blocks] = out.size();
+		data = out.toByteArray();
+	}
+
+	/**
+	 * This method returns the number of bytes of the compressed blocks.
+	 *
+	 * @return the size of the compressed text.
+	 */
+	public int getCompressedSize() {
+		return data.length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+		}
+
+		return getBlock(index / blockSize)[index % blockSize];
+	}
+
+	/**
+	 * This method returns the portion of the text between two offsets, decompressing only the blocks
+	 * containing it.
+	 *
+	 * @param begin the offset of the first character of the portion.
+	 * @param end the offset following the last character of the portion.
+	 * @return the portion of the text.
+	 */
+	@Override
+	public CharSequence subSequence(int begin, int end) {
+		if (begin < 0 || end > length || begin > end) {
+			throw new IndexOutOfBoundsException("Begin: " + begin + ", end: " + end + ", length: " + length);
+		}
+
+		StringBuilder result = new StringBuilder(end - begin);
+
+		int offset = begin;
+		while (offset < end) {
+			int block = offset / blockSize;
+			int from = offset - block * blockSize;
+			int to = Math.min(blockSize, end - block * blockSize);
+			result.append(getBlock(block), from, to - from);
+			offset += to - from;
+		}
+
+		return result.toString();
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, length).toString();
+	}
+
+	/* Return a decompressed block, through the cache of the most recent ones */
+	private synchronized char[] getBlock(int block) {
+		char[] result = hotBlocks.get(block);
+
+		if (result == null) {
+			result = decompress(block);
+			hotBlocks.put(block, result);
+		}
+
+		return result;
+	}
+
+	private char[] decompress(int block) {
+		int chars = Math.min(blockSize, length - block * blockSize);
+		byte[] bytes = new byte[chars * 2];
+
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(data, offsets[block], offsets[block + 1] - offsets[block]);
+			int read = 0;
+			while (read < bytes.length && !inflater.finished()) {
+				read += inflater.inflate(bytes, read, bytes.length - read);
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("The block " + block + " cannot be decompressed.", e);
+		} finally {
+			inflater.end();
+		}
+
+		char[] result = new char[chars];
+		for (int i = 0; i < chars; i++) {
+			result[i] = (char) (((bytes[2 * i] & 0xFF) << 8) | (bytes[2 * i + 1] & 0xFF));
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,357 @@
+package it.essepuntato.facility.text;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * <p>This class represents the textual content of a UTF-8 file as a character sequence, without loading it
+ * in memory. The file is memory-mapped in segments and only the characters requested are decoded, so that
+ * the content costs no heap beyond a sparse index of the byte offsets of its characters, built by a single
+ * scan of the file when it is mapped. When the file contains only ASCII characters, no index is needed at
+ * all. The same applies to the UTF-8 bytes of a portion of a buffer, e.g., of a file already mapped.</p>
+ * <p>Any malformed byte of the file is decoded as the replacement character U+FFFD. The file must not change
+ * while it is mapped, and it cannot contain more than Integer.MAX_VALUE characters.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class MappedFileText implements CharSequence {
+	/**
+	 * The default size, in bytes, of the segments in which files are mapped.
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+	/* The number of characters between two consecutive positions of the index */
+	private static final int STEP = 1024;
+
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private Content content;
+	private int offset;
+	private int length;
+
+	/**
+	 * Create the textual content of a file, mapping it in segments of the default size.
+	 *
+	 * @param file the UTF-8 file to map.
+	 * @throws IOException if the file cannot be mapped or it is too big.
+	 */
+	public MappedFileText(File file) throws IOException {
+		this(file, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Create the textual content of a file.
+	 *
+	 * @param file the UTF-8 file to map.
+	 * @param segmentSize the size, in bytes, of the segments in which the file is mapped.
+	 * @throws IOException if the file cannot be mapped or it is too big.
+	 */
+	public MappedFileText(File file, int segmentSize) throws IOException {
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("The size of the segments must be positive: " + segmentSize);
+		}
+
+		content = new Content(file, segmentSize);
+		offset = 0;
+		length = content.length;
+	}
+
+	/**
+	 * Create the textual content of the UTF-8 bytes of a buffer between its position and its limit, e.g., a
+	 * portion of a mapped file. The buffer is neither copied nor modified, and its content must not change.
+	 *
+	 * @param buffer the buffer containing the UTF-8 bytes of the text.
+	 * @throws IOException if the buffer contains too many characters.
+	 */
+	public MappedFileText(ByteBuffer buffer) throws IOException {
+		content = new Content(buffer.slice());
+		offset = 0;
+		length = content.length;
+	}
+
+	/* Create a view on a portion of an existing content */
+	private MappedFileText(Content content, int offset, int length) {
+		this.content = content;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+		}
+
+		return content.charAt(offset + index);
+	}
+
+	/**
+	 * This method returns a view on a portion of the content, sharing its mapping and index.
+	 *
+	 * @param start the index of the first character of the portion.
+	 * @param end the index following the last character of the portion.
+	 * @return a view on the portion of the content.
+	 */
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end) {
+			throw new IndexOutOfBoundsException(
+					"Start: " + start + ", end: " + end + ", length: " + length);
+		}
+
+		return new MappedFileText(content, offset + start, end - start);
+	}
+
+	/**
+	 * This method decodes the characters of the content, i.e., of the portion of the file it refers to.
+	 *
+	 * @return the characters of the content.
+	 */
+	@Override
+	public String toString() {
+		return content.decode(offset, offset + length);
+	}
+
+	/* The position in bytes of a UTF-8 sequence and the index of the first character it encodes */
+	private static class Position {
+		private final long pos;
+		private final int index;
+
+		private Position(long pos, int index) {
+			this.pos = pos;
+			this.index = index;
+		}
+	}
+
+	/* The mapping of a file and the index of its characters, shared by all the views on it */
+	private static class Content {
+		private ByteBuffer[] segments;
+		private int segmentSize;
+		private long size;
+		private int length;
+
+		/* The byte offsets of the sequences starting at about every STEP characters, null if ASCII */
+		private long[] positions;
+		private int[] indexes;
+		private int indexSize;
+
+		/* The last position located, speeding up sequential accesses */
+		private volatile Position cursor;
+
+		private Content(File file, int segmentSize) throws IOException {
+			this.segmentSize = segmentSize;
+
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = raf.getChannel();
+				size = channel.size();
+
+				segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+				for (int i = 0; i < segments.length; i++) {
+					long begin = (long) i * segmentSize;
+					segments[i] = channel.map(
+							FileChannel.MapMode.READ_ONLY, begin, Math.min(segmentSize, size - begin));
+				}
+			} finally {
+				/* The mappings remain valid after closing the channel */
+				raf.close();
+			}
+
+			index();
+		}
+
+		private Content(ByteBuffer buffer) throws IOException {
+			size = buffer.remaining();
+			segmentSize = Math.max(1, buffer.remaining());
+			segments = new ByteBuffer[] { buffer };
+
+			index();
+		}
+
+		/* Scan the file once, counting its characters and recording the index positions */
+		private void index() throws IOException {
+			long[] curPositions = new long[16];
+			int[] curIndexes = new int[16];
+			int count = 0;
+
+			long chars = 0L;
+			long pos = 0L;
+			boolean isASCII = true;
+			while (pos < size) {
+				if (chars >= (long) count * STEP) {
+					if (count == curPositions.length) {
+						curPositions = grow(curPositions);
+						curIndexes = grow(curIndexes);
+					}
+					curPositions[count] = pos;
+					curIndexes[count] = (int) chars;
+					count++;
+				}
+
+				int len = sequenceLength(pos);
+				isASCII &= (len == 1);
+				chars += (len == 4 ? 2 : 1);
+				pos += len;
+
+				if (chars > Integer.MAX_VALUE) {
+					throw new IOException("The file contains more than " + Integer.MAX_VALUE + " characters.");
+				}
+			}
+
+			length = (int) chars;
+			if (!isASCII) {
+				positions = curPositions;
+				indexes = curIndexes;
+				indexSize = count;
+			}
+		}
+
+		private char charAt(int index) {
+			Position position = locate(index);
+			int len = sequenceLength(position.pos);
+			int codePoint = codePoint(position.pos, len);
+
+			if (len == 4) {
+				return (index == position.index ? highSurrogate(codePoint) : lowSurrogate(codePoint));
+			} else {
+				return (char) codePoint;
+			}
+		}
+
+		private String decode(int begin, int end) {
+			StringBuilder result = new StringBuilder(end - begin);
+
+			if (begin < end) {
+				Position position = locate(begin);
+				long pos = position.pos;
+				int index = position.index;
+				while (index < end) {
+					int len = sequenceLength(pos);
+					int codePoint = codePoint(pos, len);
+					if (len == 4) {
+						if (index >= begin) {
+							result.append(highSurrogate(codePoint));
+						}
+						if (index + 1 < end) {
+							result.append(lowSurrogate(codePoint));
+						}
+						index += 2;
+					} else {
+						result.append((char) codePoint);
+						index++;
+					}
+					pos += len;
+				}
+				cursor = new Position(pos, index);
+			}
+
+			return result.toString();
+		}
+
+		/* Return the position of the sequence encoding the character at the index specified */
+		private Position locate(int index) {
+			if (positions == null) {
+				return new Position(index, index);
+			}
+
+			int k = Math.min(index / STEP, indexSize - 1);
+			if (indexes[k] > index) {
+				k--;
+			}
+			long pos = positions[k];
+			int cur = indexes[k];
+
+			Position last = cursor;
+			if (last != null && last.index <= index && last.index > cur) {
+				pos = last.pos;
+				cur = last.index;
+			}
+
+			while (true) {
+				int len = sequenceLength(pos);
+				int chars = (len == 4 ? 2 : 1);
+				if (cur + chars > index) {
+					Position result = new Position(pos, cur);
+					cursor = result;
+					return result;
+				}
+				cur += chars;
+				pos += len;
+			}
+		}
+
+		private byte byteAt(long pos) {
+			return segments[(int) (pos / segmentSize)].get((int) (pos % segmentSize));
+		}
+
+		/* Return the length of the sequence starting at the position specified, 1 if it is malformed */
+		private int sequenceLength(long pos) {
+			int lead = byteAt(pos) & 0xFF;
+
+			int result = 1;
+			if (lead >= 0xC2 && lead <= 0xDF) {
+				result = 2;
+			} else if (lead >= 0xE0 && lead <= 0xEF) {
+				result = 3;
+			} else if (lead >= 0xF0 && lead <= 0xF4) {
+				result = 4;
+			}
+
+			if (pos + result > size) {
+				return 1;
+			}
+			for (int i = 1; i < result; i++) {
+				if ((byteAt(pos + i) & 0xC0) != 0x80) {
+					return 1;
+				}
+			}
+
+			return result;
+		}
+
+		private int codePoint(long pos, int len) {
+			int lead = byteAt(pos) & 0xFF;
+
+			if (len == 1) {
+				return (lead < 0x80 ? lead : REPLACEMENT);
+			}
+
+			int result = lead & (0xFF >> (len + 1));
+			for (int i = 1; i < len; i++) {
+				result = (result << 6) | (byteAt(pos + i) & 0x3F);
+			}
+
+			return result;
+		}
+
+		private static char highSurrogate(int codePoint) {
+			return (char) (((codePoint - 0x10000) >>> 10) + 0xD800);
+		}
+
+		private static char lowSurrogate(int codePoint) {
+			return (char) (((codePoint - 0x10000) & 0x3FF) + 0xDC00);
+		}
+
+		private static long[] grow(long[] array) {
+			long[] result = new long[array.length * 2];
+			System.arraycopy(array, 0, result, 0, array.length);
+			return result;
+		}
+
+		private static int[] grow(int[] array) {
+			int[] result = new int[array.length * 2];
+			System.arraycopy(array, 0, result, 0, array.length);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,243 @@
+package it.essepuntato.facility.text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A piece table, i.e., an editable text represented as a sequence of pieces of two buffers: the original
+ * text, which is never modified, and an append-only buffer containing all the text inserted.</p>
+ * <p>Insertions and deletions only split and remove pieces, without copying the text, and consecutive
+ * insertions (e.g., typing) extend the same piece. The characters are accessed through a binary search on the
+ * offsets of the pieces, and the whole text is built only when requested through toString.</p>
+ *
+ * @author Silvio Peroni
+ *
+ */
+public class PieceTable implements CharSequence {
+	/* A portion of one of the two buffers */
+	private static class Piece {
+		private boolean added;
+		private int start;
+		private int length;
+
+		private Piece(boolean added, int start, int length) {
+			this.added = added;
+			this.start = start;
+			this.length = length;
+		}
+	}
+
+	private String original;
+	private StringBuilder added = new StringBuilder();
+	private List<Piece> pieces = new ArrayList<Piece>();
+	private int length;
+
+	/* The offsets of the pieces in the text and the text itself, computed only when needed after an edit */
+	private volatile int[] offsets = null;
+	private volatile String text = null;
+
+	/**
+	 * Create a piece table.
+	 *
+	 * @param original the original text.
+	 */
+	public PieceTable(String original) {
+		this.original = original;
+		this.length = original.length();
+		if (length > 0) {
+			pieces.add(new Piece(false, 0, length));
+		}
+		this.text = original;
+	}
+
+	/**
+	 * This method inserts a text at a particular offset.
+	 *
+	 * @param offset the offset in which the text will be inserted.
+	 * @param insertion the text to insert.
+	 * @throws IndexOutOfBoundsException if the offset is out of the text.
+	 */
+	public void insert(int offset, CharSequence insertion) {
+		checkBounds(offset, offset);
+
+		int size = insertion.length();
+		if (size > 0) {
+			int index = split(offset);
+
+			Piece previous = (index > 0 ? pieces.get(index - 1) : null);
+			if (previous != null && previous.added && previous.start + previous.length == added.length()) {
+				previous.length += size;
+			} else {
+				pieces.add(index, new Piece(true, added.length(), size));
+			}
+
+			added.append(insertion);
+			length += size;
+			changed();
+		}
+	}
+
+	/**
+	 * This method deletes the text between two offsets.
+	 *
+	 * @param begin the offset of the first character to delete.
+	 * @param end the offset following the last character to delete.
+	 * @throws IndexOutOfBoundsException if the offsets are out of the text or begin is greater than end.
+	 */
+	public void delete(int begin, int end) {
+		checkBounds(begin, end);
+
+		if (begin < end) {
+			int first = split(begin);
+			int last = split(end);
+			pieces.subList(first, last).clear();
+
+			length -= end - begin;
+			changed();
+		}
+	}
+
+	/**
+	 * This method replaces the text between two offsets with another text.
+	 *
+	 * @param begin the offset of the first character to replace.
+	 * @param end the offset following the last character to replace.
+	 * @param replacement the new text.
+	 * @throws IndexOutOfBoundsException if the offsets are out of the text or begin is greater than end.
+	 */
+	public void replace(int begin, int end, CharSequence replacement) {
+		delete(begin, end);
+		insert(begin, replacement);
+	}
+
+	/**
+	 * This method returns the number of pieces the text is made of.
+	 *
+	 * @return the number of pieces of the text.
+	 */
+	public int getPieceCount() {
+		return pieces.size();
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", length: " + length);
+		}
+
+		if (text != null) {
+			return text.charAt(index);
+		}
+
+		int i = find(index);
+		Piece piece = pieces.get(i);
+		return getBuffer(piece).charAt(piece.start + index - offsets[i]);
+	}
+
+	/**
+	 * This method returns the portion of the text between two offsets, copying only that portion.
+	 *
+	 * @param begin the offset of the first character of the portion.
+	 * @param end the offset following the last character of the portion.
+	 * @return the portion of the text.
+	 */
+	@Override
+	public CharSequence subSequence(int begin, int end) {
+		checkBounds(begin, end);
+
+		if (text != null) {
+			return text.substring(begin, end);
+		}
+
+		StringBuilder result = new StringBuilder(end - begin);
+		if (begin < end) {
+			int i = find(begin);
+			int offset = begin;
+			while (offset < end) {
+				Piece piece = pieces.get(i);
+				int from = offset - offsets[i];
+				int to = Math.min(piece.length, end - offsets[i]);
+				result.append(getBuffer(piece), piece.start + from, piece.start + to);
+				offset += to - from;
+				i++;
+			}
+		}
+
+		return result.toString();
+	}
+
+	@Override
+	public String toString() {
+		if (text == null) {
+			text = subSequence(0, length).toString();
+		}
+
+		return text;
+	}
+
+	/* Split the piece containing an offset so that a piece starts there, and return the index of that piece */
+	private int split(int offset) {
+		if (offset == length) {
+			return pieces.size();
+		}
+
+		int i = find(offset);
+		int delta = offset - offsets[i];
+		if (delta > 0) {
+			Piece piece = pieces.get(i);
+			pieces.add(i + 1, new Piece(piece.added, piece.start + delta, piece.length - delta));
+			piece.length = delta;
+			changed();
+			i++;
+		}
+
+		return i;
+	}
+
+	/* Return the index of the piece containing the offset specified */
+	private int find(int offset) {
+		if (offsets == null) {
+			/* Publish the offsets only when complete, since many threads may read the same table */
+			int[] computed = new int[pieces.size()];
+			int current = 0;
+			for (int i = 0; i < computed.length; i++) {
+				computed[i] = current;
+				current += pieces.get(i).length;
+			}
+			offsets = computed;
+		}
+
+		int low = 0;
+		int high = offsets.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (offsets[middle] <= offset) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+
+		return low;
+	}
+
+	private CharSequence getBuffer(Piece piece) {
+		return (piece.added ? added : original);
+	}
+
+	private void changed() {
+		offsets = null;
+		text = null;
+	}
+
+	private void checkBounds(int begin, int end) {
+		if (begin < 0 || end > length || begin > end) {
+			throw new IndexOutOfBoundsException("Begin: " + begin + ", end: " + end + ", length: " + length);
+		}
+	}
+}